@@ -373,13 +373,17 @@ public class Buffer extends SharedResource {
      */
     private volatile int _mvvCount;
 
+    private volatile long _lastPrunedTime;
+
     /**
-     * Singly-linked list of Buffers current having the same hash code.
-     * (Maintained by BufferPool.)
+     * Estimated count of bytes held by superseded versions in the MVV values
+     * of this page, and the Tree they belong to. Maintained by
+     * {@link #addDeadBytes(Tree, int)} and cleared when the page is pruned or
+     * the buffer is reused.
      */
-    private Buffer _next = null;
+    private volatile int _deadBytes;
 
-    private volatile long _lastPrunedTime;
+    private volatile Tree _deadBytesTree;
 
     private volatile boolean _enqueuedForAntiValuePruning;
 
@@ -437,6 +441,7 @@ public class Buffer extends SharedResource {
         _alloc = _bufferSize;
         _slack = 0;
         _mvvCount = 0;
+        resetDeadBytes();
         clearEnqueuedForPruning();
         bumpGeneration();
     }
@@ -467,6 +472,7 @@ public class Buffer extends SharedResource {
 
     void load() throws InvalidPageStructureException {
         Debug.$assert0.t(isOwnedAsWriterByMe());
+        resetDeadBytes();
 
         _timestamp = getLong(TIMESTAMP_OFFSET);
 
@@ -523,16 +529,38 @@ public class Buffer extends SharedResource {
         _persistit.checkFatal();
         final Volume volume = getVolume();
         if (volume != null) {
-            if (prune) {
-                pruneMvvValues(null, false, null);
-            }
-            clearSlack();
-            save();
+            prepareWrite(prune);
             _vol.getStorage().writePage(this);
-            clearDirty();
-            volume.getStatistics().bumpWriteCounter();
-            _pool.bumpWriteCounter();
+            writeCompleted();
+        }
+    }
+
+    /**
+     * Bring the page image up to date in preparation for writing it. Used by
+     * {@link #writePage(boolean)} and by the PAGE_WRITER, which writes a batch
+     * of prepared buffers with one call to
+     * {@link VolumeStorage#writePages(Buffer[], int)}.
+     * 
+     * @param prune
+     *            <code>true</code> to prune MVV values before writing
+     * @throws PersistitException
+     */
+    void prepareWrite(final boolean prune) throws PersistitException {
+        assert isOwnedAsWriterByMe();
+        if (prune) {
+            pruneMvvValues(null, false, null);
         }
+        clearSlack();
+        save();
+    }
+
+    /**
+     * Mark the page clean after it has been written.
+     */
+    void writeCompleted() {
+        clearDirty();
+        getVolume().getStatistics().bumpWriteCounter();
+        _pool.bumpWriteCounter();
     }
 
     @Override
@@ -773,6 +801,49 @@ public class Buffer extends SharedResource {
         return _mvvCount;
     }
 
+    int getDeadBytes() {
+        return _deadBytes;
+    }
+
+    Tree getDeadBytesTree() {
+        return _deadBytesTree;
+    }
+
+    /**
+     * Adjust the estimated count of bytes held by superseded MVV versions on
+     * this page. The change is also applied to the estimate for the tree and
+     * to the total maintained by the {@link CleanupManager}. Caller must hold
+     * an exclusive claim.
+     * 
+     * @param tree
+     *            the Tree this page belongs to
+     * @param delta
+     *            change in size of the MVV that was just stored
+     */
+    void addDeadBytes(final Tree tree, final int delta) {
+        assert isOwnedAsWriterByMe();
+        if (_deadBytesTree != tree) {
+            resetDeadBytes();
+            _deadBytesTree = tree;
+        }
+        final int deadBytes = Math.max(0, _deadBytes + delta);
+        if (deadBytes != _deadBytes) {
+            tree.getStatistics().addDeadVersionBytes(deadBytes - _deadBytes);
+            _persistit.getCleanupManager().addDeadVersionBytes(deadBytes - _deadBytes);
+            _deadBytes = deadBytes;
+        }
+    }
+
+    private void resetDeadBytes() {
+        final Tree tree = _deadBytesTree;
+        if (tree != null && _deadBytes != 0) {
+            tree.getStatistics().addDeadVersionBytes(-_deadBytes);
+            _persistit.getCleanupManager().addDeadVersionBytes(-_deadBytes);
+        }
+        _deadBytes = 0;
+        _deadBytesTree = null;
+    }
+
     void setKeyBlockEnd(final int index) {
         Debug.$assert0.t(index >= KEY_BLOCK_START && index <= (_pool.getMaxKeys() * KEYBLOCK_LENGTH) + KEY_BLOCK_START
                 || (!isDataPage() && !isIndexPage() || !isValid()));
@@ -784,15 +855,6 @@ public class Buffer extends SharedResource {
         _alloc = alloc;
     }
 
-    void setNext(final Buffer buffer) {
-        Debug.$assert0.t(buffer != this);
-        _next = buffer;
-    }
-
-    Buffer getNext() {
-        return _next;
-    }
-
     /**
      * Finds the keyblock in this page that exactly matches or immediately
      * follows the supplied key.
@@ -3610,6 +3672,7 @@ public class Buffer extends SharedResource {
                 throw new IllegalStateException("Exclusive claim required " + this);
             }
             if (isDataPage() && _mvvCount != 0) {
+                final int availableBefore = getAvailableSize();
                 final long timestamp = _persistit.getTimestampAllocator().updateTimestamp();
                 _mvvCount = 0;
                 writePageOnCheckpoint(timestamp);
@@ -3653,6 +3716,10 @@ public class Buffer extends SharedResource {
                         throw deferredExceptions.get(0);
                     }
                 }
+                resetDeadBytes();
+                if (changed) {
+                    _persistit.getCleanupManager().pagePruned(getAvailableSize() - availableBefore);
+                }
             }
 
         } finally {
@@ -4210,7 +4277,7 @@ public class Buffer extends SharedResource {
                 if (now - last > delay) {
                     _lastPrunedTime = now;
                     _persistit.getCleanupManager().offer(
-                            new CleanupManager.CleanupPruneAction(treeHandle, getPageAddress()));
+                            new CleanupManager.CleanupPruneAction(treeHandle, getPageAddress()), _deadBytes);
                 }
             }
         }
@@ -0,0 +1,303 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * Open-addressed table that maps a (Volume, page address) pair to the
+ * {@link Buffer} of a {@link BufferPool} currently holding that page. Each
+ * slot holds a buffer index plus one; zero marks an empty slot and -1 a slot
+ * whose entry has been removed. The key of an occupied slot is read from the
+ * buffer itself.
+ * </p>
+ * <p>
+ * {@link #find(Volume, long)} is lock-free and is intended for the hit path
+ * of {@link BufferPool#get}. Because a buffer may be removed and reassigned
+ * concurrently, the result is only a hint: the caller must claim the buffer
+ * and then verify that it is still valid and still holds the requested page.
+ * A <code>null</code> result is wrong only if the page is being added
+ * concurrently; {@link #insert(Buffer)} then reports that the page is already
+ * present and the caller discards the buffer it allocated.
+ * </p>
+ * <p>
+ * {@link #insert(Buffer)} and {@link #remove(Buffer)} must be called with the
+ * table lock held. Since every mutation is serialized by that lock, a lookup
+ * performed while holding it is exact. The lock is held only for the duration
+ * of a probe sequence; in particular no I/O is performed while it is held.
+ * </p>
+ * <p>
+ * When removed slots accumulate, or when the pool is resized, the table is
+ * rebuilt into a new slot array that is installed only once fully populated.
+ * A lookup that started before the new array was installed completes against
+ * the old one, which is never modified afterward; any stale answer is caught
+ * by the same validation that guards against concurrent removal.
+ * </p>
+ */
+class BufferLookupTable {
+
+    private final static int EMPTY = 0;
+
+    private final static int REMOVED = -1;
+
+    private final static int MAXIMUM_CAPACITY = 1 << 30;
+
+    private volatile Buffer[] _buffers;
+
+    private volatile AtomicIntegerArray _slots;
+
+    private final ReentrantLock _lock = new ReentrantLock();
+
+    /*
+     * Guarded by _lock
+     */
+    private int _size;
+
+    private int _removed;
+
+    BufferLookupTable(final Buffer[] buffers, final int minimumCapacity) {
+        _buffers = buffers;
+        _slots = new AtomicIntegerArray(capacity(minimumCapacity));
+    }
+
+    private static int capacity(final int minimumCapacity) {
+        int capacity = 16;
+        while (capacity < minimumCapacity && capacity < MAXIMUM_CAPACITY) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    static int hash(final Volume volume, final long page) {
+        long h = page * 0x9E3779B97F4A7C15L + (volume == null ? 0 : volume.hashCode());
+        h ^= h >>> 29;
+        return (int) h ^ (int) (h >>> 32);
+    }
+
+    /**
+     * @param volume
+     * @param page
+     * @return home slot of the supplied page
+     */
+    int slot(final Volume volume, final long page) {
+        return hash(volume, page) & (_slots.length() - 1);
+    }
+
+    /**
+     * Find the buffer holding the specified page without locking. The result
+     * must be validated after claiming the buffer.
+     *
+     * @param volume
+     * @param page
+     * @return the buffer, or <code>null</code> if none was found
+     */
+    Buffer find(final Volume volume, final long page) {
+        final AtomicIntegerArray slots = _slots;
+        final Buffer[] buffers = _buffers;
+        final int mask = slots.length() - 1;
+        int slot = hash(volume, page) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            final int entry = slots.get(slot);
+            if (entry == EMPTY) {
+                return null;
+            }
+            if (entry != REMOVED && entry <= buffers.length) {
+                final Buffer buffer = buffers[entry - 1];
+                if (buffer.getPageAddress() == page && buffer.getVolume() == volume) {
+                    return buffer;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Add a buffer under its current Volume and page address. Caller must hold
+     * the lock.
+     *
+     * @param buffer
+     * @return <code>true</code> if added, <code>false</code> if another buffer
+     *         is already present for the same page
+     */
+    boolean insert(final Buffer buffer) {
+        assert _lock.isHeldByCurrentThread();
+        final Volume volume = buffer.getVolume();
+        final long page = buffer.getPageAddress();
+        final int mask = _slots.length() - 1;
+        int slot = slot(volume, page);
+        int target = -1;
+        for (;;) {
+            final int entry = _slots.get(slot);
+            if (entry == EMPTY) {
+                break;
+            }
+            if (entry == REMOVED) {
+                if (target == -1) {
+                    target = slot;
+                }
+            } else {
+                final Buffer other = _buffers[entry - 1];
+                if (other.getPageAddress() == page && other.getVolume() == volume) {
+                    return other == buffer;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (target == -1) {
+            target = slot;
+        } else {
+            _removed--;
+        }
+        _slots.set(target, buffer.getIndex() + 1);
+        _size++;
+        if ((_size + _removed) * 4 > (mask + 1) * 3) {
+            rebuild();
+        }
+        return true;
+    }
+
+    /**
+     * Remove a buffer that was added under its current Volume and page
+     * address. Caller must hold the lock.
+     *
+     * @param buffer
+     * @return <code>true</code> if the buffer was found and removed
+     */
+    boolean remove(final Buffer buffer) {
+        assert _lock.isHeldByCurrentThread();
+        final int wanted = buffer.getIndex() + 1;
+        final int mask = _slots.length() - 1;
+        int slot = slot(buffer.getVolume(), buffer.getPageAddress());
+        for (;;) {
+            final int entry = _slots.get(slot);
+            if (entry == EMPTY) {
+                return false;
+            }
+            if (entry == wanted) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        _size--;
+        if (_slots.get((slot + 1) & mask) == EMPTY) {
+            /*
+             * No probe sequence continues past this slot, so it and any run of
+             * removed slots immediately preceding it can become empty.
+             */
+            _slots.set(slot, EMPTY);
+            for (int previous = (slot - 1) & mask; _slots.get(previous) == REMOVED; previous = (previous - 1)
+                    & mask) {
+                _slots.set(previous, EMPTY);
+                _removed--;
+            }
+        } else {
+            _slots.set(slot, REMOVED);
+            _removed++;
+        }
+        return true;
+    }
+
+    /**
+     * Reinsert all entries into a new slot array of the same capacity to
+     * discard accumulated removed slots. The old array is left intact for
+     * concurrent lock-free lookups until the new one is installed.
+     */
+    private void rebuild() {
+        final AtomicIntegerArray slots = _slots;
+        final int[] entries = new int[_size];
+        int count = 0;
+        for (int slot = 0; slot < slots.length(); slot++) {
+            final int entry = slots.get(slot);
+            if (entry != EMPTY && entry != REMOVED) {
+                entries[count++] = entry;
+            }
+        }
+        final AtomicIntegerArray newSlots = new AtomicIntegerArray(slots.length());
+        place(newSlots, entries, count);
+        _slots = newSlots;
+        _removed = 0;
+    }
+
+    /**
+     * Replace the buffer array after the pool has been resized, rebuilding the
+     * entries into a new slot array of suitable capacity. Caller must hold the
+     * lock and must already have removed every buffer that is not a member of
+     * the new array. The new arrays are installed only once fully populated so
+     * that concurrent lock-free lookups continue to use the old ones in the
+     * meantime.
+     * 
+     * @param buffers
+     *            the new buffer array
+     * @param minimumCapacity
+     *            minimum number of slots
+     */
+    void resize(final Buffer[] buffers, final int minimumCapacity) {
+        assert _lock.isHeldByCurrentThread();
+        final AtomicIntegerArray slots = _slots;
+        final int[] entries = new int[_size];
+        int count = 0;
+        for (int slot = 0; slot < slots.length(); slot++) {
+            final int entry = slots.get(slot);
+            if (entry != EMPTY && entry != REMOVED) {
+                assert entry <= buffers.length : "Buffer not removed before resize";
+                entries[count++] = entry;
+            }
+        }
+        final AtomicIntegerArray newSlots = new AtomicIntegerArray(capacity(Math.max(minimumCapacity,
+                count * 4 / 3 + 1)));
+        _buffers = buffers;
+        place(newSlots, entries, count);
+        _slots = newSlots;
+        _removed = 0;
+    }
+
+    private void place(final AtomicIntegerArray slots, final int[] entries, final int count) {
+        final Buffer[] buffers = _buffers;
+        final int mask = slots.length() - 1;
+        for (int index = 0; index < count; index++) {
+            final Buffer buffer = buffers[entries[index] - 1];
+            int slot = hash(buffer.getVolume(), buffer.getPageAddress()) & mask;
+            while (slots.get(slot) != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots.set(slot, entries[index]);
+        }
+    }
+
+    void lock() {
+        _lock.lock();
+    }
+
+    void unlock() {
+        _lock.unlock();
+    }
+
+    int size() {
+        return _size;
+    }
+
+    int getCapacity() {
+        return _slots.length();
+    }
+
+    int getRemovedCount() {
+        return _removed;
+    }
+}
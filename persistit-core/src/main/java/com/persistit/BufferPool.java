@@ -23,7 +23,6 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -31,9 +30,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicLongArray;
-import java.util.concurrent.locks.ReentrantLock;
 
-import com.persistit.JournalManager.PageNode;
 import com.persistit.exception.InUseException;
 import com.persistit.exception.InvalidPageAddressException;
 import com.persistit.exception.InvalidPageStructureException;
@@ -79,11 +76,6 @@ public class BufferPool {
      */
     public final static int MAXIMUM_POOL_COUNT = Integer.MAX_VALUE;
 
-    /**
-     * The maximum number of lock buckets
-     */
-    private final static int HASH_LOCKS = 4096;
-
     /**
      * Ratio determines which of two volume invalidation algorithms to invoke.
      */
@@ -111,35 +103,39 @@ public class BufferPool {
     private final Persistit _persistit;
 
     /**
-     * Hash table - fast access to buffer by hash of address.
+     * Lookup table - fast access to buffer by Volume and page address.
      */
-    private final Buffer[] _hashTable;
+    private final BufferLookupTable _lookupTable;
 
     /**
-     * Locks used to lock hashtable entries.
+     * All Buffers in this pool. Replaced by a longer or shorter copy when the
+     * pool is resized; readers take a local reference to it.
      */
-    private final ReentrantLock[] _hashLocks;
-
+    private volatile Buffer[] _buffers;
     /**
-     * All Buffers in this pool
+     * Count of Buffers that may be allocated to hold pages. This is less than
+     * the length of <code>_buffers</code> while the pool is being shrunk.
      */
-    private final Buffer[] _buffers;
-    /**
-     * Count of Buffers allocated to this pool.
-     */
-    private final int _bufferCount;
+    private volatile int _bufferCount;
 
     /**
      * Size of each buffer
      */
     private final int _bufferSize;
 
+    /**
+     * Name of a named pool, or <code>null</code> for the default pool of its
+     * buffer size
+     */
+    private final String _name;
+
     /**
      * Bit map for invalidated pages. Elements in this array, one bit per page,
      * indicate buffers that have been invalidated and are therefore able to be
-     * allocated without evicting a valid page.
+     * allocated without evicting a valid page. Replaced, like
+     * <code>_buffers</code>, when the pool is resized.
      */
-    private final AtomicLongArray _availablePagesBits;
+    private volatile AtomicLongArray _availablePagesBits;
 
     private final AtomicBoolean _availablePages = new AtomicBoolean();
 
@@ -153,6 +149,11 @@ public class BufferPool {
      */
     private final AtomicInteger _clock = new AtomicInteger();
 
+    /**
+     * Policy consulted by the clock when choosing a page to evict
+     */
+    private volatile ReplacementPolicy _replacementPolicy;
+
     /**
      * Count of buffer pool misses (buffer not found in pool)
      */
@@ -192,6 +193,47 @@ public class BufferPool {
      * (with n Count of pages written due to being dirty before a checkpoint
      */
     private final AtomicLong _forcedCheckpointWriteCounter = new AtomicLong();
+
+    /**
+     * Count of write operations issued by the PAGE_WRITER thread. Pages
+     * having consecutive addresses in the same volume are written with one
+     * operation.
+     */
+    private final AtomicLong _writeRunCounter = new AtomicLong();
+
+    /**
+     * Count of pages written by those operations
+     */
+    private final AtomicLong _writeRunPageCounter = new AtomicLong();
+
+    /**
+     * Indicates that pages recorded in the buffer inventory are being loaded
+     * by {@link BufferWarmup}
+     */
+    private final AtomicBoolean _warmingUp = new AtomicBoolean();
+
+    /**
+     * Count of pages recorded in the inventory being loaded
+     */
+    private volatile long _warmupPageTotal;
+
+    /**
+     * Count of pages loaded by warm-up
+     */
+    private final AtomicLong _warmupPageCounter = new AtomicLong();
+
+    /**
+     * Count of read operations used to load them
+     */
+    private final AtomicLong _warmupReadCounter = new AtomicLong();
+
+    /**
+     * System times (in milliseconds) at which warm-up started and finished,
+     * and the system nano time of the most recent progress log message
+     */
+    private volatile long _warmupStartTime;
+    private volatile long _warmupEndTime;
+    private final AtomicLong _warmupReportTime = new AtomicLong();
     /**
      * Indicates that Persistit has closed this buffer pool.
      */
@@ -230,7 +272,24 @@ public class BufferPool {
      *            The size (in bytes) of each buffer
      */
     BufferPool(final int count, final int size, final Persistit persistit) {
+        this(count, size, persistit, null);
+    }
+
+    /**
+     * Construct a BufferPool with the specified count of <code>Buffer</code>s
+     * of the specified size.
+     * 
+     * @param count
+     *            The number of buffers in the pool
+     * @param size
+     *            The size (in bytes) of each buffer
+     * @param name
+     *            Name of a named pool, or <code>null</code> for the default
+     *            pool of the buffer size
+     */
+    BufferPool(final int count, final int size, final Persistit persistit, final String name) {
         _persistit = persistit;
+        _name = name;
         if (count < MINIMUM_POOL_COUNT) {
             throw new IllegalArgumentException("Buffer pool count too small: " + count);
         }
@@ -253,13 +312,11 @@ public class BufferPool {
         _bufferSize = size;
         _buffers = new Buffer[_bufferCount];
         _availablePagesBits = new AtomicLongArray((count + 63) / 64);
-        _hashTable = new Buffer[_bufferCount * HASH_MULTIPLE];
-        _hashLocks = new ReentrantLock[HASH_LOCKS];
+        _lookupTable = new BufferLookupTable(_buffers, (int) Math.min(Integer.MAX_VALUE, (long) _bufferCount
+                * HASH_MULTIPLE));
         _maxKeys = (_bufferSize - Buffer.HEADER_SIZE) / Buffer.MAX_KEY_RATIO;
 
-        for (int index = 0; index < HASH_LOCKS; index++) {
-            _hashLocks[index] = new ReentrantLock();
-        }
+        _replacementPolicy = ReplacementPolicy.newInstance(ReplacementPolicy.DEFAULT_NAME, count);
 
         int buffers = 0;
         //
@@ -271,6 +328,7 @@ public class BufferPool {
             for (int index = 0; index < _bufferCount; index++) {
                 final Buffer buffer = new Buffer(size, index, this, _persistit);
                 _buffers[index] = buffer;
+                markAvailable(buffer);
                 buffers++;
             }
         } catch (final OutOfMemoryError e) {
@@ -323,13 +381,14 @@ public class BufferPool {
     }
 
     int hashIndex(final Volume vol, final long page) {
-        return (int) (((page ^ vol.hashCode()) & Integer.MAX_VALUE) % _hashTable.length);
+        return _lookupTable.slot(vol, page);
     }
 
     int countInUse(final Volume vol, final boolean writer) {
         int count = 0;
-        for (int i = 0; i < _bufferCount; i++) {
-            final Buffer buffer = _buffers[i];
+        final Buffer[] buffers = _buffers;
+        for (int i = 0; i < buffers.length; i++) {
+            final Buffer buffer = buffers[i];
             if ((vol == null || buffer.getVolume() == vol)
                     && ((buffer.getStatus() & SharedResource.CLAIMED_MASK) != 0 && (!writer || (buffer.getStatus() & SharedResource.WRITER_MASK) != 0))) {
                 count++;
@@ -339,6 +398,7 @@ public class BufferPool {
     }
 
     void populateBufferPoolInfo(final ManagementImpl.BufferPoolInfo info) {
+        info.poolName = _name;
         info.bufferCount = _bufferCount;
         info.bufferSize = _bufferSize;
         info.missCount = _missCounter.get();
@@ -349,12 +409,24 @@ public class BufferPool {
         info.writeCount = _writeCounter.get();
         info.forcedCheckpointWriteCount = _forcedCheckpointWriteCounter.get();
         info.forcedWriteCount = _forcedWriteCounter.get();
+        info.writeRunCount = _writeRunCounter.get();
+        info.writeRunPageCount = _writeRunPageCounter.get();
+        final ReplacementPolicy policy = _replacementPolicy;
+        info.replacementPolicy = policy.getName();
+        info.ghostHitCount = policy.getGhostHitCount();
+        info.protectedCount = policy.getProtectedCount();
+        info.warmingUp = _warmingUp.get();
+        info.warmupPageTotal = _warmupPageTotal;
+        info.warmupPageCount = _warmupPageCounter.get();
+        info.warmupReadCount = _warmupReadCounter.get();
+        info.warmupElapsedTime = getWarmupElapsedTime();
         int validPages = 0;
         int readerClaimedPages = 0;
         int writerClaimedPages = 0;
 
-        for (int index = 0; index < _bufferCount; index++) {
-            final Buffer buffer = _buffers[index];
+        final Buffer[] buffers = _buffers;
+        for (int index = 0; index < buffers.length; index++) {
+            final Buffer buffer = buffers[index];
             final int status = buffer.getStatus();
             if ((status & SharedResource.VALID_MASK) != 0)
                 validPages++;
@@ -376,8 +448,9 @@ public class BufferPool {
         int index = 0;
         switch (traveralType) {
         case 0:
-            for (int i = 0; i < _bufferCount; i++) {
-                final Buffer buffer = _buffers[i];
+            final Buffer[] buffers = _buffers;
+            for (int i = 0; i < buffers.length; i++) {
+                final Buffer buffer = buffers[i];
                 if (selected(buffer, includeMask, excludeMask)) {
                     populateInfo1(array, index, buffer);
                     index++;
@@ -405,6 +478,14 @@ public class BufferPool {
                 && (buffer.getStatus() & excludeMask) == 0;
     }
 
+    /**
+     * @return the name of this pool if it is a named pool, or
+     *         <code>null</code> if it is the default pool for its buffer size
+     */
+    public String getName() {
+        return _name;
+    }
+
     /**
      * @return Size (in bytes) of each <code>Buffer</code> managed by this pool.
      */
@@ -419,6 +500,145 @@ public class BufferPool {
         return _bufferCount;
     }
 
+    /**
+     * <p>
+     * Change the number of buffers in this pool while it is in use. When the
+     * pool grows the new buffers are available immediately. When it shrinks
+     * the buffers at the end of the pool are first withdrawn from allocation
+     * and are then drained through the normal eviction path: each one is
+     * claimed, written if dirty, and detached from the lookup table.
+     * </p>
+     * <p>
+     * Threads reading or allocating pages are not blocked. The buffer array,
+     * the available page bit map and the lookup table are replaced by resized
+     * copies rather than modified in place, so a concurrent reader simply
+     * completes its operation against the copy it already holds. The
+     * replacement policy is replaced by a new instance sized for the new pool;
+     * it starts with no history.
+     * </p>
+     * 
+     * @param count
+     *            The new number of buffers
+     * @throws IllegalArgumentException
+     *             if the count is out of range
+     * @throws InUseException
+     *             if a buffer that needs to be removed holds a volume head
+     *             page, or remains claimed by another thread for longer than
+     *             {@value SharedResource#DEFAULT_MAX_WAIT_TIME} milliseconds.
+     *             The pool then retains its original size.
+     * @throws PersistitException
+     *             if a dirty page could not be written
+     */
+    public synchronized void resize(final int count) throws PersistitException {
+        if (count < MINIMUM_POOL_COUNT) {
+            throw new IllegalArgumentException("Buffer pool count too small: " + count);
+        }
+        if (count > MAXIMUM_POOL_COUNT) {
+            throw new IllegalArgumentException("Buffer pool count too large: " + count);
+        }
+        if (_closed.get()) {
+            throw new IllegalStateException(this + " is closed");
+        }
+        final int oldCount = _bufferCount;
+        if (count > oldCount) {
+            grow(count);
+        } else if (count < oldCount) {
+            shrink(count);
+        } else {
+            return;
+        }
+        _persistit.getLogBase().resizeBuffers.log(this, oldCount, count);
+    }
+
+    private void grow(final int count) {
+        final Buffer[] oldBuffers = _buffers;
+        final Buffer[] buffers = Arrays.copyOf(oldBuffers, count);
+        for (int index = oldBuffers.length; index < count; index++) {
+            buffers[index] = new Buffer(_bufferSize, index, this, _persistit);
+        }
+        final AtomicLongArray availablePagesBits = copyAvailablePagesBits(count);
+        for (int index = oldBuffers.length; index < count; index++) {
+            availablePagesBits.set(index / 64, availablePagesBits.get(index / 64) | (1L << (index % 64)));
+        }
+        _replacementPolicy = ReplacementPolicy.newInstance(_replacementPolicy.getName(), count);
+        installBuffers(buffers, availablePagesBits);
+        _bufferCount = count;
+        _availablePages.set(true);
+    }
+
+    private void shrink(final int count) throws PersistitException {
+        final Buffer[] oldBuffers = _buffers;
+        final int oldCount = _bufferCount;
+        //
+        // Stop allocating the buffers being removed, then evict their pages
+        //
+        _bufferCount = count;
+        boolean drained = false;
+        try {
+            final ReplacementPolicy policy = _replacementPolicy;
+            for (int index = count; index < oldBuffers.length; index++) {
+                drain(oldBuffers[index], policy);
+            }
+            drained = true;
+        } finally {
+            if (!drained) {
+                _bufferCount = oldCount;
+                for (int index = count; index < oldBuffers.length; index++) {
+                    if (!oldBuffers[index].isValid()) {
+                        markAvailable(oldBuffers[index]);
+                    }
+                }
+            }
+        }
+        final Buffer[] buffers = Arrays.copyOf(oldBuffers, count);
+        installBuffers(buffers, copyAvailablePagesBits(count));
+        _replacementPolicy = ReplacementPolicy.newInstance(_replacementPolicy.getName(), count);
+    }
+
+    private void drain(final Buffer buffer, final ReplacementPolicy policy) throws PersistitException {
+        if (buffer.isFixed()) {
+            throw new InUseException("Buffer " + buffer + " holds a volume head page and cannot be removed from "
+                    + this);
+        }
+        if (!buffer.claim(true, SharedResource.DEFAULT_MAX_WAIT_TIME)) {
+            throw new InUseException("Thread " + Thread.currentThread().getName()
+                    + " failed to acquire writer claim on " + buffer);
+        }
+        try {
+            if (buffer.isValid()) {
+                evictPage(buffer, policy);
+            } else {
+                buffer.clearDirty();
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private AtomicLongArray copyAvailablePagesBits(final int count) {
+        final AtomicLongArray from = _availablePagesBits;
+        final AtomicLongArray to = new AtomicLongArray((count + 63) / 64);
+        for (int q = 0; q < to.length() && q < from.length(); q++) {
+            to.set(q, from.get(q));
+        }
+        if (count % 64 != 0) {
+            final int q = count / 64;
+            to.set(q, to.get(q) & ((1L << (count % 64)) - 1));
+        }
+        return to;
+    }
+
+    private void installBuffers(final Buffer[] buffers, final AtomicLongArray availablePagesBits) {
+        _lookupTable.lock();
+        try {
+            _lookupTable.resize(buffers, (int) Math.min(Integer.MAX_VALUE, (long) buffers.length * HASH_MULTIPLE));
+            _buffers = buffers;
+        } finally {
+            _lookupTable.unlock();
+        }
+        _availablePagesBits = availablePagesBits;
+    }
+
     /**
      * @return The count of lookup operations for pages images in this pool that
      *         required a physical read operation. This number, in comparison
@@ -460,6 +680,22 @@ public class BufferPool {
         return _forcedWriteCounter.get();
     }
 
+    /**
+     * @return The count of runs of pages having consecutive addresses written
+     *         by the PAGE_WRITER thread
+     */
+    public long getWriteRunCounter() {
+        return _writeRunCounter.get();
+    }
+
+    /**
+     * @return The count of pages written by the PAGE_WRITER thread. Divided by
+     *         {@link #getWriteRunCounter()} this yields the average run length.
+     */
+    public long getWriteRunPageCounter() {
+        return _writeRunPageCounter.get();
+    }
+
     /**
      * This counter is incremented each time a application modifies a buffer
      * that is (a) dirty, and (b) required to be written as part of a
@@ -480,6 +716,52 @@ public class BufferPool {
         _hitCounter.set(0);
         _newCounter.set(0);
         _evictCounter.set(0);
+        _replacementPolicy.resetCounters();
+    }
+
+    /**
+     * @return the name of the replacement policy used to select pages for
+     *         eviction
+     */
+    public String getReplacementPolicy() {
+        return _replacementPolicy.getName();
+    }
+
+    /**
+     * Change the replacement policy used to select pages for eviction. The new
+     * policy starts with no history of the pages currently resident in the
+     * pool.
+     * 
+     * @param name
+     *            One of "CLOCK" or "2Q"
+     * @throws IllegalArgumentException
+     *             if the name is not recognized
+     */
+    public void setReplacementPolicy(final String name) {
+        final String canonical = ReplacementPolicy.canonicalName(name);
+        if (!canonical.equals(_replacementPolicy.getName())) {
+            _replacementPolicy = ReplacementPolicy.newInstance(canonical, _bufferCount);
+        }
+    }
+
+    /**
+     * @return count of page reads for pages evicted recently enough to be
+     *         remembered by the replacement policy
+     */
+    public long getGhostHitCount() {
+        return _replacementPolicy.getGhostHitCount();
+    }
+
+    ReplacementPolicy getReplacementPolicyInstance() {
+        return _replacementPolicy;
+    }
+
+    BufferLookupTable getLookupTable() {
+        return _lookupTable;
+    }
+
+    Buffer getBuffer(final int index) {
+        return _buffers[index];
     }
 
     int getMaxKeys() {
@@ -559,41 +841,29 @@ public class BufferPool {
         boolean result = true;
         int markedAvailable = 0;
         for (long page = 1; page < volume.getStorage().getNextAvailablePage(); page++) {
-            final int hashIndex = hashIndex(volume, page);
-            _hashLocks[hashIndex % HASH_LOCKS].lock();
-            try {
-                for (Buffer buffer = _hashTable[hashIndex]; buffer != null; buffer = buffer.getNext()) {
-                    if ((buffer.getVolume() == volume || volume == null) && !buffer.isFixed() && buffer.isValid()) {
-                        if (buffer.claim(true, 0)) {
-                            // re-check after claim
-                            boolean invalidated = false;
-                            try {
-                                if ((buffer.getVolume() == volume || volume == null) && !buffer.isFixed()
-                                        && buffer.isValid()) {
-                                    if (mustWrite && buffer.isDirty()) {
-                                        buffer.writePage();
-                                    }
-                                    invalidate(buffer);
-                                    invalidated = true;
-                                }
-                            } finally {
-                                buffer.release();
-                            }
-                            if (invalidated) {
-                                final int q = buffer.getIndex() / 64;
-                                final int p = buffer.getIndex() % 64;
-                                final long bits = _availablePagesBits.get(q);
-                                if (_availablePagesBits.compareAndSet(q, bits, bits | (1L << p))) {
-                                    markedAvailable++;
-                                }
+            final Buffer buffer = _lookupTable.find(volume, page);
+            if (buffer != null && !buffer.isFixed() && buffer.isValid()) {
+                if (buffer.claim(true, 0)) {
+                    // re-check after claim
+                    boolean invalidated = false;
+                    try {
+                        if (buffer.getVolume() == volume && buffer.getPageAddress() == page && !buffer.isFixed()
+                                && buffer.isValid()) {
+                            if (mustWrite && buffer.isDirty()) {
+                                buffer.writePage();
                             }
-                        } else {
-                            result = false;
+                            invalidate(buffer);
+                            invalidated = true;
                         }
+                    } finally {
+                        buffer.release();
                     }
+                    if (invalidated && markAvailable(buffer)) {
+                        markedAvailable++;
+                    }
+                } else {
+                    result = false;
                 }
-            } finally {
-                _hashLocks[hashIndex % HASH_LOCKS].unlock();
             }
         }
         if (markedAvailable > 0) {
@@ -606,8 +876,9 @@ public class BufferPool {
     boolean invalidateLargeVolume(final Volume volume, final boolean mustWrite) throws PersistitException {
         boolean result = true;
         int markedAvailable = 0;
-        for (int index = 0; index < _bufferCount; index++) {
-            final Buffer buffer = _buffers[index];
+        final Buffer[] buffers = _buffers;
+        for (int index = 0; index < buffers.length; index++) {
+            final Buffer buffer = buffers[index];
             if ((buffer.getVolume() == volume || volume == null) && !buffer.isFixed() && buffer.isValid()) {
                 if (buffer.claim(true, 0)) {
                     // re-check after claim
@@ -623,13 +894,8 @@ public class BufferPool {
                     } finally {
                         buffer.release();
                     }
-                    if (invalidated) {
-                        final int q = buffer.getIndex() / 64;
-                        final int p = buffer.getIndex() % 64;
-                        final long bits = _availablePagesBits.get(q);
-                        if (_availablePagesBits.compareAndSet(q, bits, bits | (1L << p))) {
-                            markedAvailable++;
-                        }
+                    if (invalidated && markAvailable(buffer)) {
+                        markedAvailable++;
                     }
                 } else {
                     result = false;
@@ -645,51 +911,40 @@ public class BufferPool {
     private void invalidate(final Buffer buffer) {
         Debug.$assert0.t(buffer.isValid() && buffer.isOwnedAsWriterByMe());
 
-        while (!detach(buffer)) {
-            /*
-             * Spin until detach succeeds. Note: this method must not throw an
-             * Exception because it is called in at at critical time when
-             * cleanup must be done. It is not possible to lock the hash bucket
-             * here due to possible deadlock. However, the likelihood of a
-             * lengthy live-lock is infinitesimal so polling is acceptable.
-             */
-            try {
-                Thread.sleep(1);
-            } catch (final InterruptedException ie) {
-                // ignore
-            }
-        }
+        prefetchWasted(buffer);
+        detach(buffer);
         buffer.clearValid();
         buffer.clearDirty();
         buffer.setPageAddressAndVolume(0, null);
     }
 
-    private boolean detach(final Buffer buffer) {
-        final int hash = hashIndex(buffer.getVolume(), buffer.getPageAddress());
-        if (!_hashLocks[hash % HASH_LOCKS].tryLock()) {
-            return false;
-        }
+    private void detach(final Buffer buffer) {
+        _lookupTable.lock();
         try {
+            final boolean removed = _lookupTable.remove(buffer);
+            assert removed : "Attempting to detach an unattached Buffer";
+        } finally {
+            _lookupTable.unlock();
+        }
+    }
 
-            // Detach this buffer from the hash table.
-            //
-            if (_hashTable[hash] == buffer) {
-                _hashTable[hash] = buffer.getNext();
-            } else {
-                Buffer prev = _hashTable[hash];
-                for (Buffer next = prev.getNext();; next = prev.getNext()) {
-                    assert next != null : "Attempting to detach an unattached Buffer";
-                    if (next == buffer) {
-                        prev.setNext(next.getNext());
-                        break;
-                    }
-                    prev = next;
-                }
+    private boolean markAvailable(final Buffer buffer) {
+        final int q = buffer.getIndex() / 64;
+        final int p = buffer.getIndex() % 64;
+        final AtomicLongArray availablePagesBits = _availablePagesBits;
+        if (q >= availablePagesBits.length()) {
+            return false;
+        }
+        for (;;) {
+            final long bits = availablePagesBits.get(q);
+            if ((bits & (1L << p)) != 0) {
+                return false;
+            }
+            if (availablePagesBits.compareAndSet(q, bits, bits | (1L << p))) {
+                _availablePages.set(true);
+                return true;
             }
-        } finally {
-            _hashLocks[hash % HASH_LOCKS].unlock();
         }
-        return true;
     }
 
     /**
@@ -740,65 +995,44 @@ public class BufferPool {
      */
     Buffer get(final Volume vol, final long page, final boolean writer, final boolean wantRead, final long timeout)
             throws PersistitException {
-        final int hash = hashIndex(vol, page);
         Buffer buffer = null;
 
         for (;;) {
             boolean mustClaim = false;
-            _hashLocks[hash % HASH_LOCKS].lock();
-            try {
-                buffer = _hashTable[hash];
+            //
+            // Search for the page without locking
+            //
+            buffer = _lookupTable.find(vol, page);
+            if (buffer != null) {
                 //
-                // Search for the page
+                // Found it - now claim it and verify that it still holds the
+                // page.
                 //
-                while (buffer != null) {
-                    Debug.$assert0.t(buffer.getNext() != buffer);
-                    if (buffer.getPageAddress() == page && buffer.getVolume() == vol) {
-                        //
-                        // Found it - now claim it.
-                        //
-                        if (buffer.claim(writer, 0)) {
-                            vol.getStatistics().bumpGetCounter();
-                            bumpHitCounter();
-                            assert !buffer.isOwnedAsWriterByOther();
-                            return buffer;
-                        } else {
-                            mustClaim = true;
-                            break;
-                        }
+                if (buffer.claim(writer, 0)) {
+                    if (buffer.isValid() && buffer.getPageAddress() == page && buffer.getVolume() == vol) {
+                        vol.getStatistics().bumpGetCounter();
+                        bumpHitCounter();
+                        prefetchHit(buffer);
+                        assert !buffer.isOwnedAsWriterByOther();
+                        return buffer;
                     }
-                    buffer = buffer.getNext();
+                    buffer.release();
+                    continue;
+                } else {
+                    mustClaim = true;
                 }
-
+            } else {
+                //
+                // Page not found. Allocate an available buffer and read in
+                // the page from the Volume.
+                //
+                buffer = allocateAndInsert(vol, page);
                 if (buffer == null) {
                     //
-                    // Page not found. Allocate an available buffer and read
-                    // in the page from the Volume.
-                    //
-                    buffer = allocBuffer();
-                    Debug.$assert1.t(!buffer.isDirty());
-                    Debug.$assert0.t(buffer != _hashTable[hash]);
-                    Debug.$assert0.t(buffer.getNext() != buffer);
-
-                    buffer.setPageAddressAndVolume(page, vol);
-                    buffer.setNext(_hashTable[hash]);
-                    _hashTable[hash] = buffer;
-                    //
-                    // It's not really valid yet, but it does have a writer
-                    // claim on it so no other Thread can access it. In the
-                    // meantime, any other Thread seeking access to the same
-                    // page will find it.
+                    // Another thread loaded the same page in the meantime.
                     //
-                    buffer.setValid();
-                    if (vol.isTemporary() || vol.isLockVolume()) {
-                        buffer.setTemporary();
-                    } else {
-                        buffer.clearTemporary();
-                    }
-                    Debug.$assert0.t(buffer.getNext() != buffer);
+                    continue;
                 }
-            } finally {
-                _hashLocks[hash % HASH_LOCKS].unlock();
             }
             if (mustClaim) {
                 boolean claimed = false;
@@ -811,7 +1045,8 @@ public class BufferPool {
                      * then recheck to make sure the buffer still represents the
                      * same page.
                      */
-                    claimed = buffer.claim(writer, Persistit.SHORT_DELAY);
+                    claimed = buffer.claim(writer,
+                            Math.min(Persistit.SHORT_DELAY, timeout - (System.currentTimeMillis() - start)));
                     //
                     // Test whether the buffer we picked out is still valid
                     //
@@ -828,6 +1063,7 @@ public class BufferPool {
                         //
                         vol.getStatistics().bumpGetCounter();
                         bumpHitCounter();
+                        prefetchHit(buffer);
                         assert !buffer.isOwnedAsWriterByOther();
                         return buffer;
                     } else {
@@ -845,19 +1081,19 @@ public class BufferPool {
                  * claim on the buffer, so anyone else attempting to get this
                  * page will simply wait for us to finish reading it.
                  * 
-                 * At this point, the Buffer has been fully set up. It is on the
-                 * hash table chain under its new page address, it is marked
+                 * At this point, the Buffer has been fully set up. It is in the
+                 * lookup table under its new page address, it is marked
                  * valid, and this Thread has a writer claim. If the read
                  * attempt fails, we need to mark the page INVALID so that any
                  * Thread waiting for access to this buffer will not use it. We
                  * also need to demote the writer claim to a reader claim unless
                  * the caller originally asked for a writer claim.
                  */
+                _replacementPolicy.admitted(buffer);
                 if (wantRead) {
                     boolean loaded = false;
                     try {
-                        Debug.$assert0.t(buffer.getPageAddress() == page && buffer.getVolume() == vol
-                                && hashIndex(buffer.getVolume(), buffer.getPageAddress()) == hash);
+                        Debug.$assert0.t(buffer.getPageAddress() == page && buffer.getVolume() == vol);
                         buffer.load(vol, page);
                         loaded = true;
                         vol.getStatistics().bumpGetCounter();
@@ -881,6 +1117,118 @@ public class BufferPool {
         }
     }
 
+    /**
+     * Allocate a buffer for a page that was not found in the pool and add it to
+     * the lookup table under the page's Volume and address.
+     * 
+     * @param vol
+     * @param page
+     * @return the Buffer, which has a writer claim, or <code>null</code> if
+     *         another thread added the same page concurrently
+     * @throws PersistitException
+     */
+    private Buffer allocateAndInsert(final Volume vol, final long page) throws PersistitException {
+        final Buffer buffer = allocBuffer();
+        Debug.$assert1.t(!buffer.isDirty());
+        return insert(buffer, vol, page) ? buffer : null;
+    }
+
+    /**
+     * Assign a page to a newly allocated buffer and add it to the lookup table.
+     * If another thread has concurrently added the same page, return the buffer
+     * to the pool and release it.
+     * 
+     * @param buffer
+     *            the buffer, which has a writer claim
+     * @param vol
+     * @param page
+     * @return <code>true</code> if the buffer was inserted
+     */
+    private boolean insert(final Buffer buffer, final Volume vol, final long page) {
+        buffer.setPageAddressAndVolume(page, vol);
+        //
+        // It's not really valid yet, but it does have a writer claim
+        // on it so no other Thread can access it. Once inserted, any
+        // other Thread seeking access to the same page will find it.
+        //
+        buffer.setValid();
+        if (vol.isTemporary() || vol.isLockVolume()) {
+            buffer.setTemporary();
+        } else {
+            buffer.clearTemporary();
+        }
+        boolean inserted = false;
+        _lookupTable.lock();
+        try {
+            inserted = _lookupTable.insert(buffer);
+        } finally {
+            _lookupTable.unlock();
+        }
+        if (!inserted) {
+            //
+            // Return the buffer to the pool.
+            //
+            buffer.clearValid();
+            buffer.setPageAddressAndVolume(0, null);
+            markAvailable(buffer);
+            buffer.release();
+        }
+        return inserted;
+    }
+
+    /**
+     * Read a page into the pool in anticipation of a subsequent request for
+     * it. Does nothing if the page is already present. The buffer is marked as
+     * prefetched until it is first requested through
+     * {@link #get(Volume, long, boolean, boolean, long)}; a buffer evicted while
+     * still marked is counted as a wasted prefetch.
+     * 
+     * @param vol
+     *            The Volume
+     * @param page
+     *            The address of the page
+     * @return <code>true</code> if the page was read
+     * @throws PersistitException
+     */
+    boolean prefetch(final Volume vol, final long page) throws PersistitException {
+        if (_lookupTable.find(vol, page) != null) {
+            return false;
+        }
+        final Buffer buffer = allocateAndInsert(vol, page);
+        if (buffer == null) {
+            return false;
+        }
+        _replacementPolicy.admitted(buffer);
+        boolean loaded = false;
+        try {
+            buffer.load(vol, page);
+            buffer.setPrefetched();
+            loaded = true;
+            _persistit.getIOMeter().chargePrefetchPage(vol, page, buffer.getBufferSize(), buffer.getIndex());
+        } finally {
+            if (!loaded) {
+                invalidate(buffer);
+                markAvailable(buffer);
+            }
+            buffer.release();
+        }
+        return true;
+    }
+
+    private void prefetchHit(final Buffer buffer) {
+        if (buffer.isPrefetched() && buffer.clearPrefetched()) {
+            _persistit.getIOMeter().chargePrefetchHit(buffer.getVolume(), buffer.getPageAddress(),
+                    buffer.getBufferSize(), buffer.getIndex());
+        }
+    }
+
+    private void prefetchWasted(final Buffer buffer) {
+        if (buffer.isPrefetched() && buffer.clearPrefetched()) {
+            _persistit.getIOMeter().chargePrefetchWasted(buffer.getVolume(), buffer.getPageAddress(),
+                    buffer.getBufferSize(), buffer.getIndex());
+        }
+    }
+
     /**
      * Returns a copy of Buffer. The returned buffer is newly created, is not a
      * member of the buffer pool, and is not claimed. There is no guarantee that
@@ -901,28 +1249,23 @@ public class BufferPool {
     public Buffer getBufferCopy(final Volume vol, final long page) throws InvalidPageAddressException,
             InvalidPageStructureException, VolumeClosedException, InUseException, PersistitIOException,
             PersistitInterruptedException {
-        final int hash = hashIndex(vol, page);
         Buffer buffer = null;
-        _hashLocks[hash % HASH_LOCKS].lock();
+        //
+        // Holding the lock prevents the buffer from being detached while the
+        // copy is being made.
+        //
+        _lookupTable.lock();
         try {
-            buffer = _hashTable[hash];
-            //
-            // Search for the page
-            //
-            while (buffer != null) {
-                Debug.$assert0.t(buffer.getNext() != buffer);
-
-                if (buffer.getPageAddress() == page && buffer.getVolume() == vol) {
-                    Debug.$assert0.t(buffer.isValid());
-                    //
-                    // Found it - now return a copy of it.
-                    //
-                    return new Buffer(buffer);
-                }
-                buffer = buffer.getNext();
+            buffer = _lookupTable.find(vol, page);
+            if (buffer != null) {
+                Debug.$assert0.t(buffer.isValid());
+                //
+                // Found it - now return a copy of it.
+                //
+                return new Buffer(buffer);
             }
         } finally {
-            _hashLocks[hash % HASH_LOCKS].unlock();
+            _lookupTable.unlock();
         }
         //
         // Didn't find it in the pool, so we'll read a copy.
@@ -937,10 +1280,11 @@ public class BufferPool {
     }
 
     public Buffer getBufferCopy(final int index) throws IllegalArgumentException {
-        if (index < 0 || index >= _bufferCount) {
+        final Buffer[] buffers = _buffers;
+        if (index < 0 || index >= buffers.length) {
             throw new IllegalArgumentException("Index " + index + " is out of range in " + this);
         }
-        return new Buffer(_buffers[index]);
+        return new Buffer(buffers[index]);
     }
 
     /**
@@ -957,66 +1301,38 @@ public class BufferPool {
      */
 
     private Buffer allocBuffer() throws PersistitException {
-        //
-        // Start by searching for an invalid page. It's preferable
-        // since no valid page will need to be evicted.
-        //
-        if (_availablePages.get()) {
-            final int start = (_clock.get() / 64) * 64;
-            for (int q = start;;) {
-                q += 64;
-                if (q >= _bufferCount) {
-                    q = 0;
-                }
-                long bits = _availablePagesBits.get(q / 64);
-                if (bits != 0) {
-                    for (int p = 0; p < 64; p++) {
-                        if ((bits & (1L << p)) != 0) {
-                            final Buffer buffer = _buffers[q + p];
-                            //
-                            // Note: need to verify that there are no claims -
-                            // including those of the current thread.
-                            //
-                            if ((buffer.getStatus() & SharedResource.CLAIMED_MASK) == 0 && buffer.claim(true, 0)) {
-                                if (!buffer.isValid()) {
-                                    bits = _availablePagesBits.get(q / 64);
-                                    if (_availablePagesBits.compareAndSet(q / 64, bits, bits & ~(1L << p))) {
-                                        buffer.clearDirty();
-                                        return buffer;
-                                    }
-                                }
-                                buffer.release();
-                            }
-                        }
-                    }
-                }
-                if (q == start) {
-                    break;
-                }
-
-            }
-            _availablePages.set(false);
+        final Buffer available = allocAvailableBuffer(-1);
+        if (available != null) {
+            return available;
         }
+        final Buffer[] buffers = _buffers;
+        final int bufferCount = Math.min(_bufferCount, buffers.length);
         //
         // Look for a page to evict.
         //
-        for (int retry = 0; retry < _bufferCount * 2;) {
+        final ReplacementPolicy policy = _replacementPolicy;
+        for (int retry = 0; retry < bufferCount * 2;) {
             final int clock = _clock.get();
-            assert clock < _bufferCount;
-            if (!_clock.compareAndSet(clock, (clock + 1) % _bufferCount)) {
+            final int next = clock + 1 < bufferCount ? clock + 1 : 0;
+            if (!_clock.compareAndSet(clock, next)) {
                 continue;
             }
-            final Buffer buffer = _buffers[clock];
-            if (buffer.isTouched()) {
-                buffer.clearTouched();
-            } else {
+            if (clock >= bufferCount) {
                 //
-                // Note: need to verify that there are no claims - including
-                // those of the current thread.
+                // The pool has been resized
                 //
-                if (!buffer.isFixed() && (buffer.getStatus() & SharedResource.CLAIMED_MASK) == 0
-                        && buffer.claim(true, 0)) {
-                    if (buffer.isDirty()) {
+                continue;
+            }
+            final Buffer buffer = buffers[clock];
+            //
+            // Note: need to verify that there are no claims - including
+            // those of the current thread.
+            //
+            if (!buffer.isFixed() && (buffer.getStatus() & SharedResource.CLAIMED_MASK) == 0) {
+                if (policy.isEvictable(buffer, retry >= bufferCount) && buffer.claim(true, 0)) {
+                    if (!isAllocatable(buffer)) {
+                        buffer.release();
+                    } else if (buffer.isDirty()) {
                         // An invalid dirty buffer is available and does not
                         // need to be written.
                         if (!buffer.isValid()) {
@@ -1027,14 +1343,7 @@ public class BufferPool {
                         // marked invalid. Can't prune it before writing it in
                         // this context
                         try {
-                            buffer.writePage(false);
-                            if (detach(buffer)) {
-                                buffer.clearValid();
-                                _forcedWriteCounter.incrementAndGet();
-                                _evictCounter.incrementAndGet();
-                                _persistit.getIOMeter().chargeEvictPageFromPool(buffer.getVolume(),
-                                        buffer.getPageAddress(), buffer.getBufferSize(), buffer.getIndex());
-                            }
+                            evictPage(buffer, policy);
                         } finally {
                             if (!buffer.isValid()) {
                                 return buffer;
@@ -1043,11 +1352,8 @@ public class BufferPool {
                             }
                         }
                     } else {
-                        if (buffer.isValid() && detach(buffer)) {
-                            buffer.clearValid();
-                            _evictCounter.incrementAndGet();
-                            _persistit.getIOMeter().chargeEvictPageFromPool(buffer.getVolume(),
-                                    buffer.getPageAddress(), buffer.getBufferSize(), buffer.getIndex());
+                        if (buffer.isValid()) {
+                            evictPage(buffer, policy);
                         }
                         if (!buffer.isValid()) {
                             return buffer;
@@ -1062,6 +1368,113 @@ public class BufferPool {
         throw new IllegalStateException("No available Buffers");
     }
 
+    /**
+     * Search for an invalid buffer. It's preferable since no valid page will
+     * need to be evicted.
+     * 
+     * @param preferred
+     *            index of a buffer to try first, or -1
+     * @return An invalid buffer with a writer claim, or <code>null</code> if
+     *         there is none
+     * @throws PersistitException
+     */
+    private Buffer allocAvailableBuffer(final int preferred) throws PersistitException {
+        if (!_availablePages.get()) {
+            return null;
+        }
+        final Buffer[] buffers = _buffers;
+        final int bufferCount = Math.min(_bufferCount, buffers.length);
+        final AtomicLongArray availablePagesBits = _availablePagesBits;
+        final int limit = Math.min(bufferCount, availablePagesBits.length() * 64);
+        if (preferred >= 0 && preferred < limit) {
+            final Buffer buffer = claimAvailable(buffers, availablePagesBits, preferred);
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        final int start = ((_clock.get() % limit) / 64) * 64;
+        for (int q = start;;) {
+            q += 64;
+            if (q >= limit) {
+                q = 0;
+            }
+            final long bits = availablePagesBits.get(q / 64);
+            if (bits != 0) {
+                for (int p = 0; p < 64 && q + p < limit; p++) {
+                    if ((bits & (1L << p)) != 0) {
+                        final Buffer buffer = claimAvailable(buffers, availablePagesBits, q + p);
+                        if (buffer != null) {
+                            return buffer;
+                        }
+                    }
+                }
+            }
+            if (q == start) {
+                break;
+            }
+
+        }
+        _availablePages.set(false);
+        return null;
+    }
+
+    private Buffer claimAvailable(final Buffer[] buffers, final AtomicLongArray availablePagesBits, final int index)
+            throws PersistitException {
+        final Buffer buffer = buffers[index];
+        final long mask = 1L << (index % 64);
+        //
+        // Note: need to verify that there are no claims - including those of
+        // the current thread.
+        //
+        if ((buffer.getStatus() & SharedResource.CLAIMED_MASK) == 0 && buffer.claim(true, 0)) {
+            if (!buffer.isValid() && isAllocatable(buffer)) {
+                final long bits = availablePagesBits.get(index / 64);
+                if ((bits & mask) != 0 && availablePagesBits.compareAndSet(index / 64, bits, bits & ~mask)) {
+                    buffer.clearDirty();
+                    return buffer;
+                }
+            }
+            buffer.release();
+        }
+        return null;
+    }
+
+    /**
+     * Detach the valid page held by a buffer from the pool, writing it first
+     * if it is dirty. The caller must hold a writer claim on the buffer.
+     * 
+     * @param buffer
+     * @param policy
+     *            the replacement policy to notify
+     * @throws PersistitException
+     */
+    private void evictPage(final Buffer buffer, final ReplacementPolicy policy) throws PersistitException {
+        final boolean dirty = buffer.isDirty();
+        if (dirty) {
+            buffer.writePage(false);
+        }
+        policy.evicted(buffer);
+        prefetchWasted(buffer);
+        detach(buffer);
+        buffer.clearValid();
+        if (dirty) {
+            _forcedWriteCounter.incrementAndGet();
+        }
+        _evictCounter.incrementAndGet();
+        _persistit.getIOMeter().chargeEvictPageFromPool(buffer.getVolume(), buffer.getPageAddress(),
+                buffer.getBufferSize(), buffer.getIndex());
+    }
+
+    /**
+     * @param buffer
+     *            a buffer on which the caller holds a writer claim
+     * @return <code>false</code> if the buffer is being retired by
+     *         {@link #resize(int)} and must not be given a new page
+     */
+    private boolean isAllocatable(final Buffer buffer) {
+        return buffer.getIndex() < _bufferCount;
+    }
+
     enum Result {
         WRITTEN, UNAVAILABLE, ERROR
     };
@@ -1114,18 +1527,74 @@ public class BufferPool {
         final int count = selectDirtyBuffers(priorities, selectedBuffers);
         if (count > 0) {
             Arrays.sort(selectedBuffers, 0, count);
-            for (int index = 0; index < count; index++) {
-                final BufferHolder holder = selectedBuffers[index];
-                final Buffer buffer = holder._buffer;
-                if (buffer.claim(true, 0)) {
-                    try {
-                        if (holder.matches(buffer) && buffer.isDirty() && buffer.isValid()) {
-                            buffer.writePage();
+            final boolean prune = _persistit.getJournalManager().isWritePagePruningEnabled();
+            /*
+             * Buffers are sorted by volume and page address. Those belonging to
+             * the same volume are prepared and handed to the VolumeStorage in
+             * batches so that pages with consecutive addresses can be written
+             * with a single operation.
+             */
+            final Buffer[] batch = new Buffer[VolumeStorage.MAXIMUM_WRITE_RUN];
+            int batchCount = 0;
+            try {
+                for (int index = 0; index < count; index++) {
+                    final BufferHolder holder = selectedBuffers[index];
+                    final Buffer buffer = holder._buffer;
+                    if (buffer.claim(true, 0)) {
+                        boolean added = false;
+                        try {
+                            if (holder.matches(buffer) && buffer.isDirty() && buffer.isValid()) {
+                                if (batchCount > 0
+                                        && (batchCount == batch.length || batch[0].getVolume() != buffer.getVolume())) {
+                                    final int batchSize = batchCount;
+                                    batchCount = 0;
+                                    writeBatch(batch, batchSize);
+                                }
+                                _persistit.checkFatal();
+                                buffer.prepareWrite(prune);
+                                batch[batchCount++] = buffer;
+                                added = true;
+                            }
+                        } finally {
+                            if (!added) {
+                                buffer.release();
+                            }
                         }
-                    } finally {
-                        buffer.release();
                     }
                 }
+                if (batchCount > 0) {
+                    final int batchSize = batchCount;
+                    batchCount = 0;
+                    writeBatch(batch, batchSize);
+                }
+            } finally {
+                for (int index = 0; index < batchCount; index++) {
+                    batch[index].release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a batch of claimed and prepared buffers belonging to one Volume,
+     * then release them.
+     * 
+     * @param batch
+     * @param count
+     * @throws PersistitException
+     */
+    private void writeBatch(final Buffer[] batch, final int count) throws PersistitException {
+        try {
+            final int writes = batch[0].getVolume().getStorage().writePages(batch, count);
+            for (int index = 0; index < count; index++) {
+                batch[index].writeCompleted();
+            }
+            _writeRunCounter.addAndGet(writes);
+            _writeRunPageCounter.addAndGet(count);
+        } finally {
+            for (int index = 0; index < count; index++) {
+                batch[index].release();
+                batch[index] = null;
             }
         }
     }
@@ -1142,8 +1611,13 @@ public class BufferPool {
         final long flushTimestamp = _flushTimestamp.get();
 
         boolean flushed = true;
-        for (int index = clock; index < clock + _bufferCount; index++) {
-            final Buffer buffer = _buffers[index % _bufferCount];
+        /*
+         * Visit every buffer, including any that are being retired by a
+         * concurrent resize, so that the earliest dirty timestamp is correct.
+         */
+        final Buffer[] buffers = _buffers;
+        for (int index = clock; index < clock + buffers.length; index++) {
+            final Buffer buffer = buffers[index % buffers.length];
             long timestamp = buffer.getTimestamp();
             /*
              * The following is subtle timing dance. If the buffer claim is
@@ -1246,7 +1720,11 @@ public class BufferPool {
         // compute "distance" between this buffer and the clock. A larger
         // distance results in lower priority.
         //
-        int distance = (buffer.getIndex() - _clock.get() + _bufferCount) % _bufferCount;
+        final int bufferCount = _bufferCount;
+        int distance = (buffer.getIndex() - _clock.get() + bufferCount) % bufferCount;
+        if (distance < 0) {
+            distance += bufferCount;
+        }
         int age = 0;
         //
         // If this buffer has been touched, then it won't be evicted for at
@@ -1254,7 +1732,7 @@ public class BufferPool {
         // increased.
         //
         if ((status & Buffer.TOUCHED_MASK) != 0) {
-            distance += _bufferCount;
+            distance += bufferCount;
         }
 
         if (!buffer.isTemporary()) {
@@ -1276,14 +1754,14 @@ public class BufferPool {
             // Temporary buffer - don't write it at all until the clock goes
             // through at least a full cycle.
             //
-            if (distance > _bufferCount) {
+            if (distance > bufferCount) {
                 return 0;
             }
         }
         //
         // Bias to a large positive integer (magnitude doesn't matter)
         //
-        return _bufferCount * 2 - distance + age;
+        return bufferCount * 2 - distance + age;
     }
 
     static class BufferHolder implements Comparable<BufferHolder> {
@@ -1358,7 +1836,7 @@ public class BufferPool {
         }
 
         void start() {
-            start("PAGE_WRITER:" + _bufferSize, _writerPollInterval);
+            start("PAGE_WRITER:" + (_name == null ? _bufferSize : _name), _writerPollInterval);
         }
 
         @Override
@@ -1390,7 +1868,8 @@ public class BufferPool {
 
     @Override
     public String toString() {
-        return "BufferPool[" + _bufferCount + "@" + _bufferSize + (_closed.get() ? ":closed" : "") + "]";
+        return "BufferPool[" + (_name != null ? _name + ":" : "") + _bufferCount + "@" + _bufferSize
+                + (_closed.get() ? ":closed" : "") + "]";
     }
 
     /**
@@ -1399,10 +1878,14 @@ public class BufferPool {
      * @return toString value for buffer at index <code>i</code>.
      */
     String toString(final int i, final boolean detail) {
+        final Buffer[] buffers = _buffers;
+        if (i >= buffers.length) {
+            return "";
+        }
         if (detail) {
-            return _buffers[i].toStringDetail();
+            return buffers[i].toStringDetail();
         } else {
-            return _buffers[i].toString();
+            return buffers[i].toString();
         }
     }
 
@@ -1443,6 +1926,32 @@ public class BufferPool {
         stream.flush();
     }
 
+    /**
+     * Add a {@link CleanupManager.PruningCandidate} to the supplied list for
+     * each valid data page in this pool estimated to hold at least
+     * <code>minimumDeadBytes</code> bytes of superseded MVV versions. Buffers
+     * are examined without claims, so the result is advisory.
+     * 
+     * @param candidates
+     *            list to add to
+     * @param minimumDeadBytes
+     *            minimum estimate for a page to be added
+     */
+    void addPruningCandidates(final List<CleanupManager.PruningCandidate> candidates, final int minimumDeadBytes) {
+        final Buffer[] buffers = _buffers;
+        for (int index = 0; index < buffers.length; index++) {
+            final Buffer buffer = buffers[index];
+            if (buffer != null && buffer.isValid() && buffer.isDataPage()) {
+                final int deadBytes = buffer.getDeadBytes();
+                final Tree tree = buffer.getDeadBytesTree();
+                if (deadBytes >= minimumDeadBytes && deadBytes > 0 && tree != null && tree.getHandle() != 0) {
+                    candidates.add(new CleanupManager.PruningCandidate(tree.getHandle(), buffer.getPageAddress(),
+                            deadBytes));
+                }
+            }
+        }
+    }
+
     void recordBufferInventory(final long timestamp) throws PersistitException {
         final Exchange exchange = getBufferInventoryExchange();
         /*
@@ -1451,11 +1960,12 @@ public class BufferPool {
         exchange.ignoreTransactions();
         try {
             int total = 0;
-            exchange.clear().append(_bufferSize).append(timestamp).append(Key.BEFORE);
+            appendInventoryKey(exchange.clear()).append(timestamp).append(Key.BEFORE);
             final Value value = exchange.getValue();
             final int clockValueBefore = _clock.get();
-            for (int index = 0; index < _buffers.length; index++) {
-                final Buffer buffer = _buffers[index];
+            final Buffer[] buffers = _buffers;
+            for (int index = 0; index < buffers.length; index++) {
+                final Buffer buffer = buffers[index];
                 long page1 = -1, page2 = -1;
                 Volume volume1 = null, volume2 = null;
                 if (buffer != null && buffer.isValid()) {
@@ -1498,19 +2008,20 @@ public class BufferPool {
         }
     }
 
-    void preloadBufferInventory() {
-        int count = 0;
-        int total = 0;
-        final long startTime = System.nanoTime();
-        long reportTime = startTime;
-
+    /**
+     * Read the most recent buffer inventory of this pool.
+     * 
+     * @return the recorded pages that belong to open Volumes assigned to this
+     *         pool, in inventory order
+     */
+    List<BufferWarmup.Page> readBufferInventory() {
+        final List<BufferWarmup.Page> pages = new ArrayList<BufferWarmup.Page>();
         try {
             final JournalManager jman = _persistit.getJournalManager();
             final Exchange exchange = getBufferInventoryExchange();
             final Value value = exchange.getValue();
-            final List<PageNode> pageNodes = new ArrayList<PageNode>();
             boolean foundInventory = false;
-            exchange.clear().append(_bufferSize).append(Key.AFTER);
+            appendInventoryKey(exchange.clear()).append(Key.AFTER);
             while (exchange.previous()) {
                 if (exchange.getValue().isDefined()) {
                     foundInventory = true;
@@ -1518,11 +2029,11 @@ public class BufferPool {
                 }
             }
             if (!foundInventory) {
-                return;
+                return pages;
             }
             value.setStreamMode(true);
             /* int bufferCount = */value.getInt();
-            total = value.getInt();
+            /* int total = */value.getInt();
             /* int clockValueBefore = */value.getInt();
             /* int clockValueAfter = */value.getInt();
             final long systemTime = value.getLong();
@@ -1535,43 +2046,127 @@ public class BufferPool {
                 value.setStreamMode(true);
                 final int volumeHandle = value.getInt();
                 final long pageAddress = value.getLong();
-                final PageNode pn = new PageNode(volumeHandle, pageAddress);
-                pageNodes.add(pn);
-            }
-
-            Collections.sort(pageNodes, PageNode.READ_COMPARATOR);
-            for (final PageNode pn : pageNodes) {
-                final Volume vol = jman.volumeForHandle(pn.getVolumeHandle());
-                if (vol == null) {
+                final Volume vol = jman.volumeForHandle(volumeHandle);
+                if (vol == null || !vol.isOpened() || vol.getPool() != this) {
                     continue;
                 }
-                try {
-                    final Buffer buff = get(vol, pn.getPageAddress(), false, true);
-                    buff.release();
-                    count++;
-                    final long now = System.nanoTime();
-                    if (now - reportTime >= INVENTORY_PRELOAD_LOG_MESSAGE_NS) {
-                        _persistit.getLogBase().bufferInventoryProgress
-                                .log(count, total, (now - reportTime) / NS_PER_S);
-                        reportTime = now;
-                    }
-                    if (count >= _bufferCount) {
-                        //
-                        // If the buffer pool is now smaller, no need to load
-                        // more pages
-                        //
-                        break;
-                    }
-                } catch (final PersistitException e) {
-                    // ignore it
-                }
+                pages.add(new BufferWarmup.Page(vol, pageAddress, exchange.getKey().indexTo(-1).decodeInt()));
             }
         } catch (final PersistitException e) {
             _persistit.getLogBase().bufferInventoryException.log(e);
+        }
+        return pages;
+    }
+
+    /**
+     * Load a run of inventory pages belonging to one Volume into free buffers.
+     * Pages that are already present are skipped, and the page is placed in
+     * the buffer that held it when the inventory was recorded if that buffer
+     * is still free. No valid page is evicted.
+     * 
+     * @param vol
+     *            the Volume
+     * @param pages
+     *            inventory pages sorted by page address
+     * @param from
+     *            index of the first page of the run
+     * @param to
+     *            index after the last page of the run
+     * @param staging
+     *            a buffer used to stage reads of consecutive pages
+     * @return <code>false</code> if the pool ran out of free buffers
+     * @throws PersistitException
+     */
+    boolean warmup(final Volume vol, final BufferWarmup.Page[] pages, final int from, final int to,
+            final ByteBuffer staging) throws PersistitException {
+        final Buffer[] batch = new Buffer[to - from];
+        int count = 0;
+        boolean available = true;
+        for (int index = from; index < to && available; index++) {
+            final long page = pages[index]._page;
+            if (_lookupTable.find(vol, page) != null) {
+                //
+                // Already loaded on demand
+                //
+                continue;
+            }
+            final Buffer buffer = allocAvailableBuffer(pages[index]._index);
+            if (buffer == null) {
+                available = false;
+            } else if (insert(buffer, vol, page)) {
+                _replacementPolicy.admitted(buffer);
+                batch[count++] = buffer;
+            }
+        }
+        int loaded = 0;
+        try {
+            if (count > 0) {
+                _warmupReadCounter.addAndGet(vol.getStorage().readPages(batch, count, staging));
+                for (; loaded < count; loaded++) {
+                    batch[loaded].load();
+                }
+            }
         } finally {
-            final long now = System.nanoTime();
-            _persistit.getLogBase().bufferInventoryProgress.log(count, total, (now - reportTime) / NS_PER_S);
+            for (int index = 0; index < count; index++) {
+                if (index >= loaded) {
+                    invalidate(batch[index]);
+                    markAvailable(batch[index]);
+                }
+                batch[index].release();
+            }
+        }
+        final long total = _warmupPageCounter.addAndGet(loaded);
+        final long now = System.nanoTime();
+        final long reportTime = _warmupReportTime.get();
+        if (now - reportTime >= INVENTORY_PRELOAD_LOG_MESSAGE_NS && _warmupReportTime.compareAndSet(reportTime, now)) {
+            _persistit.getLogBase().bufferInventoryProgress.log(total, _warmupPageTotal, getWarmupElapsedTime() / 1000);
+        }
+        return available;
+    }
+
+    void startWarmup(final long total) {
+        _warmupPageTotal = total;
+        _warmupPageCounter.set(0);
+        _warmupReadCounter.set(0);
+        _warmupStartTime = System.currentTimeMillis();
+        _warmupEndTime = 0;
+        _warmupReportTime.set(System.nanoTime());
+        _warmingUp.set(true);
+    }
+
+    void endWarmup() {
+        if (_warmingUp.compareAndSet(true, false)) {
+            _warmupEndTime = System.currentTimeMillis();
+            _persistit.getLogBase().bufferInventoryProgress.log(_warmupPageCounter.get(), _warmupPageTotal,
+                    getWarmupElapsedTime() / 1000);
+        }
+    }
+
+    boolean isWarmingUp() {
+        return _warmingUp.get();
+    }
+
+    private long getWarmupElapsedTime() {
+        final long start = _warmupStartTime;
+        final long end = _warmupEndTime;
+        if (start == 0) {
+            return 0;
+        }
+        return (end == 0 ? System.currentTimeMillis() : end) - start;
+    }
+
+    /**
+     * Inventories of default pools are keyed by buffer size, those of named
+     * pools by name.
+     */
+    private Key appendInventoryKey(final Exchange exchange) {
+        final Key key = exchange.getKey();
+        if (_name == null) {
+            key.append(_bufferSize);
+        } else {
+            key.append(_name);
         }
+        return key;
     }
 
     private Exchange getBufferInventoryExchange() throws PersistitException {
@@ -36,25 +36,36 @@ class BufferPoolMXBeanImpl implements BufferPoolMXBean {
 
     private final int _bufferSize;
 
+    private final String _poolName;
+
     private BufferPoolInfo _recent;
 
-    static String mbeanName(final int bufferPoolSize) {
-        return MXBEAN_NAME + "." + bufferPoolSize;
+    static String mbeanName(final BufferPool pool) {
+        return MXBEAN_NAME + "." + (pool.getName() == null ? Integer.toString(pool.getBufferSize()) : pool.getName());
     }
 
     BufferPoolMXBeanImpl(final Persistit persistit, final int bufferSize) {
+        this(persistit, bufferSize, null);
+    }
+
+    BufferPoolMXBeanImpl(final Persistit persistit, final int bufferSize, final String poolName) {
         _persistit = persistit;
         _bufferSize = bufferSize;
-        _recent = new BufferPoolInfo();
+        _poolName = poolName;
+    }
+
+    private BufferPool pool() {
+        return _poolName == null ? _persistit.getBufferPool(_bufferSize) : _persistit.getBufferPool(_poolName);
     }
 
     private BufferPoolInfo recent() {
         final long now = System.currentTimeMillis();
-        if (_recent.getAcquisitionTime() < now - MAX_STALE) {
+        if (_recent == null || _recent.getAcquisitionTime() < now - MAX_STALE) {
             try {
                 final BufferPoolInfo[] array = _persistit.getManagement().getBufferPoolInfoArray();
                 for (final BufferPoolInfo info : array) {
-                    if (info.getBufferSize() == _bufferSize) {
+                    if (info.getBufferSize() == _bufferSize
+                            && (_poolName == null ? info.getPoolName() == null : _poolName.equals(info.getPoolName()))) {
                         _recent = info;
                     }
                 }
@@ -69,6 +80,16 @@ class BufferPoolMXBeanImpl implements BufferPoolMXBean {
         return _recent;
     }
 
+    /**
+     * @return The name of this pool, or an empty string for the default pool of
+     *         its buffer size
+     */
+    @Override
+    @Description("The name of this pool if it is a named pool, or an empty string for the default pool of its buffer size")
+    public String getPoolName() {
+        return _poolName == null ? "" : _poolName;
+    }
+
     /**
      * Return the size of <code>Buffer</code>s managed by this pool.
      * 
@@ -244,4 +265,108 @@ class BufferPoolMXBeanImpl implements BufferPoolMXBean {
         return recent().getEarliestDirtyTimestamp();
     }
 
+    /**
+     * @return Name of the policy used to select pages for eviction
+     */
+    @Override
+    @Description("The name of the policy used to select pages for eviction: one of CLOCK or 2Q.")
+    public String getReplacementPolicy() {
+        return recent().getReplacementPolicy();
+    }
+
+    /**
+     * Change the policy used to select pages for eviction.
+     * 
+     * @param policyName
+     *            One of "CLOCK" or "2Q"
+     */
+    @Override
+    @Description("The name of the policy used to select pages for eviction: one of CLOCK or 2Q.")
+    public void setReplacementPolicy(final String policyName) {
+        pool().setReplacementPolicy(policyName);
+        _recent = null;
+    }
+
+    /**
+     * @return Count of misses on pages remembered as recently evicted
+     */
+    @Override
+    @Description("Count of misses on pages remembered as recently evicted")
+    public long getGhostHitCount() {
+        return recent().getGhostHitCount();
+    }
+
+    /**
+     * @return Count of eviction candidates spared by the replacement policy
+     */
+    @Override
+    @Description("Count of eviction candidates spared by the replacement policy")
+    public long getProtectedCount() {
+        return recent().getProtectedCount();
+    }
+
+    /**
+     * @return Count of write operations issued by the PAGE_WRITER thread
+     */
+    @Override
+    @Description("Count of write operations issued by the PAGE_WRITER thread")
+    public long getWriteRunCount() {
+        return recent().getWriteRunCount();
+    }
+
+    /**
+     * @return Average number of pages written per PAGE_WRITER write operation
+     */
+    @Override
+    @Description("Average number of pages written per PAGE_WRITER write operation")
+    public double getAverageWriteRunLength() {
+        return recent().getAverageWriteRunLength();
+    }
+
+    /**
+     * @return True if pages recorded in the buffer inventory are still being
+     *         loaded
+     */
+    @Override
+    @Description("True if pages recorded in the buffer inventory are still being loaded")
+    public boolean isWarmingUp() {
+        return recent().isWarmingUp();
+    }
+
+    /**
+     * @return Count of pages recorded in the buffer inventory
+     */
+    @Override
+    @Description("Count of pages recorded in the buffer inventory")
+    public long getWarmupPageTotal() {
+        return recent().getWarmupPageTotal();
+    }
+
+    /**
+     * @return Count of pages loaded by warm-up
+     */
+    @Override
+    @Description("Count of pages loaded by warm-up")
+    public long getWarmupPageCount() {
+        return recent().getWarmupPageCount();
+    }
+
+    /**
+     * @return Count of read operations used to load the warm-up pages
+     */
+    @Override
+    @Description("Count of read operations used to load the warm-up pages")
+    public long getWarmupReadCount() {
+        return recent().getWarmupReadCount();
+    }
+
+    /**
+     * @return Pages loaded per second by warm-up
+     */
+    @Override
+    @Description("Pages loaded per second by warm-up")
+    public double getWarmupRate() {
+        return recent().getWarmupRate();
+    }
+
 }
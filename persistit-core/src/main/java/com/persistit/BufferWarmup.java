@@ -0,0 +1,252 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.persistit.exception.PersistitException;
+
+/**
+ * <p>
+ * Loads the pages recorded in the buffer pool inventories (see
+ * {@link BufferPool#recordBufferInventory(long)}) back into the buffer pools
+ * after a restart. The inventories are read during startup; the pages
+ * themselves are loaded by a small pool of background threads while Persistit
+ * accepts traffic.
+ * </p>
+ * <p>
+ * The pages of each inventory are sorted by Volume and page address, which is
+ * the order of their positions in the volume files, and divided into runs of
+ * up to {@value #MAXIMUM_RUN} pages. Each thread repeatedly takes the next run
+ * and loads it with {@link BufferPool#warmup(Volume, Page[], int, int, ByteBuffer)},
+ * which reads consecutive pages that are not held in the journal with a
+ * single read. Runs are handed out in order, so the threads together still
+ * read each file approximately sequentially.
+ * </p>
+ * <p>
+ * Pages demanded by the application take precedence. Warm-up skips a page
+ * that is already present, never evicts a page to make room and stops loading
+ * a pool as soon as it has no free buffer. A page being loaded by warm-up is
+ * claimed only for the duration of the single read that loads its run.
+ * </p>
+ */
+class BufferWarmup {
+
+    final static int DEFAULT_THREAD_COUNT = 4;
+
+    final static int MAXIMUM_THREAD_COUNT = 64;
+
+    /**
+     * Maximum number of pages loaded by one read
+     */
+    final static int MAXIMUM_RUN = 32;
+
+    private final static String THREAD_NAME = "BUFFER_WARMUP";
+
+    private final static long CLOSE_WAIT_SECONDS = 10;
+
+    private final Persistit _persistit;
+
+    private final List<Run> _runs = new ArrayList<Run>();
+
+    private final AtomicInteger _nextRun = new AtomicInteger();
+
+    private final AtomicInteger _activeThreads = new AtomicInteger();
+
+    private ExecutorService _executor;
+
+    private volatile boolean _stopped;
+
+    /**
+     * A page recorded in an inventory, and the index of the buffer that held
+     * it
+     */
+    static class Page {
+        final Volume _volume;
+        final long _page;
+        final int _index;
+
+        Page(final Volume volume, final long page, final int index) {
+            _volume = volume;
+            _page = page;
+            _index = index;
+        }
+
+        final static Comparator<Page> FILE_ORDER = new Comparator<Page>() {
+            @Override
+            public int compare(final Page a, final Page b) {
+                if (a._volume != b._volume) {
+                    return a._volume.getHandle() < b._volume.getHandle() ? -1 : 1;
+                }
+                return a._page < b._page ? -1 : a._page > b._page ? 1 : 0;
+            }
+        };
+    }
+
+    /**
+     * Consecutive elements of the sorted inventory of one pool, all belonging
+     * to the same Volume
+     */
+    private static class Run {
+        final BufferPool _pool;
+        final Page[] _pages;
+        final int _from;
+        final int _to;
+
+        Run(final BufferPool pool, final Page[] pages, final int from, final int to) {
+            _pool = pool;
+            _pages = pages;
+            _from = from;
+            _to = to;
+        }
+    }
+
+    BufferWarmup(final Persistit persistit) {
+        _persistit = persistit;
+    }
+
+    /**
+     * Read the inventory of each pool and start the threads that load the
+     * recorded pages.
+     *
+     * @param pools
+     * @param threads
+     *            number of threads
+     */
+    synchronized void start(final List<BufferPool> pools, final int threads) {
+        for (final BufferPool pool : pools) {
+            final List<Page> list = pool.readBufferInventory();
+            Collections.sort(list, Page.FILE_ORDER);
+            if (list.isEmpty()) {
+                continue;
+            }
+            final Page[] pages = list.toArray(new Page[list.size()]);
+            int from = 0;
+            for (int index = 1; index <= pages.length; index++) {
+                if (index == pages.length || index - from == MAXIMUM_RUN
+                        || pages[index]._volume != pages[from]._volume) {
+                    _runs.add(new Run(pool, pages, from, index));
+                    from = index;
+                }
+            }
+            pool.startWarmup(pages.length);
+        }
+        if (_runs.isEmpty()) {
+            return;
+        }
+        final int count = Math.min(threads, _runs.size());
+        final AtomicInteger counter = new AtomicInteger();
+        _executor = Executors.newFixedThreadPool(count, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, THREAD_NAME + "_" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        _activeThreads.set(count);
+        for (int index = 0; index < count; index++) {
+            _executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    load();
+                }
+            });
+        }
+        _executor.shutdown();
+    }
+
+    private void load() {
+        ByteBuffer staging = null;
+        try {
+            for (;;) {
+                final int next = _nextRun.getAndIncrement();
+                if (next >= _runs.size() || _stopped || _persistit.isClosed()) {
+                    break;
+                }
+                final Run run = _runs.get(next);
+                if (!run._pool.isWarmingUp()) {
+                    continue;
+                }
+                final int size = MAXIMUM_RUN * run._pool.getBufferSize();
+                if (staging == null || staging.capacity() < size) {
+                    staging = ByteBuffer.allocateDirect(size);
+                }
+                try {
+                    if (!run._pool.warmup(run._pages[run._from]._volume, run._pages, run._from, run._to, staging)) {
+                        run._pool.endWarmup();
+                    }
+                } catch (final PersistitException e) {
+                    _persistit.getLogBase().bufferInventoryException.log(e);
+                }
+            }
+        } finally {
+            if (_activeThreads.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+    }
+
+    private void finish() {
+        final List<BufferPool> finished = new ArrayList<BufferPool>();
+        for (final Run run : _runs) {
+            if (!finished.contains(run._pool)) {
+                finished.add(run._pool);
+                if (run._pool.isWarmingUp()) {
+                    run._pool.endWarmup();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for the warm-up to finish.
+     *
+     * @param timeout
+     *            maximum time to wait, in milliseconds
+     * @return <code>true</code> if the warm-up has finished
+     * @throws InterruptedException
+     */
+    boolean waitForCompletion(final long timeout) throws InterruptedException {
+        final ExecutorService executor;
+        synchronized (this) {
+            executor = _executor;
+        }
+        return executor == null || executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop loading pages and wait for the threads to exit.
+     */
+    void close() {
+        _stopped = true;
+        try {
+            waitForCompletion(TimeUnit.SECONDS.toMillis(CLOSE_WAIT_SECONDS));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1208,6 +1208,32 @@ public class CLI {
         };
     }
 
+    @Cmd("resize")
+    Task resize(final @Arg("pool|string:16384|Pool name, or buffer size of a default pool") String pool,
+            final @Arg("count|int:-1:-1:2147483647|New number of buffers") int count) throws Exception {
+        return new Task() {
+
+            @Override
+            public void runTask() throws Exception {
+                if (_persistit == null) {
+                    postMessage("Persistit not loaded", LOG_NORMAL);
+                    return;
+                }
+                if (count < 0) {
+                    postMessage("Specify count=<number of buffers>", LOG_NORMAL);
+                    return;
+                }
+                _persistit.getManagement().resizeBufferPool(pool, count);
+                postMessage(String.format("Buffer pool %s now has %,d buffers", pool, count), LOG_NORMAL);
+            }
+
+            @Override
+            public String getStatus() {
+                return "";
+            }
+        };
+    }
+
     @Cmd("dump")
     Task dump(final @Arg("file|string|Name of file to receive output") String file,
             final @Arg("_flag|s|Secure") boolean secure, final @Arg("_flag|o|Overwrite file") boolean ovewrite,
@@ -1248,7 +1274,7 @@ public class CLI {
                     bb.position(JH.getLength(bb));
                 }
 
-                final List<BufferPool> pools = new ArrayList<BufferPool>(_persistit.getBufferPoolHashMap().values());
+                final List<BufferPool> pools = new ArrayList<BufferPool>(_persistit.getBufferPools());
                 for (final BufferPool pool : pools) {
                     pool.dump(stream, bb, secure, verbose);
                 }
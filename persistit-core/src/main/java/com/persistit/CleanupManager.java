@@ -19,17 +19,50 @@ package com.persistit;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.persistit.AlertMonitor.AlertLevel;
 import com.persistit.AlertMonitor.Event;
+import com.persistit.exception.InUseException;
 import com.persistit.exception.PersistitException;
+import com.persistit.exception.TreeNotFoundException;
+import com.persistit.exception.VolumeNotFoundException;
 import com.persistit.mxbeans.CleanupManagerMXBean;
+import com.persistit.util.Util;
 
+/**
+ * <p>
+ * Performs {@link CleanupAction}s such as pruning pages and removing
+ * anti-values in the background. Actions are held in a bounded queue ordered
+ * by an estimate of the space each would reclaim; actions with equal estimates
+ * are performed in the order they were offered. An action equal to one already
+ * enqueued is not added again, although the enqueued action inherits the
+ * larger estimate. When the queue is full a new action displaces the enqueued
+ * action with the smallest estimate if its own estimate is larger and is
+ * refused otherwise.
+ * </p>
+ * <p>
+ * Each poll cycle of the CLEANUP_MANAGER thread drains the queue using up to
+ * {@link #getCleanupThreads()} threads, the CLEANUP_MANAGER thread itself and
+ * pooled CLEANUP_WORKER threads. Actions on pages wait at most
+ * {@link #getClaimTimeout()} milliseconds for the page; an action that times
+ * out is abandoned rather than blocking a worker behind a busy page.
+ * </p>
+ */
 class CleanupManager extends IOTaskRunnable implements CleanupManagerMXBean {
 
     interface CleanupAction extends Comparable<CleanupAction> {
@@ -49,7 +82,28 @@ class CleanupManager extends IOTaskRunnable implements CleanupManagerMXBean {
 
     private final static long DEFAULT_MINIMUM_PRUNING_DELAY_NS = 1000;
 
-    private final Queue<CleanupAction> _cleanupActionQueue = new ArrayBlockingQueue<CleanupAction>(DEFAULT_QUEUE_SIZE);
+    final static long DEFAULT_SWEEP_INTERVAL_MS = 1000;
+
+    final static int DEFAULT_SWEEP_MINIMUM_DEAD_BYTES = 1024;
+
+    private final static int SWEEP_PAGE_LIMIT = 100;
+
+    private final static long NS_PER_MS = 1000000L;
+
+    final static long DEFAULT_CLAIM_TIMEOUT_MS = 50;
+
+    private final static long WORKER_KEEP_ALIVE_SECONDS = 10;
+
+    /*
+     * Guarded by this
+     */
+    private final TreeSet<QueueEntry> _cleanupActionQueue = new TreeSet<QueueEntry>();
+
+    private final Map<CleanupAction, QueueEntry> _enqueuedActions = new HashMap<CleanupAction, QueueEntry>();
+
+    private long _sequence;
+
+    private ThreadPoolExecutor _executor;
 
     private final AtomicBoolean _closed = new AtomicBoolean();
 
@@ -61,10 +115,42 @@ class CleanupManager extends IOTaskRunnable implements CleanupManagerMXBean {
 
     private final AtomicLong _errors = new AtomicLong();
 
+    private final AtomicLong _duplicates = new AtomicLong();
+
+    private final AtomicLong _evicted = new AtomicLong();
+
+    private final AtomicLong _claimTimeouts = new AtomicLong();
+
+    private final AtomicLong _latencyCount = new AtomicLong();
+
+    private final AtomicLong _latencyTotal = new AtomicLong();
+
+    private final AtomicLong _latencyMaximum = new AtomicLong();
+
+    private final AtomicLong _claimTimeout = new AtomicLong(DEFAULT_CLAIM_TIMEOUT_MS);
+
+    private volatile int _cleanupThreads = DEFAULT_CLEANUP_THREADS;
+
     private final AtomicLong _minimumPruningDelay = new AtomicLong(DEFAULT_MINIMUM_PRUNING_DELAY_NS);
 
+    private final AtomicLong _deadVersionBytes = new AtomicLong();
+
+    private final AtomicLong _prunedPages = new AtomicLong();
+
+    private final AtomicLong _prunedBytes = new AtomicLong();
+
+    private final AtomicLong _prunedBeforeSplit = new AtomicLong();
+
+    private final AtomicLong _sweptPages = new AtomicLong();
+
+    private final AtomicLong _sweepInterval = new AtomicLong(DEFAULT_SWEEP_INTERVAL_MS);
+
+    private final AtomicLong _sweepMinimumDeadBytes = new AtomicLong(DEFAULT_SWEEP_MINIMUM_DEAD_BYTES);
+
     private long _lastMaintenance;
 
+    private long _lastSweep;
+
     private long _lastPruneObsoleteTransactions;
 
     CleanupManager(final Persistit persistit) {
@@ -76,11 +162,19 @@ class CleanupManager extends IOTaskRunnable implements CleanupManagerMXBean {
         final long now = System.nanoTime();
         _lastMaintenance = now;
         _lastPruneObsoleteTransactions = now;
+        _lastSweep = now;
         start("CLEANUP_MANAGER", DEFAULT_CLEANUP_INTERVAL_MS);
     }
 
     public void close(final boolean flush) throws PersistitException {
         _closed.set(true);
+        shutdownWorkers(false);
+    }
+
+    @Override
+    protected void crash() {
+        shutdownWorkers(true);
+        super.crash();
     }
 
     @Override
@@ -93,15 +187,71 @@ class CleanupManager extends IOTaskRunnable implements CleanupManagerMXBean {
         return _closed.get();
     }
 
-    synchronized boolean offer(final CleanupAction action) {
-        final boolean accepted = _cleanupActionQueue.offer(action);
-        if (accepted) {
-            _accepted.incrementAndGet();
-        } else {
-            _refused.incrementAndGet();
-            kick();
+    boolean offer(final CleanupAction action) {
+        return offer(action, 0);
+    }
+
+    /**
+     * Enqueue an action unless an equal action is already enqueued.
+     * 
+     * @param action
+     *            the action
+     * @param estimate
+     *            estimated number of bytes the action will reclaim; actions
+     *            with larger estimates are performed first
+     * @return <code>true</code> if the action or an equal action is enqueued
+     */
+    synchronized boolean offer(final CleanupAction action, final int estimate) {
+        final QueueEntry existing = _enqueuedActions.get(action);
+        if (existing != null) {
+            if (estimate > existing._estimate) {
+                _cleanupActionQueue.remove(existing);
+                existing._estimate = estimate;
+                _cleanupActionQueue.add(existing);
+            }
+            _duplicates.incrementAndGet();
+            return true;
         }
-        return accepted;
+        if (_cleanupActionQueue.size() >= DEFAULT_QUEUE_SIZE) {
+            final QueueEntry last = _cleanupActionQueue.last();
+            if (estimate <= last._estimate) {
+                _refused.incrementAndGet();
+                kick();
+                return false;
+            }
+            _cleanupActionQueue.remove(last);
+            _enqueuedActions.remove(last._action);
+            _evicted.incrementAndGet();
+        }
+        final QueueEntry entry = new QueueEntry(action, estimate, ++_sequence, System.nanoTime());
+        _cleanupActionQueue.add(entry);
+        _enqueuedActions.put(action, entry);
+        _accepted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Remove and return the action with the largest estimate, recording how
+     * long it waited.
+     * 
+     * @return the action or <code>null</code> if the queue is empty
+     */
+    synchronized CleanupAction take() {
+        final QueueEntry entry = _cleanupActionQueue.pollFirst();
+        if (entry == null) {
+            return null;
+        }
+        _enqueuedActions.remove(entry._action);
+        final long latency = System.nanoTime() - entry._enqueued;
+        _latencyCount.incrementAndGet();
+        _latencyTotal.addAndGet(latency);
+        for (;;) {
+            final long maximum = _latencyMaximum.get();
+            if (latency <= maximum || _latencyMaximum.compareAndSet(maximum, latency)) {
+                break;
+            }
+        }
+        return entry._action;
     }
 
     @Override
@@ -125,10 +275,58 @@ class CleanupManager extends IOTaskRunnable implements CleanupManagerMXBean {
     }
 
     @Override
-    public long getEnqueuedCount() {
+    public synchronized long getEnqueuedCount() {
         return _cleanupActionQueue.size();
     }
 
+    @Override
+    public long getDuplicateCount() {
+        return _duplicates.get();
+    }
+
+    @Override
+    public long getEvictedCount() {
+        return _evicted.get();
+    }
+
+    @Override
+    public long getClaimTimeoutCount() {
+        return _claimTimeouts.get();
+    }
+
+    @Override
+    public long getAverageLatency() {
+        final long count = _latencyCount.get();
+        return count == 0 ? 0 : _latencyTotal.get() / count / NS_PER_MS;
+    }
+
+    @Override
+    public long getMaximumLatency() {
+        return _latencyMaximum.get() / NS_PER_MS;
+    }
+
+    @Override
+    public long getClaimTimeout() {
+        return _claimTimeout.get();
+    }
+
+    @Override
+    public void setClaimTimeout(final long timeout) {
+        Util.rangeCheck(timeout, 1, SharedResource.DEFAULT_MAX_WAIT_TIME);
+        _claimTimeout.set(timeout);
+    }
+
+    @Override
+    public int getCleanupThreads() {
+        return _cleanupThreads;
+    }
+
+    @Override
+    public void setCleanupThreads(final int cleanupThreads) {
+        Util.rangeCheck(cleanupThreads, 1, MAXIMUM_CLEANUP_THREADS);
+        _cleanupThreads = cleanupThreads;
+    }
+
     @Override
     public long getMinimumPruningDelay() {
         return _minimumPruningDelay.get();
@@ -139,6 +337,77 @@ class CleanupManager extends IOTaskRunnable implements CleanupManagerMXBean {
         _minimumPruningDelay.set(delay);
     }
 
+    void addDeadVersionBytes(final long delta) {
+        _deadVersionBytes.addAndGet(delta);
+    }
+
+    void pagePruned(final int bytes) {
+        _prunedPages.incrementAndGet();
+        _prunedBytes.addAndGet(bytes);
+    }
+
+    void prunedBeforeSplit() {
+        _prunedBeforeSplit.incrementAndGet();
+    }
+
+    @Override
+    public long getDeadVersionBytes() {
+        return Math.max(0, _deadVersionBytes.get());
+    }
+
+    @Override
+    public long getDeadVersionBytes(final String volumeName, final String treeName) throws PersistitException {
+        final Volume volume = _persistit.getVolume(volumeName);
+        if (volume == null) {
+            throw new VolumeNotFoundException(volumeName);
+        }
+        final Tree tree = volume.getTree(treeName, false);
+        if (tree == null) {
+            throw new TreeNotFoundException(treeName);
+        }
+        return tree.getStatistics().getDeadVersionBytes();
+    }
+
+    @Override
+    public long getPrunedPageCount() {
+        return _prunedPages.get();
+    }
+
+    @Override
+    public long getPrunedByteCount() {
+        return _prunedBytes.get();
+    }
+
+    @Override
+    public long getPrunedBeforeSplitCount() {
+        return _prunedBeforeSplit.get();
+    }
+
+    @Override
+    public long getSweptPageCount() {
+        return _sweptPages.get();
+    }
+
+    @Override
+    public long getSweepInterval() {
+        return _sweepInterval.get();
+    }
+
+    @Override
+    public void setSweepInterval(final long interval) {
+        _sweepInterval.set(interval);
+    }
+
+    @Override
+    public int getSweepMinimumDeadBytes() {
+        return (int) _sweepMinimumDeadBytes.get();
+    }
+
+    @Override
+    public void setSweepMinimumDeadBytes(final int bytes) {
+        _sweepMinimumDeadBytes.set(bytes);
+    }
+
     @Override
     public long pollInterval() {
         if (_cleanupActionQueue.size() < DEFAULT_QUEUE_SIZE / 2) {
@@ -163,51 +432,209 @@ class CleanupManager extends IOTaskRunnable implements CleanupManagerMXBean {
             _lastPruneObsoleteTransactions = now;
         }
 
-        final List<CleanupAction> workList = new ArrayList<CleanupAction>(WORKLIST_LENGTH);
-        synchronized (this) {
-            while (workList.size() < WORKLIST_LENGTH) {
-                final CleanupAction action;
-                action = _cleanupActionQueue.poll();
-                if (action == null) {
-                    break;
+        final long sweepInterval = _sweepInterval.get();
+        if (sweepInterval > 0 && now - _lastSweep > sweepInterval * NS_PER_MS) {
+            sweep();
+            _lastSweep = now;
+        }
+
+        final int threads = Math.min(_cleanupThreads, (int) (getEnqueuedCount() / WORKLIST_LENGTH) + 1);
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        if (threads > 1) {
+            final ThreadPoolExecutor executor = executor(threads);
+            if (executor != null) {
+                try {
+                    for (int index = 1; index < threads; index++) {
+                        futures.add(executor.submit(new Callable<Void>() {
+                            @Override
+                            public Void call() {
+                                drain();
+                                return null;
+                            }
+                        }));
+                    }
+                } catch (final RejectedExecutionException e) {
+                    // shutting down - this thread drains alone
                 }
-                workList.add(action);
             }
         }
-        Collections.sort(workList);
-
-        for (final CleanupAction action : workList) {
+        drain();
+        for (final Future<Void> future : futures) {
             try {
-                action.performAction(_persistit, null);
+                future.get();
+            } catch (final ExecutionException e) {
+                lastException(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            }
+        }
+    }
+
+    /**
+     * Perform up to {@value #WORKLIST_LENGTH} enqueued actions in order of
+     * decreasing estimate.
+     */
+    private void drain() {
+        for (int count = 0; count < WORKLIST_LENGTH; count++) {
+            final CleanupAction action = take();
+            if (action == null) {
+                break;
+            }
+            if (perform(action)) {
                 _performed.incrementAndGet();
-            } catch (final PersistitException e) {
-                lastException(e);
-                _persistit.getAlertMonitor().post(
-                        new Event(AlertLevel.ERROR, _persistit.getLogBase().cleanupException, e, action),
-                        AlertMonitor.CLEANUP_CATEGORY);
-                _errors.incrementAndGet();
             }
         }
     }
 
+    private synchronized ThreadPoolExecutor executor(final int threads) {
+        if (_closed.get()) {
+            return null;
+        }
+        ThreadPoolExecutor executor = _executor;
+        if (executor == null || executor.getCorePoolSize() < threads) {
+            if (executor != null) {
+                executor.shutdown();
+            }
+            final AtomicInteger counter = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threads, threads, WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(final Runnable runnable) {
+                            final Thread thread = new Thread(runnable, "CLEANUP_WORKER_" + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            _executor = executor;
+        }
+        return executor;
+    }
+
+    private void shutdownWorkers(final boolean now) {
+        final ThreadPoolExecutor executor;
+        synchronized (this) {
+            executor = _executor;
+            _executor = null;
+        }
+        if (executor != null) {
+            if (now) {
+                executor.shutdownNow();
+            } else {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Enqueue pruning actions for the buffered data pages holding the most
+     * bytes of superseded MVV versions. Candidates are found by scanning every
+     * buffer pool without claims, so the estimates are approximate; at most
+     * {@value #SWEEP_PAGE_LIMIT} pages having at least the sweep minimum are
+     * enqueued per call, each with its estimate as its priority.
+     */
+    void sweep() {
+        final List<PruningCandidate> candidates = new ArrayList<PruningCandidate>();
+        final int minimum = getSweepMinimumDeadBytes();
+        for (final BufferPool pool : _persistit.getBufferPools()) {
+            pool.addPruningCandidates(candidates, minimum);
+        }
+        Collections.sort(candidates);
+        final int count = Math.min(candidates.size(), SWEEP_PAGE_LIMIT);
+        for (int index = 0; index < count; index++) {
+            final PruningCandidate candidate = candidates.get(index);
+            if (offer(new CleanupPruneAction(candidate._treeHandle, candidate._page), candidate._deadBytes)) {
+                _sweptPages.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean perform(final CleanupAction action) {
+        try {
+            action.performAction(_persistit, null);
+            return true;
+        } catch (final InUseException e) {
+            /*
+             * The page stayed busy for the claim timeout. The action is
+             * dropped; the page is offered again the next time it is found
+             * to need cleanup.
+             */
+            _claimTimeouts.incrementAndGet();
+            return false;
+        } catch (final PersistitException e) {
+            lastException(e);
+            _persistit.getAlertMonitor().post(
+                    new Event(AlertLevel.ERROR, _persistit.getLogBase().cleanupException, e, action),
+                    AlertMonitor.CLEANUP_CATEGORY);
+            _errors.incrementAndGet();
+            return false;
+        }
+    }
+
     @Override
     public synchronized void clear() {
         _cleanupActionQueue.clear();
+        _enqueuedActions.clear();
     }
 
     @Override
     public synchronized String toString() {
         final StringBuilder sb = new StringBuilder("[");
-        for (final CleanupAction a : _cleanupActionQueue) {
+        for (final QueueEntry e : _cleanupActionQueue) {
             if (sb.length() > 1) {
                 sb.append(",\n ");
             }
-            sb.append(a);
+            sb.append(e._action);
         }
         sb.append("]");
         return sb.toString();
     }
 
+    /**
+     * An enqueued action. Ordered by decreasing estimate, then by the order in
+     * which actions were offered.
+     */
+    private static class QueueEntry implements Comparable<QueueEntry> {
+        final CleanupAction _action;
+        final long _sequence;
+        final long _enqueued;
+        int _estimate;
+
+        QueueEntry(final CleanupAction action, final int estimate, final long sequence, final long enqueued) {
+            _action = action;
+            _estimate = estimate;
+            _sequence = sequence;
+            _enqueued = enqueued;
+        }
+
+        @Override
+        public int compareTo(final QueueEntry other) {
+            if (_estimate != other._estimate) {
+                return _estimate > other._estimate ? -1 : 1;
+            }
+            return _sequence < other._sequence ? -1 : _sequence > other._sequence ? 1 : 0;
+        }
+    }
+
+    /**
+     * A buffered data page found by {@link BufferPool#addPruningCandidates}.
+     * Ordered by decreasing estimated dead bytes.
+     */
+    static class PruningCandidate implements Comparable<PruningCandidate> {
+        final int _treeHandle;
+        final long _page;
+        final int _deadBytes;
+
+        PruningCandidate(final int treeHandle, final long page, final int deadBytes) {
+            _treeHandle = treeHandle;
+            _page = page;
+            _deadBytes = deadBytes;
+        }
+
+        @Override
+        public int compareTo(final PruningCandidate other) {
+            return _deadBytes > other._deadBytes ? -1 : _deadBytes < other._deadBytes ? 1 : 0;
+        }
+    }
+
     abstract static class CleanupTreePage implements CleanupAction {
 
         private final static ThreadLocal<WeakReference<Exchange>> _exchangeThreadLocal = new ThreadLocal<WeakReference<Exchange>>();
@@ -284,7 +711,8 @@ class CleanupManager extends IOTaskRunnable implements CleanupManagerMXBean {
                 throws PersistitException {
             final Exchange exchange = getExchange(persistit);
             if (exchange != null) {
-                exchange.pruneLeftEdgeValue(_page, consequentActions);
+                exchange.pruneLeftEdgeValue(_page, consequentActions, persistit.getCleanupManager()
+                        .getClaimTimeout());
             }
         }
     }
@@ -300,7 +728,7 @@ class CleanupManager extends IOTaskRunnable implements CleanupManagerMXBean {
                 throws PersistitException {
             final Exchange exchange = getExchange(persistit);
             if (exchange != null) {
-                exchange.prune(_page, consequentActions);
+                exchange.prune(_page, consequentActions, persistit.getCleanupManager().getClaimTimeout());
             }
         }
     }
@@ -318,7 +746,7 @@ class CleanupManager extends IOTaskRunnable implements CleanupManagerMXBean {
                 throws PersistitException {
             final Exchange exchange = getExchange(persistit);
             if (exchange != null) {
-                exchange.fixIndexHole(_page, _level);
+                exchange.fixIndexHole(_page, _level, persistit.getCleanupManager().getClaimTimeout());
             }
         }
     }
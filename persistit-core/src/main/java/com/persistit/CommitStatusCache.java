@@ -0,0 +1,122 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import static com.persistit.TransactionStatus.ABORTED;
+import static com.persistit.TransactionStatus.UNCOMMITTED;
+
+/**
+ * <p>
+ * Small direct-mapped cache of transaction outcomes used by
+ * {@link TransactionIndex#commitStatus(long, long, int, CommitStatusCache)}.
+ * Each entry maps the start timestamp of a transaction to its commit
+ * timestamp, or to {@link TransactionStatus#ABORTED}. A scan over recently
+ * updated records sees versions written by the same few transactions over and
+ * over; once one of those transactions is known to have committed or aborted,
+ * the cache answers without searching its {@link TransactionIndexBucket}.
+ * </p>
+ * <p>
+ * Only final outcomes are cached. A transaction that has committed or aborted
+ * never changes its outcome and start timestamps are never reused, so an entry
+ * can never become wrong and no invalidation is needed. Uncommitted and
+ * committing transactions are never cached.
+ * </p>
+ * <p>
+ * An instance belongs to one {@link Exchange} and is not thread-safe. Hit and
+ * miss counts are accumulated locally and periodically added to the
+ * <code>TransactionIndex</code> totals to avoid contending on shared counters.
+ * </p>
+ */
+class CommitStatusCache {
+
+    /**
+     * Number of entries; must be a power of two
+     */
+    final static int SIZE = 64;
+
+    /**
+     * Local counts are added to the TransactionIndex totals after this many
+     * lookups
+     */
+    private final static int FLUSH_INTERVAL = 1024;
+
+    private final TransactionIndex _ti;
+
+    private final long[] _ts = new long[SIZE];
+
+    private final long[] _tc = new long[SIZE];
+
+    private int _hits;
+
+    private int _misses;
+
+    CommitStatusCache(final TransactionIndex ti) {
+        _ti = ti;
+    }
+
+    /**
+     * Look up the outcome of a transaction.
+     *
+     * @param tsv
+     *            start timestamp of the transaction
+     * @return its commit timestamp, {@link TransactionStatus#ABORTED}, or
+     *         {@link TransactionStatus#UNCOMMITTED} if the outcome is not
+     *         cached
+     */
+    long get(final long tsv) {
+        final int index = (int) tsv & (SIZE - 1);
+        final long tc;
+        if (_ts[index] == tsv) {
+            tc = _tc[index];
+            _hits++;
+        } else {
+            tc = UNCOMMITTED;
+            _misses++;
+        }
+        if (_hits + _misses >= FLUSH_INTERVAL) {
+            flush();
+        }
+        return tc;
+    }
+
+    /**
+     * Record the final outcome of a transaction.
+     *
+     * @param tsv
+     *            start timestamp of the transaction
+     * @param tc
+     *            its commit timestamp or {@link TransactionStatus#ABORTED}
+     */
+    void put(final long tsv, final long tc) {
+        assert tc == ABORTED || tc >= 0 && tc != UNCOMMITTED;
+        final int index = (int) tsv & (SIZE - 1);
+        _ts[index] = tsv;
+        _tc[index] = tc;
+    }
+
+    /**
+     * Add the locally accumulated hit and miss counts to the
+     * <code>TransactionIndex</code> totals.
+     */
+    void flush() {
+        if (_hits + _misses > 0) {
+            _ti.addCommitStatusCacheCounts(_hits, _misses);
+            _hits = 0;
+            _misses = 0;
+        }
+    }
+}
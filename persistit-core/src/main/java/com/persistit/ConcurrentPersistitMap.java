@@ -0,0 +1,1055 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentNavigableMap;
+
+import com.persistit.Key.Direction;
+import com.persistit.PersistitMap.PersistitMapException;
+import com.persistit.exception.PersistitException;
+
+/**
+ * <p>
+ * A persistent <code>java.util.concurrent.ConcurrentNavigableMap</code> over a
+ * Persistit database. Like {@link PersistitMap}, keys and values are
+ * serialized with {@link Key} and {@link Value} and the keys are appended to
+ * the key of the {@link Exchange} supplied to the constructor.
+ * </p>
+ * <p>
+ * Unlike <code>PersistitMap</code>, this class holds no monitor and no
+ * <code>Exchange</code> of its own. Each operation borrows an
+ * <code>Exchange</code> from the calling thread's pool with
+ * {@link Persistit#getExchange(Volume, String, boolean)} and returns it with
+ * {@link Persistit#releaseExchange(Exchange)}, and concurrency control is left
+ * to the page latches of the B-Tree. Threads sharing one instance therefore
+ * read and write different keys in parallel.
+ * </p>
+ * <p>
+ * {@link #get} is a single B-Tree operation. {@link #put},
+ * {@link #remove(Object)}, and the conditional operations
+ * {@link #putIfAbsent}, {@link #remove(Object, Object)} and the
+ * <code>replace</code> methods read and update the key within a
+ * {@link Transaction}, relying on write-write conflict detection for their
+ * atomicity with respect to one another; they are retried up to
+ * {@value #RETRY_COUNT} times when they conflict with a concurrent update. All
+ * operations join the calling thread's transaction when one is active.
+ * </p>
+ * <p>
+ * Iterators of the collection views are weakly consistent: they never throw
+ * <code>ConcurrentModificationException</code> and traverse from the last key
+ * they returned, reflecting modifications made after they were created.
+ * {@link #size()} enumerates the members of the map. As required by
+ * <code>ConcurrentMap</code>, <code>null</code> keys and values are not
+ * permitted. Keys are ordered by their encoded form (see {@link Key Key
+ * Ordering}), so {@link #comparator()} returns <code>null</code>.
+ * </p>
+ * <p>
+ * Any {@link PersistitException} that occurs is thrown within the unchecked
+ * wrapper {@link PersistitMapException}.
+ * </p>
+ */
+public class ConcurrentPersistitMap<K, V> extends AbstractMap<K, V> implements ConcurrentNavigableMap<K, V> {
+
+    /**
+     * Number of times an update is retried after a write-write conflict
+     */
+    public final static int RETRY_COUNT = 10;
+
+    private final static long RETRY_DELAY = 1;
+
+    private final Persistit _persistit;
+    private final Volume _volume;
+    private final String _treeName;
+    private final Key _parent;
+    //
+    // Bounds of a submap, in ascending key order; null if unbounded.
+    //
+    private final Key _lo;
+    private final boolean _loInclusive;
+    private final Key _hi;
+    private final boolean _hiInclusive;
+    private final boolean _descending;
+
+    private transient volatile KeySet<K> _keySet;
+    private transient volatile Collection<V> _values;
+    private transient volatile Set<Map.Entry<K, V>> _entrySet;
+    private transient volatile ConcurrentPersistitMap<K, V> _descendingMap;
+
+    /**
+     * Construct a ConcurrentPersistitMap over a particular Exchange.
+     *
+     * @param ex
+     *            A <code>Exchange</code> that serves as the parent of the Map's
+     *            keys. Only the <code>Tree</code> and the key of the
+     *            <code>Exchange</code> are used; the original Exchange is
+     *            unchanged and may be reused by the caller.
+     */
+    public ConcurrentPersistitMap(final Exchange ex) {
+        this(ex.getPersistitInstance(), ex.getVolume(), ex.getTree().getName(), new Key(ex.getKey()), null, false,
+                null, false, false);
+    }
+
+    private ConcurrentPersistitMap(final Persistit persistit, final Volume volume, final String treeName,
+            final Key parent, final Key lo, final boolean loInclusive, final Key hi, final boolean hiInclusive,
+            final boolean descending) {
+        _persistit = persistit;
+        _volume = volume;
+        _treeName = treeName;
+        _parent = parent;
+        _lo = lo;
+        _loInclusive = loInclusive;
+        _hi = hi;
+        _hiInclusive = hiInclusive;
+        _descending = descending;
+    }
+
+    // Exchange and key handling
+
+    private Exchange exchange() {
+        try {
+            final Exchange ex = _persistit.getExchange(_volume, _treeName, false);
+            _parent.copyTo(ex.getKey());
+            return ex;
+        } catch (final PersistitException pe) {
+            throw new PersistitMapException(pe);
+        }
+    }
+
+    private void release(final Exchange ex) {
+        _persistit.releaseExchange(ex);
+    }
+
+    /**
+     * Append the supplied map key to the parent key held by the Exchange.
+     */
+    private void append(final Exchange ex, final Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        try {
+            ex.append(key);
+        } catch (final UnsupportedOperationException use) {
+            throw new ClassCastException(key.getClass().getName());
+        }
+    }
+
+    private Key encode(final Object key) {
+        final Key encoded = new Key(_persistit);
+        _parent.copyTo(encoded);
+        try {
+            encoded.append(key);
+        } catch (final UnsupportedOperationException use) {
+            throw new ClassCastException(key.getClass().getName());
+        }
+        return encoded;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K decodeKey(final Key key) {
+        key.indexTo(-1);
+        return (K) key.decode();
+    }
+
+    @SuppressWarnings("unchecked")
+    private V decodeValue(final Exchange ex) {
+        return ex.getValue().isDefined() ? (V) ex.getValue().get() : null;
+    }
+
+    private boolean tooLow(final Key key) {
+        if (_lo == null) {
+            return false;
+        }
+        final int c = _lo.compareTo(key);
+        return c > 0 || c == 0 && !_loInclusive;
+    }
+
+    private boolean tooHigh(final Key key) {
+        if (_hi == null) {
+            return false;
+        }
+        final int c = _hi.compareTo(key);
+        return c < 0 || c == 0 && !_hiInclusive;
+    }
+
+    private boolean inRange(final Key key) {
+        return !tooLow(key) && !tooHigh(key);
+    }
+
+    private void checkRange(final Exchange ex, final Object key) {
+        if (!inRange(ex.getKey())) {
+            throw new IllegalArgumentException("Key " + key + " is out of submap range");
+        }
+    }
+
+    // Navigation
+
+    /**
+     * Traverse from the key held by the Exchange to the nearest member of this
+     * map in the supplied direction, without regard to the descending flag.
+     *
+     * @param ex
+     *            the Exchange, holding the starting key
+     * @param direction
+     *            one of GT, GTEQ, LT or LTEQ
+     * @return <code>true</code> if a member was found, in which case the
+     *         Exchange holds its key and value
+     * @throws PersistitException
+     */
+    private boolean find(final Exchange ex, Direction direction) throws PersistitException {
+        final Key key = ex.getKey();
+        final boolean forward = direction == Key.GT || direction == Key.GTEQ;
+        if (forward && _lo != null && _lo.compareTo(key) > 0) {
+            _lo.copyTo(key);
+            direction = Key.GTEQ;
+        } else if (!forward && _hi != null && _hi.compareTo(key) < 0) {
+            _hi.copyTo(key);
+            direction = Key.LTEQ;
+        }
+        while (ex.traverse(direction, false)) {
+            if (forward ? tooHigh(key) : tooLow(key)) {
+                return false;
+            }
+            if (inRange(key) && ex.getValue().isDefined()) {
+                return true;
+            }
+            direction = forward ? Key.GT : Key.LT;
+        }
+        return false;
+    }
+
+    /**
+     * @return the member nearest to the supplied key in the supplied direction,
+     *         or <code>null</code>. A <code>null</code> key designates the
+     *         edge of the map from which the direction proceeds.
+     */
+    private Map.Entry<K, V> findEntry(final Object key, final Direction direction) {
+        final Exchange ex = exchange();
+        try {
+            if (key == null) {
+                ex.append(direction == Key.GT ? Key.BEFORE : Key.AFTER);
+            } else {
+                append(ex, key);
+            }
+            return find(ex, direction) ? entry(ex) : null;
+        } catch (final PersistitException pe) {
+            throw new PersistitMapException(pe);
+        } finally {
+            release(ex);
+        }
+    }
+
+    private Map.Entry<K, V> entry(final Exchange ex) {
+        final V value = decodeValue(ex);
+        return new SimpleImmutableEntry<K, V>(decodeKey(ex.getKey()), value);
+    }
+
+    private Direction ascending(final Direction direction) {
+        if (!_descending) {
+            return direction;
+        } else if (direction == Key.GT) {
+            return Key.LT;
+        } else if (direction == Key.GTEQ) {
+            return Key.LTEQ;
+        } else if (direction == Key.LT) {
+            return Key.GT;
+        } else {
+            return Key.GTEQ;
+        }
+    }
+
+    private Map.Entry<K, V> relative(final Object key, final Direction direction) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return findEntry(key, ascending(direction));
+    }
+
+    private static <K> K keyOf(final Map.Entry<K, ?> entry) {
+        return entry == null ? null : entry.getKey();
+    }
+
+    // Query Operations
+
+    /**
+     * Return the number of key-value mappings in this map. This
+     * implementation enumerates all the members of the map.
+     *
+     * @return the number of key-value mappings in this map, or
+     *         <code>Integer.MAX_VALUE</code> if there are more
+     */
+    @Override
+    public int size() {
+        final Exchange ex = exchange();
+        try {
+            long size = 0;
+            ex.append(Key.BEFORE);
+            Direction direction = Key.GT;
+            if (_lo != null) {
+                _lo.copyTo(ex.getKey());
+                direction = _loInclusive ? Key.GTEQ : Key.GT;
+            }
+            while (ex.traverse(direction, false, 0) && !tooHigh(ex.getKey())) {
+                size++;
+                direction = Key.GT;
+            }
+            return (int) Math.min(size, Integer.MAX_VALUE);
+        } catch (final PersistitException pe) {
+            throw new PersistitMapException(pe);
+        } finally {
+            release(ex);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return findEntry(null, Key.GT) == null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Determine whether this map maps one or more keys to this value. This
+     * implementation implements a linear search across the map.
+     */
+    @Override
+    public boolean containsValue(final Object value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        for (final V v : values()) {
+            if (value.equals(v)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public V get(final Object key) {
+        final Exchange ex = exchange();
+        try {
+            append(ex, key);
+            if (!inRange(ex.getKey())) {
+                return null;
+            }
+            ex.fetch();
+            return decodeValue(ex);
+        } catch (final PersistitException pe) {
+            throw new PersistitMapException(pe);
+        } finally {
+            release(ex);
+        }
+    }
+
+    // Modification Operations
+
+    @Override
+    public V put(final K key, final V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        final Exchange ex = exchange();
+        try {
+            append(ex, key);
+            checkRange(ex, key);
+            final Object[] previous = new Object[1];
+            update(new TransactionRunnable() {
+                @Override
+                public void runTransaction() throws PersistitException {
+                    ex.getValue().put(value);
+                    ex.fetchAndStore();
+                    previous[0] = decodeValue(ex);
+                }
+            });
+            @SuppressWarnings("unchecked")
+            final V result = (V) previous[0];
+            return result;
+        } catch (final PersistitException pe) {
+            throw new PersistitMapException(pe);
+        } finally {
+            release(ex);
+        }
+    }
+
+    @Override
+    public V remove(final Object key) {
+        final Exchange ex = exchange();
+        try {
+            append(ex, key);
+            if (!inRange(ex.getKey())) {
+                return null;
+            }
+            final Object[] previous = new Object[1];
+            update(new TransactionRunnable() {
+                @Override
+                public void runTransaction() throws PersistitException {
+                    previous[0] = ex.fetchAndRemove() ? decodeValue(ex) : null;
+                }
+            });
+            @SuppressWarnings("unchecked")
+            final V result = (V) previous[0];
+            return result;
+        } catch (final PersistitException pe) {
+            throw new PersistitMapException(pe);
+        } finally {
+            release(ex);
+        }
+    }
+
+    @Override
+    public V putIfAbsent(final K key, final V value) {
+        final Object[] previous = new Object[1];
+        conditional(key, null, value, true, previous);
+        @SuppressWarnings("unchecked")
+        final V result = (V) previous[0];
+        return result;
+    }
+
+    @Override
+    public boolean remove(final Object key, final Object value) {
+        if (value == null) {
+            return false;
+        }
+        return conditional(key, value, null, false, null);
+    }
+
+    @Override
+    public boolean replace(final K key, final V oldValue, final V newValue) {
+        if (oldValue == null) {
+            throw new NullPointerException();
+        }
+        return conditional(key, oldValue, newValue, false, null);
+    }
+
+    @Override
+    public V replace(final K key, final V value) {
+        final Object[] previous = new Object[1];
+        conditional(key, null, value, false, previous);
+        @SuppressWarnings("unchecked")
+        final V result = (V) previous[0];
+        return result;
+    }
+
+    /**
+     * Perform a compare-and-set operation on a key within a transaction. The
+     * key is updated if its current value is <code>null</code> (when
+     * <code>absent</code> is true), equal to <code>expected</code>, or any
+     * value (when <code>expected</code> is <code>null</code> and
+     * <code>absent</code> is false). The update stores <code>update</code> or,
+     * if <code>update</code> is <code>null</code>, removes the key.
+     *
+     * @param previous
+     *            if not <code>null</code>, receives the value of the key
+     *            before the operation in its first element
+     * @return <code>true</code> if the key was updated
+     */
+    private boolean conditional(final Object key, final Object expected, final V update, final boolean absent,
+            final Object[] previous) {
+        if (update == null && (absent || expected == null)) {
+            throw new NullPointerException();
+        }
+        final Exchange ex = exchange();
+        try {
+            append(ex, key);
+            checkRange(ex, key);
+            final boolean[] matched = new boolean[1];
+            update(new TransactionRunnable() {
+                @Override
+                public void runTransaction() throws PersistitException {
+                    ex.fetch();
+                    final V current = decodeValue(ex);
+                    if (previous != null) {
+                        previous[0] = current;
+                    }
+                    matched[0] = absent ? current == null : current != null
+                            && (expected == null || expected.equals(current));
+                    if (!matched[0]) {
+                        return;
+                    }
+                    if (update == null) {
+                        ex.remove();
+                    } else {
+                        ex.getValue().put(update);
+                        ex.store();
+                    }
+                }
+            });
+            return matched[0];
+        } catch (final PersistitException pe) {
+            throw new PersistitMapException(pe);
+        } finally {
+            release(ex);
+        }
+    }
+
+    /**
+     * Run an update of a key within a transaction, nested in the calling
+     * thread's transaction if one is active, retrying it after a write-write
+     * conflict.
+     */
+    private void update(final TransactionRunnable runnable) throws PersistitException {
+        _persistit.getTransaction().run(runnable, RETRY_COUNT, RETRY_DELAY,
+                _persistit.getDefaultTransactionCommitPolicy());
+    }
+
+    /**
+     * Removes all mappings from this map with a single key range removal.
+     */
+    @Override
+    public void clear() {
+        final Exchange ex = exchange();
+        try {
+            final Key from = new Key(ex.getKey());
+            final Key to = new Key(ex.getKey());
+            if (_lo == null) {
+                from.append(Key.BEFORE);
+            } else {
+                _lo.copyTo(from);
+                if (!_loInclusive) {
+                    from.nudgeRight();
+                }
+            }
+            if (_hi == null) {
+                to.append(Key.AFTER);
+            } else {
+                _hi.copyTo(to);
+                if (_hiInclusive) {
+                    to.nudgeRight();
+                }
+            }
+            if (from.compareTo(to) < 0) {
+                ex.removeKeyRange(from, to);
+            }
+        } catch (final PersistitException pe) {
+            throw new PersistitMapException(pe);
+        } finally {
+            release(ex);
+        }
+    }
+
+    // Navigation Operations
+
+    @Override
+    public Map.Entry<K, V> lowerEntry(final K key) {
+        return relative(key, Key.LT);
+    }
+
+    @Override
+    public K lowerKey(final K key) {
+        return keyOf(lowerEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> floorEntry(final K key) {
+        return relative(key, Key.LTEQ);
+    }
+
+    @Override
+    public K floorKey(final K key) {
+        return keyOf(floorEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> ceilingEntry(final K key) {
+        return relative(key, Key.GTEQ);
+    }
+
+    @Override
+    public K ceilingKey(final K key) {
+        return keyOf(ceilingEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> higherEntry(final K key) {
+        return relative(key, Key.GT);
+    }
+
+    @Override
+    public K higherKey(final K key) {
+        return keyOf(higherEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        return findEntry(null, _descending ? Key.LT : Key.GT);
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        return findEntry(null, _descending ? Key.GT : Key.LT);
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        for (;;) {
+            final Map.Entry<K, V> entry = firstEntry();
+            if (entry == null || remove(entry.getKey(), entry.getValue())) {
+                return entry;
+            }
+        }
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        for (;;) {
+            final Map.Entry<K, V> entry = lastEntry();
+            if (entry == null || remove(entry.getKey(), entry.getValue())) {
+                return entry;
+            }
+        }
+    }
+
+    @Override
+    public K firstKey() {
+        final Map.Entry<K, V> entry = firstEntry();
+        if (entry == null) {
+            throw new NoSuchElementException();
+        }
+        return entry.getKey();
+    }
+
+    @Override
+    public K lastKey() {
+        final Map.Entry<K, V> entry = lastEntry();
+        if (entry == null) {
+            throw new NoSuchElementException();
+        }
+        return entry.getKey();
+    }
+
+    /**
+     * Keys are ordered by their encoded form rather than by a
+     * <code>Comparator</code>.
+     *
+     * @return <code>null</code>
+     */
+    @Override
+    public Comparator<? super K> comparator() {
+        return null;
+    }
+
+    // Views
+
+    @Override
+    public ConcurrentPersistitMap<K, V> subMap(final K fromKey, final boolean fromInclusive, final K toKey,
+            final boolean toInclusive) {
+        if (fromKey == null || toKey == null) {
+            throw new NullPointerException();
+        }
+        return view(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    @Override
+    public ConcurrentPersistitMap<K, V> headMap(final K toKey, final boolean inclusive) {
+        if (toKey == null) {
+            throw new NullPointerException();
+        }
+        return view(null, false, toKey, inclusive);
+    }
+
+    @Override
+    public ConcurrentPersistitMap<K, V> tailMap(final K fromKey, final boolean inclusive) {
+        if (fromKey == null) {
+            throw new NullPointerException();
+        }
+        return view(fromKey, inclusive, null, false);
+    }
+
+    @Override
+    public ConcurrentPersistitMap<K, V> subMap(final K fromKey, final K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public ConcurrentPersistitMap<K, V> headMap(final K toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public ConcurrentPersistitMap<K, V> tailMap(final K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    @Override
+    public ConcurrentPersistitMap<K, V> descendingMap() {
+        if (_descendingMap == null) {
+            _descendingMap = new ConcurrentPersistitMap<K, V>(_persistit, _volume, _treeName, _parent, _lo,
+                    _loInclusive, _hi, _hiInclusive, !_descending);
+        }
+        return _descendingMap;
+    }
+
+    /**
+     * Construct a view bounded by the supplied keys, which are expressed in
+     * the order of this map.
+     */
+    private ConcurrentPersistitMap<K, V> view(final Object fromKey, final boolean fromInclusive,
+            final Object toKey, final boolean toInclusive) {
+        final Object loKey = _descending ? toKey : fromKey;
+        final boolean loInclusive = _descending ? toInclusive : fromInclusive;
+        final Object hiKey = _descending ? fromKey : toKey;
+        final boolean hiInclusive = _descending ? fromInclusive : toInclusive;
+
+        Key lo = _lo;
+        boolean newLoInclusive = _loInclusive;
+        if (loKey != null) {
+            lo = encode(loKey);
+            newLoInclusive = loInclusive;
+            checkBound(lo, loKey);
+        }
+        Key hi = _hi;
+        boolean newHiInclusive = _hiInclusive;
+        if (hiKey != null) {
+            hi = encode(hiKey);
+            newHiInclusive = hiInclusive;
+            checkBound(hi, hiKey);
+        }
+        if (lo != null && hi != null && lo.compareTo(hi) > 0) {
+            throw new IllegalArgumentException("fromKey " + fromKey + " is after toKey " + toKey);
+        }
+        return new ConcurrentPersistitMap<K, V>(_persistit, _volume, _treeName, _parent, lo, newLoInclusive, hi,
+                newHiInclusive, _descending);
+    }
+
+    private void checkBound(final Key bound, final Object key) {
+        if (_lo != null && _lo.compareTo(bound) > 0 || _hi != null && _hi.compareTo(bound) < 0) {
+            throw new IllegalArgumentException("Key " + key + " is outside submap range");
+        }
+    }
+
+    @Override
+    public NavigableSet<K> keySet() {
+        if (_keySet == null) {
+            _keySet = new KeySet<K>(this);
+        }
+        return _keySet;
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        return keySet();
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        if (_values == null) {
+            _values = new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return new EntryIterator<V>() {
+                        @Override
+                        V select(final Map.Entry<K, V> entry) {
+                            return entry.getValue();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return ConcurrentPersistitMap.this.size();
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return ConcurrentPersistitMap.this.isEmpty();
+                }
+
+                @Override
+                public void clear() {
+                    ConcurrentPersistitMap.this.clear();
+                }
+            };
+        }
+        return _values;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (_entrySet == null) {
+            _entrySet = new AbstractSet<Map.Entry<K, V>>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator<Map.Entry<K, V>>() {
+                        @Override
+                        Map.Entry<K, V> select(final Map.Entry<K, V> entry) {
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public boolean contains(final Object o) {
+                    if (!(o instanceof Map.Entry)) {
+                        return false;
+                    }
+                    final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                    final V value = get(entry.getKey());
+                    return value != null && value.equals(entry.getValue());
+                }
+
+                @Override
+                public boolean remove(final Object o) {
+                    if (!(o instanceof Map.Entry)) {
+                        return false;
+                    }
+                    final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                    return ConcurrentPersistitMap.this.remove(entry.getKey(), entry.getValue());
+                }
+
+                @Override
+                public int size() {
+                    return ConcurrentPersistitMap.this.size();
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return ConcurrentPersistitMap.this.isEmpty();
+                }
+
+                @Override
+                public void clear() {
+                    ConcurrentPersistitMap.this.clear();
+                }
+            };
+        }
+        return _entrySet;
+    }
+
+    /**
+     * Weakly consistent iterator over the members of this map. Each step
+     * borrows an <code>Exchange</code> and traverses from the encoded key of
+     * the member last returned.
+     */
+    private abstract class EntryIterator<E> implements Iterator<E> {
+        private final Key _cursor = new Key(_parent);
+        private Map.Entry<K, V> _next;
+        private Map.Entry<K, V> _last;
+
+        EntryIterator() {
+            _cursor.append(_descending ? Key.AFTER : Key.BEFORE);
+            advance();
+        }
+
+        abstract E select(Map.Entry<K, V> entry);
+
+        private void advance() {
+            final Exchange ex = exchange();
+            try {
+                _cursor.copyTo(ex.getKey());
+                if (find(ex, _descending ? Key.LT : Key.GT)) {
+                    ex.getKey().copyTo(_cursor);
+                    _next = entry(ex);
+                } else {
+                    _next = null;
+                }
+            } catch (final PersistitException pe) {
+                throw new PersistitMapException(pe);
+            } finally {
+                release(ex);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next != null;
+        }
+
+        @Override
+        public E next() {
+            if (_next == null) {
+                throw new NoSuchElementException();
+            }
+            _last = _next;
+            advance();
+            return select(_last);
+        }
+
+        @Override
+        public void remove() {
+            if (_last == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentPersistitMap.this.remove(_last.getKey());
+            _last = null;
+        }
+    }
+
+    /**
+     * <code>NavigableSet</code> view of the keys of a
+     * <code>ConcurrentNavigableMap</code>.
+     */
+    private static class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+        private final ConcurrentNavigableMap<E, ?> _map;
+
+        KeySet(final ConcurrentNavigableMap<E, ?> map) {
+            _map = map;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            final Iterator<? extends Map.Entry<E, ?>> iterator = _map.entrySet().iterator();
+            return new Iterator<E>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    return iterator.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                }
+            };
+        }
+
+        @Override
+        public Iterator<E> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        @Override
+        public int size() {
+            return _map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return _map.isEmpty();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return _map.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(final Object o) {
+            return _map.remove(o) != null;
+        }
+
+        @Override
+        public void clear() {
+            _map.clear();
+        }
+
+        @Override
+        public E lower(final E e) {
+            return _map.lowerKey(e);
+        }
+
+        @Override
+        public E floor(final E e) {
+            return _map.floorKey(e);
+        }
+
+        @Override
+        public E ceiling(final E e) {
+            return _map.ceilingKey(e);
+        }
+
+        @Override
+        public E higher(final E e) {
+            return _map.higherKey(e);
+        }
+
+        @Override
+        public E first() {
+            return _map.firstKey();
+        }
+
+        @Override
+        public E last() {
+            return _map.lastKey();
+        }
+
+        @Override
+        public E pollFirst() {
+            final Map.Entry<E, ?> entry = _map.pollFirstEntry();
+            return entry == null ? null : entry.getKey();
+        }
+
+        @Override
+        public E pollLast() {
+            final Map.Entry<E, ?> entry = _map.pollLastEntry();
+            return entry == null ? null : entry.getKey();
+        }
+
+        @Override
+        public Comparator<? super E> comparator() {
+            return _map.comparator();
+        }
+
+        @Override
+        public NavigableSet<E> descendingSet() {
+            return _map.descendingMap().navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<E> subSet(final E fromElement, final boolean fromInclusive, final E toElement,
+                final boolean toInclusive) {
+            return _map.subMap(fromElement, fromInclusive, toElement, toInclusive).navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<E> headSet(final E toElement, final boolean inclusive) {
+            return _map.headMap(toElement, inclusive).navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<E> tailSet(final E fromElement, final boolean inclusive) {
+            return _map.tailMap(fromElement, inclusive).navigableKeySet();
+        }
+
+        @Override
+        public SortedSet<E> subSet(final E fromElement, final E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<E> headSet(final E toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<E> tailSet(final E fromElement) {
+            return tailSet(fromElement, true);
+        }
+    }
+}
@@ -141,6 +141,23 @@ public class Configuration {
      * specified memory allocation, including overhead for FastIndex elements.
      */
     public final static String BUFFER_MEM_PROPERTY_NAME = "buffer.memory.";
+    /**
+     * Property name prefix for specifying the page replacement policy of a
+     * buffer pool. The full property name should be one of "1024", "2048",
+     * "4096", "8192" or "16384" appended to this string, e.g.,
+     * "buffer.policy.8192". The value is "CLOCK" (the default) or "2Q". The 2Q
+     * policy resists displacement of frequently used pages by large scans.
+     */
+    public final static String BUFFER_POLICY_PROPERTY_NAME = "buffer.policy.";
+    /**
+     * Property name prefix for defining a named buffer pool in addition to the
+     * default pool for its buffer size. The full property name is the pool
+     * name appended to this string, e.g., "buffer.pool.hot", and the value has
+     * the form produced by {@link BufferPoolConfiguration#toString()}, e.g.,
+     * "16384,count=5000,policy=2Q". A volume uses a named pool when its
+     * specification includes the <code>bufferPool</code> attribute.
+     */
+    public final static String BUFFER_POOL_PROPERTY_NAME = "buffer.pool.";
     /**
      * Property name prefix for specifying Volumes. The full property name
      * should be a unique ordinal number appended to this string, e.g.,
@@ -158,6 +175,36 @@ public class Configuration {
      */
     public final static String JOURNAL_BLOCKSIZE_PROPERTY_NAME = "journalsize";
 
+    /**
+     * Property name for specifying the number of threads that copy pages from
+     * the journal to their volumes, e.g., "journalcopierthreads=4".
+     */
+    public final static String JOURNAL_COPIER_THREADS_PROPERTY_NAME = "journalcopierthreads";
+
+    /**
+     * Property name for specifying the size of each journal write buffer,
+     * e.g., "journalwritebuffersize=16M".
+     */
+    public final static String JOURNAL_WRITE_BUFFER_SIZE_PROPERTY_NAME = "journalwritebuffersize";
+
+    /**
+     * Property name for specifying the number of journal write buffers, e.g.,
+     * "journalwritebuffers=4".
+     */
+    public final static String JOURNAL_WRITE_BUFFER_COUNT_PROPERTY_NAME = "journalwritebuffers";
+
+    /**
+     * Property name for specifying the number of page images retained as bases
+     * for journal page delta records, e.g., "journaldeltapages=10000".
+     */
+    public final static String JOURNAL_DELTA_PAGES_PROPERTY_NAME = "journaldeltapages";
+
+    /**
+     * Property name for specifying the codec used to compress journal page
+     * images and transaction records, e.g., "journalcompression=LZ4".
+     */
+    public final static String JOURNAL_COMPRESSION_PROPERTY_NAME = "journalcompression";
+
     /**
      * Default path name for the journal. Note, sequence suffix in the form
      * .nnnnnnnnnnnnnnnn (16 digits, zero-filled) will be appended.
@@ -201,6 +248,13 @@ public class Configuration {
      */
     public final static String COMMIT_POLICY_PROPERTY_NAME = "txnpolicy";
 
+    /**
+     * Property name for specifying the target 99th percentile latency, in
+     * milliseconds, of commits using the ADAPTIVE
+     * {@link Transaction.CommitPolicy}
+     */
+    public final static String COMMIT_LATENCY_TARGET_PROPERTY_NAME = "txnlatencytarget";
+
     /**
      * Property name for specifying whether Persistit should display diagnostic
      * messages. Property value must be "true" or "false".
@@ -307,6 +361,35 @@ public class Configuration {
      */
     public final static String JOIN_POLICY_PROPERTY_NAME = "joinpolicy";
 
+    /**
+     * Property name to specify the default number of pages read ahead by a
+     * sequential traversal.
+     */
+    public final static String READ_AHEAD_PROPERTY_NAME = "readahead";
+
+    /**
+     * Property name to specify the number of threads that perform read-ahead
+     */
+    public final static String READ_AHEAD_THREADS_PROPERTY_NAME = "readaheadthreads";
+
+    /**
+     * Property name to specify the number of threads that load pages recorded
+     * in the buffer inventory during warm-up
+     */
+    public final static String BUFFER_PRELOAD_THREADS_PROPERTY_NAME = "bufferpreloadthreads";
+
+    /**
+     * Property name to specify the number of threads that apply recovered
+     * transactions after a crash, e.g., "recoverythreads=4".
+     */
+    public final static String RECOVERY_THREADS_PROPERTY_NAME = "recoverythreads";
+
+    /**
+     * Property name to specify the maximum number of threads that perform
+     * background cleanup actions, e.g., "cleanupthreads=4".
+     */
+    public final static String CLEANUP_THREADS_PROPERTY_NAME = "cleanupthreads";
+
     private final static SplitPolicy DEFAULT_SPLIT_POLICY = SplitPolicy.PACK_BIAS;
     private final static JoinPolicy DEFAULT_JOIN_POLICY = JoinPolicy.EVEN_BIAS;
     private final static CommitPolicy DEFAULT_TRANSACTION_COMMIT_POLICY = CommitPolicy.SOFT;
@@ -329,6 +412,7 @@ public class Configuration {
     public final static long TERA = GIGA * KILO;
 
     private final static int[] BUFFER_SIZES = validBufferSizes();
+    private final static Pattern BUFFER_POOL_NAME_PATTERN = Pattern.compile("[A-Za-z][A-Za-z0-9_\\-]*");
     private final static int MAX_RECURSION_COUNT = 20;
 
     /**
@@ -369,9 +453,18 @@ public class Configuration {
      * <code>get</code> methods, or by parsing a string property value using
      * {@link #parseBufferCount(int, String, String)} or
      * {@link #parseBufferMemory(int, String, String)}
+     * </p>
+     * <p>
+     * Additional named pools may be defined with
+     * {@link Configuration#addNamedBufferPool(String, int)} or the
+     * <code>buffer.pool.</code><i>name</i> property. Each named pool is a
+     * separate {@link BufferPool} with its own buffers and replacement policy;
+     * volumes are assigned to it by name in their {@link VolumeSpecification}.
+     * </p>
      */
     public static class BufferPoolConfiguration {
 
+        private final String name;
         private final int bufferSize;
         private int minimumCount;
         private int maximumCount;
@@ -379,6 +472,7 @@ public class Configuration {
         private long maximumMemory;
         private long reservedMemory;
         private float fraction;
+        private String replacementPolicy;
 
         private void reset() {
             minimumCount = 0;
@@ -387,13 +481,27 @@ public class Configuration {
             maximumMemory = Long.MAX_VALUE;
             reservedMemory = 0;
             fraction = 1.0f;
+            replacementPolicy = ReplacementPolicy.DEFAULT_NAME;
         }
 
         private BufferPoolConfiguration(final int size) {
+            this(null, size);
+        }
+
+        private BufferPoolConfiguration(final String name, final int size) {
+            this.name = name;
             bufferSize = size;
             reset();
         }
 
+        /**
+         * @return the name of a named buffer pool, or <code>null</code> for
+         *         the default pool of its buffer size
+         */
+        public String getName() {
+            return name;
+        }
+
         /**
          * @return the bufferSize
          */
@@ -504,9 +612,27 @@ public class Configuration {
             this.fraction = fraction;
         }
 
+        /**
+         * @return the name of the page replacement policy
+         */
+        public String getReplacementPolicy() {
+            return replacementPolicy;
+        }
+
+        /**
+         * @param replacementPolicy
+         *            the name of the page replacement policy, "CLOCK" or "2Q"
+         * @throws IllegalArgumentException
+         *             if the name is not recognized
+         */
+        public void setReplacementPolicy(final String replacementPolicy) {
+            this.replacementPolicy = ReplacementPolicy.canonicalName(replacementPolicy);
+        }
+
         private final static String SIMPLE_COUNT_FORMAT = "count=%d";
         private final static String MIN_MAX_COUNT_FORMAT = "minCount=%d,maxCount=%d";
         private final static String MIN_MAX_MEMORY_FORMAT = "minMem=%s,maxMem=%s,reserved=%s,fraction=%s";
+        private final static String POLICY_FORMAT = ",policy=%s";
         private final static Pattern SIMPLE_COUNT_PATTERN = Pattern.compile("count=([0-9]+[KMGT]?)",
                 Pattern.CASE_INSENSITIVE);
         private final static Pattern MIN_MAX_COUNT_PATTERN = Pattern.compile(
@@ -514,6 +640,8 @@ public class Configuration {
         private final static Pattern MIN_MAX_MEMORY_PATTERN = Pattern.compile(
                 "minMem=([0-9]+[KMGT]?),maxMem=([0-9]+[KMGT]?),reserved=([0-9]+[KMGT]?),fraction=([0-9\\.]+)",
                 Pattern.CASE_INSENSITIVE);
+        private final static Pattern POLICY_PATTERN = Pattern.compile("(.*),policy=([A-Za-z0-9]+)",
+                Pattern.CASE_INSENSITIVE);
 
         /**
          * Compute the buffer count determined by the constraints of this
@@ -558,6 +686,9 @@ public class Configuration {
                 sb.append(String.format(MIN_MAX_MEMORY_FORMAT, displayableLongValue(minimumMemory),
                         displayableLongValue(maximumMemory), displayableLongValue(reservedMemory), fraction));
             }
+            if (!ReplacementPolicy.DEFAULT_NAME.equals(replacementPolicy)) {
+                sb.append(String.format(POLICY_FORMAT, replacementPolicy));
+            }
             return sb.toString();
         }
 
@@ -571,13 +702,19 @@ public class Configuration {
          * 
          * where propertyNames are <code>count</code>, <code>minCount</code>,
          * <code>maxCount</code>, <code>minMemory</code>, <code>maxMemory</code>
-         * , <code>reserved</code> or <code>fraction</code>
+         * , <code>reserved</code> or <code>fraction</code>, optionally followed
+         * by <code>policy</code>
          */
         public void parse(final String string) {
             final String[] terms = string.split(",", 2);
             if (terms.length > 1) {
                 checkBufferSize((int) parseLongProperty(string, terms[0]), string);
                 Matcher matcher;
+                matcher = POLICY_PATTERN.matcher(terms[1]);
+                if (matcher.matches()) {
+                    setReplacementPolicy(matcher.group(2));
+                    terms[1] = matcher.group(1);
+                }
                 matcher = SIMPLE_COUNT_PATTERN.matcher(terms[1]);
                 if (matcher.matches()) {
                     setCount((int) parseLongProperty(string, matcher.group(1)));
@@ -696,12 +833,19 @@ public class Configuration {
     private final Properties _properties = new Properties();
 
     private final Map<Integer, BufferPoolConfiguration> bufferPoolMap;
+    private final Map<String, BufferPoolConfiguration> namedBufferPoolMap = new TreeMap<String, BufferPoolConfiguration>();
     private final List<VolumeSpecification> volumeSpecifications = new ArrayList<VolumeSpecification>();
     private String journalPath = DEFAULT_JOURNAL_PATH;
     private long journalSize = JournalManager.DEFAULT_BLOCK_SIZE;
+    private int journalCopierThreads = JournalManager.DEFAULT_COPIER_THREADS;
+    private int journalWriteBufferSize = JournalManager.DEFAULT_BUFFER_SIZE;
+    private int journalWriteBufferCount = JournalManager.DEFAULT_WRITE_BUFFER_COUNT;
+    private int journalDeltaPages = JournalManager.DEFAULT_DELTA_PAGES;
+    private String journalCompression = JournalManager.DEFAULT_COMPRESSION;
     private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL_S;
     private String sysVolume = DEFAULT_SYSTEM_VOLUME_NAME;
     private CommitPolicy commitPolicy = DEFAULT_TRANSACTION_COMMIT_POLICY;
+    private long commitLatencyTarget = JournalManager.DEFAULT_COMMIT_LATENCY_TARGET_MS;
     private JoinPolicy joinPolicy = DEFAULT_JOIN_POLICY;
     private SplitPolicy splitPolicy = DEFAULT_SPLIT_POLICY;
     private String serialOverride;
@@ -721,6 +865,11 @@ public class Configuration {
     private int tmpVolPageSize;
     private long tmpVolMaxSize;
     private boolean useOldVSpec;
+    private int readAhead;
+    private int readAheadThreads = ReadAheadManager.DEFAULT_THREAD_COUNT;
+    private int bufferPreloadThreads = BufferWarmup.DEFAULT_THREAD_COUNT;
+    private int recoveryThreads = RecoveryManager.DEFAULT_RECOVERY_THREADS;
+    private int cleanupThreads = CleanupManager.DEFAULT_CLEANUP_THREADS;
 
     /**
      * Construct a <code>Configuration</code> instance. This object may be
@@ -797,12 +946,22 @@ public class Configuration {
     void loadProperties() throws InvalidVolumeSpecificationException {
         setAppendOnly(getBooleanProperty(APPEND_ONLY_PROPERTY_NAME, false));
         setCommitPolicy(getProperty(COMMIT_POLICY_PROPERTY_NAME));
+        setCommitLatencyTarget(getLongProperty(COMMIT_LATENCY_TARGET_PROPERTY_NAME,
+                JournalManager.DEFAULT_COMMIT_LATENCY_TARGET_MS));
         setConstructorOverride(getBooleanProperty(CONSTRUCTOR_OVERRIDE_PROPERTY_NAME, false));
         setIgnoreMissingVolumes(getBooleanProperty(IGNORE_MISSING_VOLUMES_PROPERTY, false));
         setJmxEnabled(getBooleanProperty(ENABLE_JMX_PROPERTY_NAME, true));
         setJoinPolicy(getProperty(JOIN_POLICY_PROPERTY_NAME));
         setJournalPath(getProperty(JOURNAL_PATH_PROPERTY_NAME, DEFAULT_JOURNAL_PATH));
         setJournalSize(getLongProperty(JOURNAL_BLOCKSIZE_PROPERTY_NAME, JournalManager.DEFAULT_BLOCK_SIZE));
+        setJournalCopierThreads(getIntegerProperty(JOURNAL_COPIER_THREADS_PROPERTY_NAME,
+                JournalManager.DEFAULT_COPIER_THREADS));
+        setJournalWriteBufferSize(getIntegerProperty(JOURNAL_WRITE_BUFFER_SIZE_PROPERTY_NAME,
+                JournalManager.DEFAULT_BUFFER_SIZE));
+        setJournalWriteBufferCount(getIntegerProperty(JOURNAL_WRITE_BUFFER_COUNT_PROPERTY_NAME,
+                JournalManager.DEFAULT_WRITE_BUFFER_COUNT));
+        setJournalDeltaPages(getIntegerProperty(JOURNAL_DELTA_PAGES_PROPERTY_NAME, JournalManager.DEFAULT_DELTA_PAGES));
+        setJournalCompression(getProperty(JOURNAL_COMPRESSION_PROPERTY_NAME, JournalManager.DEFAULT_COMPRESSION));
         setLogFile(getProperty(LOGFILE_PROPERTY_NAME));
         setLogging(getProperty(LOGGING_PROPERTIES_NAME));
         setTmpVolDir(getProperty(TEMPORARY_VOLUME_DIR_PROPERTY_NAME));
@@ -818,8 +977,16 @@ public class Configuration {
         setBufferInventoryEnabled(getBooleanProperty(BUFFER_INVENTORY_PROPERTY_NAME, false));
         setBufferPreloadEnabled(getBooleanProperty(BUFFER_PRELOAD_PROPERTY_NAME, false));
         setUseOldVSpec(getBooleanProperty(USE_OLD_VSPEC, false));
+        setReadAhead(getIntegerProperty(READ_AHEAD_PROPERTY_NAME, 0));
+        setReadAheadThreads(getIntegerProperty(READ_AHEAD_THREADS_PROPERTY_NAME, ReadAheadManager.DEFAULT_THREAD_COUNT));
+        setBufferPreloadThreads(getIntegerProperty(BUFFER_PRELOAD_THREADS_PROPERTY_NAME,
+                BufferWarmup.DEFAULT_THREAD_COUNT));
+        setRecoveryThreads(getIntegerProperty(RECOVERY_THREADS_PROPERTY_NAME,
+                RecoveryManager.DEFAULT_RECOVERY_THREADS));
+        setCleanupThreads(getIntegerProperty(CLEANUP_THREADS_PROPERTY_NAME, CleanupManager.DEFAULT_CLEANUP_THREADS));
 
         loadPropertiesBufferSpecifications();
+        loadPropertiesNamedBufferPoolSpecifications();
         loadPropertiesVolumeSpecifications();
     }
 
@@ -850,6 +1017,25 @@ public class Configuration {
             } else if (count == 0) {
                 bpc.reset();
             }
+            bpc.setReplacementPolicy(getProperty(BUFFER_POLICY_PROPERTY_NAME + size, ReplacementPolicy.DEFAULT_NAME));
+        }
+    }
+
+    void loadPropertiesNamedBufferPoolSpecifications() {
+        namedBufferPoolMap.clear();
+        for (final Enumeration<?> enumeration = _properties.propertyNames(); enumeration.hasMoreElements();) {
+            final String key = (String) enumeration.nextElement();
+            if (key.startsWith(BUFFER_POOL_PROPERTY_NAME)) {
+                final String name = key.substring(BUFFER_POOL_PROPERTY_NAME.length());
+                final String value = getProperty(key);
+                final int bufferSize;
+                try {
+                    bufferSize = Integer.parseInt(value.split(",", 2)[0].trim());
+                } catch (final NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid BufferPool specification " + key + "=" + value);
+                }
+                addNamedBufferPool(name, bufferSize).parse(value.trim());
+            }
         }
     }
 
@@ -1282,6 +1468,48 @@ public class Configuration {
         return bufferPoolMap;
     }
 
+    /**
+     * Return an unmodifiable Map containing the
+     * <code>BufferPoolConfiguration</code> instances of the named buffer pools,
+     * keyed by name.
+     * 
+     * @return the map
+     */
+    public Map<String, BufferPoolConfiguration> getNamedBufferPoolMap() {
+        return Collections.unmodifiableMap(namedBufferPoolMap);
+    }
+
+    /**
+     * Define a named buffer pool. The returned
+     * <code>BufferPoolConfiguration</code> initially specifies no buffers; its
+     * count or memory constraints must be set before
+     * {@link Persistit#initialize()} is called.
+     * 
+     * @param name
+     *            Name of the pool: a letter followed by letters, digits, '_'
+     *            or '-'
+     * @param bufferSize
+     *            Buffer size: one of 1024, 2048, 4096, 8192 or 16384
+     * @return the <code>BufferPoolConfiguration</code> of the new pool
+     * @throws IllegalArgumentException
+     *             if the name or buffer size is invalid, or if a pool having
+     *             the same name is already defined
+     */
+    public BufferPoolConfiguration addNamedBufferPool(final String name, final int bufferSize) {
+        if (name == null || !BUFFER_POOL_NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid BufferPool name: " + name);
+        }
+        if (!bufferPoolMap.containsKey(bufferSize)) {
+            throw new IllegalArgumentException("Invalid buffer size " + bufferSize + " for BufferPool " + name);
+        }
+        if (namedBufferPoolMap.containsKey(name)) {
+            throw new IllegalArgumentException("BufferPool " + name + " is already defined");
+        }
+        final BufferPoolConfiguration bpc = new BufferPoolConfiguration(name, bufferSize);
+        namedBufferPoolMap.put(name, bpc);
+        return bpc;
+    }
+
     /**
      * Return a summary of the buffer configuration of all buffer pool sizes as
      * a string. For example, a value such as
@@ -1418,6 +1646,161 @@ public class Configuration {
         this.journalSize = journalSize;
     }
 
+    /**
+     * Return the value defined by {@link #setJournalCopierThreads(int)}
+     * 
+     * @return the number of journal copier threads
+     */
+    public int getJournalCopierThreads() {
+        return journalCopierThreads;
+    }
+
+    /**
+     * <p>
+     * Set the number of threads that copy pages from the journal back to their
+     * volumes. Each cycle of the copier divides the pages it copies by volume,
+     * and divides the pages of a large volume by page address when there are
+     * fewer volumes than threads. Additional threads help when the volumes
+     * reside on separate devices.
+     * </p>
+     * Default value is
+     * {@value com.persistit.mxbeans.JournalManagerMXBean#DEFAULT_COPIER_THREADS}
+     * <br/>
+     * Property name is {@value #JOURNAL_COPIER_THREADS_PROPERTY_NAME}
+     * 
+     * @param journalCopierThreads
+     *            number of threads
+     */
+    public void setJournalCopierThreads(final int journalCopierThreads) {
+        Util.rangeCheck(journalCopierThreads, 1, JournalManager.MAXIMUM_COPIER_THREADS);
+        this.journalCopierThreads = journalCopierThreads;
+    }
+
+    /**
+     * Return the value defined by {@link #setJournalWriteBufferSize(int)}
+     * 
+     * @return the size in bytes of each journal write buffer
+     */
+    public int getJournalWriteBufferSize() {
+        return journalWriteBufferSize;
+    }
+
+    /**
+     * <p>
+     * Set the size of each journal write buffer. Journal records are
+     * accumulated in a write buffer which is written to the journal file when
+     * it is full or when the JOURNAL_FLUSHER thread flushes it.
+     * </p>
+     * Default value is
+     * {@value com.persistit.mxbeans.JournalManagerMXBean#DEFAULT_BUFFER_SIZE}
+     * <br/>
+     * Property name is {@value #JOURNAL_WRITE_BUFFER_SIZE_PROPERTY_NAME}
+     * 
+     * @param journalWriteBufferSize
+     *            size in bytes
+     */
+    public void setJournalWriteBufferSize(final int journalWriteBufferSize) {
+        Util.rangeCheck(journalWriteBufferSize, JournalManager.MINIMUM_BUFFER_SIZE,
+                JournalManager.MAXIMUM_BUFFER_SIZE);
+        this.journalWriteBufferSize = journalWriteBufferSize;
+    }
+
+    /**
+     * Return the value defined by {@link #setJournalWriteBufferCount(int)}
+     * 
+     * @return the number of journal write buffers
+     */
+    public int getJournalWriteBufferCount() {
+        return journalWriteBufferCount;
+    }
+
+    /**
+     * <p>
+     * Set the number of journal write buffers. Threads appending records to
+     * the journal fill one buffer while the buffers filled previously are
+     * written to the journal file; an appending thread waits only when every
+     * other buffer is still waiting to be written. The buffers are allocated
+     * outside of the heap, the first when the journal is opened and the others
+     * as they are needed.
+     * </p>
+     * Default value is
+     * {@value com.persistit.mxbeans.JournalManagerMXBean#DEFAULT_WRITE_BUFFER_COUNT}
+     * <br/>
+     * Property name is {@value #JOURNAL_WRITE_BUFFER_COUNT_PROPERTY_NAME}
+     * 
+     * @param journalWriteBufferCount
+     *            number of buffers
+     */
+    public void setJournalWriteBufferCount(final int journalWriteBufferCount) {
+        Util.rangeCheck(journalWriteBufferCount, JournalManager.MINIMUM_WRITE_BUFFER_COUNT,
+                JournalManager.MAXIMUM_WRITE_BUFFER_COUNT);
+        this.journalWriteBufferCount = journalWriteBufferCount;
+    }
+
+    /**
+     * Return the value defined by {@link #setJournalDeltaPages(int)}
+     * 
+     * @return the number of page images retained as delta bases
+     */
+    public int getJournalDeltaPages() {
+        return journalDeltaPages;
+    }
+
+    /**
+     * <p>
+     * Set the number of page images retained as bases for page delta (PD)
+     * journal records. When a data or index page whose image was last written
+     * in full to the current journal file is written again, only the ranges of
+     * bytes that have changed are written, provided they amount to less than
+     * half the page. Each retained image occupies a page of heap. Zero, the
+     * default, writes every page image in full.
+     * </p>
+     * Default value is
+     * {@value com.persistit.mxbeans.JournalManagerMXBean#DEFAULT_DELTA_PAGES}
+     * <br/>
+     * Property name is {@value #JOURNAL_DELTA_PAGES_PROPERTY_NAME}
+     * 
+     * @param journalDeltaPages
+     *            number of page images
+     */
+    public void setJournalDeltaPages(final int journalDeltaPages) {
+        Util.rangeCheck(journalDeltaPages, 0, JournalManager.MAXIMUM_DELTA_PAGES);
+        this.journalDeltaPages = journalDeltaPages;
+    }
+
+    /**
+     * Return the value defined by {@link #setJournalCompression(String)}
+     * 
+     * @return the name of the journal compression codec
+     */
+    public String getJournalCompression() {
+        return journalCompression;
+    }
+
+    /**
+     * <p>
+     * Set the codec used to compress page images and transaction records
+     * written to the journal. The value is one of "NONE", "LZ4" or "DEFLATE"
+     * (case insensitive). LZ4 is fast and typically halves the size of a page
+     * image; DEFLATE compresses better at a higher CPU cost. A record is
+     * written in compressed form, as a PZ or TZ record, only if that saves at
+     * least an eighth of its size. Journals written with any codec remain
+     * readable when the codec is changed.
+     * </p>
+     * Default value is
+     * {@value com.persistit.mxbeans.JournalManagerMXBean#DEFAULT_COMPRESSION}
+     * <br/>
+     * Property name is {@value #JOURNAL_COMPRESSION_PROPERTY_NAME}
+     * 
+     * @param journalCompression
+     *            name of the codec
+     * @throws IllegalArgumentException
+     *             if the name is not recognized
+     */
+    public void setJournalCompression(final String journalCompression) {
+        this.journalCompression = JournalCodec.canonicalName(journalCompression);
+    }
+
     /**
      * Return the value defined by {@link #setCheckpointInterval(long)}
      * 
@@ -1569,7 +1952,8 @@ public class Configuration {
     /**
      * <p>
      * Set the default {@link com.persistit.Transaction.CommitPolicy}. The
-     * string value must be one of "HARD", "GROUP" or "SOFT" (case insensitive).
+     * string value must be one of "HARD", "GROUP", "ADAPTIVE" or "SOFT" (case
+     * insensitive).
      * </p>
      * <p>
      * Default value is SOFT <br />
@@ -1604,6 +1988,36 @@ public class Configuration {
         this.commitPolicy = commitPolicy;
     }
 
+    /**
+     * Return the value defined by {@link #setCommitLatencyTarget(long)}
+     * 
+     * @return the commit latency target, in milliseconds
+     */
+    public long getCommitLatencyTarget() {
+        return commitLatencyTarget;
+    }
+
+    /**
+     * <p>
+     * Set the time within which 99% of commits using the ADAPTIVE
+     * {@link Transaction.CommitPolicy} should complete. The time a commit
+     * waits for other transactions to join its flush is reduced whenever
+     * recent commits exceed this target.
+     * </p>
+     * Default value is
+     * {@value com.persistit.mxbeans.JournalManagerMXBean#DEFAULT_COMMIT_LATENCY_TARGET_MS}
+     * <br/>
+     * Property name is {@value #COMMIT_LATENCY_TARGET_PROPERTY_NAME}
+     * 
+     * @param commitLatencyTarget
+     *            the target latency, in milliseconds
+     */
+    public void setCommitLatencyTarget(final long commitLatencyTarget) {
+        Util.rangeCheck(commitLatencyTarget, JournalManager.MINIMUM_COMMIT_LATENCY_TARGET_MS,
+                JournalManager.MAXIMUM_COMMIT_LATENCY_TARGET_MS);
+        this.commitLatencyTarget = commitLatencyTarget;
+    }
+
     /**
      * Return the value defined by {@link #setJoinPolicy}
      * 
@@ -2023,7 +2437,11 @@ public class Configuration {
     /**
      * <p>
      * Control whether Persistit attempts to preload (warm up) the buffer pools
-     * by preloading pages recorded in a previously generated inventory.
+     * by preloading pages recorded in a previously generated inventory. The
+     * pages are loaded by background threads (see
+     * {@link #setBufferPreloadThreads(int)}) while Persistit accepts requests;
+     * pages requested by the application are read on demand and the warm-up
+     * does not evict them.
      * </p>
      * <p>
      * Default value is <code>false</code><br />
@@ -2111,4 +2529,152 @@ public class Configuration {
         this.useOldVSpec = useOldVSpec;
     }
 
+    /**
+     * Return the value defined by {@link #setReadAhead(int)}
+     * 
+     * @return the default number of pages read ahead by a sequential traversal
+     */
+    public int getReadAhead() {
+        return readAhead;
+    }
+
+    /**
+     * <p>
+     * Set the default number of data pages that are read asynchronously ahead
+     * of an {@link Exchange} once it has been found to be traversing a
+     * {@link Tree} sequentially. The value may be overridden for a particular
+     * <code>Tree</code> by {@link Tree#setReadAhead(int)} or for a particular
+     * <code>Exchange</code> by {@link Exchange#setReadAhead(int)}.
+     * </p>
+     * <p>
+     * Default value is 0, which disables read-ahead<br />
+     * Property name is {@value #READ_AHEAD_PROPERTY_NAME}
+     * </p>
+     * 
+     * @param readAhead
+     *            number of pages to read ahead
+     */
+    public void setReadAhead(final int readAhead) {
+        Util.rangeCheck(readAhead, 0, ReadAheadManager.MAXIMUM_READ_AHEAD);
+        this.readAhead = readAhead;
+    }
+
+    /**
+     * Return the value defined by {@link #setReadAheadThreads(int)}
+     * 
+     * @return the number of read-ahead threads
+     */
+    public int getReadAheadThreads() {
+        return readAheadThreads;
+    }
+
+    /**
+     * <p>
+     * Set the number of background threads that load pages requested by
+     * read-ahead. The threads are started when read-ahead is first requested.
+     * </p>
+     * <p>
+     * Default value is {@value ReadAheadManager#DEFAULT_THREAD_COUNT}<br />
+     * Property name is {@value #READ_AHEAD_THREADS_PROPERTY_NAME}
+     * </p>
+     * 
+     * @param readAheadThreads
+     *            number of threads
+     */
+    public void setReadAheadThreads(final int readAheadThreads) {
+        Util.rangeCheck(readAheadThreads, 1, ReadAheadManager.MAXIMUM_THREAD_COUNT);
+        this.readAheadThreads = readAheadThreads;
+    }
+
+    /**
+     * Return the value defined by {@link #setBufferPreloadThreads(int)}
+     * 
+     * @return the number of buffer preload threads
+     */
+    public int getBufferPreloadThreads() {
+        return bufferPreloadThreads;
+    }
+
+    /**
+     * <p>
+     * Set the number of background threads that load the pages recorded in the
+     * buffer inventory when buffer preloading is enabled. Each thread reads
+     * runs of pages in the order of their positions in the volume files.
+     * </p>
+     * <p>
+     * Default value is {@value BufferWarmup#DEFAULT_THREAD_COUNT}<br />
+     * Property name is {@value #BUFFER_PRELOAD_THREADS_PROPERTY_NAME}
+     * </p>
+     * 
+     * @param bufferPreloadThreads
+     *            number of threads
+     */
+    public void setBufferPreloadThreads(final int bufferPreloadThreads) {
+        Util.rangeCheck(bufferPreloadThreads, 1, BufferWarmup.MAXIMUM_THREAD_COUNT);
+        this.bufferPreloadThreads = bufferPreloadThreads;
+    }
+
+    /**
+     * Return the value defined by {@link #setRecoveryThreads(int)}
+     * 
+     * @return the number of recovery threads
+     */
+    public int getRecoveryThreads() {
+        return recoveryThreads;
+    }
+
+    /**
+     * <p>
+     * Set the number of threads that apply recovered transactions after a
+     * crash. With more than one thread the journal is still read in commit
+     * order by a single thread, which hands each update to a worker chosen by
+     * the update's tree. Updates to each tree are therefore applied in journal
+     * order while updates to different trees are applied concurrently.
+     * </p>
+     * <p>
+     * Default value is
+     * {@value com.persistit.mxbeans.RecoveryManagerMXBean#DEFAULT_RECOVERY_THREADS}
+     * <br />
+     * Property name is {@value #RECOVERY_THREADS_PROPERTY_NAME}
+     * </p>
+     * 
+     * @param recoveryThreads
+     *            number of threads
+     */
+    public void setRecoveryThreads(final int recoveryThreads) {
+        Util.rangeCheck(recoveryThreads, 1, RecoveryManager.MAXIMUM_RECOVERY_THREADS);
+        this.recoveryThreads = recoveryThreads;
+    }
+
+    /**
+     * Return the value defined by {@link #setCleanupThreads(int)}
+     * 
+     * @return the maximum number of cleanup threads
+     */
+    public int getCleanupThreads() {
+        return cleanupThreads;
+    }
+
+    /**
+     * <p>
+     * Set the maximum number of threads that perform background cleanup
+     * actions such as pruning. The CLEANUP_MANAGER thread always participates;
+     * additional CLEANUP_WORKER threads are used only while a backlog of
+     * actions is enqueued.
+     * </p>
+     * <p>
+     * Default value is
+     * {@value com.persistit.mxbeans.CleanupManagerMXBean#DEFAULT_CLEANUP_THREADS}
+     * <br />
+     * Property name is {@value #CLEANUP_THREADS_PROPERTY_NAME}
+     * </p>
+     * 
+     * @param cleanupThreads
+     *            number of threads
+     */
+    public void setCleanupThreads(final int cleanupThreads) {
+        Util.rangeCheck(cleanupThreads, 1, CleanupManager.MAXIMUM_CLEANUP_THREADS);
+        this.cleanupThreads = cleanupThreads;
+    }
+
 }
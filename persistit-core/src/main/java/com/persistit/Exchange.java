@@ -27,6 +27,7 @@ import com.persistit.exception.CorruptVolumeException;
 import com.persistit.exception.InUseException;
 import com.persistit.exception.PersistitException;
 import com.persistit.exception.PersistitInterruptedException;
+import com.persistit.exception.ReadOnlyTransactionException;
 import com.persistit.exception.ReadOnlyVolumeException;
 import com.persistit.exception.RebalanceException;
 import com.persistit.exception.RetryException;
@@ -150,7 +151,9 @@ public class Exchange implements ReadOnlyExchange {
 
     private final TransactionIndex _ti;
     private final Exchange _exchange;
+    private final CommitStatusCache _commitStatusCache;
     private TransactionStatus _status;
+    private long _ts;
     private int _step;
     private int _foundOffset;
     private int _foundLength;
@@ -161,6 +164,7 @@ public class Exchange implements ReadOnlyExchange {
     private MvvVisitor(final TransactionIndex ti, final Exchange exchange) {
       _ti = ti;
       _exchange = exchange;
+      _commitStatusCache = new CommitStatusCache(ti);
     }
 
     /**
@@ -176,10 +180,27 @@ public class Exchange implements ReadOnlyExchange {
     public void initInternal(final TransactionStatus status, final int step, final Usage usage) {
       Debug.$assert0.t(status != null || usage != Usage.STORE);
       _status = status;
+      _ts = status != null ? status.getTs() : READ_COMMITTED_TS;
       _step = step;
       _usage = usage;
     }
 
+    /**
+     * Prepare to find the version visible to a read-only transaction, which
+     * has a snapshot timestamp but no {@link TransactionStatus}.
+     * 
+     * @param ts
+     *            Snapshot timestamp of the read-only transaction.
+     * @param step
+     *            Current step value of the read-only transaction.
+     */
+    public void initSnapshot(final long ts, final int step) {
+      _status = null;
+      _ts = ts;
+      _step = step;
+      _usage = Usage.FETCH;
+    }
+
     public int getOffset() {
       return _foundOffset;
     }
@@ -205,8 +226,8 @@ public class Exchange implements ReadOnlyExchange {
       try {
         switch (_usage) {
           case FETCH:
-            final long ts = _status != null ? _status.getTs() : READ_COMMITTED_TS;
-            final long status = _ti.commitStatus(version, ts, _step);
+            final long ts = _ts;
+            final long status = _ti.commitStatus(version, ts, _step, _commitStatusCache);
             if (status >= 0 && status != TransactionStatus.UNCOMMITTED && status >= _foundVersion) {
               assert status <= ts;
               final int step = TransactionIndex.vh2step(version);
@@ -283,6 +304,8 @@ public class Exchange implements ReadOnlyExchange {
 
   private SplitPolicy _splitPolicy;
   private JoinPolicy _joinPolicy;
+  private int _readAhead = -1;
+  private ReadAheadManager.Stream _readAheadStream;
 
   private boolean _isDirectoryExchange = false;
 
@@ -446,6 +469,10 @@ public class Exchange implements ReadOnlyExchange {
     }
     _splitPolicy = _persistit.getDefaultSplitPolicy();
     _joinPolicy = _persistit.getDefaultJoinPolicy();
+    _readAhead = -1;
+    if (_readAheadStream != null) {
+      _readAheadStream.reset();
+    }
   }
 
   void init(final Exchange exchange) {
@@ -473,6 +500,7 @@ public class Exchange implements ReadOnlyExchange {
     exchange._value.copyTo(_value);
     _splitPolicy = exchange._splitPolicy;
     _joinPolicy = exchange._joinPolicy;
+    _readAhead = exchange._readAhead;
   }
 
   void removeState(final boolean secure) {
@@ -487,6 +515,7 @@ public class Exchange implements ReadOnlyExchange {
     _ignoreMVCCFetch = false;
     _splitPolicy = _persistit.getDefaultSplitPolicy();
     _joinPolicy = _persistit.getDefaultJoinPolicy();
+    _readAhead = -1;
     _treeHolder.verifyReleased();
   }
 
@@ -1007,6 +1036,19 @@ public class Exchange implements ReadOnlyExchange {
     return _tree.getChangeCount();
   }
 
+  /**
+   * Indicate whether a remove performed now by this <code>Exchange</code>
+   * would store an AntiValue version of the key, which does not change the
+   * {@link #getChangeCount() change count}, rather than remove the key
+   * physically.
+   * 
+   * @return <code>true</code> if a remove would be transactional
+   * @throws PersistitException
+   */
+  boolean isRemoveTransactional() throws PersistitException {
+    return !_ignoreTransactions && _transaction.isActive() && !_tree.isTransactionPrivate(true);
+  }
+
   /**
    * An additional <code>Key</code> maintained for the convenience of
    * {@link Transaction}, {@link PersistitMap} and {@link JournalManager}.
@@ -1336,6 +1378,19 @@ public class Exchange implements ReadOnlyExchange {
     return (pageSize - HEADER_SIZE - reserveForKeys) / 2;
   }
 
+  /**
+   * Throws a {@link ReadOnlyTransactionException} if this
+   * <code>Exchange</code> is about to modify a transactional tree within the
+   * scope of a read-only transaction.
+   * 
+   * @throws ReadOnlyTransactionException
+   */
+  private void checkWritable() throws ReadOnlyTransactionException {
+    if (!_ignoreTransactions) {
+      _transaction.checkWritable();
+    }
+  }
+
   /**
    * Inserts or replaces a data value in the database.
    * 
@@ -1353,6 +1408,7 @@ public class Exchange implements ReadOnlyExchange {
     if (_volume.isReadOnly()) {
       throw new ReadOnlyVolumeException(_volume.toString());
     }
+    checkWritable();
     key.testValidForStoreAndFetch(_volume.getPageSize());
     if (!isDirectoryExchange()) {
       _persistit.checkSuspended();
@@ -1440,6 +1496,10 @@ public class Exchange implements ReadOnlyExchange {
     }
 
     boolean keyExisted = false;
+    /*
+     * A data page holding MVVs is pruned once before it may be split
+     */
+    boolean didPrune = false;
 
     try {
 
@@ -1518,8 +1578,8 @@ public class Exchange implements ReadOnlyExchange {
           Debug.$assert0.t(buffer != null && (buffer.getStatus() & SharedResource.WRITER_MASK) != 0
             && (buffer.getStatus() & SharedResource.CLAIMED_MASK) != 0);
 
-          boolean didPrune = false;
           boolean splitRequired = false;
+          int deadBytesDelta = 0;
 
           if (buffer.isDataPage()) {
             keyExisted = (foundAt & EXACT_MASK) != 0;
@@ -1568,6 +1628,7 @@ public class Exchange implements ReadOnlyExchange {
                    */
                   byte[] spareBytes = spareValue.getEncodedBytes();
                   int spareSize;
+                  final int oldSize = spareValue.getEncodedSize();
                   if (keyExisted) {
                     spareSize = MVV.prune(spareBytes, 0, spareValue.getEncodedSize(),
                       _persistit.getTransactionIndex(), false, prunedVersions);
@@ -1620,6 +1681,12 @@ public class Exchange implements ReadOnlyExchange {
                   if (spareValue.getEncodedSize() > maxSimpleValueSize) {
                     newLongRecordPointerMVV = getLongRecordHelper().storeLongRecord(spareValue,
                       _transaction.isActive());
+                  } else if (keyExisted && oldLongRecordPointerMVV == 0) {
+                    /*
+                     * Growth of the MVV approximates the size of the
+                     * version it superseded
+                     */
+                    deadBytesDelta = storedLength - oldSize;
                   }
                   break;
                 } catch (final VersionsOutOfOrderException e) {
@@ -1634,20 +1701,23 @@ public class Exchange implements ReadOnlyExchange {
           Debug.$assert0.t(valueToStore.getEncodedSize() <= maxSimpleValueSize);
           _rawValueWriter.init(valueToStore);
 
-          splitRequired = putLevel(lc, key, _rawValueWriter, buffer, foundAt, treeClaimAcquired);
+          final boolean okToSplit = treeClaimAcquired
+            && (didPrune || !buffer.isDataPage() || buffer.getMvvCount() == 0);
+          splitRequired = putLevel(lc, key, _rawValueWriter, buffer, foundAt, okToSplit);
 
           Debug.$assert0.t((buffer.getStatus() & SharedResource.WRITER_MASK) != 0
             && (buffer.getStatus() & SharedResource.CLAIMED_MASK) != 0);
           //
-          // If a split is required but treeClaimAcquired is false
-          // then putLevel did not change anything. It just backed out
-          // so we can repeat after acquiring the claim. We need to
-          // repeat this after acquiring a tree claim.
+          // If a split is required but okToSplit is false then
+          // putLevel did not change anything. It just backed out so
+          // we can prune the page or acquire the tree claim. We need
+          // to repeat this after either.
           //
-          if (splitRequired && !treeClaimAcquired) {
+          if (splitRequired && !okToSplit) {
             if (!didPrune && buffer.isDataPage()) {
               didPrune = true;
               if (buffer.pruneMvvValues(_tree, false, null)) {
+                _persistit.getCleanupManager().prunedBeforeSplit();
                 continue;
               }
             }
@@ -1675,6 +1745,9 @@ public class Exchange implements ReadOnlyExchange {
             if (incrementMVVCount) {
               _transaction.getTransactionStatus().incrementMvvCount();
             }
+            if (deadBytesDelta != 0 && !splitRequired) {
+              buffer.addDeadBytes(_tree, deadBytesDelta);
+            }
             Buffer.deallocatePrunedVersions(_persistit, _volume, prunedVersions);
           }
 
@@ -2181,6 +2254,7 @@ public class Exchange implements ReadOnlyExchange {
 
             Debug.$assert0.t(rightSiblingPage >= 0 && rightSiblingPage <= MAX_VALID_PAGE_ADDR);
             if (rightSiblingPage > 0) {
+              readAhead(buffer.getPageAddress(), rightSiblingPage);
               final Buffer rightSibling = _pool.get(_volume, rightSiblingPage, false, true,
                 _timeoutMillis);
               buffer.releaseTouched();
@@ -2848,6 +2922,7 @@ public class Exchange implements ReadOnlyExchange {
     if (!_transaction.isActive()) {
       throw new IllegalStateException("No active transaction scope");
     }
+    _transaction.checkWritable();
     final Exchange lockExchange = _persistit.getExchange(_persistit.getLockVolume(), _tree.getName(), true);
     /**
      * Lock table trees need tree handles for pruning
@@ -2890,6 +2965,7 @@ public class Exchange implements ReadOnlyExchange {
     if (_volume.isReadOnly()) {
       throw new ReadOnlyVolumeException(_volume.toString());
     }
+    checkWritable();
     _persistit.checkSuspended();
     _key.testValidForStoreAndFetch(_volume.getPageSize());
     int options = StoreOptions.WAIT | StoreOptions.FETCH;
@@ -2988,16 +3064,13 @@ public class Exchange implements ReadOnlyExchange {
    *             for any internal error
    */
   private boolean mvccFetch(final Value value, final int minimumBytes) throws PersistitException {
-    final TransactionStatus status;
-    final int step;
-    if (_transaction.isActive()) {
-      status = _transaction.getTransactionStatus();
-      step = _transaction.getStep();
+    if (!_transaction.isActive()) {
+      _mvvVisitor.initInternal(null, 0, MvvVisitor.Usage.FETCH);
+    } else if (_transaction.isReadOnly()) {
+      _mvvVisitor.initSnapshot(_transaction.getStartTimestamp(), _transaction.getStep());
     } else {
-      status = null;
-      step = 0;
+      _mvvVisitor.initInternal(_transaction.getTransactionStatus(), _transaction.getStep(), MvvVisitor.Usage.FETCH);
     }
-    _mvvVisitor.initInternal(status, step, MvvVisitor.Usage.FETCH);
 
     final int valueSize = value.getEncodedSize();
     final byte[] valueBytes = value.getEncodedBytes();
@@ -3232,6 +3305,7 @@ public class Exchange implements ReadOnlyExchange {
     assertCorrectThread(true);
     _persistit.checkSuspended();
     _persistit.checkClosed();
+    checkWritable();
 
     _volume.getStructure().removeTree(_tree);
     if (!_ignoreTransactions) {
@@ -3394,6 +3468,7 @@ public class Exchange implements ReadOnlyExchange {
 
     assertCorrectThread(true);
     _persistit.checkClosed();
+    checkWritable();
 
     if (!isDirectoryExchange()) {
       _persistit.checkSuspended();
@@ -4039,10 +4114,11 @@ public class Exchange implements ReadOnlyExchange {
     return pruned;
   }
 
-  boolean prune(final long page, final List<CleanupAction> consequentActions) throws PersistitException {
+  boolean prune(final long page, final List<CleanupAction> consequentActions, final long timeout)
+    throws PersistitException {
     Buffer buffer = null;
     try {
-      buffer = _pool.get(_volume, page, true, true);
+      buffer = _pool.get(_volume, page, true, true, timeout);
       return buffer.pruneMvvValues(_tree, true, consequentActions);
     } finally {
       if (buffer != null) {
@@ -4051,11 +4127,12 @@ public class Exchange implements ReadOnlyExchange {
     }
   }
 
-  boolean pruneLeftEdgeValue(final long page, final List<CleanupAction> consequentActions) throws PersistitException {
+  boolean pruneLeftEdgeValue(final long page, final List<CleanupAction> consequentActions, final long timeout)
+    throws PersistitException {
     _ignoreTransactions = true;
     Buffer buffer = null;
     try {
-      buffer = _pool.get(_volume, page, false, true);
+      buffer = _pool.get(_volume, page, false, true, timeout);
       buffer.clearEnqueuedForPruning();
       final long at = buffer.at(Buffer.KEY_BLOCK_START);
       if (at > 0) {
@@ -4079,14 +4156,14 @@ public class Exchange implements ReadOnlyExchange {
     }
   }
 
-  boolean fixIndexHole(final long page, final int level) throws PersistitException {
+  boolean fixIndexHole(final long page, final int level, final long timeout) throws PersistitException {
     _ignoreTransactions = true;
     Buffer buffer = null;
     if (!_treeHolder.claim(false, Persistit.SHORT_DELAY)) {
       return false;
     }
     try {
-      buffer = _pool.get(_volume, page, false, true);
+      buffer = _pool.get(_volume, page, false, true, timeout);
       buffer.nextKey(_spareKey2, buffer.toKeyBlock(0));
       _value.setPointerValue(page);
       _value.setPointerPageType(buffer.getPageType());
@@ -4213,6 +4290,48 @@ public class Exchange implements ReadOnlyExchange {
     _joinPolicy = policy;
   }
 
+  /**
+   * @return The number of data pages read ahead when this
+   *         <code>Exchange</code> traverses its <code>Tree</code>
+   *         sequentially; the value set by {@link #setReadAhead(int)} or, if
+   *         none has been set, {@link Tree#getReadAhead()}
+   */
+  public int getReadAhead() {
+    assertCorrectThread(true);
+    return _readAhead >= 0 ? _readAhead : _tree.getReadAhead();
+  }
+
+  /**
+   * Set the number of data pages that are loaded asynchronously into the
+   * buffer pool ahead of this <code>Exchange</code> once a traversal has
+   * crossed several consecutive right-sibling pages. Read-ahead reduces the
+   * latency of long range scans over pages that are not already in the buffer
+   * pool.
+   * 
+   * @param readAhead
+   *          Number of pages, zero to disable read-ahead, or -1 to use the
+   *          value of {@link Tree#getReadAhead()}
+   */
+  public void setReadAhead(final int readAhead) {
+    assertCorrectThread(true);
+    _readAhead = Util.rangeCheck(readAhead, -1, ReadAheadManager.MAXIMUM_READ_AHEAD);
+  }
+
+  /**
+   * Notify the read-ahead stream that a traversal is moving from one data page
+   * to its right sibling.
+   */
+  private void readAhead(final long page, final long rightSiblingPage) {
+    final int readAhead = getReadAhead();
+    if (readAhead <= 0 || _cacheDepth < 2) {
+      return;
+    }
+    if (_readAheadStream == null) {
+      _readAheadStream = _persistit.getReadAheadManager().newStream();
+    }
+    _readAheadStream.crossed(_volume, _levelCache[1]._page, page, rightSiblingPage, readAhead);
+  }
+
   public KeyHistogram computeHistogram(final Key start, final Key end, final int sampleSize, final int keyDepth,
     final KeyFilter keyFilter, final int requestedTreeDepth) throws PersistitException {
     assertCorrectThread(true);
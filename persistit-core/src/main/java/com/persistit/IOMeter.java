@@ -73,8 +73,11 @@ class IOMeter implements IOMeterMXBean {
     private final static int EVICT_PAGE_FROM_POOL = 8;
     private final static int FLUSH_JOURNAL = 9;
     private final static int GET_PAGE = 10;
+    private final static int PREFETCH_PAGE = 11;
+    private final static int PREFETCH_HIT = 12;
+    private final static int PREFETCH_WASTED = 13;
 
-    private final static int ITEM_COUNT = 11;
+    private final static int ITEM_COUNT = 14;
 
     private long _quiescentIOthreshold = DEFAULT_QUIESCENT_IO_THRESHOLD_KBYTES_PER_SEC;
 
@@ -357,6 +360,28 @@ class IOMeter implements IOMeterMXBean {
         log(GET_PAGE, volume, pageAddress, size, 0, bufferIndex);
     }
 
+    /*
+     * The prefetch operations count pages but charge no bytes: the read itself
+     * is already charged as RV or RJ and must not be counted twice in the I/O
+     * rate.
+     */
+
+    public void chargePrefetchPage(final Volume volume, final long pageAddress, final int size, final int bufferIndex) {
+        log(PREFETCH_PAGE, volume, pageAddress, size, 0, bufferIndex);
+        charge(0, PREFETCH_PAGE);
+    }
+
+    public void chargePrefetchHit(final Volume volume, final long pageAddress, final int size, final int bufferIndex) {
+        log(PREFETCH_HIT, volume, pageAddress, size, 0, bufferIndex);
+        charge(0, PREFETCH_HIT);
+    }
+
+    public void chargePrefetchWasted(final Volume volume, final long pageAddress, final int size,
+            final int bufferIndex) {
+        log(PREFETCH_WASTED, volume, pageAddress, size, 0, bufferIndex);
+        charge(0, PREFETCH_WASTED);
+    }
+
     @Override
     public long totalOperations(final String opName) {
         return totalOperations(op(opName));
@@ -0,0 +1,467 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <p>
+ * Block compression codec used by the {@link JournalManager} to compress the
+ * payload of PZ (compressed page image) and TZ (compressed transaction)
+ * records. Each compressed record carries the identifier of the codec that
+ * wrote it, so a journal remains readable after the configured codec changes,
+ * and journals written before compression was available contain only PA and
+ * TX records.
+ * </p>
+ * <p>
+ * Two codecs are provided:
+ * <dl>
+ * <dt>{@value #LZ4_NAME}</dt>
+ * <dd>A pure-Java implementation of the LZ4 block format. It is fast enough
+ * to run in the committing thread and typically halves the size of a page
+ * image.</dd>
+ * <dt>{@value #DEFLATE_NAME}</dt>
+ * <dd>The zlib format at its fastest level, using {@link Deflater} and
+ * {@link Inflater}. It compresses better than LZ4 at a higher CPU cost.</dd>
+ * </dl>
+ * The name {@value #NONE_NAME}, the default, disables compression.
+ * </p>
+ * <p>
+ * Instances are shared and the methods may be called concurrently. The LZ4
+ * hash tables are held in {@link ThreadLocal}s. The {@link Deflater}s and
+ * {@link Inflater}s hold native memory, so they are pooled instead and the
+ * idle ones are ended by {@link #releaseAll()} when the journal closes.
+ * </p>
+ */
+abstract class JournalCodec {
+
+    final static String NONE_NAME = "NONE";
+
+    final static String LZ4_NAME = "LZ4";
+
+    final static String DEFLATE_NAME = "DEFLATE";
+
+    final static String DEFAULT_NAME = NONE_NAME;
+
+    private final static String[] NAMES = { NONE_NAME, LZ4_NAME, DEFLATE_NAME };
+
+    final static int LZ4_ID = 1;
+
+    final static int DEFLATE_ID = 2;
+
+    private final static JournalCodec LZ4 = new Lz4();
+
+    private final static JournalCodec DEFLATE = new DeflateCodec();
+
+    /**
+     * @param name
+     *            One of {@value #NONE_NAME}, {@value #LZ4_NAME} or
+     *            {@value #DEFLATE_NAME} (case insensitive)
+     * @return the codec, or <code>null</code> for {@value #NONE_NAME}
+     * @throws IllegalArgumentException
+     *             if the name is not recognized
+     */
+    static JournalCodec forName(final String name) {
+        final String canonical = canonicalName(name);
+        if (LZ4_NAME.equals(canonical)) {
+            return LZ4;
+        } else if (DEFLATE_NAME.equals(canonical)) {
+            return DEFLATE;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @param id
+     *            codec identifier recorded in a compressed journal record
+     * @return the codec, or <code>null</code> if the identifier is not
+     *         recognized
+     */
+    static JournalCodec forId(final int id) {
+        switch (id) {
+        case LZ4_ID:
+            return LZ4;
+        case DEFLATE_ID:
+            return DEFLATE;
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * @param name
+     * @return the canonical form of a codec name
+     * @throws IllegalArgumentException
+     *             if the name is not recognized
+     */
+    static String canonicalName(final String name) {
+        for (final String candidate : NAMES) {
+            if (candidate.equalsIgnoreCase(name)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("No such JournalCodec " + name);
+    }
+
+    /**
+     * Release the resources held by idle instances of every codec. Instances
+     * in use at the time are released when they are returned, and later calls
+     * allocate new ones.
+     */
+    static void releaseAll() {
+        LZ4.release();
+        DEFLATE.release();
+    }
+
+    /**
+     * Release resources held by this codec while it is idle.
+     */
+    void release() {
+    }
+
+    /**
+     * @return the name of this codec
+     */
+    abstract String getName();
+
+    /**
+     * @return the identifier recorded in records written by this codec
+     */
+    abstract int getId();
+
+    /**
+     * Compress a block of bytes.
+     *
+     * @param src
+     *            source array
+     * @param srcOffset
+     *            offset of the first byte to compress
+     * @param length
+     *            number of bytes to compress
+     * @param dst
+     *            target array
+     * @param dstOffset
+     *            offset at which to write the compressed bytes
+     * @param limit
+     *            maximum number of compressed bytes to write
+     * @return the number of compressed bytes written, or -1 if they would
+     *         exceed <code>limit</code>
+     */
+    abstract int compress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int limit);
+
+    /**
+     * Expand a block of bytes written by {@link #compress}.
+     *
+     * @param src
+     *            source array
+     * @param srcOffset
+     *            offset of the first compressed byte
+     * @param length
+     *            number of compressed bytes
+     * @param dst
+     *            target array
+     * @param dstOffset
+     *            offset at which to write the expanded bytes
+     * @param expandedLength
+     *            expected number of expanded bytes
+     * @return <code>true</code> if the block expanded to exactly
+     *         <code>expandedLength</code> bytes, <code>false</code> if it is
+     *         malformed
+     */
+    abstract boolean decompress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int expandedLength);
+
+    /**
+     * The LZ4 block format: a sequence of (token, literals, match offset,
+     * match length) tuples, the last of which holds only literals.
+     */
+    private static class Lz4 extends JournalCodec {
+
+        private final static int MIN_MATCH = 4;
+
+        private final static int LAST_LITERALS = 5;
+
+        private final static int MATCH_FIND_LIMIT = 12;
+
+        private final static int MAX_OFFSET = 65535;
+
+        private final static int HASH_BITS = 12;
+
+        private final static int RUN_MASK = 15;
+
+        private final ThreadLocal<int[]> _hashTables = new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[1 << HASH_BITS];
+            }
+        };
+
+        @Override
+        String getName() {
+            return LZ4_NAME;
+        }
+
+        @Override
+        int getId() {
+            return LZ4_ID;
+        }
+
+        private static int readInt(final byte[] bytes, final int offset) {
+            return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF) << 16
+                    | (bytes[offset + 3] & 0xFF) << 24;
+        }
+
+        private static int hash(final int value) {
+            return (value * -1640531535) >>> (32 - HASH_BITS);
+        }
+
+        /**
+         * Write a length in excess of the 4 bits held by the token.
+         */
+        private static int putLength(final byte[] dst, int op, int length) {
+            for (; length >= 255; length -= 255) {
+                dst[op++] = (byte) 255;
+            }
+            dst[op++] = (byte) length;
+            return op;
+        }
+
+        @Override
+        int compress(final byte[] src, final int srcOffset, final int length, final byte[] dst, final int dstOffset,
+                final int limit) {
+            final int srcEnd = srcOffset + length;
+            final int matchFindLimit = srcEnd - MATCH_FIND_LIMIT;
+            final int matchLimit = srcEnd - LAST_LITERALS;
+            final int dstEnd = dstOffset + limit;
+            final int[] table = _hashTables.get();
+            Arrays.fill(table, -1);
+
+            int anchor = srcOffset;
+            int ip = srcOffset;
+            int op = dstOffset;
+
+            while (ip < matchFindLimit) {
+                final int sequence = readInt(src, ip);
+                final int h = hash(sequence);
+                int ref = table[h];
+                table[h] = ip;
+                if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    ip++;
+                    continue;
+                }
+                while (ip > anchor && ref > srcOffset && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit && src[ref + matchLength] == src[ip + matchLength]) {
+                    matchLength++;
+                }
+                final int literalLength = ip - anchor;
+                /*
+                 * Token, literals with their extra length bytes, offset and
+                 * extra match length bytes
+                 */
+                final int extra = literalLength / 255 + 1 + (matchLength - MIN_MATCH) / 255 + 1;
+                if (op + 1 + literalLength + 2 + extra > dstEnd) {
+                    return -1;
+                }
+                final int token = op++;
+                if (literalLength >= RUN_MASK) {
+                    dst[token] = (byte) (RUN_MASK << 4);
+                    op = putLength(dst, op, literalLength - RUN_MASK);
+                } else {
+                    dst[token] = (byte) (literalLength << 4);
+                }
+                System.arraycopy(src, anchor, dst, op, literalLength);
+                op += literalLength;
+                final int offset = ip - ref;
+                dst[op++] = (byte) offset;
+                dst[op++] = (byte) (offset >>> 8);
+                if (matchLength - MIN_MATCH >= RUN_MASK) {
+                    dst[token] |= RUN_MASK;
+                    op = putLength(dst, op, matchLength - MIN_MATCH - RUN_MASK);
+                } else {
+                    dst[token] |= matchLength - MIN_MATCH;
+                }
+                ip += matchLength;
+                anchor = ip;
+                if (ip < matchFindLimit) {
+                    table[hash(readInt(src, ip - 2))] = ip - 2;
+                }
+            }
+
+            final int literalLength = srcEnd - anchor;
+            if (op + 1 + literalLength + literalLength / 255 + 1 > dstEnd) {
+                return -1;
+            }
+            final int token = op++;
+            if (literalLength >= RUN_MASK) {
+                dst[token] = (byte) (RUN_MASK << 4);
+                op = putLength(dst, op, literalLength - RUN_MASK);
+            } else {
+                dst[token] = (byte) (literalLength << 4);
+            }
+            System.arraycopy(src, anchor, dst, op, literalLength);
+            op += literalLength;
+            return op - dstOffset;
+        }
+
+        @Override
+        boolean decompress(final byte[] src, final int srcOffset, final int length, final byte[] dst,
+                final int dstOffset, final int expandedLength) {
+            final int srcEnd = srcOffset + length;
+            final int dstEnd = dstOffset + expandedLength;
+            int ip = srcOffset;
+            int op = dstOffset;
+            while (ip < srcEnd) {
+                final int token = src[ip++] & 0xFF;
+                int literalLength = token >>> 4;
+                if (literalLength == RUN_MASK) {
+                    int b;
+                    do {
+                        if (ip >= srcEnd) {
+                            return false;
+                        }
+                        b = src[ip++] & 0xFF;
+                        literalLength += b;
+                    } while (b == 255);
+                }
+                if (literalLength > srcEnd - ip || literalLength > dstEnd - op) {
+                    return false;
+                }
+                System.arraycopy(src, ip, dst, op, literalLength);
+                ip += literalLength;
+                op += literalLength;
+                if (ip == srcEnd) {
+                    break;
+                }
+                if (ip + 2 > srcEnd) {
+                    return false;
+                }
+                final int offset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+                ip += 2;
+                if (offset == 0 || op - offset < dstOffset) {
+                    return false;
+                }
+                int matchLength = token & RUN_MASK;
+                if (matchLength == RUN_MASK) {
+                    int b;
+                    do {
+                        if (ip >= srcEnd) {
+                            return false;
+                        }
+                        b = src[ip++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+                if (matchLength > dstEnd - op) {
+                    return false;
+                }
+                /*
+                 * The match may overlap the bytes it produces
+                 */
+                for (int from = op - offset; matchLength > 0; matchLength--) {
+                    dst[op++] = dst[from++];
+                }
+            }
+            return op == dstEnd;
+        }
+    }
+
+    /**
+     * The zlib format at {@link Deflater#BEST_SPEED}. Up to
+     * {@value #MAXIMUM_POOLED} idle {@link Deflater}s and {@link Inflater}s
+     * are kept for reuse; any more are ended when they are returned.
+     */
+    private static class DeflateCodec extends JournalCodec {
+
+        private final static int MAXIMUM_POOLED = 64;
+
+        private final BlockingQueue<Deflater> _deflaters = new ArrayBlockingQueue<Deflater>(MAXIMUM_POOLED);
+
+        private final BlockingQueue<Inflater> _inflaters = new ArrayBlockingQueue<Inflater>(MAXIMUM_POOLED);
+
+        @Override
+        void release() {
+            Deflater deflater;
+            while ((deflater = _deflaters.poll()) != null) {
+                deflater.end();
+            }
+            Inflater inflater;
+            while ((inflater = _inflaters.poll()) != null) {
+                inflater.end();
+            }
+        }
+
+        @Override
+        String getName() {
+            return DEFLATE_NAME;
+        }
+
+        @Override
+        int getId() {
+            return DEFLATE_ID;
+        }
+
+        @Override
+        int compress(final byte[] src, final int srcOffset, final int length, final byte[] dst, final int dstOffset,
+                final int limit) {
+            Deflater deflater = _deflaters.poll();
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.BEST_SPEED);
+            }
+            try {
+                deflater.setInput(src, srcOffset, length);
+                deflater.finish();
+                final int size = deflater.deflate(dst, dstOffset, limit);
+                return deflater.finished() ? size : -1;
+            } finally {
+                deflater.reset();
+                if (!_deflaters.offer(deflater)) {
+                    deflater.end();
+                }
+            }
+        }
+
+        @Override
+        boolean decompress(final byte[] src, final int srcOffset, final int length, final byte[] dst,
+                final int dstOffset, final int expandedLength) {
+            Inflater inflater = _inflaters.poll();
+            if (inflater == null) {
+                inflater = new Inflater();
+            }
+            try {
+                inflater.setInput(src, srcOffset, length);
+                return inflater.inflate(dst, dstOffset, expandedLength) == expandedLength && inflater.finished();
+            } catch (final DataFormatException e) {
+                return false;
+            } finally {
+                inflater.reset();
+                if (!_inflaters.offer(inflater)) {
+                    inflater.end();
+                }
+            }
+        }
+    }
+}
@@ -33,13 +33,26 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -52,9 +65,12 @@ import com.persistit.JournalRecord.IV;
 import com.persistit.JournalRecord.JE;
 import com.persistit.JournalRecord.JH;
 import com.persistit.JournalRecord.PA;
+import com.persistit.JournalRecord.PD;
 import com.persistit.JournalRecord.PM;
+import com.persistit.JournalRecord.PZ;
 import com.persistit.JournalRecord.TM;
 import com.persistit.JournalRecord.TX;
+import com.persistit.JournalRecord.TZ;
 import com.persistit.Persistit.FatalErrorException;
 import com.persistit.TransactionPlayer.TransactionPlayerListener;
 import com.persistit.exception.CorruptJournalException;
@@ -82,9 +98,33 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     final static int URGENT_COMMIT_DELAY_MILLIS = 50;
     final static int GENTLE_COMMIT_DELAY_MILLIS = 12;
     private final static int IO_MEASUREMENT_CYCLES = 8;
+    /*
+     * Number of ADAPTIVE commit latencies measured between adjustments of the
+     * commit window; a power of two
+     */
+    private final static int COMMIT_LATENCY_SAMPLES = 128;
+    /*
+     * Number of further commits an ADAPTIVE commit waits, at the measured
+     * arrival rate, to share its flush cycle
+     */
+    private final static int COMMIT_WINDOW_ARRIVALS = 2;
     private final static int TOO_MANY_WARN_THRESHOLD = 5;
     private final static int TOO_MANY_ERROR_THRESHOLD = 10;
     private final static long KILO = 1024;
+    /**
+     * Size of the journal range read by one copier read operation
+     */
+    private final static int COPY_WINDOW_SIZE = 1024 * 1024;
+    /**
+     * Minimum number of pages of one Volume copied by each thread when the
+     * pages are divided by page address range
+     */
+    final static int MINIMUM_COPY_REGION = 32;
+    private final static long COPIER_THREAD_KEEP_ALIVE_SECONDS = 60;
+    /**
+     * Smallest page image or set of transaction updates that is compressed
+     */
+    private final static int MINIMUM_COMPRESSIBLE_SIZE = 256;
 
     /**
      * REGEX expression that recognizes the name of a journal file.
@@ -93,11 +133,11 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     private long _journalCreatedTime;
 
-    private final Map<PageNode, PageNode> _pageMap = new HashMap<PageNode, PageNode>();
+    private final PageMap _pageMap = new PageMap();
 
     private final RangeRemovingArrayList<PageNode> _pageList = new RangeRemovingArrayList<PageNode>();
 
-    private final Map<PageNode, PageNode> _branchMap = new HashMap<PageNode, PageNode>();
+    private final PageMap _branchMap = new PageMap();
 
     private final Map<Volume, Integer> _volumeToHandleMap = new HashMap<Volume, Integer>();
 
@@ -114,10 +154,53 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     private volatile int _writeBufferSize = DEFAULT_BUFFER_SIZE;
 
+    private volatile int _writeBufferCount = DEFAULT_WRITE_BUFFER_COUNT;
+
     private ByteBuffer _writeBuffer;
 
     private long _writeBufferAddress = Long.MAX_VALUE;
 
+    /**
+     * Journal address below which all records have been written to the
+     * journal file
+     */
+    private volatile long _writtenAddress = Long.MAX_VALUE;
+
+    /**
+     * Filled write buffers waiting to be written, in journal address order
+     */
+    private final Queue<SealedBuffer> _sealedBuffers = new ConcurrentLinkedQueue<SealedBuffer>();
+
+    /**
+     * Written buffers available to be filled again
+     */
+    private final Queue<ByteBuffer> _freeWriteBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+
+    private int _allocatedWriteBuffers;
+
+    /**
+     * Serializes the writing of sealed buffers. A thread holding this lock
+     * never acquires the JournalManager monitor, so appenders can fill the
+     * next buffer while the previous one is written.
+     */
+    private final Object _writeLock = new Object();
+
+    private final AtomicLong _flushStallCount = new AtomicLong();
+
+    private final AtomicLong _flushStallTime = new AtomicLong();
+
+    /**
+     * Count of records reserved in the write buffer whose contents are still
+     * being copied
+     */
+    private final AtomicInteger _pendingAppends = new AtomicInteger();
+
+    /**
+     * Thread, holding the monitor, that waits in {@link #awaitAppends()} for
+     * the pending records to be completed
+     */
+    private volatile Thread _appendsWaiter;
+
     private JournalFlusher _flusher;
 
     private JournalCopier _copier;
@@ -171,9 +254,19 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     private volatile long _writePageCount = 0;
 
+    private volatile long _pageDeltaCount = 0;
+
+    private volatile long _compressedRecordCount = 0;
+
+    private volatile long _compressionSavings = 0;
+
     private volatile long _readPageCount = 0;
 
-    private volatile long _copiedPageCount = 0;
+    private final AtomicLong _copiedPageCount = new AtomicLong();
+
+    private final AtomicLong _copyRunCount = new AtomicLong();
+
+    private final AtomicLong _copyReadCount = new AtomicLong();
 
     private volatile long _droppedPageCount = 0;
 
@@ -187,8 +280,71 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     private volatile long _flushInterval = DEFAULT_FLUSH_INTERVAL_MS;
 
+    private volatile long _commitLatencyTarget = DEFAULT_COMMIT_LATENCY_TARGET_MS;
+
+    /*
+     * Time in nanoseconds an ADAPTIVE commit waits for other commits to join
+     * its flush cycle, and the average number of commits per cycle on which
+     * it is based. Written only by the JOURNAL_FLUSHER.
+     */
+    private volatile long _commitWindow;
+
+    private volatile double _commitBatchSize;
+
+    private final long[] _commitLatencies = new long[COMMIT_LATENCY_SAMPLES];
+
+    private final AtomicInteger _commitLatencyCount = new AtomicInteger();
+
+    /*
+     * Count of ADAPTIVE commits and flush cycles, and the time, at the last
+     * adjustment of the commit window. Set when the JOURNAL_FLUSHER starts.
+     */
+    private int _adjustedLatencyCount;
+
+    private long _adjustedFlushCycles;
+
+    private long _adjustedTime;
+
     private volatile long _slowIoAlertThreshold = DEFAULT_SLOW_IO_ALERT_THRESHOLD_MS;
 
+    private volatile int _deltaPages = DEFAULT_DELTA_PAGES;
+
+    private volatile JournalCodec _codec = JournalCodec.forName(DEFAULT_COMPRESSION);
+
+    /*
+     * Per-thread space in which a page image is assembled before compression
+     * and in which a compressed TX record payload is held until it is copied
+     * into the write buffer.
+     */
+    private final ThreadLocal<byte[]> _pageImageBuffers = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[Buffer.MAX_BUFFER_SIZE];
+        }
+    };
+
+    private final ThreadLocal<byte[]> _compressedTransactionBuffers = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[Transaction.TRANSACTION_BUFFER_SIZE];
+        }
+    };
+
+    /*
+     * The image of each page most recently written to the journal as a PA
+     * record, from which PD records for later versions of the page are
+     * computed. Least recently used images are discarded once there are more
+     * than _deltaPages of them. Guarded by its own monitor.
+     */
+    private final Map<Long, DeltaBase> _deltaBases = new LinkedHashMap<Long, DeltaBase>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, DeltaBase> eldest) {
+            return size() > _deltaPages;
+        }
+    };
+
     private final TransactionPlayer _player = new TransactionPlayer(new JournalTransactionPlayerSupport());
 
     private final TransactionPlayerListener _listener = new ProactiveRollbackListener();
@@ -206,6 +362,8 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     private volatile int _copiesPerCycle = DEFAULT_COPIES_PER_CYCLE;
 
+    private volatile int _copierThreads = DEFAULT_COPIER_THREADS;
+
     private volatile long _copierTimestampLimit = Long.MAX_VALUE;
 
     private volatile long _earliestCommittedTimestamp = Long.MAX_VALUE;
@@ -252,7 +410,8 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
      */
     public synchronized void init(final RecoveryManager rman, final String path, final long maximumSize)
             throws PersistitException {
-        _writeBuffer = ByteBuffer.allocate(_writeBufferSize);
+        _writeBuffer = ByteBuffer.allocateDirect(_writeBufferSize);
+        _allocatedWriteBuffers = 1;
         if (rman != null && rman.getKeystoneAddress() != -1) {
             _journalFilePath = rman.getJournalFilePath();
             _blockSize = rman.getBlockSize();
@@ -299,6 +458,9 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         }
         _flusher = new JournalFlusher();
         _copier = new JournalCopier();
+        _adjustedLatencyCount = _commitLatencyCount.get();
+        _adjustedFlushCycles = _totalFlushCycles.get();
+        _adjustedTime = System.nanoTime();
 
         _copier.start();
         _flusher.start();
@@ -314,7 +476,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         if (_blockSize == 0) {
             return;
         }
-        info.copiedPageCount = _copiedPageCount;
+        info.copiedPageCount = _copiedPageCount.get();
         info.droppedPageCount = _droppedPageCount;
         info.copying = _copying.get();
         info.currentGeneration = _currentAddress;
@@ -421,6 +583,17 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         _copier.setPollInterval(copierInterval);
     }
 
+    @Override
+    public int getCopierThreads() {
+        return _copierThreads;
+    }
+
+    @Override
+    public void setCopierThreads(final int copierThreads) {
+        Util.rangeCheck(copierThreads, 1, MAXIMUM_COPIER_THREADS);
+        _copierThreads = copierThreads;
+    }
+
     @Override
     public void setRollbackPruningEnabled(final boolean rollbackPruning) {
         _rollbackPruning.set(rollbackPruning);
@@ -472,7 +645,37 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     @Override
     public long getCopiedPageCount() {
-        return _copiedPageCount;
+        return _copiedPageCount.get();
+    }
+
+    @Override
+    public long getCopyRunCount() {
+        return _copyRunCount.get();
+    }
+
+    @Override
+    public long getCopyReadCount() {
+        return _copyReadCount.get();
+    }
+
+    @Override
+    public int getWriteBufferSize() {
+        return _writeBufferSize;
+    }
+
+    @Override
+    public int getWriteBufferCount() {
+        return _writeBufferCount;
+    }
+
+    @Override
+    public long getFlushStallCount() {
+        return _flushStallCount.get();
+    }
+
+    @Override
+    public long getFlushStallTime() {
+        return _flushStallTime.get() / NS_PER_MS;
     }
 
     @Override
@@ -555,6 +758,71 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     }
 
+    @Override
+    public long getCommitLatencyTarget() {
+        return _commitLatencyTarget;
+    }
+
+    @Override
+    public void setCommitLatencyTarget(final long commitLatencyTarget) {
+        Util.rangeCheck(commitLatencyTarget, MINIMUM_COMMIT_LATENCY_TARGET_MS, MAXIMUM_COMMIT_LATENCY_TARGET_MS);
+        _commitLatencyTarget = commitLatencyTarget;
+    }
+
+    @Override
+    public int getDeltaPages() {
+        return _deltaPages;
+    }
+
+    @Override
+    public void setDeltaPages(final int deltaPages) {
+        Util.rangeCheck(deltaPages, 0, MAXIMUM_DELTA_PAGES);
+        _deltaPages = deltaPages;
+        synchronized (_deltaBases) {
+            final Iterator<Long> iterator = _deltaBases.keySet().iterator();
+            while (_deltaBases.size() > deltaPages && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public long getPageDeltaCount() {
+        return _pageDeltaCount;
+    }
+
+    @Override
+    public String getCompression() {
+        final JournalCodec codec = _codec;
+        return codec == null ? JournalCodec.NONE_NAME : codec.getName();
+    }
+
+    @Override
+    public void setCompression(final String compression) {
+        _codec = JournalCodec.forName(compression);
+    }
+
+    @Override
+    public long getCompressedRecordCount() {
+        return _compressedRecordCount;
+    }
+
+    @Override
+    public long getCompressionSavings() {
+        return _compressionSavings;
+    }
+
+    @Override
+    public long getCommitWindow() {
+        return _commitWindow / 1000;
+    }
+
+    @Override
+    public double getCommitBatchSize() {
+        return _commitBatchSize;
+    }
+
     /**
      * Compute an "urgency" factor that determines how vigorously the
      * JOURNAL_COPIER thread should perform I/O. This number is computed on a
@@ -699,13 +967,17 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             CorruptJournalException {
         //
         // If necessary read the bytes out of the _writeBuffer
-        // before they have been written out to the file. This code
-        // requires the _writeBuffer to be a HeapByteBuffer.
+        // before they have been written out to the file. Bytes held
+        // in a sealed buffer are written out first.
         //
         final int position = bb.position();
         final int length = bb.remaining();
         synchronized (this) {
+            if (address < _writeBufferAddress && address + length > _writtenAddress) {
+                writeSealedBuffers();
+            }
             if (address >= _writeBufferAddress && address + length <= _currentAddress) {
+                awaitAppends();
                 assert _writeBufferAddress + _writeBuffer.position() == _currentAddress : String.format(
                         "writeBufferAddress=%,d position=%,d currentAddress=%,d", _writeBufferAddress,
                         _writeBuffer.position(), _currentAddress);
@@ -741,6 +1013,16 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         bb.position(position);
     }
 
+    private void readFully(final ByteBuffer bb, final long address, final CopyWindow window)
+            throws PersistitIOException, CorruptJournalException {
+        if (window == null) {
+            readFully(bb, address);
+        } else if (!window.read(bb, address)) {
+            _copyReadCount.incrementAndGet();
+            readFully(bb, address);
+        }
+    }
+
     boolean readPageFromJournal(final Buffer buffer) throws PersistitIOException {
         final int bufferSize = buffer.getBufferSize();
         final long pageAddress = buffer.getPageAddress();
@@ -774,7 +1056,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         synchronized (this) {
             final Integer volumeHandle = _volumeToHandleMap.get(volume);
             if (volumeHandle != null) {
-                pnLookup = _pageMap.get(new PageNode(volumeHandle, pageAddress, -1, -1));
+                pnLookup = _pageMap.get(volumeHandle, pageAddress);
             }
         }
 
@@ -801,22 +1083,36 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     private long readPageBufferFromJournal(final PageNode pn, final ByteBuffer bb) throws PersistitIOException,
             CorruptJournalException {
+        return readPageBufferFromJournal(pn, bb, null);
+    }
+
+    private long readPageBufferFromJournal(final PageNode pn, final ByteBuffer bb, final CopyWindow window)
+            throws PersistitIOException, CorruptJournalException {
         final int at = bb.position();
         bb.limit(at + PA.OVERHEAD);
-        readFully(bb, pn.getJournalAddress());
+        readFully(bb, pn.getJournalAddress(), window);
         if (bb.remaining() < PA.OVERHEAD) {
             throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this) + " is incomplete");
         }
         final int type = JournalRecord.getType(bb);
-        final int payloadSize = JournalRecord.getLength(bb) - PA.OVERHEAD;
+        if (type == PD.TYPE) {
+            return readPageDeltaFromJournal(pn, bb, window);
+        }
+        if (type == PZ.TYPE) {
+            bb.limit(at + PZ.OVERHEAD);
+            readFully(bb, pn.getJournalAddress(), window);
+            if (bb.remaining() < PZ.OVERHEAD) {
+                throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this) + " is incomplete");
+            }
+        } else if (type != PA.TYPE) {
+            throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this) + " is not a PAGE record");
+        }
+        final int recordSize = JournalRecord.getLength(bb);
+        final int payloadSize = type == PZ.TYPE ? PZ.getImageSize(bb) : recordSize - PA.OVERHEAD;
         final int leftSize = PA.getLeftSize(bb);
         final int bufferSize = PA.getBufferSize(bb);
         final long pageAddress = PA.getPageAddress(bb);
 
-        if (type != PA.TYPE) {
-            throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this) + " is not a PAGE record");
-        }
-
         if (leftSize < 0 || payloadSize < leftSize || payloadSize > bufferSize) {
             throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
                     + " invalid sizes: recordSize= " + payloadSize + " leftSize=" + leftSize + " bufferSize="
@@ -828,8 +1124,22 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                     + " mismatched page address: expected/actual=" + pn.getPageAddress() + "/" + pageAddress);
         }
 
-        bb.limit(at + payloadSize).position(at);
-        readFully(bb, pn.getJournalAddress() + PA.OVERHEAD);
+        if (type == PZ.TYPE) {
+            final JournalCodec codec = JournalCodec.forId(PZ.getCodec(bb));
+            if (codec == null || recordSize < PZ.OVERHEAD) {
+                throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                        + " invalid codec " + PZ.getCodec(bb) + " or recordSize " + recordSize);
+            }
+            final ByteBuffer compressed = ByteBuffer.allocate(recordSize - PZ.OVERHEAD);
+            readFully(compressed, pn.getJournalAddress() + PZ.OVERHEAD, window);
+            if (!codec.decompress(compressed.array(), 0, compressed.remaining(), bb.array(), at, payloadSize)) {
+                throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                        + " has a malformed " + codec.getName() + " page image");
+            }
+        } else {
+            bb.limit(at + payloadSize).position(at);
+            readFully(bb, pn.getJournalAddress() + PA.OVERHEAD, window);
+        }
 
         final int rightSize = payloadSize - leftSize;
         System.arraycopy(bb.array(), leftSize + at, bb.array(), bufferSize - rightSize + at, rightSize);
@@ -838,6 +1148,70 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         return pageAddress;
     }
 
+    /**
+     * Reconstruct a page from a PD record: read the page image of the PA
+     * record it refers to, then overwrite the ranges held by the PD record.
+     * The record's header has already been read into <code>bb</code> at its
+     * position.
+     */
+    private long readPageDeltaFromJournal(final PageNode pn, final ByteBuffer bb, final CopyWindow window)
+            throws PersistitIOException, CorruptJournalException {
+        final int at = bb.position();
+        bb.limit(at + PD.OVERHEAD);
+        readFully(bb, pn.getJournalAddress(), window);
+        if (bb.remaining() < PD.OVERHEAD) {
+            throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this) + " is incomplete");
+        }
+        final int payloadSize = JournalRecord.getLength(bb) - PD.OVERHEAD;
+        final int bufferSize = PD.getBufferSize(bb);
+        final long pageAddress = PD.getPageAddress(bb);
+        final long baseAddress = PD.getBaseAddress(bb);
+
+        if (payloadSize < 0 || payloadSize > bufferSize || baseAddress >= pn.getJournalAddress()) {
+            throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                    + " invalid sizes: recordSize= " + payloadSize + " bufferSize=" + bufferSize + " baseAddress="
+                    + baseAddress);
+        }
+
+        if (pageAddress != pn.getPageAddress() && pn.getPageAddress() != -1) {
+            throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                    + " mismatched page address: expected/actual=" + pn.getPageAddress() + "/" + pageAddress);
+        }
+
+        final ByteBuffer ranges = ByteBuffer.allocate(payloadSize);
+        readFully(ranges, pn.getJournalAddress() + PD.OVERHEAD, window);
+        /*
+         * The base image is read directly rather than through the window,
+         * which has already moved past it.
+         */
+        final PageNode base = new PageNode(pn.getVolumeHandle(), pageAddress, baseAddress, -1);
+        if (readPageBufferFromJournal(base, bb, null) != pageAddress || bb.remaining() != bufferSize) {
+            throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                    + " refers to an invalid page image at " + base.toStringJournalAddress(this));
+        }
+        applyPageDelta(ranges.array(), payloadSize, bb.array(), at, bufferSize, pn);
+        return pageAddress;
+    }
+
+    private void applyPageDelta(final byte[] ranges, final int payloadSize, final byte[] page, final int at,
+            final int bufferSize, final PageNode pn) throws CorruptJournalException {
+        for (int index = 0; index < payloadSize;) {
+            if (index + PD.RANGE_OVERHEAD > payloadSize) {
+                throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                        + " has an incomplete range at offset " + index);
+            }
+            final int offset = Util.getChar(ranges, index);
+            final int length = Util.getChar(ranges, index + 2);
+            index += PD.RANGE_OVERHEAD;
+            if (offset + length > bufferSize || index + length > payloadSize) {
+                throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this) + " has range "
+                        + offset + ":" + length + " outside the page");
+            }
+            System.arraycopy(ranges, index, page, at + offset, length);
+            index += length;
+        }
+    }
+
     /**
      * Method used by diagnostic tools to attempt to read a page from journal
      * 
@@ -856,29 +1230,44 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             return null;
         }
         final int type = JournalRecord.getType(bb);
-        final int payloadSize = JournalRecord.getLength(bb) - PA.OVERHEAD;
-        final int leftSize = PA.getLeftSize(bb);
-        final int bufferSize = PA.getBufferSize(bb);
-        final long pageAddress = PA.getPageAddress(bb);
         final int volumeHandle = PA.getVolumeHandle(bb);
+        final long pageAddress = PA.getPageAddress(bb);
+        final Buffer buffer;
 
-        if (type != PA.TYPE || leftSize < 0 || payloadSize < leftSize || payloadSize > bufferSize) {
-            return null;
-        }
+        if (type == PD.TYPE || type == PZ.TYPE) {
+            final int bufferSize = type == PD.TYPE ? PD.getBufferSize(bb) : PZ.getBufferSize(bb);
+            if (bufferSize < Buffer.MIN_BUFFER_SIZE || bufferSize > Buffer.MAX_BUFFER_SIZE) {
+                return null;
+            }
+            final BufferPool pool = _persistit.getBufferPool(bufferSize);
+            buffer = new Buffer(bufferSize, -1, pool, _persistit);
+            buffer.setPageAddressAndVolume(pageAddress, volumeForHandle(volumeHandle));
+            bb = buffer.getByteBuffer();
+            bb.position(0);
+            readPageBufferFromJournal(new PageNode(volumeHandle, pageAddress, address, -1), bb);
+        } else {
+            final int payloadSize = JournalRecord.getLength(bb) - PA.OVERHEAD;
+            final int leftSize = PA.getLeftSize(bb);
+            final int bufferSize = PA.getBufferSize(bb);
+
+            if (type != PA.TYPE || leftSize < 0 || payloadSize < leftSize || payloadSize > bufferSize) {
+                return null;
+            }
 
-        final BufferPool pool = _persistit.getBufferPool(bufferSize);
-        final Buffer buffer = new Buffer(bufferSize, -1, pool, _persistit);
-        buffer.setPageAddressAndVolume(pageAddress, volumeForHandle(volumeHandle));
-        bb = buffer.getByteBuffer();
-        bb.limit(payloadSize).position(0);
-        readFully(bb, address + PA.OVERHEAD);
+            final BufferPool pool = _persistit.getBufferPool(bufferSize);
+            buffer = new Buffer(bufferSize, -1, pool, _persistit);
+            buffer.setPageAddressAndVolume(pageAddress, volumeForHandle(volumeHandle));
+            bb = buffer.getByteBuffer();
+            bb.limit(payloadSize).position(0);
+            readFully(bb, address + PA.OVERHEAD);
 
-        if (leftSize > 0) {
-            final int rightSize = payloadSize - leftSize;
-            System.arraycopy(bb.array(), leftSize, bb.array(), bufferSize - rightSize, rightSize);
-            Arrays.fill(bb.array(), leftSize, bufferSize - rightSize, (byte) 0);
+            if (leftSize > 0) {
+                final int rightSize = payloadSize - leftSize;
+                System.arraycopy(bb.array(), leftSize, bb.array(), bufferSize - rightSize, rightSize);
+                Arrays.fill(bb.array(), leftSize, bufferSize - rightSize, (byte) 0);
+            }
+            bb.limit(bufferSize).position(0);
         }
-        bb.limit(bufferSize).position(0);
         final boolean acquired = buffer.claim(true, 0);
         assert acquired : "buffer in use";
         buffer.load();
@@ -1065,36 +1454,177 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     }
 
     void writePageToJournal(final Buffer buffer) throws PersistitException {
-
-        final Volume volume;
-        final int recordSize;
-
+        final long address;
+        final ByteBuffer target;
+        final int handle = handleForVolume(buffer.getVolume());
+        final PageDelta delta = pageDelta(buffer, handle);
+        final CompressedPage compressed = compressPage(buffer, delta);
         synchronized (this) {
+            prepareWriteBuffer(PA.OVERHEAD + pageImageSize(buffer));
+            address = _currentAddress;
+            target = appendPage(buffer, handle, delta, compressed);
+        }
+        copyPage(buffer, target, handle, address, delta, compressed);
+        _persistit.getIOMeter().chargeWritePageToJournal(buffer.getVolume(), buffer.getPageAddress(),
+                buffer.getBufferSize(), address, urgency(), buffer.getIndex());
+    }
 
-            if (!buffer.isTemporary() && buffer.getTimestamp() < _lastValidCheckpoint.getTimestamp()) {
-                _persistit.getLogBase().lateWrite.log(_lastValidCheckpoint, buffer);
+    /**
+     * Write a batch of pages belonging to one volume under a single
+     * acquisition of the monitor. When the batch fits, space for all of its PA
+     * records is made available in the write buffer once, so that the batch is
+     * not interrupted by a buffer flush, and the page images are copied after
+     * the monitor has been released.
+     * 
+     * @param buffers
+     *            buffers claimed as writer by the caller, all from the same
+     *            Volume
+     * @param count
+     *            number of buffers to write
+     * @throws PersistitException
+     */
+    void writePagesToJournal(final Buffer[] buffers, final int count) throws PersistitException {
+        final long[] addresses = new long[count];
+        final ByteBuffer[] targets = new ByteBuffer[count];
+        final PageDelta[] deltas = new PageDelta[count];
+        final CompressedPage[] compressed = new CompressedPage[count];
+        final int handle = handleForVolume(buffers[0].getVolume());
+        for (int index = 0; index < count; index++) {
+            deltas[index] = pageDelta(buffers[index], handle);
+            compressed[index] = compressPage(buffers[index], deltas[index]);
+        }
+        try {
+            synchronized (this) {
+                int total = 0;
+                for (int index = 0; index < count; index++) {
+                    total += PA.OVERHEAD + pageImageSize(buffers[index]);
+                }
+                final boolean reserved = total + JE.OVERHEAD < _writeBuffer.capacity();
+                if (reserved) {
+                    prepareWriteBuffer(total);
+                }
+                for (int index = 0; index < count; index++) {
+                    if (!reserved) {
+                        prepareWriteBuffer(PA.OVERHEAD + pageImageSize(buffers[index]));
+                    }
+                    addresses[index] = _currentAddress;
+                    targets[index] = appendPage(buffers[index], handle, deltas[index], compressed[index]);
+                    if (!reserved) {
+                        /*
+                         * The next prepareWriteBuffer call may flush, which
+                         * waits for this record to be complete.
+                         */
+                        final ByteBuffer target = targets[index];
+                        targets[index] = null;
+                        copyPage(buffers[index], target, handle, addresses[index], deltas[index], compressed[index]);
+                    }
+                }
             }
-
-            volume = buffer.getVolume();
-            final int handle = handleForVolume(volume);
-            int leftSize;
-            int rightSize;
-            if (buffer.isDataPage() || buffer.isIndexPage() || buffer.isGarbagePage()) {
-                leftSize = buffer.getKeyBlockEnd();
-                rightSize = buffer.getBufferSize() - buffer.getAlloc();
-            } else {
-                leftSize = 0;
-                rightSize = buffer.getBufferSize();
+        } finally {
+            for (int index = 0; index < count; index++) {
+                if (targets[index] != null) {
+                    copyPage(buffers[index], targets[index], handle, addresses[index], deltas[index],
+                            compressed[index]);
+                }
             }
+        }
+        for (int index = 0; index < count; index++) {
+            final Buffer buffer = buffers[index];
+            _persistit.getIOMeter().chargeWritePageToJournal(buffer.getVolume(), buffer.getPageAddress(),
+                    buffer.getBufferSize(), addresses[index], urgency(), buffer.getIndex());
+        }
+    }
 
-            recordSize = PA.OVERHEAD + leftSize + rightSize;
+    /**
+     * @param buffer
+     * @return number of bytes of the page image written in a PA record: the
+     *         entire page, or for pages having a key block, the key block and
+     *         the allocated tail with the free space between them elided
+     */
+    private int pageImageSize(final Buffer buffer) {
+        if (buffer.isDataPage() || buffer.isIndexPage() || buffer.isGarbagePage()) {
+            return buffer.getKeyBlockEnd() + buffer.getBufferSize() - buffer.getAlloc();
+        } else {
+            return buffer.getBufferSize();
+        }
+    }
 
-            prepareWriteBuffer(recordSize);
-            Debug.$assert1.t(_writeBuffer.remaining() >= recordSize);
+    /**
+     * Write the header of a PA record for the supplied buffer at the current
+     * address, reserve space for the page image and record it in the page map.
+     * If a PageDelta is supplied and its base image is in the current journal
+     * file, a PD record is written instead; otherwise if a CompressedPage is
+     * supplied a PZ record is written. Caller must hold the monitor and must
+     * have prepared the write buffer for a PA record; the page image or delta
+     * is copied by {@link #copyPage}.
+     * 
+     * @param buffer
+     * @param handle
+     *            handle of the buffer's Volume
+     * @param delta
+     *            the page's delta from its base image, or <code>null</code>
+     * @param compressed
+     *            the page's compressed image, or <code>null</code>
+     * @return the reserved space
+     * @throws PersistitException
+     */
+    private ByteBuffer appendPage(final Buffer buffer, final int handle, final PageDelta delta,
+            final CompressedPage compressed) throws PersistitException {
+        assert Thread.holdsLock(this);
+        if (!buffer.isTemporary() && buffer.getTimestamp() < _lastValidCheckpoint.getTimestamp()) {
+            _persistit.getLogBase().lateWrite.log(_lastValidCheckpoint, buffer);
+        }
+
+        int leftSize;
+        int rightSize;
+        if (buffer.isDataPage() || buffer.isIndexPage() || buffer.isGarbagePage()) {
+            leftSize = buffer.getKeyBlockEnd();
+            rightSize = buffer.getBufferSize() - buffer.getAlloc();
+        } else {
+            leftSize = 0;
+            rightSize = buffer.getBufferSize();
+        }
 
-            final long address = _currentAddress;
-            final int position = _writeBuffer.position();
+        final long address = _currentAddress;
+        final int headerSize;
+        final int recordSize;
 
+        if (delta != null && delta._base._address / _blockSize == address / _blockSize) {
+            /*
+             * The base image must be in the same journal file so that it
+             * remains readable for as long as this record does.
+             */
+            headerSize = PD.OVERHEAD;
+            recordSize = PD.OVERHEAD + delta._size;
+            Debug.$assert1.t(_writeBuffer.remaining() >= recordSize);
+            JournalRecord.putLength(_writeBuffer, recordSize);
+            PD.putVolumeHandle(_writeBuffer, handle);
+            PD.putType(_writeBuffer);
+            JournalRecord.putTimestamp(_writeBuffer, buffer.getTimestamp());
+            PD.putPageAddress(_writeBuffer, buffer.getPageAddress());
+            PD.putBufferSize(_writeBuffer, buffer.getBufferSize());
+            PD.putBaseAddress(_writeBuffer, delta._base._address);
+            delta._appended = true;
+            _pageDeltaCount++;
+        } else if (compressed != null) {
+            headerSize = PZ.OVERHEAD;
+            recordSize = PZ.OVERHEAD + compressed._size;
+            Debug.$assert1.t(_writeBuffer.remaining() >= recordSize);
+            JournalRecord.putLength(_writeBuffer, recordSize);
+            PZ.putVolumeHandle(_writeBuffer, handle);
+            PZ.putType(_writeBuffer);
+            JournalRecord.putTimestamp(_writeBuffer, buffer.isTemporary() ? -1 : buffer.getTimestamp());
+            PZ.putLeftSize(_writeBuffer, leftSize);
+            PZ.putBufferSize(_writeBuffer, buffer.getBufferSize());
+            PZ.putPageAddress(_writeBuffer, buffer.getPageAddress());
+            PZ.putImageSize(_writeBuffer, leftSize + rightSize);
+            PZ.putCodec(_writeBuffer, compressed._codec);
+            _compressedRecordCount++;
+            _compressionSavings += PA.OVERHEAD + leftSize + rightSize - recordSize;
+        } else {
+            headerSize = PA.OVERHEAD;
+            recordSize = PA.OVERHEAD + leftSize + rightSize;
+            Debug.$assert1.t(_writeBuffer.remaining() >= recordSize);
             JournalRecord.putLength(_writeBuffer, recordSize);
             PA.putVolumeHandle(_writeBuffer, handle);
             PA.putType(_writeBuffer);
@@ -1102,35 +1632,300 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             PA.putLeftSize(_writeBuffer, leftSize);
             PA.putBufferSize(_writeBuffer, buffer.getBufferSize());
             PA.putPageAddress(_writeBuffer, buffer.getPageAddress());
-            advance(PA.OVERHEAD);
+        }
 
-            if (leftSize > 0) {
-                _writeBuffer.put(buffer.getBytes(), 0, leftSize);
-                _writeBuffer.put(buffer.getBytes(), buffer.getBufferSize() - rightSize, rightSize);
+        final PageNode pageNode = new PageNode(handle, buffer.getPageAddress(), address, buffer.getTimestamp());
+        _pageList.add(pageNode);
+        PageNode oldPageNode = _pageMap.put(pageNode);
+
+        if (oldPageNode != null) {
+            assert oldPageNode.getTimestamp() <= pageNode.getTimestamp();
+        }
+        final long checkpointTimestamp = _persistit.getTimestampAllocator().getProposedCheckpointTimestamp();
+        if (oldPageNode != null && oldPageNode.getTimestamp() > checkpointTimestamp
+                && buffer.getTimestamp() > checkpointTimestamp) {
+            oldPageNode.invalidate();
+            oldPageNode = oldPageNode.getPrevious();
+        }
+        pageNode.setPrevious(oldPageNode);
+        _writePageCount++;
+        /*
+         * Reserve last: nothing may fail between the reservation and the
+         * copyPage call that completes it.
+         */
+        return reserve(headerSize, recordSize);
+    }
+
+    /**
+     * Copy the page image of a PA record, the ranges of a PD record or the
+     * compressed image of a PZ record into the space reserved for it by
+     * {@link #appendPage}. A page image written in full becomes the base image
+     * for subsequent PD records. The monitor need not be held.
+     * 
+     * @param buffer
+     * @param target
+     * @param handle
+     *            handle of the buffer's Volume
+     * @param address
+     *            journal address of the record
+     * @param delta
+     *            the PageDelta supplied to appendPage
+     * @param compressed
+     *            the CompressedPage supplied to appendPage
+     */
+    private void copyPage(final Buffer buffer, final ByteBuffer target, final int handle, final long address,
+            final PageDelta delta, final CompressedPage compressed) {
+        final boolean appended = delta != null && delta._appended;
+        try {
+            if (appended) {
+                target.put(delta._payload, 0, delta._size);
+            } else if (compressed != null) {
+                target.put(compressed._bytes, 0, compressed._size);
+            } else if (buffer.isDataPage() || buffer.isIndexPage() || buffer.isGarbagePage()) {
+                target.put(buffer.getBytes(), 0, buffer.getKeyBlockEnd());
+                target.put(buffer.getBytes(), buffer.getAlloc(), buffer.getBufferSize() - buffer.getAlloc());
             } else {
-                _writeBuffer.put(buffer.getBytes());
+                target.put(buffer.getBytes());
+            }
+            Debug.$assert0.t(target.remaining() == 0);
+        } finally {
+            completeAppend();
+        }
+        if (!appended && isDeltaCandidate(buffer)) {
+            putDeltaBase(buffer, handle, address);
+        }
+    }
+
+    /**
+     * @param size
+     *            number of bytes to be compressed
+     * @param extraOverhead
+     *            number of bytes by which the compressed record's header
+     *            exceeds the uncompressed record's
+     * @return maximum size of the compressed bytes for compression to be
+     *         worthwhile: it must save at least an eighth of the bytes
+     */
+    private static int compressionLimit(final int size, final int extraOverhead) {
+        return size - size / 8 - extraOverhead;
+    }
+
+    /**
+     * Compress the page image of a PA record. The caller must hold the buffer,
+     * and need not hold the monitor.
+     * 
+     * @param buffer
+     * @param delta
+     *            the page's PageDelta; the page is not compressed if it is
+     *            likely to be written as a PD record
+     * @return the CompressedPage, or <code>null</code> if compression is
+     *         disabled or does not make the record sufficiently smaller
+     */
+    private CompressedPage compressPage(final Buffer buffer, final PageDelta delta) {
+        final JournalCodec codec = _codec;
+        final int imageSize = pageImageSize(buffer);
+        if (codec == null || imageSize < MINIMUM_COMPRESSIBLE_SIZE || delta != null
+                && delta._base._address / _blockSize == _currentAddress / _blockSize) {
+            return null;
+        }
+        final byte[] bytes = buffer.getBytes();
+        final byte[] image;
+        if (imageSize == buffer.getBufferSize()) {
+            image = bytes;
+        } else {
+            final int keyBlockEnd = buffer.getKeyBlockEnd();
+            final int alloc = buffer.getAlloc();
+            image = _pageImageBuffers.get();
+            System.arraycopy(bytes, 0, image, 0, keyBlockEnd);
+            System.arraycopy(bytes, alloc, image, keyBlockEnd, buffer.getBufferSize() - alloc);
+        }
+        final byte[] target = new byte[compressionLimit(imageSize, PZ.OVERHEAD - PA.OVERHEAD)];
+        final int size = codec.compress(image, 0, imageSize, target, 0, target.length);
+        return size < 0 ? null : new CompressedPage(target, size, codec.getId());
+    }
+
+    private static long deltaKey(final int handle, final long page) {
+        return ((long) handle << 48) ^ page;
+    }
+
+    /**
+     * @param buffer
+     * @return whether images of the page may be written as PD records
+     */
+    private boolean isDeltaCandidate(final Buffer buffer) {
+        return _deltaPages > 0 && !buffer.isTemporary() && (buffer.isDataPage() || buffer.isIndexPage());
+    }
+
+    /**
+     * Byte of the page at the supplied offset as written in a PA record and
+     * restored by {@link #readPageBufferFromJournal}: the free space between
+     * the key block and the allocated tail reads as zero.
+     */
+    private static byte imageByte(final byte[] bytes, final int offset, final int keyBlockEnd, final int alloc) {
+        return offset >= keyBlockEnd && offset < alloc ? 0 : bytes[offset];
+    }
+
+    /**
+     * Retain the image of a page just written in full as the base for PD
+     * records of its later versions. The caller must hold the buffer.
+     * 
+     * @param buffer
+     * @param handle
+     * @param address
+     *            journal address of the page's PA record
+     */
+    private void putDeltaBase(final Buffer buffer, final int handle, final long address) {
+        final Long key = Long.valueOf(deltaKey(handle, buffer.getPageAddress()));
+        final int bufferSize = buffer.getBufferSize();
+        final int keyBlockEnd = buffer.getKeyBlockEnd();
+        final int alloc = buffer.getAlloc();
+        DeltaBase previous;
+        synchronized (_deltaBases) {
+            previous = _deltaBases.get(key);
+        }
+        /*
+         * Only this thread can be using the previous image of the same page,
+         * so its array can be reused.
+         */
+        final byte[] image = previous != null && previous._image.length == bufferSize
+                && previous._page == buffer.getPageAddress() ? previous._image : new byte[bufferSize];
+        System.arraycopy(buffer.getBytes(), 0, image, 0, keyBlockEnd);
+        Arrays.fill(image, keyBlockEnd, alloc, (byte) 0);
+        System.arraycopy(buffer.getBytes(), alloc, image, alloc, bufferSize - alloc);
+        synchronized (_deltaBases) {
+            _deltaBases.put(key, new DeltaBase(handle, buffer.getPageAddress(), address, image));
+        }
+    }
+
+    /**
+     * Compute the payload of a PD record holding the ranges of bytes in which
+     * a page differs from its base image. Ranges separated by fewer bytes
+     * than a range header are merged. The caller must hold the buffer, and
+     * need not hold the monitor.
+     * 
+     * @param buffer
+     * @param handle
+     *            handle of the buffer's Volume
+     * @return the PageDelta, or <code>null</code> if the page has no base
+     *         image or if the PD record's payload would exceed half the size
+     *         of a PA record's
+     */
+    private PageDelta pageDelta(final Buffer buffer, final int handle) {
+        if (!isDeltaCandidate(buffer)) {
+            return null;
+        }
+        final long page = buffer.getPageAddress();
+        final DeltaBase base;
+        synchronized (_deltaBases) {
+            base = _deltaBases.get(Long.valueOf(deltaKey(handle, page)));
+        }
+        final int bufferSize = buffer.getBufferSize();
+        if (base == null || base._handle != handle || base._page != page || base._image.length != bufferSize) {
+            return null;
+        }
+        final byte[] bytes = buffer.getBytes();
+        final byte[] image = base._image;
+        final int keyBlockEnd = buffer.getKeyBlockEnd();
+        final int alloc = buffer.getAlloc();
+        final byte[] payload = new byte[pageImageSize(buffer) / 2];
+        int size = 0;
+        int offset = 0;
+        while (offset < bufferSize) {
+            if (imageByte(bytes, offset, keyBlockEnd, alloc) == image[offset]) {
+                offset++;
+                continue;
+            }
+            final int start = offset;
+            int end = offset + 1;
+            for (offset = end; offset < bufferSize && offset - end <= PD.RANGE_OVERHEAD; offset++) {
+                if (imageByte(bytes, offset, keyBlockEnd, alloc) != image[offset]) {
+                    end = offset + 1;
+                }
+            }
+            if (size + PD.RANGE_OVERHEAD + end - start > payload.length) {
+                return null;
             }
-            Debug.$assert0.t(_writeBuffer.position() - position == recordSize);
-            _currentAddress += recordSize - PA.OVERHEAD;
+            Util.putChar(payload, size, start);
+            Util.putChar(payload, size + 2, end - start);
+            size += PD.RANGE_OVERHEAD;
+            for (int index = start; index < end; index++) {
+                payload[size++] = imageByte(bytes, index, keyBlockEnd, alloc);
+            }
+            offset = end;
+        }
+        return new PageDelta(base, payload, size);
+    }
 
-            final PageNode pageNode = new PageNode(handle, buffer.getPageAddress(), address, buffer.getTimestamp());
-            _pageList.add(pageNode);
-            PageNode oldPageNode = _pageMap.put(pageNode, pageNode);
+    /**
+     * Reserve space in the write buffer for a record whose header has just
+     * been written at the current position, and advance past the entire
+     * record. The remainder of the record is copied into the returned view of
+     * the write buffer after the caller has released the monitor, which lets
+     * other threads append their records concurrently; the copying thread
+     * then calls {@link #completeAppend()}. The write buffer is not written or
+     * read until every reserved record is complete; see
+     * {@link #awaitAppends()}. The caller must do nothing that can fail
+     * between this call and the one that completes the record.
+     * 
+     * @param headerSize
+     * @param recordSize
+     * @return view of the write buffer positioned after the header and
+     *         limited to the end of the record
+     */
+    private ByteBuffer reserve(final int headerSize, final int recordSize) {
+        assert Thread.holdsLock(this);
+        final int position = _writeBuffer.position();
+        final ByteBuffer target = _writeBuffer.duplicate();
+        target.limit(position + recordSize);
+        target.position(position + headerSize);
+        advance(recordSize);
+        _pendingAppends.incrementAndGet();
+        return target;
+    }
 
-            if (oldPageNode != null) {
-                assert oldPageNode.getTimestamp() <= pageNode.getTimestamp();
+    /**
+     * Mark a record reserved by {@link #reserve(int, int)} complete, and wake
+     * the thread waiting in {@link #awaitAppends()} if it was the last one.
+     */
+    private void completeAppend() {
+        if (_pendingAppends.decrementAndGet() == 0) {
+            final Thread waiter = _appendsWaiter;
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
             }
-            final long checkpointTimestamp = _persistit.getTimestampAllocator().getProposedCheckpointTimestamp();
-            if (oldPageNode != null && oldPageNode.getTimestamp() > checkpointTimestamp
-                    && buffer.getTimestamp() > checkpointTimestamp) {
-                oldPageNode.invalidate();
-                oldPageNode = oldPageNode.getPrevious();
+        }
+    }
+
+    /**
+     * Wait for records reserved by {@link #reserve(int, int)} to be copied
+     * into the write buffer. The copying threads do not need the monitor, so
+     * no new reservation can be made and the wait is normally bounded by the
+     * time needed to copy a page image. The thread parks until the last
+     * record is completed, and gives up after
+     * {@link SharedResource#DEFAULT_MAX_WAIT_TIME} milliseconds rather than
+     * holding the monitor indefinitely.
+     * 
+     * @throws IllegalStateException
+     *             if the records are not completed in time
+     */
+    private void awaitAppends() {
+        assert Thread.holdsLock(this);
+        if (_pendingAppends.get() == 0) {
+            return;
+        }
+        final long expiration = System.nanoTime() + SharedResource.DEFAULT_MAX_WAIT_TIME * NS_PER_MS;
+        _appendsWaiter = Thread.currentThread();
+        try {
+            while (_pendingAppends.get() > 0) {
+                final long remaining = expiration - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IllegalStateException(_pendingAppends.get() + " journal records reserved in " + this
+                            + " were not completed within " + SharedResource.DEFAULT_MAX_WAIT_TIME + "ms");
+                }
+                LockSupport.parkNanos(this, Math.min(remaining, NS_PER_MS));
             }
-            pageNode.setPrevious(oldPageNode);
-            _writePageCount++;
+        } finally {
+            _appendsWaiter = null;
         }
-        _persistit.getIOMeter().chargeWritePageToJournal(volume, buffer.getPageAddress(), buffer.getBufferSize(),
-                _currentAddress - recordSize, urgency(), buffer.getIndex());
     }
 
     /**
@@ -1184,6 +1979,10 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
      * process find efficiently all the updates of a transaction that needs to
      * be rolled back.
      * </p>
+     * <p>
+     * If a {@link JournalCodec} is configured and it reduces the size of the
+     * update records, they are written in compressed form as a TZ record.
+     * </p>
      * 
      * @param buffer
      *            The buffer containing the update records
@@ -1199,25 +1998,64 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
      * @return
      * @throws PersistitException
      */
-    synchronized long writeTransactionToJournal(final ByteBuffer buffer, final long startTimestamp,
-            final long commitTimestamp, final long backchainAddress) throws PersistitException {
-        final int recordSize = TX.OVERHEAD + buffer.position();
-        prepareWriteBuffer(recordSize);
-        final long address = _currentAddress;
-        TX.putLength(_writeBuffer, recordSize);
-        TX.putType(_writeBuffer);
-        TX.putTimestamp(_writeBuffer, startTimestamp);
-        TX.putCommitTimestamp(_writeBuffer, commitTimestamp);
-        TX.putBackchainAddress(_writeBuffer, backchainAddress);
-        _persistit.getIOMeter().chargeWriteTXtoJournal(recordSize, _currentAddress);
-        advance(TX.OVERHEAD);
+    long writeTransactionToJournal(final ByteBuffer buffer, final long startTimestamp, final long commitTimestamp,
+            final long backchainAddress) throws PersistitException {
+        final JournalCodec codec = _codec;
+        final int updatesSize = buffer.position();
+        byte[] compressed = null;
+        int compressedSize = -1;
+        if (codec != null && updatesSize >= MINIMUM_COMPRESSIBLE_SIZE) {
+            compressed = _compressedTransactionBuffers.get();
+            compressedSize = codec.compress(buffer.array(), 0, updatesSize, compressed, 0,
+                    compressionLimit(updatesSize, TZ.OVERHEAD - TX.OVERHEAD));
+        }
+        final int recordSize = compressedSize < 0 ? TX.OVERHEAD + updatesSize : TZ.OVERHEAD + compressedSize;
+        final long address;
+        final int headerSize;
+        final ByteBuffer target;
+        synchronized (this) {
+            prepareWriteBuffer(recordSize);
+            address = _currentAddress;
+            if (compressedSize < 0) {
+                TX.putLength(_writeBuffer, recordSize);
+                TX.putType(_writeBuffer);
+                TX.putTimestamp(_writeBuffer, startTimestamp);
+                TX.putCommitTimestamp(_writeBuffer, commitTimestamp);
+                TX.putBackchainAddress(_writeBuffer, backchainAddress);
+                headerSize = TX.OVERHEAD;
+            } else {
+                TZ.putLength(_writeBuffer, recordSize);
+                TZ.putType(_writeBuffer);
+                TZ.putTimestamp(_writeBuffer, startTimestamp);
+                TZ.putCommitTimestamp(_writeBuffer, commitTimestamp);
+                TZ.putBackchainAddress(_writeBuffer, backchainAddress);
+                TZ.putUpdatesSize(_writeBuffer, updatesSize);
+                TZ.putCodec(_writeBuffer, codec.getId());
+                headerSize = TZ.OVERHEAD;
+                _compressedRecordCount++;
+                _compressionSavings += TX.OVERHEAD + updatesSize - recordSize;
+            }
+            recordTransaction(address, startTimestamp, commitTimestamp, backchainAddress);
+            target = reserve(headerSize, recordSize);
+        }
         try {
-            buffer.flip();
-            _writeBuffer.put(buffer);
+            _persistit.getIOMeter().chargeWriteTXtoJournal(recordSize, address);
+            if (compressedSize < 0) {
+                buffer.flip();
+                target.put(buffer);
+            } else {
+                target.put(compressed, 0, compressedSize);
+            }
         } finally {
             buffer.clear();
+            completeAppend();
         }
-        _currentAddress += recordSize - TX.OVERHEAD;
+        return address;
+    }
+
+    private void recordTransaction(final long address, final long startTimestamp, final long commitTimestamp,
+            final long backchainAddress) {
+        assert Thread.holdsLock(this);
         if (commitTimestamp != ABORTED) {
             final long key = Long.valueOf(startTimestamp);
             TransactionMapItem item = _liveTransactionMap.get(key);
@@ -1239,7 +2077,6 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             }
             item.setCommitTimestamp(commitTimestamp);
         }
-        return address;
     }
 
     static File journalPath(final String path) {
@@ -1288,6 +2125,17 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         _writeBufferSize = size;
     }
 
+    /**
+     * Set the number of write buffers. Takes effect when the journal is
+     * initialized.
+     * 
+     * @param count
+     */
+    void setWriteBufferCount(final int count) {
+        Util.rangeCheck(count, MINIMUM_WRITE_BUFFER_COUNT, MAXIMUM_WRITE_BUFFER_COUNT);
+        _writeBufferCount = count;
+    }
+
     public void close() throws PersistitException {
         _closed.set(true);
         rollover();
@@ -1296,6 +2144,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         _copier = null;
         if (copier != null) {
             _persistit.waitForIOTaskStop(copier);
+            copier.shutdownWorkers();
         }
 
         final JournalFlusher flusher = _flusher;
@@ -1317,8 +2166,14 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                 _pageMap.clear();
                 _pageList.clear();
                 _writeBuffer = null;
+                _sealedBuffers.clear();
+                _freeWriteBuffers.clear();
             }
         }
+        synchronized (_deltaBases) {
+            _deltaBases.clear();
+        }
+        JournalCodec.releaseAll();
     }
 
     private void closeAllChannels() throws IOException {
@@ -1343,6 +2198,9 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     void crash() throws IOException {
         IOTaskRunnable.crash(_flusher);
         IOTaskRunnable.crash(_copier);
+        if (_copier != null) {
+            _copier.shutdownWorkers();
+        }
         //
         // Even when simulating a crash do this to release
         // channels and therefore allow disk space to be returned to
@@ -1352,84 +2210,129 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     }
 
     /**
-     * Flushes the write buffer
+     * Flushes the write buffer and waits until it and any previously filled
+     * write buffer have been written to the journal file.
+     * 
+     * @return the address up to which the journal has been written, or
+     *         {@link Long#MAX_VALUE} if there was nothing to write
+     * @throws PersistitException
+     */
+    long flush() throws PersistitException {
+        final boolean sealed = seal();
+        final boolean written = writeSealedBuffers();
+        return sealed || written ? _writtenAddress : Long.MAX_VALUE;
+    }
+
+    /**
+     * Hand the current write buffer, if it holds any records, to the queue of
+     * buffers waiting to be written and continue in the next buffer of the
+     * ring. Blocks only if no buffer of the ring is free, in which case the
+     * waiting buffers are written by the calling thread.
+     * 
+     * @return <code>true</code> if a buffer was sealed
+     * @throws PersistitException
+     */
+    private synchronized boolean seal() throws PersistitException {
+        _persistit.checkFatal();
+        awaitAppends();
+        final long address = _writeBufferAddress;
+        if (address == Long.MAX_VALUE || _writeBuffer == null || _writeBuffer.position() == 0) {
+            return false;
+        }
+        assert _writeBufferAddress + _writeBuffer.position() == _currentAddress : String.format(
+                "writeBufferAddress=%,d position=%,d currentAddress=%,d", _writeBufferAddress,
+                _writeBuffer.position(), _currentAddress);
+
+        final FileChannel channel = getFileChannel(address);
+        final ByteBuffer next = nextWriteBuffer();
+        _writeBuffer.flip();
+        _sealedBuffers.add(new SealedBuffer(_writeBuffer, address, channel));
+        _writeBufferAddress += _writeBuffer.limit();
+        _writeBuffer = next;
+        final long remaining = _blockSize - (_writeBufferAddress % _blockSize);
+        if (remaining < _writeBuffer.limit()) {
+            _writeBuffer.limit((int) remaining);
+        }
+        return true;
+    }
+
+    private ByteBuffer nextWriteBuffer() throws PersistitException {
+        assert Thread.holdsLock(this);
+        ByteBuffer next = _freeWriteBuffers.poll();
+        if (next == null && _allocatedWriteBuffers < _writeBufferCount) {
+            _allocatedWriteBuffers++;
+            return ByteBuffer.allocateDirect(_writeBufferSize);
+        }
+        if (next == null) {
+            /*
+             * Every buffer is waiting to be written: the appenders have
+             * caught up with the JOURNAL_FLUSHER.
+             */
+            final long start = System.nanoTime();
+            _flushStallCount.incrementAndGet();
+            try {
+                writeSealedBuffers();
+            } finally {
+                _flushStallTime.addAndGet(System.nanoTime() - start);
+            }
+            next = _freeWriteBuffers.poll();
+        }
+        if (next.capacity() != _writeBufferSize) {
+            next = ByteBuffer.allocateDirect(_writeBufferSize);
+        }
+        next.clear();
+        return next;
+    }
+
+    /**
+     * Write the sealed buffers to the journal file in address order. Each is
+     * returned to the ring once it has been written completely; if a write
+     * fails, the unwritten remainder stays at the head of the queue and is
+     * written by the next call.
      * 
-     * @throws PersistitException
+     * @return <code>true</code> if any bytes were written
+     * @throws PersistitIOException
+     * @throws CorruptJournalException
      */
-    synchronized long flush() throws PersistitException {
-        _persistit.checkFatal();
-        final long address = _writeBufferAddress;
-        if (address != Long.MAX_VALUE && _writeBuffer != null) {
-
-            assert _writeBufferAddress + _writeBuffer.position() == _currentAddress : String.format(
-                    "writeBufferAddress=%,d position=%,d currentAddress=%,d", _writeBufferAddress,
-                    _writeBuffer.position(), _currentAddress);
-
-            try {
-                if (_writeBuffer.position() > 0) {
-                    final FileChannel channel = getFileChannel(address);
-                    final long size = channel.size();
+    private boolean writeSealedBuffers() throws PersistitIOException, CorruptJournalException {
+        boolean written = false;
+        synchronized (_writeLock) {
+            SealedBuffer sealed;
+            while ((sealed = _sealedBuffers.peek()) != null) {
+                final ByteBuffer bb = sealed._buffer;
+                final long address = sealed._address + bb.position();
+                try {
+                    final long size = sealed._channel.size();
                     if (size < addressToOffset(address)) {
                         throw new CorruptJournalException(String.format(
                                 "Journal file %s size %,d does not match current address %,d", addressToFile(address),
                                 size, address));
                     }
-
-                    _writeBuffer.flip();
-                    boolean writeComplete = false;
-                    final int written;
-                    try {
+                    while (bb.hasRemaining()) {
                         /*
                          * Note: contract for FileChannel requires write to
                          * return normally only when all bytes have been
                          * written. (See java.nio.channels.WritableByteChannel
                          * #write(ByteBuffer), statement
-                         * "Unless otherwise specified...")
+                         * "Unless otherwise specified...") Surprise:
+                         * FileChannel#write does not throw an Exception if it
+                         * successfully writes some bytes and then encounters
+                         * a disk full condition. (Found this out empirically.)
+                         * Therefore write again until an Exception is thrown.
                          */
-                        channel.write(_writeBuffer, _writeBufferAddress % _blockSize);
-                        /*
-                         * Surprise: FileChannel#write does not throw an
-                         * Exception if it successfully writes some bytes and
-                         * then encounters a disk full condition. (Found this
-                         * out empirically.)
-                         */
-                        writeComplete = _writeBuffer.remaining() == 0;
-                    } finally {
-                        written = _writeBuffer.position();
-                        _writeBufferAddress += written;
-                        if (writeComplete) {
-                            if (_writeBuffer.capacity() != _writeBufferSize) {
-                                _writeBuffer = ByteBuffer.allocate(_writeBufferSize);
-                            } else {
-                                _writeBuffer.clear();
-                            }
-                        } else {
-                            /*
-                             * If the buffer didn't get written, perhaps due to
-                             * an interrupt or disk-full condition, then compact
-                             * to remove any bytes from the buffer that actually
-                             * did get written and reset other measurements.
-                             */
-                            _writeBuffer.compact();
-                        }
-                        final long remaining = _blockSize - (_writeBufferAddress % _blockSize);
-                        if (remaining < (_writeBuffer.limit())) {
-                            _writeBuffer.limit((int) remaining);
-                        }
+                        final int count = sealed._channel.write(bb, addressToOffset(sealed._address + bb.position()));
+                        _writtenAddress += count;
+                        written |= count > 0;
+                        _persistit.getIOMeter().chargeFlushJournal(count, address);
                     }
-
-                    assert _writeBufferAddress + _writeBuffer.position() == _currentAddress : String.format(
-                            "writeBufferAddress=%,d position=%,d currentAddress=%,d", _writeBufferAddress,
-                            _writeBuffer.position(), _currentAddress);
-
-                    _persistit.getIOMeter().chargeFlushJournal(written, address);
-                    return _writeBufferAddress;
+                } catch (final IOException e) {
+                    throw new PersistitIOException("Writing to file " + addressToFile(address), e);
                 }
-            } catch (final IOException e) {
-                throw new PersistitIOException("Writing to file " + addressToFile(address), e);
+                _sealedBuffers.poll();
+                _freeWriteBuffers.add(bb);
             }
         }
-        return Long.MAX_VALUE;
+        return written;
     }
 
     /**
@@ -1467,6 +2370,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         if (getCurrentJournalSize() == 0) {
             flush();
             _writeBufferAddress = _currentAddress;
+            _writtenAddress = _currentAddress;
             startJournalFile();
             newJournalFile = true;
         }
@@ -1481,8 +2385,15 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             return newJournalFile;
         }
         //
-        // Otherwise, flush the write buffer and try again
-        flush();
+        // Otherwise, hand the write buffer to the JOURNAL_FLUSHER and try
+        // again in the next one
+        //
+        if (seal()) {
+            final JournalFlusher flusher = _flusher;
+            if (flusher != null) {
+                flusher.kick();
+            }
+        }
 
         if (_writeBuffer.remaining() > size + JE.OVERHEAD) {
             return newJournalFile;
@@ -1541,6 +2452,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             _currentAddress = ((_currentAddress / _blockSize) + 1) * _blockSize;
             _writeBuffer.clear();
             _writeBufferAddress = _currentAddress;
+            _writtenAddress = _currentAddress;
             _isNewEpoch = false;
 
             if (setBaseAddress) {
@@ -1699,10 +2611,15 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         // than the checkpoint. Generally all such entries are removed after
         // the first checkpoint that has been established after recovery.
         //
-        for (final Iterator<PageNode> iterator = _branchMap.values().iterator(); iterator.hasNext();) {
-            final PageNode pageNode = iterator.next();
-            if (pageNode.getTimestamp() < recoveryTimestamp) {
-                iterator.remove();
+        if (!_branchMap.isEmpty()) {
+            final List<PageNode> obsolete = new ArrayList<PageNode>();
+            for (final PageNode pageNode : _branchMap.values()) {
+                if (pageNode.getTimestamp() < recoveryTimestamp) {
+                    obsolete.add(pageNode);
+                }
+            }
+            for (final PageNode pageNode : obsolete) {
+                _branchMap.remove(pageNode);
             }
         }
 
@@ -1811,12 +2728,119 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             throws PersistitException {
         final JournalFlusher flusher = _flusher;
         if (flusher != null) {
-            flusher.waitForDurability(flushedTimestamp, leadTime, stallTime);
+            flusher.waitForDurability(flushedTimestamp, leadTime, stallTime * NS_PER_MS);
+        } else {
+            throw new IllegalStateException("JOURNAL_FLUSHER is not running");
+        }
+    }
+
+    /**
+     * @return timestamp taken when the JOURNAL_FLUSHER began its current or
+     *         most recent I/O cycle; read by the replica of the former polling
+     *         commit wait in CommitWaitBenchmark
+     */
+    long getFlushStartTimestamp() {
+        final JournalFlusher flusher = _flusher;
+        return flusher == null ? 0 : flusher._startTimestamp;
+    }
+
+    /**
+     * @return timestamp taken when the JOURNAL_FLUSHER finished its most
+     *         recent I/O cycle
+     */
+    long getFlushEndTimestamp() {
+        final JournalFlusher flusher = _flusher;
+        return flusher == null ? 0 : flusher._endTimestamp;
+    }
+
+    /**
+     * Start a JOURNAL_FLUSHER I/O cycle without waiting for its interval to
+     * elapse.
+     */
+    void kickFlusher() {
+        final JournalFlusher flusher = _flusher;
+        if (flusher != null) {
+            flusher.kick();
+        }
+    }
+
+    /**
+     * Wait for durability on behalf of a transaction committed with the
+     * ADAPTIVE CommitPolicy. The caller waits up to the current commit window
+     * for other commits to join the flush cycle that will make its own commit
+     * durable; see {@link #adjustCommitWindow(long)}.
+     * 
+     * @param flushedTimestamp
+     *            a timestamp taken after the transaction buffer belonging to
+     *            the current transaction has been flushed.
+     * @throws PersistitException
+     */
+    void waitForAdaptiveDurability(final long flushedTimestamp) throws PersistitException {
+        final JournalFlusher flusher = _flusher;
+        if (flusher != null) {
+            final long start = System.nanoTime();
+            flusher.waitForDurability(flushedTimestamp, 0, _commitWindow);
+            final int sample = _commitLatencyCount.getAndIncrement();
+            _commitLatencies[sample & (COMMIT_LATENCY_SAMPLES - 1)] = System.nanoTime() - start;
         } else {
             throw new IllegalStateException("JOURNAL_FLUSHER is not running");
         }
     }
 
+    /**
+     * <p>
+     * Resize the commit window used by the ADAPTIVE CommitPolicy. Called by
+     * the JOURNAL_FLUSHER after each flush cycle; the window changes once
+     * every {@value #COMMIT_LATENCY_SAMPLES} ADAPTIVE commits.
+     * </p>
+     * <p>
+     * The window is the time in which, at the arrival rate of ADAPTIVE
+     * commits measured since the last adjustment, {@value #COMMIT_WINDOW_ARRIVALS}
+     * more commits are expected to arrive and share the flush cycle; waiting
+     * longer would mostly delay commits that have already arrived. A commit
+     * waits at most the window, then the flush cycle itself, and possibly a
+     * cycle already in progress, so the window is never wider than the
+     * latency target less two expected I/O times. The window is zero while
+     * flush cycles make only one commit durable each, because commits then
+     * arrive too slowly for waiting to be useful, and it is halved whenever
+     * the 99th percentile of recent latencies misses the target.
+     * </p>
+     * 
+     * @param expectedIoTime
+     *            average duration of recent flush cycles in nanoseconds
+     */
+    void adjustCommitWindow(final long expectedIoTime) {
+        final int count = _commitLatencyCount.get();
+        final long commits = count - _adjustedLatencyCount;
+        if (commits < COMMIT_LATENCY_SAMPLES) {
+            return;
+        }
+        _adjustedLatencyCount = count;
+        final long[] latencies = _commitLatencies.clone();
+        Arrays.sort(latencies);
+        final long p99 = latencies[COMMIT_LATENCY_SAMPLES * 99 / 100];
+
+        final long now = System.nanoTime();
+        final long cycles = _totalFlushCycles.get() - _adjustedFlushCycles;
+        final long elapsed = now - _adjustedTime;
+        _adjustedFlushCycles += cycles;
+        _adjustedTime = now;
+        final double batchSize = (double) commits / Math.max(1, cycles);
+
+        final long target = _commitLatencyTarget * NS_PER_MS;
+        final long limit = Math.max(0, target - 2 * expectedIoTime);
+        long window;
+        if (p99 > target) {
+            window = _commitWindow / 2;
+        } else if (batchSize < 2) {
+            window = 0;
+        } else {
+            window = elapsed / commits * COMMIT_WINDOW_ARRIVALS;
+        }
+        _commitWindow = Math.min(window, limit);
+        _commitBatchSize = batchSize;
+    }
+
     public static class TreeDescriptor {
 
         final int _volumeHandle;
@@ -2146,8 +3170,9 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     private class JournalCopier extends IOTaskRunnable {
 
         private volatile boolean _shouldStop = false;
-        private final ByteBuffer _bb = ByteBuffer.allocate(DEFAULT_COPY_BUFFER_SIZE);
         private final List<PageNode> _copyList = new ArrayList<PageNode>(_copiesPerCycle);
+        private final List<CopyTask> _tasks = new ArrayList<CopyTask>();
+        private volatile ThreadPoolExecutor _executor;
         int _lastCyclePagesWritten;
 
         JournalCopier() {
@@ -2167,10 +3192,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                 if (!_appendOnly.get()) {
                     selectForCopy(_copyList);
                     if (!_copyList.isEmpty()) {
-                        readForCopy(_copyList, _bb);
-                    }
-                    if (!_copyList.isEmpty()) {
-                        writeForCopy(_copyList, _bb);
+                        copyPages(_copyList);
                     }
                 }
                 cleanupForCopy(_copyList);
@@ -2197,6 +3219,93 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
         }
 
+        /**
+         * Copy the selected pages using up to {@link #getCopierThreads()}
+         * threads. The calling thread copies the first partition (see
+         * {@link JournalManager#partitionForCopy(List, int)}) and the others
+         * are copied by worker threads. On return the list contains the pages
+         * that were copied.
+         */
+        private void copyPages(final List<PageNode> list) throws Exception {
+            final List<List<PageNode>> partitions = partitionForCopy(list, _copierThreads);
+            while (_tasks.size() < partitions.size()) {
+                _tasks.add(new CopyTask());
+            }
+            if (partitions.size() == 1) {
+                _tasks.get(0).copy(list);
+                return;
+            }
+            //
+            // A Volume divided into regions is extended here rather than
+            // concurrently by the threads that write them.
+            //
+            for (final List<PageNode> partition : partitions) {
+                final PageNode last = partition.get(partition.size() - 1);
+                final Volume volume = lookupVolumeHandle(last.getVolumeHandle());
+                if (volume != null && volume.isOpened()) {
+                    volume.getStorage().extend(last.getPageAddress());
+                }
+            }
+            final ThreadPoolExecutor executor = executor(partitions.size() - 1);
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int index = 1; index < partitions.size(); index++) {
+                futures.add(executor.submit(_tasks.get(index).bind(partitions.get(index))));
+            }
+            Exception exception = null;
+            try {
+                _tasks.get(0).copy(partitions.get(0));
+            } catch (final Exception e) {
+                exception = e;
+            }
+            for (final Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException e) {
+                    if (exception == null) {
+                        exception = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                }
+            }
+            if (exception != null) {
+                throw exception;
+            }
+            list.clear();
+            for (final List<PageNode> partition : partitions) {
+                list.addAll(partition);
+            }
+        }
+
+        private ThreadPoolExecutor executor(final int threads) {
+            ThreadPoolExecutor executor = _executor;
+            if (executor == null || executor.getCorePoolSize() < threads) {
+                if (executor != null) {
+                    executor.shutdown();
+                }
+                final AtomicInteger counter = new AtomicInteger();
+                executor = new ThreadPoolExecutor(threads, threads, COPIER_THREAD_KEEP_ALIVE_SECONDS,
+                        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                            @Override
+                            public Thread newThread(final Runnable runnable) {
+                                final Thread thread = new Thread(runnable, "JOURNAL_COPIER_"
+                                        + counter.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+                executor.allowCoreThreadTimeOut(true);
+                _executor = executor;
+            }
+            return executor;
+        }
+
+        void shutdownWorkers() {
+            final ThreadPoolExecutor executor = _executor;
+            _executor = null;
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+
         @Override
         protected boolean shouldStop() {
             return _closed.get() || _shouldStop;
@@ -2235,8 +3344,222 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         }
     }
 
+    /**
+     * Reads and writes one partition of the pages selected by a copier cycle.
+     * Each task owns the buffers it uses so that partitions can be copied
+     * concurrently.
+     */
+    private class CopyTask implements Callable<Void> {
+
+        private final ByteBuffer _bb = ByteBuffer.allocate(DEFAULT_COPY_BUFFER_SIZE);
+        private final CopyWindow _window = new CopyWindow();
+        private List<PageNode> _list;
+
+        CopyTask bind(final List<PageNode> list) {
+            _list = list;
+            return this;
+        }
+
+        void copy(final List<PageNode> list) throws PersistitException {
+            readForCopy(list, _bb, _window);
+            if (!list.isEmpty()) {
+                writeForCopy(list, _bb);
+            }
+        }
+
+        @Override
+        public Void call() throws PersistitException {
+            copy(_list);
+            return null;
+        }
+    }
+
+    /**
+     * The image of a page as most recently written in a PA record, and the
+     * journal address of that record.
+     */
+    private static class DeltaBase {
+
+        private final int _handle;
+
+        private final long _page;
+
+        private final long _address;
+
+        private final byte[] _image;
+
+        private DeltaBase(final int handle, final long page, final long address, final byte[] image) {
+            _handle = handle;
+            _page = page;
+            _address = address;
+            _image = image;
+        }
+    }
+
+    /**
+     * The payload of a PD record computed before the page is appended. It is
+     * written only if {@link JournalManager#appendPage} finds its base image in
+     * the current journal file; otherwise the page is written in full.
+     */
+    private static class PageDelta {
+
+        private final DeltaBase _base;
+
+        private final byte[] _payload;
+
+        private final int _size;
+
+        private boolean _appended;
+
+        private PageDelta(final DeltaBase base, final byte[] payload, final int size) {
+            _base = base;
+            _payload = payload;
+            _size = size;
+        }
+    }
+
+    /**
+     * The compressed image of a page, computed before the page is appended and
+     * written as a PZ record unless a PD record is written instead.
+     */
+    private static class CompressedPage {
+
+        private final byte[] _bytes;
+
+        private final int _size;
+
+        private final int _codec;
+
+        private CompressedPage(final byte[] bytes, final int size, final int codec) {
+            _bytes = bytes;
+            _size = size;
+            _codec = codec;
+        }
+    }
+
+    /**
+     * A contiguous range of a journal file read with a single operation. The
+     * copier reads the page images it has selected in journal address order,
+     * so nearby records are served from one read of up to
+     * {@value #COPY_WINDOW_SIZE} bytes rather than with two reads per page.
+     * Only bytes that have already been written to the journal file are read
+     * this way.
+     */
+    private class CopyWindow {
+
+        private final ByteBuffer _window = ByteBuffer.allocate(COPY_WINDOW_SIZE);
+        private long _address = -1;
+
+        void reset() {
+            _address = -1;
+        }
+
+        /**
+         * Fill the remaining bytes of the supplied buffer from the journal
+         * starting at <code>address</code>, leaving its position unchanged as
+         * {@link JournalManager#readFully(ByteBuffer, long)} does.
+         * 
+         * @return <code>false</code> if the bytes cannot be read through the
+         *         window
+         */
+        boolean read(final ByteBuffer bb, final long address) throws PersistitIOException {
+            final int length = bb.remaining();
+            if (_address < 0 || address < _address || address + length > _address + _window.limit()) {
+                if (!fill(address, length)) {
+                    return false;
+                }
+            }
+            final int position = bb.position();
+            final ByteBuffer source = _window.duplicate();
+            source.limit((int) (address - _address) + length).position((int) (address - _address));
+            bb.put(source);
+            bb.limit(bb.position());
+            bb.position(position);
+            return true;
+        }
+
+        private boolean fill(final long address, final int length) throws PersistitIOException {
+            _address = -1;
+            final long written;
+            written = _writtenAddress;
+            final long end = Math.min(Math.min(address + _window.capacity(), (address / _blockSize + 1) * _blockSize),
+                    written);
+            if (address + length > end) {
+                return false;
+            }
+            final FileChannel fc = getFileChannel(address);
+            _window.clear().limit((int) (end - address));
+            long fileAddr = addressToOffset(address);
+            try {
+                while (_window.hasRemaining()) {
+                    final int count = fc.read(_window, fileAddr);
+                    if (count < 0) {
+                        break;
+                    }
+                    fileAddr += count;
+                }
+            } catch (final IOException ioe) {
+                throw new PersistitIOException(ioe);
+            }
+            _window.flip();
+            _copyReadCount.incrementAndGet();
+            if (_window.limit() < length) {
+                return false;
+            }
+            _address = address;
+            return true;
+        }
+    }
+
+    /**
+     * A filled write buffer, flipped for writing, and the journal file it
+     * belongs to
+     */
+    private static class SealedBuffer {
+        final ByteBuffer _buffer;
+        final long _address;
+        final FileChannel _channel;
+
+        SealedBuffer(final ByteBuffer buffer, final long address, final FileChannel channel) {
+            _buffer = buffer;
+            _address = address;
+            _channel = channel;
+        }
+    }
+
+    /**
+     * A thread parked in {@link JournalFlusher#waitForDurability} until the
+     * JOURNAL_FLUSHER has forced a commit timestamp to disk, or until an I/O
+     * cycle that began too early to include it has finished. Waiters are
+     * ordered by timestamp and then by thread so that each is distinct.
+     */
+    private static class CommitWaiter implements Comparable<CommitWaiter> {
+        final long _timestamp;
+        final Thread _thread;
+        volatile boolean _awaitingIo;
+
+        CommitWaiter(final long timestamp, final Thread thread) {
+            _timestamp = timestamp;
+            _thread = thread;
+        }
+
+        @Override
+        public int compareTo(final CommitWaiter waiter) {
+            if (_timestamp != waiter._timestamp) {
+                return _timestamp < waiter._timestamp ? -1 : 1;
+            }
+            final long id = _thread.getId();
+            final long otherId = waiter._thread.getId();
+            return id < otherId ? -1 : id > otherId ? 1 : 0;
+        }
+    }
+
     private class JournalFlusher extends IOTaskRunnable {
 
+        private final ConcurrentSkipListSet<CommitWaiter> _waiters = new ConcurrentSkipListSet<CommitWaiter>();
+
+        private final AtomicInteger _ioWaiters = new AtomicInteger();
+
         volatile long _lastExceptionTimestamp = 0;
         volatile Exception _lastException = null;
 
@@ -2258,7 +3581,8 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
         /**
          * General method used to wait for durability. {@See
-         * JournalManager#waitForDurability(long, long, long)}.
+         * JournalManager#waitForDurability(long, long, long)}. Unlike that
+         * method, this one takes the stall time in nanoseconds.
          * 
          * @throws PersistitInterruptedException
          */
@@ -2270,6 +3594,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
              */
             final long now = System.nanoTime();
             long remainingStallTime = stallTime;
+            final CommitWaiter waiter = new CommitWaiter(flushedTimestamp, Thread.currentThread());
 
             while (true) {
                 /*
@@ -2335,19 +3660,20 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                      * JOURNAL_FLUSHER to write the caller's transaction.
                      */
                     if (remainingStallTime > 0) {
-                        Util.sleep(remainingStallTime);
+                        park(waiter, remainingStallTime, false, endTimestamp);
                         remainingStallTime = 0;
                     } else {
                         kick();
-                        Util.spinSleep();
+                        park(waiter, Math.max(_flushInterval, 1) * NS_PER_MS, false, endTimestamp);
                     }
                 } else {
                     /*
-                     * Otherwise wait for concurrent I/O operation to finish. Do
-                     * this by polling because our experiments with using locks
-                     * here showed significant excess CPU consumption.
+                     * Otherwise wait for concurrent I/O operation to finish.
+                     * The JOURNAL_FLUSHER unparks the waiters whose timestamps
+                     * the operation made durable and those, like this one,
+                     * that need to start another cycle.
                      */
-                    Util.spinSleep();
+                    park(waiter, Math.max(_flushInterval, 1) * NS_PER_MS, true, endTimestamp);
                 }
             }
             if (_lastExceptionTimestamp > flushedTimestamp) {
@@ -2362,6 +3688,76 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             _totalCommitWaitTime.addAndGet(System.nanoTime() - now);
         }
 
+        private boolean isDurable(final long flushedTimestamp) {
+            return _startTimestamp > flushedTimestamp && _endTimestamp > flushedTimestamp;
+        }
+
+        /**
+         * Park the current thread in the queue of waiters until
+         * {@link #releaseWaiters(long)} finds its timestamp durable, or if
+         * <code>awaitingIo</code> is set, until the I/O cycle in progress
+         * finishes, or until the timeout expires. The waiter is enqueued before
+         * <code>_endTimestamp</code> is checked, and {@link #runTask()} posts
+         * <code>_endTimestamp</code> before releasing waiters, so a wakeup
+         * cannot be lost.
+         *
+         * @param waiter
+         * @param nanos
+         *            maximum time to park, in nanoseconds
+         * @param awaitingIo
+         *            whether the waiter needs only the I/O cycle in progress
+         *            to finish
+         * @param endTimestamp
+         *            the value of <code>_endTimestamp</code> observed by the
+         *            waiter
+         * @throws PersistitInterruptedException
+         */
+        private void park(final CommitWaiter waiter, final long nanos, final boolean awaitingIo,
+                final long endTimestamp) throws PersistitInterruptedException {
+            waiter._awaitingIo = awaitingIo;
+            if (awaitingIo) {
+                _ioWaiters.incrementAndGet();
+            }
+            _waiters.add(waiter);
+            try {
+                if (!isDurable(waiter._timestamp) && (!awaitingIo || _endTimestamp == endTimestamp)) {
+                    LockSupport.parkNanos(this, nanos);
+                }
+            } finally {
+                _waiters.remove(waiter);
+                if (awaitingIo) {
+                    _ioWaiters.decrementAndGet();
+                }
+            }
+            if (Thread.interrupted()) {
+                throw new PersistitInterruptedException(new InterruptedException());
+            }
+        }
+
+        /**
+         * Unpark every waiter whose timestamp is smaller than the timestamp at
+         * which the I/O cycle that just completed began, and every waiter that
+         * was waiting for that cycle to finish.
+         *
+         * @param startTimestamp
+         */
+        private void releaseWaiters(final long startTimestamp) {
+            final boolean ioWaiters = _ioWaiters.get() > 0;
+            for (final CommitWaiter waiter : _waiters) {
+                if (waiter._timestamp >= startTimestamp) {
+                    if (!ioWaiters) {
+                        break;
+                    }
+                    if (!waiter._awaitingIo) {
+                        continue;
+                    }
+                }
+                if (_waiters.remove(waiter)) {
+                    LockSupport.unpark(waiter._thread);
+                }
+            }
+        }
+
         @Override
         protected void runTask() {
             _flushing.set(true);
@@ -2383,6 +3779,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                     } finally {
                         _endTime = System.nanoTime();
                         _endTimestamp = _persistit.getTimestampAllocator().updateTimestamp();
+                        releaseWaiters(_startTimestamp);
                     }
 
                     final long elapsed = _endTime - _startTime;
@@ -2398,6 +3795,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                     avg /= IO_MEASUREMENT_CYCLES;
 
                     _expectedIoTime = avg;
+                    adjustCommitWindow(avg);
                     if (elapsed > _slowIoAlertThreshold * NS_PER_MS) {
                         _persistit.getLogBase().longJournalIO.log(elapsed / NS_PER_MS, IO_MEASUREMENT_CYCLES, avg
                                 / NS_PER_MS);
@@ -2409,11 +3807,11 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                     } else if (e instanceof PersistitException) {
                         _persistit.getAlertMonitor().post(
                                 new Event(AlertLevel.ERROR, _persistit.getLogBase().journalWriteError, e,
-                                        addressToFile(_writeBufferAddress), addressToOffset(_writeBufferAddress)),
+                                        addressToFile(_writtenAddress), addressToOffset(_writtenAddress)),
                                 AlertMonitor.JOURNAL_CATEGORY);
                     } else {
-                        _persistit.getLogBase().journalWriteError.log(e, addressToFile(_writeBufferAddress),
-                                addressToOffset(_writeBufferAddress));
+                        _persistit.getLogBase().journalWriteError.log(e, addressToFile(_writtenAddress),
+                                addressToOffset(_writtenAddress));
                     }
                 }
             } finally {
@@ -2447,9 +3845,85 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         }
     }
 
-    void readForCopy(final List<PageNode> list, final ByteBuffer bb) throws PersistitException {
+    /**
+     * Divide the pages selected for copying into at most <code>count</code>
+     * lists that can be copied concurrently. All pages of a Volume are placed
+     * in the same list, so that each Volume is written by one thread in page
+     * address order, unless there are fewer Volumes than lists. Then the pages
+     * of the largest open Volumes are divided into ranges of page addresses of
+     * at least {@value #MINIMUM_COPY_REGION} pages.
+     * 
+     * @param list
+     *            the selected pages
+     * @param count
+     *            maximum number of lists
+     * @return the lists
+     */
+    List<List<PageNode>> partitionForCopy(final List<PageNode> list, final int count) {
+        if (count <= 1 || list.size() < 2) {
+            return Collections.singletonList(list);
+        }
+        Collections.sort(list, PageNode.WRITE_COMPARATOR);
+        final List<List<PageNode>> volumes = new ArrayList<List<PageNode>>();
+        int from = 0;
+        for (int index = 1; index <= list.size(); index++) {
+            if (index == list.size() || list.get(index).getVolumeHandle() != list.get(from).getVolumeHandle()) {
+                volumes.add(new ArrayList<PageNode>(list.subList(from, index)));
+                from = index;
+            }
+        }
+        while (volumes.size() < count) {
+            int largest = -1;
+            for (int index = 0; index < volumes.size(); index++) {
+                final List<PageNode> pages = volumes.get(index);
+                final Volume volume = lookupVolumeHandle(pages.get(0).getVolumeHandle());
+                if (pages.size() >= MINIMUM_COPY_REGION * 2 && volume != null && volume.isOpened()
+                        && (largest < 0 || pages.size() > volumes.get(largest).size())) {
+                    largest = index;
+                }
+            }
+            if (largest < 0) {
+                break;
+            }
+            final List<PageNode> pages = volumes.get(largest);
+            final int half = pages.size() / 2;
+            volumes.set(largest, new ArrayList<PageNode>(pages.subList(0, half)));
+            volumes.add(new ArrayList<PageNode>(pages.subList(half, pages.size())));
+        }
+        if (volumes.size() <= count) {
+            return volumes;
+        }
+        //
+        // More Volumes than threads: assign each Volume, largest first, to the
+        // list having the fewest pages.
+        //
+        Collections.sort(volumes, new Comparator<List<PageNode>>() {
+            @Override
+            public int compare(final List<PageNode> a, final List<PageNode> b) {
+                return b.size() - a.size();
+            }
+        });
+        final List<List<PageNode>> partitions = new ArrayList<List<PageNode>>(count);
+        for (int index = 0; index < count; index++) {
+            partitions.add(new ArrayList<PageNode>());
+        }
+        for (final List<PageNode> pages : volumes) {
+            List<PageNode> smallest = partitions.get(0);
+            for (final List<PageNode> partition : partitions) {
+                if (partition.size() < smallest.size()) {
+                    smallest = partition;
+                }
+            }
+            smallest.addAll(pages);
+        }
+        return partitions;
+    }
+
+    void readForCopy(final List<PageNode> list, final ByteBuffer bb, final CopyWindow window)
+            throws PersistitException {
         Collections.sort(list, PageNode.READ_COMPARATOR);
         bb.clear();
+        window.reset();
 
         Volume volume = null;
         int handle = -1;
@@ -2485,7 +3959,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                     iterator.remove();
                     continue;
                 }
-                pageAddress = readPageBufferFromJournal(stablePageNode, bb);
+                pageAddress = readPageBufferFromJournal(stablePageNode, bb, window);
                 _persistit.getIOMeter().chargeCopyPageFromJournal(volume, pageAddress, volume.getPageSize(),
                         stablePageNode.getJournalAddress(), urgency());
             } catch (final PersistitException ioe) {
@@ -2514,6 +3988,14 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         Volume volume = null;
         int handle = -1;
         final Set<Volume> volumes = new HashSet<Volume>();
+        //
+        // Runs of pages having consecutive addresses in the same volume are
+        // written with a single write operation.
+        //
+        final PageNode[] runNodes = new PageNode[VolumeStorage.MAXIMUM_WRITE_RUN];
+        final ByteBuffer[] runBuffers = new ByteBuffer[VolumeStorage.MAXIMUM_WRITE_RUN];
+        Volume runVolume = null;
+        int runCount = 0;
 
         for (final Iterator<PageNode> iterator = list.iterator(); iterator.hasNext();) {
             final PageNode pageNode = iterator.next();
@@ -2553,23 +4035,25 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             }
 
             final long pageAddress = pageNode.getPageAddress();
+            if (runCount > 0
+                    && (volume != runVolume || runCount == runNodes.length || pageAddress != runNodes[runCount - 1]
+                            .getPageAddress() + 1)) {
+                writeRunForCopy(runVolume, runNodes, runBuffers, runCount);
+                runCount = 0;
+            }
             volume.getStorage().extend(pageAddress);
             final int pageSize = volume.getPageSize();
             final int at = pageNode.getOffset();
-            bb.limit(bb.capacity()).position(at).limit(at + pageSize);
-
-            try {
-                volume.getStorage().writePage(bb, pageAddress);
-                volumes.add(volume);
-            } catch (final PersistitException ioe) {
-                _persistit.getLogBase().copyException.log(ioe, volume, pageNode.getPageAddress(),
-                        pageNode.getJournalAddress());
-                throw ioe;
-            }
-
-            _copiedPageCount++;
-            _persistit.getIOMeter().chargeCopyPageToVolume(volume, pageAddress, volume.getPageSize(),
-                    pageNode.getJournalAddress(), urgency());
+            final ByteBuffer slice = bb.duplicate();
+            slice.limit(bb.capacity()).position(at).limit(at + pageSize);
+            runVolume = volume;
+            runNodes[runCount] = pageNode;
+            runBuffers[runCount] = slice;
+            runCount++;
+            volumes.add(volume);
+        }
+        if (runCount > 0) {
+            writeRunForCopy(runVolume, runNodes, runBuffers, runCount);
         }
 
         for (final Volume vol : volumes) {
@@ -2578,6 +4062,23 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     }
 
+    private void writeRunForCopy(final Volume volume, final PageNode[] nodes, final ByteBuffer[] bbs, final int count)
+            throws PersistitException {
+        try {
+            volume.getStorage().writePages(bbs, count, nodes[0].getPageAddress());
+        } catch (final PersistitException ioe) {
+            _persistit.getLogBase().copyException.log(ioe, volume, nodes[0].getPageAddress(),
+                    nodes[0].getJournalAddress());
+            throw ioe;
+        }
+        _copyRunCount.incrementAndGet();
+        _copiedPageCount.addAndGet(count);
+        for (int index = 0; index < count; index++) {
+            _persistit.getIOMeter().chargeCopyPageToVolume(volume, nodes[index].getPageAddress(),
+                    volume.getPageSize(), nodes[index].getJournalAddress(), urgency());
+        }
+    }
+
     private void cleanupForCopy(final List<PageNode> list) throws PersistitException {
         //
         // Files and FileChannels no longer needed for recovery.
@@ -2910,7 +4411,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
      * 
      * @param handleToVolumeMap
      */
-    void unitTestInjectPageMap(final Map<PageNode, PageNode> pageMap) {
+    void unitTestInjectPageMap(final PageMap pageMap) {
         _pageMap.putAll(pageMap);
     }
 
@@ -2927,7 +4428,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     }
 
     long getWriteBufferAddress() {
-        return _writeBufferAddress;
+        return _writtenAddress;
     }
 
     int getJournalFileCount() {
@@ -2959,7 +4460,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     }
 
     public PageNode queryPageNode(final int volumeHandle, final long pageAddress) {
-        final PageNode pn = _pageMap.get(new PageNode(volumeHandle, pageAddress, -1, -1));
+        final PageNode pn = _pageMap.get(volumeHandle, pageAddress);
         if (pn != null) {
             return new PageNode(pn);
         } else {
@@ -2968,7 +4469,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     }
 
     public PageNode queryBranchNode(final int volumeHandle, final long pageAddress) {
-        final PageNode pn = _branchMap.get(new PageNode(volumeHandle, pageAddress, -1, -1));
+        final PageNode pn = _branchMap.get(volumeHandle, pageAddress);
         if (pn != null) {
             return new PageNode(pn);
         } else {
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.persistit.exception.PersistitIOException;
+
+/**
+ * <p>
+ * Reads journal files through read-only memory-mapped windows. The
+ * {@link RecoveryManager} and the {@link JournalTool} walk the journal one
+ * record at a time; rather than copying each region into a heap buffer, this
+ * class maps a large window of the journal file and returns it positioned at
+ * the requested record so that the {@link JournalRecord} accessors read the
+ * record in place. A new window is mapped only when a request falls outside
+ * the current one.
+ * </p>
+ * <p>
+ * The last journal file of a journal that was not closed normally may end
+ * with a partially written record. {@link #read(File, long, int)} returns
+ * <code>null</code> rather than a truncated buffer when the file ends before
+ * the requested number of bytes, and the caller decides whether that is the
+ * normal end of the journal.
+ * </p>
+ * <p>
+ * The buffers returned by this class are direct. Code that needs a backing
+ * array uses {@link JournalRecord#onHeap(ByteBuffer)}. This class is not
+ * thread-safe.
+ * </p>
+ */
+class JournalReader {
+
+    /**
+     * Default size of a mapped window
+     */
+    final static int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Windows start on a multiple of this size
+     */
+    private final static int WINDOW_ALIGNMENT = 64 * 1024;
+
+    private final int _windowSize;
+
+    private final Map<File, FileChannel> _channels = new HashMap<File, FileChannel>();
+
+    private File _windowFile;
+
+    private long _windowOffset;
+
+    private MappedByteBuffer _window;
+
+    JournalReader() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    JournalReader(final int windowSize) {
+        _windowSize = windowSize;
+    }
+
+    /**
+     * Return a buffer positioned at <code>offset</code> within the supplied
+     * journal file and holding at least <code>size</code> bytes after its
+     * position. The buffer remains valid until the next call to this method.
+     *
+     * @param file
+     *            the journal file
+     * @param offset
+     *            offset within the file
+     * @param size
+     *            number of bytes needed
+     * @return the buffer, or <code>null</code> if the file ends before
+     *         <code>offset + size</code>
+     * @throws PersistitIOException
+     *             if the file cannot be opened or mapped; a missing file is
+     *             reported with a {@link java.io.FileNotFoundException} cause
+     */
+    ByteBuffer read(final File file, final long offset, final int size) throws PersistitIOException {
+        if (_window == null || !file.equals(_windowFile) || offset < _windowOffset
+                || offset + size > _windowOffset + _window.limit()) {
+            if (!map(file, offset, size)) {
+                return null;
+            }
+        }
+        _window.position((int) (offset - _windowOffset));
+        return _window;
+    }
+
+    /**
+     * Close the files opened by this reader. Mapped windows are released when
+     * they are garbage collected.
+     */
+    void close() {
+        for (final FileChannel channel : _channels.values()) {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                // Closing it just to be polite to file handle count
+            }
+        }
+        _channels.clear();
+        _window = null;
+        _windowFile = null;
+    }
+
+    private boolean map(final File file, final long offset, final int size) throws PersistitIOException {
+        try {
+            final FileChannel channel = channel(file);
+            final long fileSize = channel.size();
+            if (offset < 0 || offset + size > fileSize) {
+                return false;
+            }
+            final long start = offset - offset % WINDOW_ALIGNMENT;
+            final long length = Math.min(fileSize - start, Math.max(_windowSize, offset + size - start));
+            _window = channel.map(MapMode.READ_ONLY, start, length);
+            _windowFile = file;
+            _windowOffset = start;
+            return true;
+        } catch (final IOException e) {
+            throw new PersistitIOException("Mapping " + file + " at " + offset, e);
+        }
+    }
+
+    private FileChannel channel(final File file) throws IOException {
+        FileChannel channel = _channels.get(file);
+        if (channel == null) {
+            channel = new RandomAccessFile(file, "r").getChannel();
+            _channels.put(file, channel);
+        }
+        return channel;
+    }
+}
@@ -194,6 +194,78 @@ import com.persistit.util.Util;
  * </tr>
  * 
  * <tr valign="top">
+ * <td>PD</td>
+ * <td>Page Delta: a page image expressed as the byte ranges in which it differs
+ * from the image held by an earlier PA record for the same page in the same
+ * journal file
+ * <table>
+ * <tr valign="top">
+ * <td>+16</td>
+ * <td>Volume handle (int) - refers to a volume defined in a preceding IV record
+ * </td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+20</td>
+ * <td>page address (long)</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+28</td>
+ * <td>bufferSize (int)</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+32</td>
+ * <td>journal address of the base PA record (long)</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+40</td>
+ * <td>ranges, each consisting of an offset in the page (char), a length
+ * (char) and that many bytes to be copied into the base image at the offset;
+ * number of ranges determined by overall record size</td>
+ * </tr>
+ * </table>
+ * </td>
+ * </tr>
+ * 
+ * <tr valign="top">
+ * <td>PZ</td>
+ * <td>Compressed Page Image: a PA record whose page image bytes have been
+ * compressed by a {@link JournalCodec}
+ * <table>
+ * <tr valign="top">
+ * <td>+16</td>
+ * <td>Volume handle (int) - refers to a volume defined in a preceding IV record
+ * </td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+20</td>
+ * <td>page address (long)</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+28</td>
+ * <td>leftSize (int)</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+32</td>
+ * <td>bufferSize (int)</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+36</td>
+ * <td>size of the page image bytes before compression (int)</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+40</td>
+ * <td>codec identifier (int)</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+44</td>
+ * <td>compressed page image bytes, which expand to the bytes of a PA record
+ * </td>
+ * </tr>
+ * </table>
+ * </td>
+ * </tr>
+ * 
+ * <tr valign="top">
  * <td>PM</td>
  * <td>Page Map: written once near the top of each journal file. Represents the
  * state of the page map at the time the journal rolled over.
@@ -298,6 +370,34 @@ import com.persistit.util.Util;
  * </table>
  * </tr>
  * 
+ * <tr valign="top">
+ * <td>TZ</td>
+ * <td>Compressed transaction update record - a TX record whose serialized
+ * updates have been compressed by a {@link JournalCodec}
+ * <table>
+ * <tr valign="top">
+ * <td>+16</td>
+ * <td>Commit timestamp, or -1 if the transaction has not committed.</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+24</td>
+ * <td>Previous record journal address (long).</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+32</td>
+ * <td>size of the serialized updates before compression (int)</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+36</td>
+ * <td>codec identifier (int)</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+40</td>
+ * <td>compressed serialized updates</td>
+ * </tr>
+ * </table>
+ * </tr>
+ * 
  * </table>
  * <p>
  * The following sub-record types are encapsulated inside of a TX record. Their
@@ -441,8 +541,8 @@ public class JournalRecord {
 
     private final static Charset UTF8 = Charset.forName("UTF-8");
 
-    public final static int[] TYPES = new int[] { JE.TYPE, JH.TYPE, PA.TYPE, PM.TYPE, SR.TYPE, DR.TYPE, DT.TYPE,
-            TM.TYPE, CP.TYPE, IV.TYPE, IT.TYPE, D1.TYPE, D0.TYPE, TX.TYPE };
+    public final static int[] TYPES = new int[] { JE.TYPE, JH.TYPE, PA.TYPE, PD.TYPE, PZ.TYPE, PM.TYPE, SR.TYPE,
+            DR.TYPE, DT.TYPE, TM.TYPE, CP.TYPE, IV.TYPE, IT.TYPE, D1.TYPE, D0.TYPE, TX.TYPE, TZ.TYPE };
 
     public static boolean isValidType(final int t) {
         for (final int type : TYPES) {
@@ -461,36 +561,143 @@ public class JournalRecord {
         }
     }
 
+    /*
+     * The accessors below address the backing array of a heap buffer
+     * directly. Journal write buffers are allocated outside of the heap, and
+     * journal files are read through mapped buffers; both are accessed through
+     * the ByteBuffer, which is big-endian by default.
+     */
+
     private static void putByte(final ByteBuffer bb, final int offset, final int value) {
-        Util.putByte(bb.array(), bb.position() + offset, value);
+        if (bb.hasArray()) {
+            Util.putByte(bb.array(), bb.position() + offset, value);
+        } else {
+            bb.put(bb.position() + offset, (byte) value);
+        }
     }
 
     static int getByte(final ByteBuffer bb, final int offset) {
-        return Util.getByte(bb.array(), bb.position() + offset);
+        if (bb.hasArray()) {
+            return Util.getByte(bb.array(), bb.position() + offset);
+        } else {
+            return bb.get(bb.position() + offset) & 0xFF;
+        }
     }
 
     static void putChar(final ByteBuffer bb, final int offset, final int value) {
-        Util.putChar(bb.array(), bb.position() + offset, value);
+        if (bb.hasArray()) {
+            Util.putChar(bb.array(), bb.position() + offset, value);
+        } else {
+            final char c = (char) value;
+            bb.putChar(bb.position() + offset, Persistit.BIG_ENDIAN ? c : Character.reverseBytes(c));
+        }
     }
 
     static int getChar(final ByteBuffer bb, final int offset) {
-        return Util.getChar(bb.array(), bb.position() + offset);
+        if (bb.hasArray()) {
+            return Util.getChar(bb.array(), bb.position() + offset);
+        } else {
+            final char c = bb.getChar(bb.position() + offset);
+            return Persistit.BIG_ENDIAN ? c : Character.reverseBytes(c);
+        }
     }
 
     static void putInt(final ByteBuffer bb, final int offset, final int value) {
-        Util.putInt(bb.array(), bb.position() + offset, value);
+        if (bb.hasArray()) {
+            Util.putInt(bb.array(), bb.position() + offset, value);
+        } else {
+            bb.putInt(bb.position() + offset, Persistit.BIG_ENDIAN ? value : Integer.reverseBytes(value));
+        }
     }
 
     static int getInt(final ByteBuffer bb, final int offset) {
-        return Util.getInt(bb.array(), bb.position() + offset);
+        if (bb.hasArray()) {
+            return Util.getInt(bb.array(), bb.position() + offset);
+        } else {
+            final int value = bb.getInt(bb.position() + offset);
+            return Persistit.BIG_ENDIAN ? value : Integer.reverseBytes(value);
+        }
     }
 
     static void putLong(final ByteBuffer bb, final int offset, final long value) {
-        Util.putLong(bb.array(), bb.position() + offset, value);
+        if (bb.hasArray()) {
+            Util.putLong(bb.array(), bb.position() + offset, value);
+        } else {
+            bb.putLong(bb.position() + offset, Persistit.BIG_ENDIAN ? value : Long.reverseBytes(value));
+        }
     }
 
     static long getLong(final ByteBuffer bb, final int offset) {
-        return Util.getLong(bb.array(), bb.position() + offset);
+        if (bb.hasArray()) {
+            return Util.getLong(bb.array(), bb.position() + offset);
+        } else {
+            final long value = bb.getLong(bb.position() + offset);
+            return Persistit.BIG_ENDIAN ? value : Long.reverseBytes(value);
+        }
+    }
+
+    private static String getString(final ByteBuffer bb, final int offset, final int length) {
+        if (bb.hasArray()) {
+            return new String(bb.array(), bb.position() + offset, length, UTF8);
+        } else {
+            final byte[] bytes = new byte[length];
+            final ByteBuffer source = bb.duplicate();
+            source.position(bb.position() + offset);
+            source.get(bytes);
+            return new String(bytes, UTF8);
+        }
+    }
+
+    private static void putBytes(final ByteBuffer bb, final int offset, final byte[] bytes) {
+        if (bb.hasArray()) {
+            System.arraycopy(bytes, 0, bb.array(), bb.position() + offset, bytes.length);
+        } else {
+            final ByteBuffer target = bb.duplicate();
+            target.position(bb.position() + offset);
+            target.put(bytes);
+        }
+    }
+
+    /**
+     * Return a heap buffer holding the record at the position of the supplied
+     * buffer: the buffer itself if it has a backing array, otherwise a copy of
+     * the record at position zero.
+     * 
+     * @param bb
+     * @return a buffer with a backing array
+     */
+    static ByteBuffer onHeap(final ByteBuffer bb) {
+        return onHeap(bb, null);
+    }
+
+    /**
+     * Return a heap buffer holding the record at the position of the supplied
+     * buffer: the buffer itself if it has a backing array, otherwise a copy of
+     * the record at position zero of <code>scratch</code>, or of a new buffer
+     * if <code>scratch</code> is <code>null</code> or too small.
+     * 
+     * @param bb
+     * @param scratch
+     *            a heap buffer that may be overwritten, or <code>null</code>
+     * @return a buffer with a backing array
+     */
+    static ByteBuffer onHeap(final ByteBuffer bb, final ByteBuffer scratch) {
+        if (bb.hasArray()) {
+            return bb;
+        }
+        final int length = getLength(bb);
+        final ByteBuffer source = bb.duplicate();
+        source.limit(bb.position() + length);
+        final ByteBuffer copy;
+        if (scratch != null && scratch.capacity() >= length) {
+            copy = scratch;
+            copy.clear();
+        } else {
+            copy = ByteBuffer.allocate(length);
+        }
+        copy.put(source);
+        copy.flip();
+        return copy;
     }
 
     static int getLength(final ByteBuffer bb) {
@@ -620,12 +827,12 @@ public class JournalRecord {
 
         public static String getPath(final ByteBuffer bb) {
             final int length = getLength(bb) - OVERHEAD;
-            return new String(bb.array(), bb.position() + OVERHEAD, length, UTF8);
+            return getString(bb, OVERHEAD, length);
         }
 
         public static void putPath(final ByteBuffer bb, final String path) {
             final byte[] stringBytes = path.getBytes(UTF8);
-            System.arraycopy(stringBytes, 0, bb.array(), bb.position() + OVERHEAD, stringBytes.length);
+            putBytes(bb, OVERHEAD, stringBytes);
             putLength(bb, OVERHEAD + stringBytes.length);
         }
     }
@@ -754,12 +961,12 @@ public class JournalRecord {
 
         public static String getVolumeSpecification(final ByteBuffer bb) {
             final int length = getLength(bb) - OVERHEAD;
-            return new String(bb.array(), bb.position() + OVERHEAD, length, UTF8);
+            return getString(bb, OVERHEAD, length);
         }
 
         public static void putVolumeSpecification(final ByteBuffer bb, final String volumeSpec) {
             final byte[] stringBytes = volumeSpec.getBytes(UTF8);
-            System.arraycopy(stringBytes, 0, bb.array(), bb.position() + OVERHEAD, stringBytes.length);
+            putBytes(bb, OVERHEAD, stringBytes);
             putLength(bb, OVERHEAD + stringBytes.length);
         }
     }
@@ -797,12 +1004,12 @@ public class JournalRecord {
 
         public static String getTreeName(final ByteBuffer bb) {
             final int length = getLength(bb) - OVERHEAD;
-            return new String(bb.array(), bb.position() + OVERHEAD, length, UTF8);
+            return getString(bb, OVERHEAD, length);
         }
 
         public static void putTreeName(final ByteBuffer bb, final String treeName) {
             final byte[] stringBytes = treeName.getBytes(UTF8);
-            System.arraycopy(stringBytes, 0, bb.array(), bb.position() + OVERHEAD, stringBytes.length);
+            putBytes(bb, OVERHEAD, stringBytes);
             putLength(bb, OVERHEAD + stringBytes.length);
         }
     }
@@ -854,6 +1061,146 @@ public class JournalRecord {
 
     }
 
+    /**
+     * Compressed page image
+     */
+    static class PZ extends JournalRecord {
+
+        public final static int TYPE = ('P' << 8) | 'Z';
+
+        public final static int OVERHEAD = 44;
+
+        public static void putType(final ByteBuffer bb) {
+            putType(bb, TYPE);
+        }
+
+        public static int getVolumeHandle(final ByteBuffer bb) {
+            return getInt(bb, 16);
+        }
+
+        public static void putVolumeHandle(final ByteBuffer bb, final int volumeHandle) {
+            putInt(bb, 16, volumeHandle);
+        }
+
+        public static long getPageAddress(final ByteBuffer bb) {
+            return getLong(bb, 20);
+        }
+
+        public static void putPageAddress(final ByteBuffer bb, final long pageAddress) {
+            putLong(bb, 20, pageAddress);
+        }
+
+        public static int getLeftSize(final ByteBuffer bb) {
+            return getInt(bb, 28);
+        }
+
+        public static void putLeftSize(final ByteBuffer bb, final int leftSize) {
+            putInt(bb, 28, leftSize);
+        }
+
+        public static int getBufferSize(final ByteBuffer bb) {
+            return getInt(bb, 32);
+        }
+
+        public static void putBufferSize(final ByteBuffer bb, final int bufferSize) {
+            putInt(bb, 32, (char) bufferSize);
+        }
+
+        public static int getImageSize(final ByteBuffer bb) {
+            return getInt(bb, 36);
+        }
+
+        public static void putImageSize(final ByteBuffer bb, final int imageSize) {
+            putInt(bb, 36, imageSize);
+        }
+
+        public static int getCodec(final ByteBuffer bb) {
+            return getInt(bb, 40);
+        }
+
+        public static void putCodec(final ByteBuffer bb, final int codec) {
+            putInt(bb, 40, codec);
+        }
+
+        /**
+         * Expand a complete PZ record held in a buffer at its position.
+         * 
+         * @param record
+         * @return a new buffer holding the equivalent PA record at position
+         *         zero, or <code>null</code> if the record is malformed
+         */
+        public static ByteBuffer expand(final ByteBuffer record) {
+            final ByteBuffer bb = onHeap(record);
+            final JournalCodec codec = JournalCodec.forId(getCodec(bb));
+            final int imageSize = getImageSize(bb);
+            if (codec == null || imageSize < 0 || imageSize > Buffer.MAX_BUFFER_SIZE) {
+                return null;
+            }
+            final ByteBuffer pa = ByteBuffer.allocate(PA.OVERHEAD + imageSize);
+            System.arraycopy(bb.array(), bb.position(), pa.array(), 0, PA.OVERHEAD);
+            putLength(pa, PA.OVERHEAD + imageSize);
+            PA.putType(pa);
+            if (!codec.decompress(bb.array(), bb.position() + OVERHEAD, getLength(bb) - OVERHEAD, pa.array(),
+                    PA.OVERHEAD, imageSize)) {
+                return null;
+            }
+            return pa;
+        }
+
+    }
+
+    /**
+     * Page delta
+     */
+    static class PD extends JournalRecord {
+
+        public final static int TYPE = ('P' << 8) | 'D';
+
+        public final static int OVERHEAD = 40;
+
+        /**
+         * Size of the offset and length preceding the bytes of each range
+         */
+        public final static int RANGE_OVERHEAD = 4;
+
+        public static void putType(final ByteBuffer bb) {
+            putType(bb, TYPE);
+        }
+
+        public static int getVolumeHandle(final ByteBuffer bb) {
+            return getInt(bb, 16);
+        }
+
+        public static void putVolumeHandle(final ByteBuffer bb, final int volumeHandle) {
+            putInt(bb, 16, volumeHandle);
+        }
+
+        public static long getPageAddress(final ByteBuffer bb) {
+            return getLong(bb, 20);
+        }
+
+        public static void putPageAddress(final ByteBuffer bb, final long pageAddress) {
+            putLong(bb, 20, pageAddress);
+        }
+
+        public static int getBufferSize(final ByteBuffer bb) {
+            return getInt(bb, 28);
+        }
+
+        public static void putBufferSize(final ByteBuffer bb, final int bufferSize) {
+            putInt(bb, 28, bufferSize);
+        }
+
+        public static long getBaseAddress(final ByteBuffer bb) {
+            return getLong(bb, 32);
+        }
+
+        public static void putBaseAddress(final ByteBuffer bb, final long baseAddress) {
+            putLong(bb, 32, baseAddress);
+        }
+
+    }
+
     /**
      * Checkpoint
      */
@@ -915,6 +1262,92 @@ public class JournalRecord {
         }
     }
 
+    /**
+     * Compressed transaction
+     */
+    static class TZ extends JournalRecord {
+
+        public final static int TYPE = ('T' << 8) | 'Z';
+
+        public final static int OVERHEAD = 40;
+
+        public static void putType(final ByteBuffer bb) {
+            putType(bb, TYPE);
+        }
+
+        public static long getCommitTimestamp(final ByteBuffer bb) {
+            return getLong(bb, 16);
+        }
+
+        public static void putCommitTimestamp(final ByteBuffer bb, final long address) {
+            putLong(bb, 16, address);
+        }
+
+        public static long getBackchainAddress(final ByteBuffer bb) {
+            return getLong(bb, 24);
+        }
+
+        public static void putBackchainAddress(final ByteBuffer bb, final long address) {
+            putLong(bb, 24, address);
+        }
+
+        public static int getUpdatesSize(final ByteBuffer bb) {
+            return getInt(bb, 32);
+        }
+
+        public static void putUpdatesSize(final ByteBuffer bb, final int size) {
+            putInt(bb, 32, size);
+        }
+
+        public static int getCodec(final ByteBuffer bb) {
+            return getInt(bb, 36);
+        }
+
+        public static void putCodec(final ByteBuffer bb, final int codec) {
+            putInt(bb, 36, codec);
+        }
+
+        /**
+         * Expand a complete TZ record held in a buffer at its position.
+         * 
+         * @param record
+         * @return a new buffer holding the equivalent TX record at position
+         *         zero, or <code>null</code> if the record is malformed
+         */
+        public static ByteBuffer expand(final ByteBuffer record) {
+            return expand(record, null);
+        }
+
+        /**
+         * Expand a complete TZ record held in a buffer at its position,
+         * copying it first to <code>scratch</code> if the buffer is direct.
+         * 
+         * @param record
+         * @param scratch
+         *            a heap buffer that may be overwritten, or
+         *            <code>null</code>
+         * @return a new buffer holding the equivalent TX record at position
+         *         zero, or <code>null</code> if the record is malformed
+         */
+        static ByteBuffer expand(final ByteBuffer record, final ByteBuffer scratch) {
+            final ByteBuffer bb = onHeap(record, scratch);
+            final JournalCodec codec = JournalCodec.forId(getCodec(bb));
+            final int updatesSize = getUpdatesSize(bb);
+            if (codec == null || updatesSize < 0 || updatesSize > Transaction.TRANSACTION_BUFFER_SIZE) {
+                return null;
+            }
+            final ByteBuffer tx = ByteBuffer.allocate(TX.OVERHEAD + updatesSize);
+            System.arraycopy(bb.array(), bb.position(), tx.array(), 0, TX.OVERHEAD);
+            putLength(tx, TX.OVERHEAD + updatesSize);
+            TX.putType(tx);
+            if (!codec.decompress(bb.array(), bb.position() + OVERHEAD, getLength(bb) - OVERHEAD, tx.array(),
+                    TX.OVERHEAD, updatesSize)) {
+                return null;
+            }
+            return tx;
+        }
+    }
+
     /*
      * -------------------------------------------------------------
      * 
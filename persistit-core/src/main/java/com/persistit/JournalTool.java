@@ -25,17 +25,12 @@ import static com.persistit.JournalRecord.isValidType;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.BitSet;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 
 import com.persistit.JournalRecord.CP;
 import com.persistit.JournalRecord.D0;
@@ -47,10 +42,13 @@ import com.persistit.JournalRecord.IV;
 import com.persistit.JournalRecord.JE;
 import com.persistit.JournalRecord.JH;
 import com.persistit.JournalRecord.PA;
+import com.persistit.JournalRecord.PD;
 import com.persistit.JournalRecord.PM;
+import com.persistit.JournalRecord.PZ;
 import com.persistit.JournalRecord.SR;
 import com.persistit.JournalRecord.TM;
 import com.persistit.JournalRecord.TX;
+import com.persistit.JournalRecord.TZ;
 import com.persistit.exception.CorruptJournalException;
 import com.persistit.exception.PersistitException;
 import com.persistit.exception.PersistitIOException;
@@ -96,13 +94,19 @@ class JournalTool {
 
     private PrintWriter _writer = new PrintWriter(new OutputStreamWriter(System.out));
 
-    private final Map<Long, FileChannel> _journalFileChannels = new HashMap<Long, FileChannel>();
+    private final JournalReader _reader = new JournalReader();
 
     private ByteBuffer _readBuffer;
 
     private final int _readBufferSize = DEFAULT_BUFFER_SIZE;
 
-    private long _readBufferAddress;
+    /**
+     * While the update records of a TZ record are dumped, the expanded TX
+     * record and its journal address
+     */
+    private ByteBuffer _expandedRecord;
+
+    private long _expandedAddress;
 
     private long _currentAddress;
 
@@ -213,6 +217,8 @@ class JournalTool {
 
         public void tx(final long address, final long timestamp, final int recordSize) throws Exception;
 
+        public void tz(final long address, final long timestamp, final int recordSize) throws Exception;
+
         public void sr(final long address, final long timestamp, final int recordSize) throws Exception;
 
         public void dr(final long address, final long timestamp, final int recordSize) throws Exception;
@@ -221,6 +227,10 @@ class JournalTool {
 
         public void pa(final long address, final long timestamp, final int recordSize) throws Exception;
 
+        public void pd(final long address, final long timestamp, final int recordSize) throws Exception;
+
+        public void pz(final long address, final long timestamp, final int recordSize) throws Exception;
+
         public void pm(final long address, final long timestamp, final int recordSize) throws Exception;
 
         public void tm(final long address, final long timestamp, final int recordSize) throws Exception;
@@ -338,7 +348,6 @@ class JournalTool {
             }
         }
         _journalFilePath = pathName;
-        _readBuffer = ByteBuffer.allocate(_readBufferSize);
         parseTypes(types);
         _selectedPages = new RangePredicate(pages);
         _selectedTimestamps = new RangePredicate(timestamps);
@@ -378,7 +387,6 @@ class JournalTool {
     public void scan() throws Exception {
         try {
             _currentAddress = _startAddr;
-            _readBufferAddress = Long.MIN_VALUE;
             while (_currentAddress < _endAddr) {
                 final int type = scanOneRecord();
                 switch (type) {
@@ -391,6 +399,7 @@ class JournalTool {
                 }
             }
         } finally {
+            _reader.close();
             _writer.flush();
         }
     }
@@ -450,7 +459,6 @@ class JournalTool {
             final long blockSize = JH.getBlockSize(_readBuffer);
             if (blockSize != _blockSize) {
                 address = _currentAddress = (_currentAddress / _blockSize) * blockSize;
-                _readBufferAddress = _currentAddress;
                 _blockSize = blockSize;
             }
             if (_selectedTypes.get(type)) {
@@ -494,6 +502,18 @@ class JournalTool {
             }
             break;
 
+        case PD.TYPE:
+            if (_selectedTypes.get(type) && _selectedTimestamps.isSelected(timestamp)) {
+                _action.pd(address, timestamp, recordSize);
+            }
+            break;
+
+        case PZ.TYPE:
+            if (_selectedTypes.get(type) && _selectedTimestamps.isSelected(timestamp)) {
+                _action.pz(address, timestamp, recordSize);
+            }
+            break;
+
         case PM.TYPE:
             if (_selectedTypes.get(type)) {
                 _action.pm(address, timestamp, recordSize);
@@ -512,6 +532,12 @@ class JournalTool {
             }
             break;
 
+        case TZ.TYPE:
+            if (_selectedTypes.get(type) && _selectedTimestamps.isSelected(timestamp)) {
+                _action.tz(address, timestamp, recordSize);
+            }
+            break;
+
         case CP.TYPE:
             if (_selectedTypes.get(type) && _selectedTimestamps.isSelected(timestamp)) {
                 _action.cp(address, timestamp, recordSize);
@@ -544,59 +570,21 @@ class JournalTool {
         return ((address / _blockSize) + 1) * _blockSize;
     }
 
-    private synchronized FileChannel getFileChannel(final long address) throws PersistitIOException {
-        final long generation = address / _blockSize;
-        FileChannel channel = _journalFileChannels.get(generation);
-        if (channel == null) {
-            try {
-                final RandomAccessFile raf = new RandomAccessFile(addressToFile(address), "r");
-                channel = raf.getChannel();
-                _journalFileChannels.put(generation, channel);
-            } catch (final IOException ioe) {
-                throw new PersistitIOException(ioe);
-            }
-        }
-        return channel;
-    }
-
     File addressToFile(final long address) {
         return JournalManager.generationToFile(_journalFilePath, address / _blockSize);
     }
 
     private void read(final long address, final int size) throws PersistitIOException {
-        if (_readBufferAddress >= 0 && address >= _readBufferAddress
-                && size + address - _readBufferAddress <= _readBuffer.limit()) {
-            _readBuffer.position((int) (address - _readBufferAddress));
-        } else {
-            try {
-                final FileChannel fc = getFileChannel(address);
-                _readBuffer.clear();
-
-                int maxSize = _readBuffer.capacity();
-                final long remainingInBlock = addressUp(address) - address;
-                if (remainingInBlock < maxSize) {
-                    maxSize = (int) remainingInBlock;
-                }
-
-                _readBuffer.limit(maxSize);
-                // Try to read up to maxSize bytes into _readBuffer
-                int offset = 0;
-                while (_readBuffer.remaining() > 0) {
-                    final int readSize = fc.read(_readBuffer, offset + address % _blockSize);
-                    if (readSize < 0) {
-                        break;
-                    }
-                    offset += readSize;
-                }
-                _readBufferAddress = address;
-                _readBuffer.flip();
-                if (_readBuffer.remaining() < size) {
-                    throw new CorruptJournalException("End of file at " + addressToString(address));
-                }
-            } catch (final IOException e) {
-                throw new PersistitIOException("Reading from " + addressToString(address), e);
-            }
+        if (_expandedRecord != null) {
+            _expandedRecord.position((int) (address - _expandedAddress));
+            _readBuffer = _expandedRecord;
+            return;
         }
+        final ByteBuffer bb = _reader.read(addressToFile(address), address % _blockSize, size);
+        if (bb == null) {
+            throw new CorruptJournalException("End of file at " + addressToString(address));
+        }
+        _readBuffer = bb;
     }
 
     private String addressToString(final long address) {
@@ -767,6 +755,43 @@ class JournalTool {
             appendf(" committed %,d backchain %,d", TX.getCommitTimestamp(_readBuffer),
                     TX.getBackchainAddress(_readBuffer));
             flush();
+            updates(address, timestamp, recordSize);
+        }
+
+        @Override
+        public void tz(final long address, final long timestamp, final int recordSize) throws Exception {
+            read(address, recordSize);
+            start(address, timestamp, "TZ", recordSize);
+            appendf(" committed %,d backchain %,d codec %d updatesSize %,d", TZ.getCommitTimestamp(_readBuffer),
+                    TZ.getBackchainAddress(_readBuffer), TZ.getCodec(_readBuffer), TZ.getUpdatesSize(_readBuffer));
+            final ByteBuffer tx = TZ.expand(_readBuffer);
+            if (tx == null) {
+                appendf(" malformed");
+            }
+            flush();
+            if (tx != null) {
+                /*
+                 * The expanded record stands in for the read buffer so that
+                 * the update records are read from it. Their addresses are
+                 * offsets within the expanded record.
+                 */
+                final ByteBuffer readBuffer = _readBuffer;
+                _readBuffer = tx;
+                _expandedRecord = tx;
+                _expandedAddress = address;
+                try {
+                    updates(address, timestamp, tx.limit());
+                } finally {
+                    _readBuffer = readBuffer;
+                    _expandedRecord = null;
+                }
+            }
+        }
+
+        /**
+         * Process the update records of the TX record in the read buffer
+         */
+        private void updates(final long address, final long timestamp, final int recordSize) throws Exception {
             final int start = _readBuffer.position();
             final int end = start + recordSize;
             _readBuffer.position(_readBuffer.position() + TX.OVERHEAD);
@@ -787,12 +812,12 @@ class JournalTool {
             final int key1Size = DR.getKey1Size(_readBuffer);
             final int elisionCount = DR.getKey2Elision(_readBuffer);
             final int key2Size = recordSize - key1Size - DR.OVERHEAD;
-            System.arraycopy(_readBuffer.array(), _readBuffer.position() + DR.OVERHEAD, key1.getEncodedBytes(), 0,
-                    key1Size);
+            final ByteBuffer record = JournalRecord.onHeap(_readBuffer);
+            System.arraycopy(record.array(), record.position() + DR.OVERHEAD, key1.getEncodedBytes(), 0, key1Size);
             key1.setEncodedSize(key1Size);
             System.arraycopy(key1.getEncodedBytes(), 0, key2.getEncodedBytes(), 0, elisionCount);
-            System.arraycopy(_readBuffer.array(), _readBuffer.position() + DR.OVERHEAD + key1Size,
-                    key2.getEncodedBytes(), elisionCount, key2Size);
+            System.arraycopy(record.array(), record.position() + DR.OVERHEAD + key1Size, key2.getEncodedBytes(),
+                    elisionCount, key2Size);
             key2.setEncodedSize(key2Size + elisionCount);
             start(address, timestamp, "DR", recordSize);
             appendf(" tree %05d key1Size %,5d key2Size %,5d  ", thandle, key1Size, key2Size);
@@ -808,12 +833,12 @@ class JournalTool {
             final int thandle = SR.getTreeHandle(_readBuffer);
             final int keySize = SR.getKeySize(_readBuffer);
             final int valueSize = recordSize - keySize - SR.OVERHEAD;
-            System.arraycopy(_readBuffer.array(), _readBuffer.position() + SR.OVERHEAD, key1.getEncodedBytes(), 0,
-                    keySize);
+            final ByteBuffer record = JournalRecord.onHeap(_readBuffer);
+            System.arraycopy(record.array(), record.position() + SR.OVERHEAD, key1.getEncodedBytes(), 0, keySize);
             key1.setEncodedSize(keySize);
             value.ensureFit(valueSize);
-            System.arraycopy(_readBuffer.array(), _readBuffer.position() + SR.OVERHEAD + keySize,
-                    value.getEncodedBytes(), 0, valueSize);
+            System.arraycopy(record.array(), record.position() + SR.OVERHEAD + keySize, value.getEncodedBytes(), 0,
+                    valueSize);
             value.setEncodedSize(valueSize);
             start(address, timestamp, "SR", recordSize);
             appendf(" tree %05d keySize %,5d valueSize %,5d  ", thandle, keySize, valueSize);
@@ -849,6 +874,43 @@ class JournalTool {
             flush();
         }
 
+        @Override
+        public void pz(final long address, final long timestamp, final int recordSize) throws Exception {
+            read(address, recordSize);
+            final long pageAddress = PZ.getPageAddress(_readBuffer);
+            final int volumeHandle = PZ.getVolumeHandle(_readBuffer);
+            if (!_selectedPages.isSelected(pageAddress)) {
+                return;
+            }
+            start(address, timestamp, "PZ", recordSize);
+            final ByteBuffer pa = PZ.expand(_readBuffer);
+            if (pa == null) {
+                appendf(" page %5d:%,12d malformed", volumeHandle, pageAddress);
+            } else {
+                final int type = JournalRecord.getByte(pa, PA.OVERHEAD + Buffer.TYPE_OFFSET);
+                final String typeString = Buffer.getPageTypeName(pageAddress, type);
+                final long rightSibling = pageAddress == 0 ? 0 : JournalRecord.getLong(pa, PA.OVERHEAD
+                        + Buffer.RIGHT_SIBLING_OFFSET);
+                appendf(" page %5d:%,12d type %10s right %,12d imageSize %,6d", volumeHandle, pageAddress,
+                        typeString, rightSibling, PZ.getImageSize(_readBuffer));
+            }
+            flush();
+        }
+
+        @Override
+        public void pd(final long address, final long timestamp, final int recordSize) throws Exception {
+            read(address, recordSize);
+            final long pageAddress = PD.getPageAddress(_readBuffer);
+            final int volumeHandle = PD.getVolumeHandle(_readBuffer);
+            if (!_selectedPages.isSelected(pageAddress)) {
+                return;
+            }
+            start(address, timestamp, "PD", recordSize);
+            final long baseAddress = PD.getBaseAddress(_readBuffer);
+            appendf(" page %5d:%,12d base %,18d", volumeHandle, pageAddress, baseAddress);
+            flush();
+        }
+
         @Override
         public void pm(final long address, final long timestamp, final int recordSize) throws Exception {
             read(address, PM.OVERHEAD);
@@ -916,7 +978,7 @@ class JournalTool {
             int lastVolumeHandle = Integer.MAX_VALUE;
             for (int remaining = count; remaining > 0; remaining--) {
                 if (index == loaded) {
-                    final int loadedSize = Math.min((_readBuffer.capacity() / PM.ENTRY_SIZE) * PM.ENTRY_SIZE, remaining
+                    final int loadedSize = Math.min((_readBufferSize / PM.ENTRY_SIZE) * PM.ENTRY_SIZE, remaining
                             * PM.ENTRY_SIZE);
                     read(address, loadedSize);
                     address += loadedSize;
@@ -955,10 +1017,12 @@ class JournalTool {
             int loaded = 0;
             for (int remaining = count; remaining > 0; remaining--) {
                 if (index == loaded) {
-                    read(address, Math.min(_readBuffer.capacity(), remaining * TM.ENTRY_SIZE));
-                    address += _readBuffer.remaining();
+                    final int loadedSize = Math.min((_readBufferSize / TM.ENTRY_SIZE) * TM.ENTRY_SIZE, remaining
+                            * TM.ENTRY_SIZE);
+                    read(address, loadedSize);
+                    address += loadedSize;
                     index = 0;
-                    loaded = _readBuffer.remaining() / TM.ENTRY_SIZE;
+                    loaded = loadedSize / TM.ENTRY_SIZE;
                     if (loaded <= 0) {
                         throw new CorruptJournalException("Could not load TransactionMap segment in entry "
                                 + (count - remaining + 1) + " at " + addressToString(from, timestamp));
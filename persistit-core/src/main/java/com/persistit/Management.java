@@ -929,6 +929,7 @@ public interface Management extends Remote, ManagementMXBean {
     public static class BufferPoolInfo extends AcquisitionTimeBase implements Serializable {
         public final static long serialVersionUID = 9044282840712593435L;
 
+        String poolName;
         int bufferSize;
         int bufferCount;
         long missCount;
@@ -943,20 +944,37 @@ public interface Management extends Remote, ManagementMXBean {
         int readerClaimedPageCount;
         int writerClaimedPageCount;
         long earliestDirtyTimestamp;
+        String replacementPolicy;
+        long ghostHitCount;
+        long protectedCount;
+        long writeRunCount;
+        long writeRunPageCount;
+        boolean warmingUp;
+        long warmupPageTotal;
+        long warmupPageCount;
+        long warmupReadCount;
+        long warmupElapsedTime;
 
         public BufferPoolInfo() {
 
         }
 
-        @ConstructorProperties({ "bufferSize", "bufferCount", "missCount", "hitCount", "newCount", "evictCount",
-                "writeCount", "forcedWriteCount", "forcedCheckpointWriteCount", "validPageCount", "dirtyPageCount",
-                "readerClaimedPageCount", "writerClaimedPageCount", "earliestDirtyTimestamp" })
-        public BufferPoolInfo(final int bufferSize, final int bufferCount, final long missCount, final long hitCount,
-                final long newCount, final long writeCount, final long evictCount, final long forcedWriteCount,
-                final long forcedCheckpointWriteCount, final long readCounter, final int validPageCount,
-                final int dirtyPageCount, final int readerClaimedPageCount, final int writerClaimedPageCount,
-                final long earliestDirtyTimestamp) {
+        @ConstructorProperties({ "poolName", "bufferSize", "bufferCount", "missCount", "hitCount", "newCount",
+                "evictCount", "writeCount", "forcedWriteCount", "forcedCheckpointWriteCount", "validPageCount",
+                "dirtyPageCount", "readerClaimedPageCount", "writerClaimedPageCount", "earliestDirtyTimestamp",
+                "replacementPolicy", "ghostHitCount", "protectedCount", "writeRunCount", "writeRunPageCount",
+                "warmingUp", "warmupPageTotal", "warmupPageCount", "warmupReadCount", "warmupElapsedTime" })
+        public BufferPoolInfo(final String poolName, final int bufferSize, final int bufferCount,
+                final long missCount, final long hitCount, final long newCount, final long writeCount,
+                final long evictCount, final long forcedWriteCount, final long forcedCheckpointWriteCount,
+                final long readCounter, final int validPageCount, final int dirtyPageCount,
+                final int readerClaimedPageCount, final int writerClaimedPageCount, final long earliestDirtyTimestamp,
+                final String replacementPolicy, final long ghostHitCount, final long protectedCount,
+                final long writeRunCount, final long writeRunPageCount, final boolean warmingUp,
+                final long warmupPageTotal, final long warmupPageCount, final long warmupReadCount,
+                final long warmupElapsedTime) {
             super();
+            this.poolName = poolName;
             this.bufferSize = bufferSize;
             this.bufferCount = bufferCount;
             this.missCount = missCount;
@@ -971,6 +989,26 @@ public interface Management extends Remote, ManagementMXBean {
             this.readerClaimedPageCount = readerClaimedPageCount;
             this.writerClaimedPageCount = writerClaimedPageCount;
             this.earliestDirtyTimestamp = earliestDirtyTimestamp;
+            this.replacementPolicy = replacementPolicy;
+            this.ghostHitCount = ghostHitCount;
+            this.protectedCount = protectedCount;
+            this.writeRunCount = writeRunCount;
+            this.writeRunPageCount = writeRunPageCount;
+            this.warmingUp = warmingUp;
+            this.warmupPageTotal = warmupPageTotal;
+            this.warmupPageCount = warmupPageCount;
+            this.warmupReadCount = warmupReadCount;
+            this.warmupElapsedTime = warmupElapsedTime;
+        }
+
+        /**
+         * Return the name of this pool if it is a named pool.
+         * 
+         * @return The name, or <code>null</code> if this is the default pool
+         *         for its buffer size
+         */
+        public String getPoolName() {
+            return poolName;
         }
 
         /**
@@ -1124,6 +1162,123 @@ public interface Management extends Remote, ManagementMXBean {
         public long getEarliestDirtyTimestamp() {
             return earliestDirtyTimestamp;
         }
+
+        /**
+         * @return Name of the policy used to select pages for eviction
+         */
+        public String getReplacementPolicy() {
+            return replacementPolicy;
+        }
+
+        /**
+         * Return the count of misses on pages that the replacement policy
+         * remembered as recently evicted. A high count relative to the miss
+         * count indicates the pool is too small for the working set.
+         * 
+         * @return The ghost hit count
+         */
+        public long getGhostHitCount() {
+            return ghostHitCount;
+        }
+
+        /**
+         * Return the count of eviction candidates the replacement policy
+         * declined to evict because they were recently used or protected.
+         * 
+         * @return The protected count
+         */
+        public long getProtectedCount() {
+            return protectedCount;
+        }
+
+        /**
+         * Return the count of runs of pages having consecutive addresses in
+         * the same volume written by the PAGE_WRITER thread.
+         * 
+         * @return The write run count
+         */
+        public long getWriteRunCount() {
+            return writeRunCount;
+        }
+
+        /**
+         * Return the count of pages written by the PAGE_WRITER thread
+         * 
+         * @return The write run page count
+         */
+        public long getWriteRunPageCount() {
+            return writeRunPageCount;
+        }
+
+        /**
+         * Return the average number of pages in each run written by the
+         * PAGE_WRITER thread
+         * 
+         * @return The average write run length, or 0 if no runs have been
+         *         written
+         */
+        public double getAverageWriteRunLength() {
+            return writeRunCount == 0 ? 0.0 : (double) writeRunPageCount / writeRunCount;
+        }
+
+        /**
+         * Indicate whether pages recorded in the buffer inventory are still
+         * being loaded into this pool
+         * 
+         * @return <code>true</code> if warm-up is in progress
+         */
+        public boolean isWarmingUp() {
+            return warmingUp;
+        }
+
+        /**
+         * Return the number of pages recorded in the buffer inventory from
+         * which this pool was warmed up after startup
+         * 
+         * @return The warm-up page total
+         */
+        public long getWarmupPageTotal() {
+            return warmupPageTotal;
+        }
+
+        /**
+         * Return the number of pages loaded by warm-up so far. Pages that were
+         * already loaded on demand are not counted.
+         * 
+         * @return The warm-up page count
+         */
+        public long getWarmupPageCount() {
+            return warmupPageCount;
+        }
+
+        /**
+         * Return the number of read operations used to load the warm-up pages.
+         * Consecutive pages of a volume are read with a single operation.
+         * 
+         * @return The warm-up read count
+         */
+        public long getWarmupReadCount() {
+            return warmupReadCount;
+        }
+
+        /**
+         * Return the time spent on warm-up so far, or in total if it has
+         * finished
+         * 
+         * @return The elapsed time in milliseconds
+         */
+        public long getWarmupElapsedTime() {
+            return warmupElapsedTime;
+        }
+
+        /**
+         * Return the rate at which warm-up has loaded pages
+         * 
+         * @return Pages loaded per second, or 0 if no warm-up has run
+         */
+        public double getWarmupRate() {
+            return warmupElapsedTime == 0 ? 0.0 : warmupPageCount * 1000.0 / warmupElapsedTime;
+        }
     }
 
     /**
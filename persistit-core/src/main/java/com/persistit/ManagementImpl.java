@@ -324,6 +324,39 @@ class ManagementImpl implements Management {
         }
     }
 
+    /**
+     * Change the number of buffers in a buffer pool. See
+     * {@link BufferPool#resize(int)}.
+     * 
+     * @param pool
+     *            The name of a named buffer pool, or the buffer size of a
+     *            default pool
+     * @param bufferCount
+     *            The new number of buffers
+     * @throws RemoteException
+     */
+    @Override
+    public void resizeBufferPool(final String pool, final int bufferCount) throws RemoteException {
+        BufferPool bufferPool = _persistit.getBufferPool(pool);
+        if (bufferPool == null) {
+            try {
+                bufferPool = _persistit.getBufferPool(Integer.parseInt(pool));
+            } catch (final NumberFormatException e) {
+                // not a buffer size
+            }
+        }
+        if (bufferPool == null) {
+            throw new WrappedRemoteException(new IllegalArgumentException("No such buffer pool: " + pool));
+        }
+        try {
+            bufferPool.resize(bufferCount);
+        } catch (final PersistitException e) {
+            throw new WrappedRemoteException(e);
+        } catch (final RuntimeException e) {
+            throw new WrappedRemoteException(e);
+        }
+    }
+
     /**
      * Returns an array containing a <code>BufferPoolInfo</code> element for
      * each buffer pool. If Persistit is not initialized then this method
@@ -341,18 +374,24 @@ class ManagementImpl implements Management {
     @Override
     public BufferPoolInfo[] getBufferPoolInfoArray() {
         final HashMap<Integer, BufferPool> bufferPoolTable = _persistit.getBufferPoolHashMap();
-        final int size = bufferPoolTable.size();
-        final BufferPoolInfo[] result = new BufferPoolInfo[size];
-        int index = 0;
+        final List<BufferPool> pools = new ArrayList<BufferPool>();
         for (int bufferSize = Buffer.MIN_BUFFER_SIZE; bufferSize <= Buffer.MAX_BUFFER_SIZE; bufferSize *= 2) {
             final BufferPool pool = bufferPoolTable.get(new Integer(bufferSize));
-
-            if (pool != null && index < size) {
-                final BufferPoolInfo info = new BufferPoolInfo();
-                pool.populateBufferPoolInfo(info);
-                result[index++] = info;
+            if (pool != null) {
+                pools.add(pool);
             }
         }
+        for (final BufferPool pool : _persistit.getBufferPools()) {
+            if (pool.getName() != null) {
+                pools.add(pool);
+            }
+        }
+        final BufferPoolInfo[] result = new BufferPoolInfo[pools.size()];
+        for (int index = 0; index < result.length; index++) {
+            final BufferPoolInfo info = new BufferPoolInfo();
+            pools.get(index).populateBufferPoolInfo(info);
+            result[index] = info;
+        }
         return result;
     }
 
@@ -0,0 +1,243 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.persistit.JournalManager.PageNode;
+
+/**
+ * <p>
+ * Maps a (volume handle, page address) pair to the most recent
+ * {@link PageNode} for that page. Earlier versions of the page are reached
+ * through {@link PageNode#getPrevious()}.
+ * </p>
+ * <p>
+ * The map is an open-addressed hash table with linear probing. Keys are held
+ * in primitive arrays parallel to the array of nodes, so that a lookup neither
+ * allocates a key object nor dereferences a node until the key matches, and
+ * each entry costs sixteen bytes of table rather than a
+ * <code>HashMap.Entry</code> plus a table slot. Removal shifts the following
+ * entries of the probe sequence back, so the table never contains tombstones.
+ * </p>
+ * <p>
+ * This class is not thread-safe; the JournalManager and RecoveryManager guard
+ * it with their own monitors.
+ * </p>
+ */
+class PageMap implements Iterable<PageNode> {
+
+    private final static int INITIAL_CAPACITY = 1024;
+
+    private int[] _handles;
+
+    private long[] _pages;
+
+    private PageNode[] _nodes;
+
+    private int _mask;
+
+    private int _size;
+
+    PageMap() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(final int capacity) {
+        _handles = new int[capacity];
+        _pages = new long[capacity];
+        _nodes = new PageNode[capacity];
+        _mask = capacity - 1;
+    }
+
+    private static int hash(final int handle, final long page) {
+        long h = page * 0x9E3779B97F4A7C15L + handle;
+        h ^= h >>> 32;
+        h *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    /**
+     * @return index of the slot holding the key, or if absent, the bitwise
+     *         complement of the empty slot where it would be inserted
+     */
+    private int find(final int handle, final long page) {
+        int index = hash(handle, page) & _mask;
+        while (_nodes[index] != null) {
+            if (_pages[index] == page && _handles[index] == handle) {
+                return index;
+            }
+            index = (index + 1) & _mask;
+        }
+        return ~index;
+    }
+
+    int size() {
+        return _size;
+    }
+
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    PageNode get(final int handle, final long page) {
+        final int index = find(handle, page);
+        return index >= 0 ? _nodes[index] : null;
+    }
+
+    PageNode get(final PageNode key) {
+        return get(key.getVolumeHandle(), key.getPageAddress());
+    }
+
+    /**
+     * Make the supplied PageNode the entry for its page.
+     *
+     * @param pageNode
+     * @return the entry it replaced, or <code>null</code>
+     */
+    PageNode put(final PageNode pageNode) {
+        final int handle = pageNode.getVolumeHandle();
+        final long page = pageNode.getPageAddress();
+        int index = find(handle, page);
+        if (index >= 0) {
+            final PageNode old = _nodes[index];
+            _nodes[index] = pageNode;
+            return old;
+        }
+        if ((_size + 1) * 4 > _nodes.length * 3) {
+            resize(_nodes.length * 2);
+            index = find(handle, page);
+        }
+        index = ~index;
+        _handles[index] = handle;
+        _pages[index] = page;
+        _nodes[index] = pageNode;
+        _size++;
+        return null;
+    }
+
+    void putAll(final PageMap map) {
+        for (final PageNode pageNode : map) {
+            put(pageNode);
+        }
+    }
+
+    PageNode remove(final int handle, final long page) {
+        int hole = find(handle, page);
+        if (hole < 0) {
+            return null;
+        }
+        final PageNode removed = _nodes[hole];
+        /*
+         * Shift back any following entry of the probe sequence whose home slot
+         * does not lie cyclically in (hole, index].
+         */
+        for (int index = (hole + 1) & _mask; _nodes[index] != null; index = (index + 1) & _mask) {
+            final int home = hash(_handles[index], _pages[index]) & _mask;
+            if (hole <= index ? hole < home && home <= index : hole < home || home <= index) {
+                continue;
+            }
+            _handles[hole] = _handles[index];
+            _pages[hole] = _pages[index];
+            _nodes[hole] = _nodes[index];
+            hole = index;
+        }
+        _nodes[hole] = null;
+        _size--;
+        return removed;
+    }
+
+    PageNode remove(final PageNode key) {
+        return remove(key.getVolumeHandle(), key.getPageAddress());
+    }
+
+    /**
+     * Remove all entries and release the space they occupied.
+     */
+    void clear() {
+        if (_nodes.length > INITIAL_CAPACITY) {
+            allocate(INITIAL_CAPACITY);
+        } else {
+            for (int index = 0; index < _nodes.length; index++) {
+                _nodes[index] = null;
+            }
+        }
+        _size = 0;
+    }
+
+    private void resize(final int capacity) {
+        final int[] handles = _handles;
+        final long[] pages = _pages;
+        final PageNode[] nodes = _nodes;
+        allocate(capacity);
+        for (int index = 0; index < nodes.length; index++) {
+            if (nodes[index] != null) {
+                final int slot = ~find(handles[index], pages[index]);
+                _handles[slot] = handles[index];
+                _pages[slot] = pages[index];
+                _nodes[slot] = nodes[index];
+            }
+        }
+    }
+
+    /**
+     * @return this map, for iteration over the most recent PageNode of each
+     *         page
+     */
+    Iterable<PageNode> values() {
+        return this;
+    }
+
+    /**
+     * Iterate over the most recent PageNode of each page. The map must not be
+     * modified during the iteration.
+     */
+    @Override
+    public Iterator<PageNode> iterator() {
+        return new Iterator<PageNode>() {
+            int _index = advance(0);
+
+            private int advance(int index) {
+                while (index < _nodes.length && _nodes[index] == null) {
+                    index++;
+                }
+                return index;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return _index < _nodes.length;
+            }
+
+            @Override
+            public PageNode next() {
+                if (_index >= _nodes.length) {
+                    throw new NoSuchElementException();
+                }
+                final PageNode pageNode = _nodes[_index];
+                _index = advance(_index + 1);
+                return pageNode;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
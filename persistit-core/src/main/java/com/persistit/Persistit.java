@@ -64,6 +64,7 @@ import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
 import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -210,6 +211,8 @@ public class Persistit {
   private volatile Configuration _configuration;
 
   private final HashMap<Integer, BufferPool> _bufferPoolTable = new HashMap<Integer, BufferPool>();
+
+  private final Map<String, BufferPool> _namedBufferPoolTable = new TreeMap<String, BufferPool>();
   private final ArrayList<Volume> _volumes = new ArrayList<Volume>();
 
   private final AtomicBoolean _initialized = new AtomicBoolean();
@@ -253,6 +256,10 @@ public class Persistit {
 
   private final IOMeter _ioMeter = new IOMeter();
 
+  private final ReadAheadManager _readAheadManager = new ReadAheadManager(this);
+
+  private final BufferWarmup _bufferWarmup = new BufferWarmup(this);
+
   private final AlertMonitor _alertMonitor = new AlertMonitor();
 
   private final TransactionIndex _transactionIndex = new TransactionIndex(_timestampAllocator, TRANSACTION_INDEX_SIZE);
@@ -276,6 +283,8 @@ public class Persistit {
 
   private volatile JoinPolicy _defaultJoinPolicy = DEFAULT_JOIN_POLICY;
 
+  private volatile int _defaultReadAhead;
+
   private volatile List<FatalErrorException> _fatalErrors = new ArrayList<FatalErrorException>();
 
   private volatile CommitPolicy _defaultCommitPolicy = DEFAULT_TRANSACTION_COMMIT_POLICY;
@@ -290,6 +299,8 @@ public class Persistit {
 
   private final ThreadLocal<SoftReference<Value>> _valueThreadLocal = new ThreadLocal<SoftReference<Value>>();
 
+  private final ThreadLocal<SoftReference<ByteBuffer>> _directBufferThreadLocal = new ThreadLocal<SoftReference<ByteBuffer>>();
+
   private final AtomicLong _uniqueCounter = new AtomicLong();
 
   private volatile Volume _lockVolume;
@@ -605,6 +616,7 @@ public class Persistit {
   private void initializeRecovery() throws PersistitException {
     final String journalPath = _configuration.getJournalPath();
     _recoveryManager.init(journalPath);
+    _recoveryManager.setRecoveryThreads(_configuration.getRecoveryThreads());
     _recoveryManager.buildRecoveryPlan();
   }
 
@@ -612,24 +624,45 @@ public class Persistit {
     final String journalPath = _configuration.getJournalPath();
     final long journalSize = _configuration.getJournalSize();
 
+    _journalManager.setWriteBufferSize(_configuration.getJournalWriteBufferSize());
+    _journalManager.setWriteBufferCount(_configuration.getJournalWriteBufferCount());
+    _journalManager.setDeltaPages(_configuration.getJournalDeltaPages());
+    _journalManager.setCompression(_configuration.getJournalCompression());
     _journalManager.init(_recoveryManager, journalPath, journalSize);
     _journalManager.setAppendOnly(_configuration.isAppendOnly());
     _journalManager.setIgnoreMissingVolumes(_configuration.isIgnoreMissingVolumes());
+    _journalManager.setCopierThreads(_configuration.getJournalCopierThreads());
+    _journalManager.setCommitLatencyTarget(_configuration.getCommitLatencyTarget());
   }
 
   private void initializeBufferPools() {
     for (final BufferPoolConfiguration config : _configuration.getBufferPoolMap().values()) {
-      final int poolSize = config.computeBufferCount(getAvailableHeap());
-      if (poolSize > 0) {
-        final int bufferSize = config.getBufferSize();
-        _logBase.allocateBuffers.log(poolSize, bufferSize);
-        final BufferPool pool = new BufferPool(poolSize, bufferSize, this);
-        _bufferPoolTable.put(bufferSize, pool);
-        if (_configuration.isJmxEnabled()) {
-          registerBufferPoolMXBean(bufferSize);
-        }
+      final BufferPool pool = createBufferPool(config);
+      if (pool != null) {
+        _bufferPoolTable.put(pool.getBufferSize(), pool);
       }
     }
+    for (final BufferPoolConfiguration config : _configuration.getNamedBufferPoolMap().values()) {
+      final BufferPool pool = createBufferPool(config);
+      if (pool != null) {
+        _namedBufferPoolTable.put(pool.getName(), pool);
+      }
+    }
+  }
+
+  private BufferPool createBufferPool(final BufferPoolConfiguration config) {
+    final int poolSize = config.computeBufferCount(getAvailableHeap());
+    if (poolSize <= 0) {
+      return null;
+    }
+    final int bufferSize = config.getBufferSize();
+    _logBase.allocateBuffers.log(poolSize, bufferSize);
+    final BufferPool pool = new BufferPool(poolSize, bufferSize, this, config.getName());
+    pool.setReplacementPolicy(config.getReplacementPolicy());
+    if (_configuration.isJmxEnabled()) {
+      registerBufferPoolMXBean(pool);
+    }
+    return pool;
   }
 
   private void initializeVolumes() throws PersistitException {
@@ -673,6 +706,7 @@ public class Persistit {
     }
     _defaultSplitPolicy = _configuration.getSplitPolicy();
     _defaultJoinPolicy = _configuration.getJoinPolicy();
+    _defaultReadAhead = _configuration.getReadAhead();
     _defaultCommitPolicy = _configuration.getCommitPolicy();
     _enableBufferInventory.set(_configuration.isBufferInventoryEnabled());
   }
@@ -686,6 +720,7 @@ public class Persistit {
   }
 
   void startCleanupManager() {
+    _cleanupManager.setCleanupThreads(_configuration.getCleanupThreads());
     _cleanupManager.start();
   }
 
@@ -694,7 +729,7 @@ public class Persistit {
   }
 
   void startBufferPools() throws PersistitException {
-    for (final BufferPool pool : _bufferPoolTable.values()) {
+    for (final BufferPool pool : getBufferPools()) {
       pool.startThreads();
     }
   }
@@ -702,7 +737,7 @@ public class Persistit {
   void recordBufferPoolInventory() {
     final long timestamp = _timestampAllocator.getCurrentTimestamp();
     if (_enableBufferInventory.get()) {
-      for (final BufferPool pool : _bufferPoolTable.values()) {
+      for (final BufferPool pool : getBufferPools()) {
         try {
           pool.recordBufferInventory(timestamp);
         } catch (final PersistitException e) {
@@ -714,9 +749,7 @@ public class Persistit {
 
   void preloadBufferPools() throws PersistitException {
     if (_configuration.isBufferPreloadEnabled()) {
-      for (final BufferPool pool : _bufferPoolTable.values()) {
-        pool.preloadBufferInventory();
-      }
+      _bufferWarmup.start(getBufferPools(), _configuration.getBufferPreloadThreads());
     }
   }
 
@@ -754,10 +787,10 @@ public class Persistit {
     }
   }
 
-  private void registerBufferPoolMXBean(final int bufferSize) {
+  private void registerBufferPoolMXBean(final BufferPool pool) {
     try {
-      final BufferPoolMXBean bean = new BufferPoolMXBeanImpl(this, bufferSize);
-      registerMBean(bean, BufferPoolMXBean.class, BufferPoolMXBeanImpl.mbeanName(bufferSize));
+      final BufferPoolMXBean bean = new BufferPoolMXBeanImpl(this, pool.getBufferSize(), pool.getName());
+      registerMBean(bean, BufferPoolMXBean.class, BufferPoolMXBeanImpl.mbeanName(pool));
     } catch (final Exception exception) {
       _logBase.mbeanException.log(exception);
     }
@@ -1342,6 +1375,26 @@ public class Persistit {
     return _defaultJoinPolicy;
   }
 
+  /**
+   * @return The number of pages read ahead by default by a sequential
+   *         traversal. Zero indicates read-ahead is disabled.
+   * @see Configuration#setReadAhead(int)
+   */
+  public int getDefaultReadAhead() {
+    return _defaultReadAhead;
+  }
+
+  /**
+   * Replace the default number of pages read ahead by a sequential traversal
+   * of a {@link Tree} for which no other value has been set.
+   * 
+   * @param readAhead
+   *            Number of pages, or zero to disable read-ahead
+   */
+  public void setDefaultReadAhead(final int readAhead) {
+    _defaultReadAhead = Util.rangeCheck(readAhead, 0, ReadAheadManager.MAXIMUM_READ_AHEAD);
+  }
+
   /**
    * Replace the current default {@link SplitPolicy}.
    * 
@@ -1436,7 +1489,7 @@ public class Persistit {
 
   final long earliestDirtyTimestamp() {
     long earliest = Long.MAX_VALUE;
-    for (final BufferPool pool : _bufferPoolTable.values()) {
+    for (final BufferPool pool : getBufferPools()) {
       earliest = Math.min(earliest, pool.getEarliestDirtyTimestamp());
     }
     return earliest;
@@ -1513,6 +1566,46 @@ public class Persistit {
     return _bufferPoolTable.get(new Integer(size));
   }
 
+  /**
+   * @param name
+   *            the name of a named buffer pool
+   * @return the named <code>BufferPool</code>, or <code>null</code> if there
+   *         is none
+   */
+  BufferPool getBufferPool(final String name) {
+    return _namedBufferPoolTable.get(name);
+  }
+
+  /**
+   * @param specification
+   *            a volume specification
+   * @return the <code>BufferPool</code> in which pages of the volume are to be
+   *         cached: the named pool given by the specification if it exists and
+   *         has the volume's page size, otherwise (after logging a warning)
+   *         the default pool for the page size
+   */
+  BufferPool getBufferPool(final VolumeSpecification specification) {
+    final String name = specification.getBufferPoolName();
+    if (name != null) {
+      final BufferPool pool = getBufferPool(name);
+      if (pool != null && pool.getBufferSize() == specification.getPageSize()) {
+        return pool;
+      }
+      _logBase.bufferPoolNotFound.log(specification.getName(), name, specification.getPageSize());
+    }
+    return getBufferPool(specification.getPageSize());
+  }
+
+  /**
+   * @return all <code>BufferPool</code>s: the default pool for each buffer
+   *         size followed by the named pools
+   */
+  List<BufferPool> getBufferPools() {
+    final List<BufferPool> pools = new ArrayList<BufferPool>(_bufferPoolTable.values());
+    pools.addAll(_namedBufferPoolTable.values());
+    return pools;
+  }
+
   /**
    * @return A HashMap containing all the <code>BufferPool</code>s keyed by
    *         their size.
@@ -1645,7 +1738,9 @@ public class Persistit {
           }
         }
       }
+      _bufferWarmup.close();
       recordBufferPoolInventory();
+      _readAheadManager.close();
       _cleanupManager.close(flush);
       waitForIOTaskStop(_cleanupManager);
 
@@ -1672,7 +1767,7 @@ public class Persistit {
 
       _closed.set(true);
 
-      for (final BufferPool pool : _bufferPoolTable.values()) {
+      for (final BufferPool pool : getBufferPools()) {
         pool.close();
       }
 
@@ -1688,7 +1783,7 @@ public class Persistit {
       }
 
       if (flush) {
-        for (final BufferPool pool : _bufferPoolTable.values()) {
+        for (final BufferPool pool : getBufferPools()) {
           final int count = pool.getDirtyPageCount();
           if (count > 0) {
             _logBase.strandedPages.log(pool, count);
@@ -1772,13 +1867,12 @@ public class Persistit {
         // ignore -
       }
     }
-    final Map<Integer, BufferPool> buffers = _bufferPoolTable;
-    if (buffers != null) {
-      for (final BufferPool pool : buffers.values()) {
-        pool.crash();
-      }
+    for (final BufferPool pool : getBufferPools()) {
+      pool.crash();
     }
     _transactionIndex.crash();
+    _bufferWarmup.close();
+    _readAheadManager.close();
     _cleanupManager.crash();
     _checkpointManager.crash();
     _closed.set(true);
@@ -1840,9 +1934,11 @@ public class Persistit {
     synchronized (this) {
       _alertMonitors.clear();
       _bufferPoolTable.clear();
+      _namedBufferPoolTable.clear();
       _intArrayThreadLocal.set(null);
       _keyThreadLocal.set(null);
       _valueThreadLocal.set(null);
+      _directBufferThreadLocal.set(null);
       _initialized.set(false);
       _sessionIdThreadLocal.remove();
       _cleanupManager.clear();
@@ -1890,7 +1986,7 @@ public class Persistit {
   }
 
   void flushBuffers(final long timestamp) throws PersistitInterruptedException {
-    for (final BufferPool pool : _bufferPoolTable.values()) {
+    for (final BufferPool pool : getBufferPools()) {
       pool.flush(timestamp);
     }
   }
@@ -2246,6 +2342,14 @@ public class Persistit {
     return _ioMeter;
   }
 
+  ReadAheadManager getReadAheadManager() {
+    return _readAheadManager;
+  }
+
+  BufferWarmup getBufferWarmup() {
+    return _bufferWarmup;
+  }
+
   public AlertMonitor getAlertMonitor() {
     return _alertMonitor;
   }
@@ -2563,6 +2667,19 @@ public class Persistit {
     return value;
   }
 
+  ByteBuffer getThreadLocalDirectBuffer(final int size) {
+    final SoftReference<ByteBuffer> ref = _directBufferThreadLocal.get();
+    if (ref != null) {
+      final ByteBuffer bb = ref.get();
+      if (bb != null && bb.capacity() >= size) {
+        return bb;
+      }
+    }
+    final ByteBuffer bb = ByteBuffer.allocateDirect(size);
+    _directBufferThreadLocal.set(new SoftReference<ByteBuffer>(bb));
+    return bb;
+  }
+
   long unique() {
     return _uniqueCounter.incrementAndGet();
   }
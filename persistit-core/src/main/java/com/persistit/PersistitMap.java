@@ -27,7 +27,9 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedMap;
 
+import com.persistit.Accumulator.SumAccumulator;
 import com.persistit.exception.PersistitException;
+import com.persistit.exception.RollbackException;
 
 /**
  * <p>
@@ -115,6 +117,17 @@ import com.persistit.exception.PersistitException;
  * former object value.
  * </p>
  * <p>
+ * By default {@link #size()} counts the members of the map by enumerating
+ * them, which for a large map is costly. A map constructed with
+ * {@link #PersistitMap(Exchange, int)} is instead <i>counted</i>: it maintains
+ * its cardinality in a {@link Accumulator.SumAccumulator} of the backing
+ * {@link Tree}, so that <code>size()</code> and <code>isEmpty()</code> take
+ * constant time and return a value consistent with the current transaction's
+ * snapshot. Every modification of a counted map updates the accumulator
+ * within the caller's transaction, or within a transaction of its own if none
+ * is active.
+ * </p>
+ * <p>
  * The <code>Iterator</code> implementations returned by the {@link #keySet},
  * {@link #values()} and {@link #entrySet()} provide methods to set and access a
  * {@link KeyFilter} for the iterator's traversal of keys in the map. With a
@@ -150,11 +163,23 @@ import com.persistit.exception.PersistitException;
  */
 public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K, V> {
 
+    /**
+     * Number of times an operation of a counted map that runs in its own
+     * transaction is retried after a write-write conflict
+     */
+    public final static int RETRY_COUNT = 10;
+
+    private final static long RETRY_DELAY = 1;
+
     private final Exchange _ex;
     private long _sizeGeneration;
     private int _size;
     private boolean _allowConcurrentModification = false;
     //
+    // Holds the number of members of a counted map; null otherwise.
+    //
+    private final SumAccumulator _counter;
+    //
     // These fields are used for subMaps.
     //
     private Key _fromKey;
@@ -182,6 +207,51 @@ public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K
 
         _ex.append(Key.BEFORE);
         _sizeGeneration = -1; // Unknown
+        _counter = null;
+    }
+
+    /**
+     * Construct a counted PersistitMap over a particular Exchange. The number
+     * of members of the map is maintained in the <code>SumAccumulator</code>
+     * of the <code>Exchange</code>'s {@link Tree} having the supplied index.
+     * That accumulator must be dedicated to this map: the map must be empty
+     * when it is first used in counted mode, and every subsequent modification
+     * of its keys must be made through a counted <code>PersistitMap</code>
+     * using the same accumulator index.
+     * <p>
+     * Each operation that modifies a counted map updates its keys and the
+     * accumulator within a transaction. Outside the caller's transaction the
+     * operation runs in a transaction of its own and is retried up to
+     * {@value #RETRY_COUNT} times when it conflicts with a concurrent update,
+     * after which the {@link RollbackException} is thrown. Within the caller's
+     * transaction a conflict throws <code>RollbackException</code> to the
+     * caller, which must roll back and may retry its transaction.
+     * 
+     * @param ex
+     *            A <code>Exchange</code> that serves as the parent of the Map's
+     *            keys. This constructor makes a copy of the
+     *            <code>Exchange</code>. The original Exchange is unchanged, and
+     *            may be reused by the caller.
+     * @param accumulatorIndex
+     *            Index of the <code>SumAccumulator</code> that holds the size
+     *            of the map
+     * 
+     * @throws IllegalArgumentException
+     *             if the index is out of range
+     * @throws IllegalStateException
+     *             if the <code>Tree</code> already has an
+     *             <code>Accumulator</code> of a different type at the index
+     */
+    public PersistitMap(final Exchange ex, final int accumulatorIndex) {
+        _ex = new Exchange(ex);
+
+        _ex.append(Key.BEFORE);
+        _sizeGeneration = -1; // Unknown
+        try {
+            _counter = _ex.getTree().getSumAccumulator(accumulatorIndex);
+        } catch (final PersistitException de) {
+            throw new PersistitMapException(de);
+        }
     }
 
     /**
@@ -203,6 +273,7 @@ public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K
         _ex = new Exchange(pm._ex);
 
         _sizeGeneration = -1; // Unknown
+        _counter = pm._counter;
         if (useFrom) {
             final Key key = new Key(_ex.getKey());
             try {
@@ -266,6 +337,16 @@ public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K
         _allowConcurrentModification = allow;
     }
 
+    /**
+     * Indicate whether this map maintains its size in an {@link Accumulator}.
+     * See {@link #PersistitMap(Exchange, int)}.
+     * 
+     * @return <code>true</code> if this map is counted
+     */
+    public boolean isCounted() {
+        return _counter != null;
+    }
+
     private void toLeftEdge() {
         if (_fromKey == null) {
             _ex.to(Key.BEFORE);
@@ -303,34 +384,23 @@ public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K
      * the value returned is <code>Integer.MAX_VALUE</code>.
      * <p>
      * This implementation enumerates all the members of the Map, which for a
-     * large database could be time-consuming.
+     * large database could be time-consuming. A counted map (see
+     * {@link #PersistitMap(Exchange, int)}) instead returns the snapshot value
+     * of its accumulator in constant time; a submap of a counted map still
+     * enumerates its members.
      * 
      * @return the number of key-value mappings in this map.
      */
     @Override
     public synchronized int size() {
+        if (isCountedRange()) {
+            return (int) Math.min(countedSize(), Integer.MAX_VALUE);
+        }
         if (_ex.getChangeCount() == _sizeGeneration) {
             return _size;
         }
-        int size = 0;
         try {
-            toLeftEdge();
-            while (_ex.traverse(size == 0 ? Key.GTEQ : Key.GT, false, 0)) {
-                if (_toKey != null && _ex.getKey().compareTo(_toKey) >= 0) {
-                    break;
-                }
-
-                //
-                // The following code fails (!) in HotSpot if you remove the -1.
-                // If you remove the -1, then the value of size does not get
-                // incremented, and the iteration through traverse above
-                // uses GTEQ rather than GT in an infinite loop.
-                //
-                if (size < Integer.MAX_VALUE - 1) {
-                    size++;
-                }
-            }
-            _size = size;
+            _size = countEntries();
             _sizeGeneration = _ex.getChangeCount();
             return _size;
         } catch (final PersistitException de) {
@@ -338,6 +408,94 @@ public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K
         }
     }
 
+    /**
+     * Enumerate the members of this map.
+     * 
+     * @return the number of members, capped at
+     *         <code>Integer.MAX_VALUE - 1</code>
+     * @throws PersistitException
+     */
+    private int countEntries() throws PersistitException {
+        int size = 0;
+        toLeftEdge();
+        while (_ex.traverse(size == 0 ? Key.GTEQ : Key.GT, false, 0)) {
+            if (_toKey != null && _ex.getKey().compareTo(_toKey) >= 0) {
+                break;
+            }
+
+            //
+            // The following code fails (!) in HotSpot if you remove the -1.
+            // If you remove the -1, then the value of size does not get
+            // incremented, and the iteration through traverse above
+            // uses GTEQ rather than GT in an infinite loop.
+            //
+            if (size < Integer.MAX_VALUE - 1) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return <code>true</code> if this map is counted and covers the entire
+     *         range of its accumulator, so that the accumulator holds its size
+     */
+    private boolean isCountedRange() {
+        return _counter != null && _fromKey == null && _toKey == null;
+    }
+
+    /**
+     * @return the snapshot value of the accumulator of a counted map
+     */
+    private long countedSize() {
+        try {
+            final long[] size = new long[1];
+            runCounted(new TransactionRunnable() {
+                @Override
+                public void runTransaction() throws PersistitException {
+                    size[0] = _counter.getSnapshotValue();
+                }
+            });
+            return size[0];
+        } catch (final PersistitException de) {
+            throw new PersistitMapException(de);
+        }
+    }
+
+    /**
+     * Run an operation that may update the accumulator of a counted map. The
+     * operation of a counted map runs within a transaction, nested in the
+     * caller's transaction if one is active, and is otherwise retried up to
+     * {@value #RETRY_COUNT} times after a write-write conflict. The operation
+     * of a map that is not counted runs directly. Because the operation may
+     * run more than once, it must not modify state outside the transaction.
+     * 
+     * @param runnable
+     *            the operation
+     * @throws PersistitException
+     */
+    private void runCounted(final TransactionRunnable runnable) throws PersistitException {
+        if (_counter == null) {
+            runnable.runTransaction();
+        } else {
+            _ex.getTransaction().run(runnable, RETRY_COUNT, RETRY_DELAY,
+                    _ex.getPersistitInstance().getDefaultTransactionCommitPolicy());
+        }
+    }
+
+    /**
+     * Add the supplied delta to the accumulator of a counted map. Must be
+     * called within the scope of a transaction.
+     * 
+     * @param delta
+     *            number of keys added, or negative number of keys removed
+     */
+    private void count(final long delta) {
+        if (_counter != null && delta != 0) {
+            _counter.add(delta);
+        }
+    }
+
     /**
      * Return <code>true</code> if this map contains no key-value mappings.
      * <p>
@@ -349,6 +507,9 @@ public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K
      */
     @Override
     public synchronized boolean isEmpty() {
+        if (isCountedRange()) {
+            return countedSize() == 0;
+        }
         if (_ex.getChangeCount() == _sizeGeneration) {
             return _size == 0;
         }
@@ -520,16 +681,27 @@ public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K
             }
 
             final long changeCount = _sizeGeneration;
-            Object result = null;
-            _ex.getValue().put(value);
-            _ex.fetchAndStore();
-            if (_ex.getValue().isDefined()) {
-                result = _ex.getValue().get();
-            } else {
+            final Object[] result = new Object[1];
+            final boolean[] added = new boolean[1];
+            runCounted(new TransactionRunnable() {
+                @Override
+                public void runTransaction() throws PersistitException {
+                    _ex.getValue().put(value);
+                    _ex.fetchAndStore();
+                    added[0] = !_ex.getValue().isDefined();
+                    if (added[0]) {
+                        result[0] = null;
+                        count(1);
+                    } else {
+                        result[0] = _ex.getValue().get();
+                    }
+                }
+            });
+            if (added[0]) {
                 adjustSize(changeCount, 1);
             }
 
-            return (V) result;
+            return (V) result[0];
         } catch (final PersistitException de) {
             throw new PersistitMapException(de);
         }
@@ -569,8 +741,25 @@ public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K
                 throw new IllegalArgumentException("Key " + key + " is out of submap range");
             }
 
-            _ex.getValue().put(value);
-            _ex.store();
+            if (_counter == null) {
+                _ex.getValue().put(value);
+                _ex.store();
+            } else {
+                //
+                // A counted map needs to know whether the key is new, but
+                // the former value is not deserialized.
+                //
+                runCounted(new TransactionRunnable() {
+                    @Override
+                    public void runTransaction() throws PersistitException {
+                        _ex.getValue().put(value);
+                        _ex.fetchAndStore();
+                        if (!_ex.getValue().isDefined()) {
+                            count(1);
+                        }
+                    }
+                });
+            }
             _sizeGeneration = -1;
         } catch (final PersistitException de) {
             throw new PersistitMapException(de);
@@ -601,15 +790,25 @@ public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K
                 throw new IllegalArgumentException("Key " + key + " is out of submap range");
             }
             final long changeCount = _sizeGeneration;
-            final boolean removed = _ex.fetchAndRemove();
-            Object result = null;
-            if (removed) {
-                adjustSize(changeCount, -1);
-                if (_ex.getValue().isDefined()) {
-                    result = _ex.getValue().get();
+            final Object[] result = new Object[1];
+            final boolean[] removed = new boolean[1];
+            runCounted(new TransactionRunnable() {
+                @Override
+                public void runTransaction() throws PersistitException {
+                    removed[0] = _ex.fetchAndRemove();
+                    result[0] = null;
+                    if (removed[0]) {
+                        count(-1);
+                        if (_ex.getValue().isDefined()) {
+                            result[0] = _ex.getValue().get();
+                        }
+                    }
                 }
+            });
+            if (removed[0]) {
+                adjustSize(changeCount, -1);
             }
-            return (V) result;
+            return (V) result[0];
         } catch (final PersistitException de) {
             throw new PersistitMapException(de);
         }
@@ -632,8 +831,17 @@ public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K
                 throw new IllegalArgumentException("Key " + key + " is out of submap range");
             }
             final long changeCount = _sizeGeneration;
-            final boolean removed = _ex.remove();
-            if (removed) {
+            final boolean[] removed = new boolean[1];
+            runCounted(new TransactionRunnable() {
+                @Override
+                public void runTransaction() throws PersistitException {
+                    removed[0] = _ex.remove();
+                    if (removed[0]) {
+                        count(-1);
+                    }
+                }
+            });
+            if (removed[0]) {
                 adjustSize(changeCount, -1);
             }
         } catch (final PersistitException de) {
@@ -715,7 +923,16 @@ public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K
             } else {
                 _toKey.copyTo(key);
             }
-            _ex.removeKeyRange(_ex.getKey(), key);
+            runCounted(new TransactionRunnable() {
+                @Override
+                public void runTransaction() throws PersistitException {
+                    if (_counter != null) {
+                        count(isCountedRange() ? -_counter.getSnapshotValue() : -countEntries());
+                    }
+                    toLeftEdge();
+                    _ex.removeKeyRange(_ex.getKey(), key);
+                }
+            });
             _size = 0;
             _sizeGeneration = _ex.getChangeCount();
         } catch (final PersistitException de) {
@@ -802,12 +1019,20 @@ public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K
             Object result = null;
             try {
                 _ex.to(_key);
-                _ex.getValue().put(value);
-                long changeCount = _ex.getChangeCount();
-                _ex.fetchAndStore();
-                if (!_ex.getValue().isDefined())
-                    changeCount++;
-                _iterator._changeCount = changeCount;
+                final long changeCount = _ex.getChangeCount();
+                final boolean[] added = new boolean[1];
+                runCounted(new TransactionRunnable() {
+                    @Override
+                    public void runTransaction() throws PersistitException {
+                        _ex.getValue().put(value);
+                        _ex.fetchAndStore();
+                        added[0] = !_ex.getValue().isDefined();
+                        if (added[0]) {
+                            count(1);
+                        }
+                    }
+                });
+                _iterator._changeCount = added[0] ? changeCount + 1 : changeCount;
                 result = _value;
             } catch (final PersistitException pe) {
                 throw new PersistitMapException(pe);
@@ -1018,23 +1243,38 @@ public class PersistitMap<K, V> extends AbstractMap<K, V> implements SortedMap<K
                 throw new ConcurrentModificationException();
             }
 
-            boolean removed = false;
+            final boolean[] removed = new boolean[1];
+            final boolean[] transactional = new boolean[1];
             final long changeCount = _iteratorExchange.getChangeCount();
             if (_traversed) {
                 _trailingKey.copyTo(_iteratorExchange.getKey());
                 _traversed = false;
             }
             try {
-                removed = _iteratorExchange.remove();
+                _pm.runCounted(new TransactionRunnable() {
+                    @Override
+                    public void runTransaction() throws PersistitException {
+                        transactional[0] = _iteratorExchange.isRemoveTransactional();
+                        removed[0] = _iteratorExchange.remove();
+                        if (removed[0]) {
+                            _pm.count(-1);
+                        }
+                    }
+                });
             } catch (final PersistitException e) {
                 throw new PersistitMapException(e);
             }
-            if (!removed) {
+            if (!removed[0]) {
                 throw new NoSuchElementException();
             } else {
                 _pm.adjustSize(changeCount, -1);
-
-                if (!_allowCM && _iteratorExchange.getChangeCount() != changeCount + 1) {
+                //
+                // A remove within a transaction leaves an AntiValue version of
+                // the key in place and does not change the count; any other
+                // remove changes it once.
+                //
+                final long expected = transactional[0] ? 0 : 1;
+                if (!_allowCM && _iteratorExchange.getChangeCount() - changeCount != expected) {
                     _changeCount = _iteratorExchange.getChangeCount();
                     throw new ConcurrentModificationException();
                 }
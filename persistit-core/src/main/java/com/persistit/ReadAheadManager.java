@@ -0,0 +1,308 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import static com.persistit.Buffer.KEY_BLOCK_START;
+import static com.persistit.Buffer.PAGE_TYPE_INDEX_MIN;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.persistit.exception.PersistitException;
+
+/**
+ * <p>
+ * Loads data pages into the {@link BufferPool} ahead of an {@link Exchange}
+ * that is traversing a {@link Tree} sequentially. Each <code>Exchange</code>
+ * for which read-ahead is enabled owns a {@link Stream}. When the
+ * <code>Exchange</code> crosses from a data page to its right sibling the
+ * <code>Stream</code> is notified; after {@value #SEQUENTIAL_THRESHOLD}
+ * consecutive crossings the traversal is deemed sequential and a request is
+ * queued for a small pool of background threads.
+ * </p>
+ * <p>
+ * A data page does not record the address of any page beyond its immediate
+ * right sibling, so the background thread finds the pages to load in the
+ * parent index page, whose address the <code>Exchange</code> knows from its
+ * level cache. The thread locates the pointer to the page just entered and
+ * reads the pages named by the following pointers, moving to the right
+ * sibling of the index page as necessary. It remembers the index page in
+ * which it last found the pointer so that a long traversal does not have to
+ * revisit earlier index pages.
+ * </p>
+ * <p>
+ * Read-ahead is purely advisory. Requests are discarded when the queue is
+ * full, and a request that encounters any exception simply stops. Pages are
+ * loaded with {@link BufferPool#prefetch(Volume, long)}, which accounts for
+ * prefetched pages that are subsequently used and those evicted unused in the
+ * {@link IOMeter}.
+ * </p>
+ */
+class ReadAheadManager {
+
+    final static int DEFAULT_THREAD_COUNT = 2;
+
+    final static int MAXIMUM_THREAD_COUNT = 64;
+
+    final static int MAXIMUM_READ_AHEAD = 1024;
+
+    /**
+     * Number of consecutive right-sibling crossings after which a traversal is
+     * considered sequential
+     */
+    final static int SEQUENTIAL_THRESHOLD = 2;
+
+    /**
+     * Maximum number of index pages to the right of the remembered index page
+     * that are examined to find the page being traversed
+     */
+    final static int MAXIMUM_INDEX_HOPS = 4;
+
+    private final static int QUEUE_SIZE_PER_THREAD = 16;
+
+    private final static String THREAD_NAME = "READ_AHEAD";
+
+    private final static long KEEP_ALIVE_SECONDS = 60;
+
+    private final Persistit _persistit;
+
+    private ThreadPoolExecutor _executor;
+
+    private boolean _closed;
+
+    private final AtomicLong _requestCounter = new AtomicLong();
+
+    private final AtomicLong _discardedCounter = new AtomicLong();
+
+    ReadAheadManager(final Persistit persistit) {
+        _persistit = persistit;
+    }
+
+    /**
+     * @return a new <code>Stream</code> to be owned by one {@link Exchange}
+     */
+    Stream newStream() {
+        return new Stream();
+    }
+
+    /**
+     * Stop accepting requests and discard any that are queued.
+     */
+    synchronized void close() {
+        _closed = true;
+        if (_executor != null) {
+            _executor.shutdownNow();
+            _executor = null;
+        }
+    }
+
+    long getRequestCount() {
+        return _requestCounter.get();
+    }
+
+    long getDiscardedCount() {
+        return _discardedCounter.get();
+    }
+
+    private boolean submit(final Stream stream) {
+        final ThreadPoolExecutor executor = executor();
+        if (executor != null) {
+            try {
+                executor.execute(stream);
+                _requestCounter.incrementAndGet();
+                return true;
+            } catch (final RejectedExecutionException e) {
+                // queue is full or the executor has been shut down
+            }
+        }
+        _discardedCounter.incrementAndGet();
+        return false;
+    }
+
+    private synchronized ThreadPoolExecutor executor() {
+        if (_executor == null && !_closed) {
+            final int threads = _persistit.getConfiguration() == null ? DEFAULT_THREAD_COUNT : _persistit
+                    .getConfiguration().getReadAheadThreads();
+            final AtomicInteger counter = new AtomicInteger();
+            _executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(threads * QUEUE_SIZE_PER_THREAD), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(final Runnable runnable) {
+                            final Thread thread = new Thread(runnable, THREAD_NAME + "_" + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    }, new ThreadPoolExecutor.AbortPolicy());
+            _executor.allowCoreThreadTimeOut(true);
+        }
+        return _executor;
+    }
+
+    /**
+     * Read-ahead state of a single {@link Exchange}. The
+     * {@link #crossed(Volume, long, long, long, int)} and {@link #reset()}
+     * methods are called only by the thread using the <code>Exchange</code>;
+     * {@link #run()} is called by a read-ahead thread. At most one request per
+     * <code>Stream</code> is outstanding at any time.
+     */
+    class Stream implements Runnable {
+        /*
+         * Accessed only by the Exchange's thread
+         */
+        private Volume _lastVolume;
+        private long _lastPage;
+        private int _sequential;
+        private int _remaining;
+
+        /*
+         * Handed to the read-ahead thread
+         */
+        private final AtomicBoolean _pending = new AtomicBoolean();
+        private volatile Volume _volume;
+        private volatile long _indexPage;
+        private volatile long _fromPage;
+        private volatile int _count;
+
+        /**
+         * Forget the traversal history
+         */
+        void reset() {
+            _lastVolume = null;
+            _lastPage = 0;
+            _sequential = 0;
+            _remaining = 0;
+        }
+
+        /**
+         * Called when the traversal moves from a data page to its right
+         * sibling.
+         *
+         * @param volume
+         *            the Volume
+         * @param indexPage
+         *            address of the index page that was the parent of the
+         *            page being left when it was last found by a search
+         * @param page
+         *            address of the page being left
+         * @param rightSibling
+         *            address of the page being entered
+         * @param readAhead
+         *            number of pages to read ahead of the page being entered
+         */
+        void crossed(final Volume volume, final long indexPage, final long page, final long rightSibling,
+                final int readAhead) {
+            if (page == _lastPage && volume == _lastVolume) {
+                _sequential++;
+            } else {
+                _sequential = 1;
+                _remaining = 0;
+            }
+            _lastVolume = volume;
+            _lastPage = rightSibling;
+            if (_sequential < SEQUENTIAL_THRESHOLD || --_remaining > readAhead / 2) {
+                return;
+            }
+            if (!_pending.compareAndSet(false, true)) {
+                return;
+            }
+            if (_sequential == SEQUENTIAL_THRESHOLD) {
+                _indexPage = indexPage;
+            }
+            _volume = volume;
+            _fromPage = rightSibling;
+            _count = readAhead;
+            if (submit(this)) {
+                _remaining = readAhead;
+            } else {
+                _pending.set(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                final long[] pages = new long[_count];
+                final int found = findPages(pages);
+                final BufferPool pool = _volume.getPool();
+                for (int index = 0; index < found && !_persistit.isClosed(); index++) {
+                    pool.prefetch(_volume, pages[index]);
+                }
+            } catch (final PersistitException e) {
+                // Read-ahead is advisory only
+            } catch (final RuntimeException e) {
+                // Read-ahead is advisory only
+            } finally {
+                _pending.set(false);
+            }
+        }
+
+        /**
+         * Collect the addresses of the pages following {@link #_fromPage} in
+         * the parent index level.
+         *
+         * @param pages
+         *            array to receive the page addresses
+         * @return number of page addresses found
+         * @throws PersistitException
+         */
+        private int findPages(final long[] pages) throws PersistitException {
+            final Volume volume = _volume;
+            final BufferPool pool = volume.getPool();
+            final long fromPage = _fromPage;
+            long indexPage = _indexPage;
+            boolean located = false;
+            int found = 0;
+            for (int hop = 0; hop <= MAXIMUM_INDEX_HOPS && indexPage > 0 && found < pages.length; hop++) {
+                final Buffer buffer = pool.get(volume, indexPage, false, true);
+                try {
+                    if (buffer.getPageType() != PAGE_TYPE_INDEX_MIN) {
+                        break;
+                    }
+                    final int end = buffer.getKeyBlockEnd();
+                    for (int p = KEY_BLOCK_START; p != -1 && p < end && found < pages.length; p = buffer
+                            .nextKeyBlock(p)) {
+                        final long pointer = buffer.getPointer(p);
+                        if (located) {
+                            if (pointer > 0) {
+                                pages[found++] = pointer;
+                            }
+                        } else if (pointer == fromPage) {
+                            located = true;
+                            _indexPage = indexPage;
+                        }
+                    }
+                    indexPage = buffer.getRightSibling();
+                } finally {
+                    buffer.release();
+                }
+            }
+            if (!located && indexPage > 0) {
+                //
+                // The traversal has moved beyond the pages examined
+                //
+                _indexPage = indexPage;
+            }
+            return found;
+        }
+    }
+}
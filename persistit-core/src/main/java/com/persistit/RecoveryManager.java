@@ -28,10 +28,7 @@ import static com.persistit.util.Util.println;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
@@ -55,10 +52,13 @@ import com.persistit.JournalRecord.IV;
 import com.persistit.JournalRecord.JE;
 import com.persistit.JournalRecord.JH;
 import com.persistit.JournalRecord.PA;
+import com.persistit.JournalRecord.PD;
 import com.persistit.JournalRecord.PM;
+import com.persistit.JournalRecord.PZ;
 import com.persistit.JournalRecord.SR;
 import com.persistit.JournalRecord.TM;
 import com.persistit.JournalRecord.TX;
+import com.persistit.JournalRecord.TZ;
 import com.persistit.TransactionPlayer.TransactionPlayerListener;
 import com.persistit.exception.CorruptJournalException;
 import com.persistit.exception.PersistitException;
@@ -162,9 +162,9 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
 
     private final Map<Long, TransactionMapItem> _abortedTransactionMap = new HashMap<Long, TransactionMapItem>();
 
-    private final Map<PageNode, PageNode> _pageMap = new HashMap<PageNode, PageNode>();
+    private final PageMap _pageMap = new PageMap();
 
-    private final Map<PageNode, PageNode> _branchMap = new HashMap<PageNode, PageNode>();
+    private final PageMap _branchMap = new PageMap();
 
     private final Map<Volume, Integer> _volumeToHandleMap = new HashMap<Volume, Integer>();
 
@@ -178,7 +178,7 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
 
     private long _lastValidCheckpointJournalAddress;
 
-    private final Map<Long, FileChannel> _journalFileChannels = new HashMap<Long, FileChannel>();
+    private final JournalReader _reader = new JournalReader();
 
     private volatile int _committedTransactionCount;
 
@@ -190,6 +190,8 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
 
     private volatile int _errorCount;
 
+    private volatile int _recoveryThreads = DEFAULT_RECOVERY_THREADS;
+
     private volatile boolean _recoveryDisabledForTestMode;
 
     private String _journalFilePath;
@@ -204,12 +206,14 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
 
     private long _keystoneAddress;
 
+    /**
+     * Buffer positioned at the most recently read record: a window of the
+     * journal file mapped by {@link #_reader}
+     */
     private ByteBuffer _readBuffer;
 
     private final int _readBufferSize = DEFAULT_BUFFER_SIZE;
 
-    private long _readBufferAddress;
-
     private long _currentAddress;
 
     private final long _recoveryStatus = Long.MIN_VALUE;
@@ -467,7 +471,6 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
 
     public void init(final String path) throws PersistitException {
         _journalFilePath = JournalManager.journalPath(path).getAbsolutePath();
-        _readBuffer = ByteBuffer.allocate(_readBufferSize);
     }
 
     @Override
@@ -507,6 +510,24 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
         return _errorCount;
     }
 
+    @Override
+    public int getRecoveryThreads() {
+        return _recoveryThreads;
+    }
+
+    /**
+     * Set the number of threads that apply recovered transactions. With more
+     * than one thread, updates are applied by worker threads partitioned by
+     * tree while this thread reads the journal.
+     * 
+     * @param recoveryThreads
+     *            number of threads
+     */
+    void setRecoveryThreads(final int recoveryThreads) {
+        Util.rangeCheck(recoveryThreads, 1, MAXIMUM_RECOVERY_THREADS);
+        _recoveryThreads = recoveryThreads;
+    }
+
     public Checkpoint getLastValidCheckpoint() {
         return _lastValidCheckpoint;
     }
@@ -596,7 +617,7 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
      * 
      * @param pageMap
      */
-    void collectRecoveredPages(final Map<PageNode, PageNode> pageMap, final Map<PageNode, PageNode> branchMap) {
+    void collectRecoveredPages(final PageMap pageMap, final PageMap branchMap) {
         if (_lastValidCheckpoint != null) {
             final long lastValidTimestamp = _lastValidCheckpoint.getTimestamp();
 
@@ -609,11 +630,11 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
                         if (branched) {
                             previous.setPrevious(null);
                         }
-                        pageMap.put(pageNode, pageNode);
+                        pageMap.put(pageNode);
                         break;
                     } else {
                         if (!branched) {
-                            branchMap.put(pageNode, pageNode);
+                            branchMap.put(pageNode);
                             branched = true;
                         }
                         previous = pageNode;
@@ -655,15 +676,7 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
         if (_recoveryDisabledForTestMode) {
             return;
         }
-        for (final FileChannel channel : _journalFileChannels.values()) {
-            if (channel != null) {
-                try {
-                    channel.close();
-                } catch (final IOException ioe) {
-                    // Closing it just to be polite to file handle count
-                }
-            }
-        }
+        _reader.close();
         _recoveredTransactionMap.clear();
         _pageMap.clear();
         _volumeToHandleMap.clear();
@@ -671,7 +684,7 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
         _treeToHandleMap.clear();
         _handleToTreeMap.clear();
         _readBuffer = null;
-        _journalFileChannels.clear();
+        JournalCodec.releaseAll();
     }
 
     /**
@@ -693,31 +706,6 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
         _recoveryDisabledForTestMode = recoveryDisabledForTestMode;
     }
 
-    /**
-     * Return the <code>FileChannel</code> for the journal file containing the
-     * supplied <code>address</code>. If necessary, create a new
-     * {@link MediatedFileChannel}.
-     * 
-     * @param address
-     *            the journal address of a record in the journal for which the
-     *            corresponding channel will be returned
-     * @throws PersistitIOException
-     *             if the <code>MediatedFileChannel</code> cannot be created
-     */
-    synchronized FileChannel getFileChannel(final long address) throws PersistitIOException {
-        final long generation = address / _blockSize;
-        FileChannel channel = _journalFileChannels.get(generation);
-        if (channel == null) {
-            try {
-                channel = new MediatedFileChannel(addressToFile(address), "r");
-                _journalFileChannels.put(generation, channel);
-            } catch (final IOException ioe) {
-                throw new PersistitIOException(ioe);
-            }
-        }
-        return channel;
-    }
-
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
@@ -758,26 +746,19 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
             final File candidate = files[fileIndex];
             _keystoneFile = candidate;
             final long generation = JournalManager.fileToGeneration(candidate);
-            final long size;
 
             try {
                 //
                 // Attempt to read and validate a journal file as a candidate
                 // keystone.
                 //
-                final RandomAccessFile raf = new RandomAccessFile(candidate, "r");
-                final FileChannel readChannel = raf.getChannel();
-                size = Math.min(readChannel.size(), DEFAULT_BUFFER_SIZE);
-                if (size < JH.OVERHEAD) {
+                _readBuffer = _reader.read(candidate, 0, JH.OVERHEAD);
+                if (_readBuffer == null) {
                     // This file cannot be a valid journal file because
                     // it's too short.
                     throw new CorruptJournalException(String.format(
                             "Invalid Persistit journal file %s - no journal header", candidate));
                 }
-                _readBufferAddress = 0;
-                _readBuffer.limit(JH.MAX_LENGTH);
-                readChannel.read(_readBuffer, 0);
-                _readBuffer.flip();
                 final int recordSize = JH.getLength(_readBuffer);
 
                 final long version = JH.getVersion(_readBuffer);
@@ -799,7 +780,6 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
                 validate(_baseAddress, candidate, 0, 0, _keystoneAddress,
                         "Base address %3$,d after current address %4$,d:  at %1$s:%2$,d");
 
-                readChannel.close();
                 //
                 // The JH record is valid. Now read records until a CP record is
                 // found.
@@ -853,8 +833,6 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
                 } else {
                     throw savedException;
                 }
-            } catch (final IOException ioe) {
-                throw new PersistitIOException(ioe);
             }
         }
     }
@@ -873,38 +851,11 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
     }
 
     private void read(final long address, final int size) throws PersistitIOException {
-        if (_readBufferAddress >= 0 && address >= _readBufferAddress
-                && size + address - _readBufferAddress <= _readBuffer.limit()) {
-            _readBuffer.position((int) (address - _readBufferAddress));
-        } else {
-            try {
-                final FileChannel fc = getFileChannel(address);
-                _readBuffer.clear();
-
-                int maxSize = _readBuffer.capacity();
-                final long remainingInBlock = addressUp(address) - address;
-                if (remainingInBlock < maxSize) {
-                    maxSize = (int) remainingInBlock;
-                }
-
-                _readBuffer.limit(maxSize);
-                int offset = 0;
-                while (_readBuffer.remaining() > 0) {
-                    final int readSize = fc.read(_readBuffer, offset + address % _blockSize);
-                    if (readSize < 0) {
-                        break;
-                    }
-                    offset += readSize;
-                }
-                _readBufferAddress = address;
-                _readBuffer.flip();
-                if (_readBuffer.remaining() < size) {
-                    throw new CorruptJournalException("End of file at " + addressToString(address));
-                }
-            } catch (final IOException e) {
-                throw new PersistitIOException("Reading from " + addressToString(address), e);
-            }
+        final ByteBuffer bb = _reader.read(addressToFile(address), address % _blockSize, size);
+        if (bb == null) {
+            throw new CorruptJournalException("End of file at " + addressToString(address));
         }
+        _readBuffer = bb;
     }
 
     /**
@@ -959,6 +910,8 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
             break;
 
         case PA.TYPE:
+        case PD.TYPE:
+        case PZ.TYPE:
             scanLoadPage(from, timestamp, recordSize);
             break;
 
@@ -971,6 +924,7 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
             break;
 
         case TX.TYPE:
+        case TZ.TYPE:
             scanOneTransaction(from, timestamp, recordSize);
             break;
 
@@ -1056,7 +1010,8 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
     }
 
     /**
-     * Process a PA (page) record in the journal. Adds an entry to the Page Map.
+     * Process a PA (page), PD (page delta) or PZ (compressed page) record in
+     * the journal. Adds an entry to the Page Map.
      * 
      * @param address
      * @param timestamp
@@ -1086,9 +1041,9 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
             final PageNode pageNode = new PageNode(volumeHandle, pageAddress, address, timestamp);
             final PageNode oldPageNode = _pageMap.get(pageNode);
             pageNode.setPrevious(oldPageNode);
-            _pageMap.put(pageNode, pageNode);
-            _persistit.getLogBase().recoveryRecord.log("PA", pageNode.toStringJournalAddress(this),
-                    pageNode.toStringPageAddress(this), timestamp);
+            _pageMap.put(pageNode);
+            _persistit.getLogBase().recoveryRecord.log(JournalRecord.str(getType(_readBuffer)),
+                    pageNode.toStringJournalAddress(this), pageNode.toStringPageAddress(this), timestamp);
         }
     }
 
@@ -1112,7 +1067,7 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
 
         for (int remaining = count; remaining > 0; remaining--) {
             if (index == loaded) {
-                final int loadedSize = Math.min((_readBuffer.capacity() / PM.ENTRY_SIZE), remaining) * PM.ENTRY_SIZE;
+                final int loadedSize = Math.min((_readBufferSize / PM.ENTRY_SIZE), remaining) * PM.ENTRY_SIZE;
                 read(address, loadedSize);
                 address += loadedSize;
                 index = 0;
@@ -1161,14 +1116,14 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
                 lastPageNode = _branchMap.get(pageNode);
                 if (lastPageNode == null || journalAddress > lastPageNode.getJournalAddress()) {
                     pageNode.setPrevious(lastPageNode);
-                    _branchMap.put(pageNode, pageNode);
+                    _branchMap.put(pageNode);
                     linked = true;
                 }
             } else {
                 lastPageNode = _pageMap.get(pageNode);
                 if (lastPageNode == null || journalAddress > lastPageNode.getJournalAddress()) {
                     pageNode.setPrevious(lastPageNode);
-                    _pageMap.put(pageNode, pageNode);
+                    _pageMap.put(pageNode);
                     linked = true;
                 }
             }
@@ -1210,7 +1165,7 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
         int loaded = 0;
         for (int remaining = count; remaining > 0; remaining--) {
             if (index == loaded) {
-                final int loadedSize = Math.min(_readBuffer.capacity() / TM.ENTRY_SIZE, remaining) * TM.ENTRY_SIZE;
+                final int loadedSize = Math.min(_readBufferSize / TM.ENTRY_SIZE, remaining) * TM.ENTRY_SIZE;
                 read(address, loadedSize);
                 address += loadedSize;
                 index = 0;
@@ -1365,11 +1320,19 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
         if (lastRequiredJournalAddress > startingAddress) {
             read(lastRequiredJournalAddress, PA.OVERHEAD);
             type = getType(_readBuffer);
-            validate(type, file, startingAddress, PA.TYPE, "Invalid record type %3$,d at %1$s:%2$d");
             recordSize = getLength(_readBuffer);
-            validate(recordSize, file, startingAddress, PA.OVERHEAD + Buffer.HEADER_SIZE, PA.OVERHEAD
-                    + Buffer.MAX_BUFFER_SIZE, "PA record size %3$,d not in valid range "
-                    + "[%4$,d:%5$,d] at %1$s:%2$,d");
+            if (type == PD.TYPE) {
+                validate(recordSize, file, startingAddress, PD.OVERHEAD, PD.OVERHEAD + Buffer.MAX_BUFFER_SIZE,
+                        "PD record size %3$,d not in valid range [%4$,d:%5$,d] at %1$s:%2$,d");
+            } else if (type == PZ.TYPE) {
+                validate(recordSize, file, startingAddress, PZ.OVERHEAD, PZ.OVERHEAD + Buffer.MAX_BUFFER_SIZE,
+                        "PZ record size %3$,d not in valid range [%4$,d:%5$,d] at %1$s:%2$,d");
+            } else {
+                validate(type, file, startingAddress, PA.TYPE, "Invalid record type %3$,d at %1$s:%2$d");
+                validate(recordSize, file, startingAddress, PA.OVERHEAD + Buffer.HEADER_SIZE, PA.OVERHEAD
+                        + Buffer.MAX_BUFFER_SIZE, "PA record size %3$,d not in valid range "
+                        + "[%4$,d:%5$,d] at %1$s:%2$,d");
+            }
             final long pageAddress = PA.getPageAddress(_readBuffer);
             validate(pageAddress, file, startingAddress, lastRequiredPageNode.getPageAddress(),
                     "Mismatched page address %3$d at %1$s:%2$d");
@@ -1520,37 +1483,63 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
             assert last.getCommitTimestamp() <= _persistit.getTimestampAllocator().getCurrentTimestamp();
         }
 
-        for (final TransactionMapItem item : sorted) {
-            final TransactionPlayerListener listener = item.isCommitted() ? commitListener : rollbackListener;
-            try {
-                if (!started) {
-                    commitListener.startRecovery(item.getStartAddress(), item.getCommitTimestamp());
-                    started = true;
-                }
-
-                _player.applyTransaction(item, listener);
-                if (item.isCommitted()) {
-                    _appliedTransactionCount++;
-                } else {
-                    _abortedTransactionCount++;
-                }
+        final TransactionPlayer.Replay replay = _recoveryThreads > 1 ? _player.startReplay(_recoveryThreads) : null;
+        try {
+            for (final TransactionMapItem item : sorted) {
+                final TransactionPlayerListener listener = item.isCommitted() ? commitListener : rollbackListener;
+                try {
+                    if (!started) {
+                        commitListener.startRecovery(item.getStartAddress(), item.getCommitTimestamp());
+                        started = true;
+                    }
+                    if (item.isCommitted()) {
+                        _player.applyTransaction(item, listener, replay);
+                        _appliedTransactionCount++;
+                    } else {
+                        /*
+                         * Rolling back prunes pages the workers may still be
+                         * updating; let them finish first.
+                         */
+                        if (replay != null) {
+                            replay.drain();
+                        }
+                        _player.applyTransaction(item, listener);
+                        _abortedTransactionCount++;
+                    }
 
-                if ((_appliedTransactionCount + _abortedTransactionCount) % APPLY_TRANSACTION_LOG_COUNT == 0) {
-                    _persistit.getLogBase().recoveryProgress.log(_appliedTransactionCount, _abortedTransactionCount,
-                            _recoveredTransactionMap.size() - _appliedTransactionCount - _abortedTransactionCount);
+                    if ((_appliedTransactionCount + _abortedTransactionCount) % APPLY_TRANSACTION_LOG_COUNT == 0) {
+                        _persistit.getLogBase().recoveryProgress.log(_appliedTransactionCount,
+                                _abortedTransactionCount,
+                                _recoveredTransactionMap.size() - _appliedTransactionCount - _abortedTransactionCount);
+                    }
+                } catch (final TestException te) {
+                    // Exception thrown by a unit test to interrupt recovery
+                    _persistit.getLogBase().recoveryException.log(te, item);
+                    throw te;
+                } catch (final Exception pe) {
+                    _persistit.getLogBase().recoveryException.log(pe, item);
+                    _errorCount++;
                 }
-            } catch (final TestException te) {
-                // Exception thrown by a unit test to interrupt recovery
-                _persistit.getLogBase().recoveryException.log(te, item);
-                throw te;
-            } catch (final Exception pe) {
-                _persistit.getLogBase().recoveryException.log(pe, item);
-                _errorCount++;
+            }
+        } finally {
+            if (replay != null) {
+                closeReplay(replay);
             }
         }
         _branchMap.clear();
     }
 
+    private void closeReplay(final TransactionPlayer.Replay replay) {
+        try {
+            replay.close();
+        } catch (final PersistitException e) {
+            _persistit.getLogBase().recoveryException.log(e, "replay");
+            _errorCount++;
+        } finally {
+            _errorCount += replay.getErrorCount();
+        }
+    }
+
     /**
      * Assembles a long record into the provided Value object. This method
      * relies on finding the PAGE_TYPE_LONG_RECORD pages in the journal.
@@ -1609,10 +1598,9 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
             // Look for the latest version of the page which precedes the
             // record's timestamp.
             //
-            final PageNode key = new PageNode(volumeHandle, page, -1, -1);
-            PageNode pn = lastPageNodeBefore(_branchMap.get(key), timestamp);
+            PageNode pn = lastPageNodeBefore(_branchMap.get(volumeHandle, page), timestamp);
             if (pn == null) {
-                pn = lastPageNodeBefore(_pageMap.get(key), timestamp);
+                pn = lastPageNodeBefore(_pageMap.get(volumeHandle, page), timestamp);
             }
 
             if (pn == null) {
@@ -1622,12 +1610,26 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
 
             _currentAddress = pn.getJournalAddress();
             read(_currentAddress, PA.OVERHEAD);
-            final int type = PA.getType(_readBuffer);
-            final int recordSize = PA.getLength(_readBuffer);
+            ByteBuffer record = _readBuffer;
+            if (PA.getType(_readBuffer) == PZ.TYPE) {
+                final int compressedSize = PZ.getLength(_readBuffer);
+                if (compressedSize < PZ.OVERHEAD || compressedSize > PZ.OVERHEAD + Buffer.MAX_BUFFER_SIZE) {
+                    throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                            + " has invalid length " + compressedSize);
+                }
+                read(_currentAddress, compressedSize);
+                record = PZ.expand(_readBuffer);
+                if (record == null) {
+                    throw new CorruptJournalException("Compressed page record at " + pn.toStringJournalAddress(this)
+                            + " is malformed");
+                }
+            }
+            final int type = PA.getType(record);
+            final int recordSize = PA.getLength(record);
             final int payloadSize = recordSize - PA.OVERHEAD;
-            final int leftSize = PA.getLeftSize(_readBuffer);
-            final int bufferSize = PA.getBufferSize(_readBuffer);
-            final long pageAddress = PA.getPageAddress(_readBuffer);
+            final int leftSize = PA.getLeftSize(record);
+            final int bufferSize = PA.getBufferSize(record);
+            final long pageAddress = PA.getPageAddress(record);
             //
             // Verify that this is the valid and appropriate PA record
             //
@@ -1650,8 +1652,11 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
             //
             // Verify that this is a PAGE_TYPE_LONG_RECORD
             //
-            read(_currentAddress, recordSize);
-            final int pageType = JournalRecord.getByte(_readBuffer, PA.OVERHEAD + Buffer.TYPE_OFFSET);
+            if (record == _readBuffer) {
+                read(_currentAddress, recordSize);
+                record = _readBuffer;
+            }
+            final int pageType = JournalRecord.getByte(record, PA.OVERHEAD + Buffer.TYPE_OFFSET);
 
             if (pageType != Buffer.PAGE_TYPE_LONG_RECORD) {
                 throw new CorruptJournalException("Long record chain contains invalid page type " + pageType
@@ -1661,13 +1666,14 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
 
             final int segmentSize = Math.min(remainingSize, payloadSize - Buffer.HEADER_SIZE);
 
-            System.arraycopy(_readBuffer.array(), _readBuffer.position() + PA.OVERHEAD + Buffer.HEADER_SIZE,
-                    value.getEncodedBytes(), offset, segmentSize);
+            final ByteBuffer segment = record.duplicate();
+            segment.position(record.position() + PA.OVERHEAD + Buffer.HEADER_SIZE);
+            segment.get(value.getEncodedBytes(), offset, segmentSize);
             offset += segmentSize;
             remainingSize -= segmentSize;
 
             // Next page in chain
-            page = JournalRecord.getLong(_readBuffer, PA.OVERHEAD + Buffer.RIGHT_SIBLING_OFFSET);
+            page = JournalRecord.getLong(record, PA.OVERHEAD + Buffer.RIGHT_SIBLING_OFFSET);
 
             if (count > Buffer.MAX_LONG_RECORD_CHAIN) {
                 throw new CorruptJournalException("Long record chain has more than " + Buffer.MAX_LONG_RECORD_CHAIN
@@ -0,0 +1,384 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * Policy used by a {@link BufferPool} to choose which page to evict when a
+ * buffer is needed for a page that is not already in the pool. The pool runs a
+ * clock hand over its buffers and asks the policy whether each unclaimed
+ * candidate may be evicted; the policy is also told when a page is admitted to
+ * a buffer, when a resident page is found, and when a page is evicted.
+ * </p>
+ * <p>
+ * Two policies are provided:
+ * <dl>
+ * <dt>{@value #CLOCK_NAME}</dt>
+ * <dd>The classic single-bit CLOCK algorithm: a buffer that has been touched
+ * since the hand last passed is spared once. This is the default.</dd>
+ * <dt>{@value #TWO_Q_NAME}</dt>
+ * <dd>A CLOCK approximation of the 2Q algorithm. Newly admitted pages are
+ * <i>cold</i> and are evicted the next time the hand reaches them whether or
+ * not they have been touched. The identity of each evicted cold page is
+ * remembered in a bounded <i>ghost</i> table; a page that is read again while
+ * still in the ghost table is admitted as <i>hot</i>. Hot pages get CLOCK
+ * second-chance treatment and are only evicted when the hot population
+ * exceeds its share of the pool. A single large scan therefore cycles through
+ * the cold buffers without displacing the working set.</dd>
+ * </dl>
+ * </p>
+ * <p>
+ * Methods of this class are called concurrently by threads that hold a writer
+ * claim on the buffer supplied as argument.
+ * </p>
+ */
+abstract class ReplacementPolicy {
+
+    final static String CLOCK_NAME = "CLOCK";
+
+    final static String TWO_Q_NAME = "2Q";
+
+    final static String DEFAULT_NAME = CLOCK_NAME;
+
+    private final static String[] NAMES = { CLOCK_NAME, TWO_Q_NAME };
+
+    private final AtomicLong _ghostHitCounter = new AtomicLong();
+
+    private final AtomicLong _protectedCounter = new AtomicLong();
+
+    /**
+     * Construct a new policy instance for a pool of the specified size.
+     *
+     * @param name
+     *            One of {@value #CLOCK_NAME} or {@value #TWO_Q_NAME} (case
+     *            insensitive)
+     * @param bufferCount
+     *            Number of buffers in the pool
+     * @return the policy
+     * @throws IllegalArgumentException
+     *             if the name is not recognized
+     */
+    static ReplacementPolicy newInstance(final String name, final int bufferCount) {
+        final String canonical = canonicalName(name);
+        if (TWO_Q_NAME.equals(canonical)) {
+            return new TwoQueue(bufferCount);
+        } else {
+            return new Clock();
+        }
+    }
+
+    /**
+     * @param name
+     * @return the canonical form of a policy name
+     * @throws IllegalArgumentException
+     *             if the name is not recognized
+     */
+    static String canonicalName(final String name) {
+        for (final String candidate : NAMES) {
+            if (candidate.equalsIgnoreCase(name)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("No such ReplacementPolicy " + name);
+    }
+
+    /**
+     * @return the name of this policy
+     */
+    abstract String getName();
+
+    /**
+     * Called after a page not previously resident has been assigned to the
+     * buffer.
+     *
+     * @param buffer
+     *            the buffer, which has its new volume and page address
+     */
+    void admitted(final Buffer buffer) {
+    }
+
+    /**
+     * Called when the clock hand reaches an unclaimed buffer.
+     *
+     * @param buffer
+     *            the candidate
+     * @param desperate
+     *            <code>true</code> if the hand has already completed a full
+     *            revolution without finding a victim; the policy should
+     *            relax any protection it affords
+     * @return <code>true</code> if the buffer may be evicted now
+     */
+    abstract boolean isEvictable(Buffer buffer, boolean desperate);
+
+    /**
+     * Called immediately before the page held in the buffer is detached from
+     * the pool.
+     *
+     * @param buffer
+     *            the buffer, which still has its volume and page address
+     */
+    void evicted(final Buffer buffer) {
+    }
+
+    /**
+     * @return count of misses on pages that were found in the ghost table
+     */
+    long getGhostHitCount() {
+        return _ghostHitCounter.get();
+    }
+
+    /**
+     * @return count of times an eviction candidate was spared by the policy
+     */
+    long getProtectedCount() {
+        return _protectedCounter.get();
+    }
+
+    void resetCounters() {
+        _ghostHitCounter.set(0);
+        _protectedCounter.set(0);
+    }
+
+    void bumpGhostHitCounter() {
+        _ghostHitCounter.incrementAndGet();
+    }
+
+    boolean spare() {
+        _protectedCounter.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    static class Clock extends ReplacementPolicy {
+
+        @Override
+        String getName() {
+            return CLOCK_NAME;
+        }
+
+        @Override
+        boolean isEvictable(final Buffer buffer, final boolean desperate) {
+            if (buffer.isTouched()) {
+                buffer.clearTouched();
+                return spare();
+            }
+            return true;
+        }
+    }
+
+    static class TwoQueue extends ReplacementPolicy {
+        /**
+         * Percentage of the pool that hot pages may occupy before unreferenced
+         * hot pages become eligible for eviction
+         */
+        final static int HOT_PERCENT = 75;
+        /**
+         * Size of the ghost table as a percentage of the pool size
+         */
+        final static int GHOST_PERCENT = 50;
+
+        private final static int COLD = 0;
+        private final static int HOT = 1;
+
+        private final AtomicIntegerArray _state;
+        private final AtomicInteger _hotCount = new AtomicInteger();
+        private final int _maxHot;
+        private final GhostTable _ghosts;
+
+        TwoQueue(final int bufferCount) {
+            _state = new AtomicIntegerArray(bufferCount);
+            _maxHot = Math.max(1, (int) ((long) bufferCount * HOT_PERCENT / 100));
+            _ghosts = new GhostTable(Math.max(1, (int) ((long) bufferCount * GHOST_PERCENT / 100)));
+        }
+
+        @Override
+        String getName() {
+            return TWO_Q_NAME;
+        }
+
+        @Override
+        void admitted(final Buffer buffer) {
+            final boolean ghost = _ghosts.remove(buffer.getVolume(), buffer.getPageAddress());
+            if (ghost) {
+                bumpGhostHitCounter();
+            }
+            setState(buffer.getIndex(), ghost ? HOT : COLD);
+        }
+
+        @Override
+        boolean isEvictable(final Buffer buffer, final boolean desperate) {
+            final int index = buffer.getIndex();
+            if (index >= _state.length() || _state.get(index) == COLD) {
+                buffer.clearTouched();
+                return true;
+            }
+            if (buffer.isTouched()) {
+                buffer.clearTouched();
+                return spare();
+            }
+            if (desperate || _hotCount.get() > _maxHot) {
+                return true;
+            }
+            return spare();
+        }
+
+        @Override
+        void evicted(final Buffer buffer) {
+            if (setState(buffer.getIndex(), COLD) == COLD) {
+                _ghosts.add(buffer.getVolume(), buffer.getPageAddress());
+            }
+        }
+
+        int getHotCount() {
+            return _hotCount.get();
+        }
+
+        int getGhostCount() {
+            return _ghosts.size();
+        }
+
+        private int setState(final int index, final int state) {
+            if (index >= _state.length()) {
+                /*
+                 * The pool has grown and this instance is about to be
+                 * replaced; buffers it does not know about are simply cold.
+                 */
+                return COLD;
+            }
+            final int previous = _state.getAndSet(index, state);
+            if (previous != state) {
+                if (state == HOT) {
+                    _hotCount.incrementAndGet();
+                } else {
+                    _hotCount.decrementAndGet();
+                }
+            }
+            return previous;
+        }
+    }
+
+    /**
+     * <p>
+     * Bounded set of the identities of pages that are no longer resident, used
+     * as the 2Q ghost list. Each page is represented by a non-zero 64-bit
+     * fingerprint of its volume id and page address, so that the table
+     * neither allocates nor retains closed volumes. Fingerprints are held in
+     * an {@link AtomicLongArray} divided into buckets of {@value #WAYS} slots;
+     * a page may occupy any slot of the bucket its fingerprint selects.
+     * </p>
+     * <p>
+     * Adding and removing fingerprints are lock-free. When its bucket is full
+     * a new fingerprint overwrites the slot selected by its low bits, so
+     * replacement within a bucket is pseudo-random rather than the FIFO order
+     * of the classic 2Q ghost queue. Two pages with the same fingerprint are
+     * indistinguishable; the rare false ghost hit merely admits a page as hot.
+     * </p>
+     */
+    final static class GhostTable {
+
+        final static int WAYS = 4;
+
+        private final static long EMPTY = 0;
+
+        private final AtomicLongArray _fingerprints;
+
+        private final AtomicInteger _size = new AtomicInteger();
+
+        private final int _bucketMask;
+
+        GhostTable(final int capacity) {
+            int buckets = 1;
+            while (buckets * WAYS < capacity) {
+                buckets *= 2;
+            }
+            _fingerprints = new AtomicLongArray(buckets * WAYS);
+            _bucketMask = buckets - 1;
+        }
+
+        static long fingerprint(final Volume volume, final long page) {
+            long h = (volume == null ? 0 : volume.getId()) * 0x9E3779B97F4A7C15L ^ page;
+            h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+            h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+            h ^= h >>> 31;
+            return h == EMPTY ? 1 : h;
+        }
+
+        private int bucket(final long fingerprint) {
+            return ((int) (fingerprint >>> 32) & _bucketMask) * WAYS;
+        }
+
+        /**
+         * Remember a page that has been evicted.
+         *
+         * @param volume
+         * @param page
+         */
+        void add(final Volume volume, final long page) {
+            final long fingerprint = fingerprint(volume, page);
+            final int base = bucket(fingerprint);
+            for (int way = 0; way < WAYS; way++) {
+                final long entry = _fingerprints.get(base + way);
+                if (entry == fingerprint) {
+                    return;
+                }
+                if (entry == EMPTY && _fingerprints.compareAndSet(base + way, EMPTY, fingerprint)) {
+                    _size.incrementAndGet();
+                    return;
+                }
+            }
+            if (_fingerprints.getAndSet(base + (int) (fingerprint & (WAYS - 1)), fingerprint) == EMPTY) {
+                _size.incrementAndGet();
+            }
+        }
+
+        /**
+         * Forget a page if it is in the table.
+         *
+         * @param volume
+         * @param page
+         * @return <code>true</code> if the page was found
+         */
+        boolean remove(final Volume volume, final long page) {
+            final long fingerprint = fingerprint(volume, page);
+            final int base = bucket(fingerprint);
+            for (int way = 0; way < WAYS; way++) {
+                if (_fingerprints.get(base + way) == fingerprint
+                        && _fingerprints.compareAndSet(base + way, fingerprint, EMPTY)) {
+                    _size.decrementAndGet();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return number of pages currently remembered
+         */
+        int size() {
+            return _size.get();
+        }
+    }
+}
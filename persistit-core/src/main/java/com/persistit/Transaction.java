@@ -38,6 +38,7 @@ import com.persistit.JournalRecord.SR;
 import com.persistit.exception.PersistitException;
 import com.persistit.exception.PersistitIOException;
 import com.persistit.exception.PersistitInterruptedException;
+import com.persistit.exception.ReadOnlyTransactionException;
 import com.persistit.exception.RollbackException;
 import com.persistit.util.Util;
 
@@ -424,6 +425,7 @@ public class Transaction {
     private volatile boolean _rollbackPending;
     private volatile boolean _rollbackCompleted;
     private volatile boolean _commitCompleted;
+    private volatile boolean _readOnly;
 
     private volatile long _rollbackCount = 0;
     private volatile long _commitCount = 0;
@@ -469,7 +471,20 @@ public class Transaction {
          * aggregate transaction throughput across many threads may be much
          * higher than with the HARD policy.
          */
-        GROUP;
+        GROUP,
+        /**
+         * Every committed transaction is flushed to durable storage before
+         * {@link Transaction#commit()} returns. As with GROUP, the commit
+         * method may pause to let other transactions join the same flush, but
+         * the length of the pause is adjusted continuously from the measured
+         * duration of recent flushes and the number of transactions each one
+         * made durable, so as to make each flush as productive as possible
+         * while keeping 99% of commits within a target latency (see
+         * {@link Configuration#setCommitLatencyTarget(long)}). Commits pause
+         * only when other transactions are arriving quickly enough to share
+         * the flush.
+         */
+        ADAPTIVE;
 
         static CommitPolicy forName(final String policyName) {
             for (final CommitPolicy policy : values()) {
@@ -514,6 +529,10 @@ public class Transaction {
      * @throws PersistitException
      */
     void close() throws PersistitException {
+        if (_nestedDepth > 0 && _readOnly) {
+            _readOnly = false;
+            _persistit.getTransactionIndex().unregisterSnapshot(_startTimestamp);
+        }
         if (_nestedDepth > 0 && !_commitCompleted && !_rollbackCompleted) {
             final TransactionStatus ts = _transactionStatus;
             if (ts != null && ts.getTs() == _startTimestamp && !_commitCompleted && !_rollbackCompleted) {
@@ -554,6 +573,16 @@ public class Transaction {
         return _nestedDepth > 0;
     }
 
+    /**
+     * Indicates whether the current transaction scope was started by
+     * {@link #beginReadOnly()}.
+     * 
+     * @return <code>true</code> if a read-only transaction is active
+     */
+    public boolean isReadOnly() {
+        return _readOnly;
+    }
+
     /**
      * Indicates whether the {@link #commit} method has run to successful
      * completion at the current nested level. If that level is 1, then
@@ -619,6 +648,57 @@ public class Transaction {
         _nestedDepth++;
     }
 
+    /**
+     * <p>
+     * Start a read-only transaction. The transaction reads a consistent
+     * snapshot of the database as of the moment it began, exactly as a
+     * transaction started by {@link #begin()} would, but it is much cheaper to
+     * start and finish: it allocates no {@link TransactionStatus}, writes
+     * nothing to the journal and does not wait for durability when it commits.
+     * It is only recorded as active so that versions it can still see are not
+     * pruned.
+     * </p>
+     * <p>
+     * Any attempt to store or remove data, or to update an {@link Accumulator},
+     * within the scope of a read-only transaction fails immediately with a
+     * {@link ReadOnlyTransactionException} (or an
+     * <code>IllegalStateException</code> for an <code>Accumulator</code>).
+     * Nested calls to <code>begin</code> or <code>beginReadOnly</code> join the
+     * outer transaction scope and do not change whether it is read-only.
+     * </p>
+     * <p>
+     * Application code should use the same <code>try/finally</code> pattern
+     * as for {@link #begin()}. Calling {@link #commit()} is optional; ending a
+     * read-only transaction without committing it simply releases its
+     * snapshot.
+     * </p>
+     * 
+     * @throws IllegalStateException
+     *             if the current transaction scope has already been committed.
+     */
+    public void beginReadOnly() throws PersistitException {
+        if (_commitCompleted) {
+            throw new IllegalStateException("Attempt to begin a committed transaction " + this);
+        }
+        if (_rollbackPending) {
+            throw new IllegalStateException("Attempt to begin a transaction with pending rollback" + this);
+        }
+        if (_nestedDepth == 0) {
+            flushTransactionBuffer(false);
+            _transactionStatus = null;
+            _startTimestamp = _persistit.getTransactionIndex().registerSnapshot();
+            _readOnly = true;
+            _rollbackPending = false;
+            _rollbackCompleted = false;
+            _commitTimestamp = 0;
+            _step = 0;
+            _threadName = Thread.currentThread().getName();
+        } else {
+            checkPendingRollback();
+        }
+        _nestedDepth++;
+    }
+
     void beginCheckpoint() throws PersistitException {
         if (_commitCompleted) {
             throw new IllegalStateException("Attempt to begin a committed transaction " + this);
@@ -673,10 +753,10 @@ public class Transaction {
             // message if rollback was not called explicitly).
             //
             if (!_commitCompleted) {
-                if (!_rollbackPending) {
+                if (!_rollbackPending && !_readOnly) {
                     _persistit.getLogBase().txnNotCommitted.log(this);
                 }
-                if (!_rollbackCompleted) {
+                if (!_rollbackCompleted && !_readOnly) {
                     rollback();
                 }
             } else {
@@ -688,6 +768,10 @@ public class Transaction {
             } catch (final Exception e) {
                 _persistit.getLogBase().pruneException.log(e, "locks");
             }
+            if (_readOnly) {
+                _readOnly = false;
+                _persistit.getTransactionIndex().unregisterSnapshot(_startTimestamp);
+            }
             _transactionStatus = null;
             _rollbackPending = false;
             _threadName = null;
@@ -725,7 +809,11 @@ public class Transaction {
 
         _rollbackPending = true;
 
-        if (!_rollbackCompleted) {
+        if (!_rollbackCompleted && _readOnly) {
+            _rollbackCount++;
+            _rollbacksSinceLastCommit++;
+            _rollbackCompleted = true;
+        } else if (!_rollbackCompleted) {
             _rollbackCount++;
             _rollbacksSinceLastCommit++;
             _transactionStatus.abort();
@@ -861,6 +949,15 @@ public class Transaction {
             if (_rollbackCompleted) {
                 throw new IllegalStateException("Already rolled back " + this);
             }
+            if (_readOnly) {
+                /*
+                 * Nothing to write or make durable; a read-only transaction
+                 * is serialized at its snapshot timestamp.
+                 */
+                _commitTimestamp = _startTimestamp;
+                _commitCompleted = true;
+                return;
+            }
             for (Delta delta = _transactionStatus.getDelta(); delta != null; delta = delta.getNext()) {
                 writeDeltaToJournal(delta);
             }
@@ -891,9 +988,13 @@ public class Transaction {
 
             _persistit.getJournalManager().throttle();
             if (flushedTimetimestamp != 0) {
-                _persistit.getJournalManager().waitForDurability(flushedTimetimestamp,
-                        policy == CommitPolicy.SOFT ? _persistit.getTransactionCommitLeadTime() : 0,
-                        policy == CommitPolicy.GROUP ? _persistit.getTransactionCommitStallTime() : 0);
+                if (policy == CommitPolicy.ADAPTIVE) {
+                    _persistit.getJournalManager().waitForAdaptiveDurability(flushedTimetimestamp);
+                } else {
+                    _persistit.getJournalManager().waitForDurability(flushedTimetimestamp,
+                            policy == CommitPolicy.SOFT ? _persistit.getTransactionCommitLeadTime() : 0,
+                            policy == CommitPolicy.GROUP ? _persistit.getTransactionCommitStallTime() : 0);
+                }
             }
         }
     }
@@ -1034,7 +1135,9 @@ public class Transaction {
     String getStatus() {
         final TransactionStatus status = _transactionStatus;
         final long ts = getStartTimestamp();
-        if (status != null && status.getTs() == ts) {
+        if (_readOnly) {
+            return "<read-only ts=" + ts + ">";
+        } else if (status != null && status.getTs() == ts) {
             return status.toString();
         } else {
             return "<not running>";
@@ -1256,6 +1359,9 @@ public class Transaction {
     }
 
     TransactionStatus getTransactionStatus() {
+        if (_readOnly) {
+            throw new IllegalStateException("Update attempted in read-only transaction " + this);
+        }
         final TransactionStatus ts = _transactionStatus;
         if (_nestedDepth > 0 && ts != null && ts.getTs() == _startTimestamp) {
             return ts;
@@ -1289,6 +1395,18 @@ public class Transaction {
         return previous;
     }
 
+    /**
+     * Throws a {@link ReadOnlyTransactionException} if this transaction was
+     * started by {@link #beginReadOnly()}.
+     * 
+     * @throws ReadOnlyTransactionException
+     */
+    void checkWritable() throws ReadOnlyTransactionException {
+        if (_readOnly) {
+            throw new ReadOnlyTransactionException(toString());
+        }
+    }
+
     void checkActive() {
         if (!isActive()) {
             throw new IllegalStateException("No transaction scope: begin() has not been called in " + this);
@@ -88,6 +88,18 @@ class TransactionIndex implements TransactionIndexMXBean {
      * Initial size of arrays in ActiveTransactionCaches.
      */
     private final static int INITIAL_ACTIVE_TRANSACTIONS_SIZE = 1000;
+    /**
+     * Initial size of each list of read-only transaction timestamps.
+     */
+    private final static int INITIAL_SNAPSHOT_LIST_SIZE = 16;
+
+    /**
+     * Bounds on the number of registration locks; the actual number is the
+     * smallest power of two at least twice the number of available processors.
+     */
+    private final static int MIN_REGISTRATION_LOCKS = 4;
+
+    private final static int MAX_REGISTRATION_LOCKS = 256;
 
     /**
      * Maximum version handle "steps" within one transaction
@@ -133,6 +145,21 @@ class TransactionIndex implements TransactionIndexMXBean {
      * race by another thread attempting also to update.
      */
     private final ReentrantLock _atCacheLock = new ReentrantLock();
+    /**
+     * Locks held while a start timestamp is allocated and registered. Each
+     * thread uses the lock selected by its thread id, so threads beginning
+     * transactions concurrently rarely contend. A thread that needs every
+     * timestamp allocated before some point to be visible in the hash table
+     * briefly acquires each of these locks; see
+     * {@link #awaitRegistrations()}.
+     */
+    private final ReentrantLock[] _registrationLocks;
+    /**
+     * Start timestamps of active read-only transactions, one list per
+     * registration lock. Each list is guarded by the registration lock having
+     * the same index; see {@link #registerSnapshot()}.
+     */
+    private final SnapshotList[] _snapshots;
     /**
      * Reference to the more recently updated of two ActiveTransactionCache
      * instances.
@@ -144,6 +171,10 @@ class TransactionIndex implements TransactionIndexMXBean {
     private final AtomicLong _accumulatorSnapshotRetryCounter = new AtomicLong();
 
     private final AtomicLong _accumulatorCheckpointRetryCounter = new AtomicLong();
+
+    private final AtomicLong _commitStatusCacheHitCounter = new AtomicLong();
+
+    private final AtomicLong _commitStatusCacheMissCounter = new AtomicLong();
     /**
      * The system-wide timestamp allocator
      */
@@ -151,6 +182,46 @@ class TransactionIndex implements TransactionIndexMXBean {
 
     private ActiveTransactionCachePollTask _activeTransactionCachePollTask;
 
+    /**
+     * Unordered list of the start timestamps of read-only transactions that
+     * registered under one registration lock. A read-only transaction has no
+     * {@link TransactionStatus}; it needs only to be counted by the
+     * {@link ActiveTransactionCache} so that versions and transaction status
+     * entries it can still see are not pruned.
+     */
+    private static class SnapshotList {
+        private long[] _timestamps = new long[INITIAL_SNAPSHOT_LIST_SIZE];
+
+        private int _count;
+
+        void add(final long ts) {
+            if (_count == _timestamps.length) {
+                final long[] temp = new long[_count * 2];
+                System.arraycopy(_timestamps, 0, temp, 0, _count);
+                _timestamps = temp;
+            }
+            _timestamps[_count++] = ts;
+        }
+
+        boolean remove(final long ts) {
+            for (int index = 0; index < _count; index++) {
+                if (_timestamps[index] == ts) {
+                    _timestamps[index] = _timestamps[--_count];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int size() {
+            return _count;
+        }
+
+        long get(final int index) {
+            return _timestamps[index];
+        }
+    }
+
     class ActiveTransactionCachePollTask extends IOTaskRunnable {
         AtomicBoolean _closed = new AtomicBoolean();
 
@@ -193,11 +264,14 @@ class TransactionIndex implements TransactionIndexMXBean {
      * </p>
      * <p>
      * Each time the cache is recomputed, this instance first gets the current
-     * timestamp t. Due to the write-ordering protocol, it is guaranteed that if
-     * a transaction having a start timestamp less than t is currently active,
-     * its entry will be in the hash table. Therefore, scanning the hash table
-     * will find every currently active transaction having a start timestamp
-     * less than t. Note that by the time the scan is done some of those
+     * timestamp t and then waits for registrations in progress to finish (see
+     * {@link TransactionIndex#awaitRegistrations()}). It is then guaranteed
+     * that if a transaction having a start timestamp less than t is currently
+     * active, its entry will be in the hash table. Therefore, scanning the
+     * hash table will find every currently active transaction having a start
+     * timestamp less than t. Read-only transactions are recorded under the
+     * same locks (see {@link TransactionIndex#registerSnapshot()}) and are
+     * collected from their lists in the same way. Note that by the time the scan is done some of those
      * transactions may have committed or aborted; therefore the set of
      * transactions added to the cache may be a superset of those that are
      * active at the conclusion of the scan, but that is okay. The result of
@@ -236,6 +310,7 @@ class TransactionIndex implements TransactionIndexMXBean {
         void recompute() {
             _count = 0;
             final long timestampAtStart = _timestampAllocator.updateTimestamp();
+            awaitRegistrations();
             long floor = timestampAtStart;
             for (final TransactionIndexBucket bucket : _hashTable) {
                 if (bucket.getCurrent() != null || bucket.getLongRunning() != null) {
@@ -266,6 +341,24 @@ class TransactionIndex implements TransactionIndexMXBean {
                     }
                 }
             }
+            for (int index = 0; index < _snapshots.length; index++) {
+                final ReentrantLock lock = _registrationLocks[index];
+                lock.lock();
+                try {
+                    final SnapshotList list = _snapshots[index];
+                    for (int i = 0; i < list.size(); i++) {
+                        final long ts = list.get(i);
+                        if (ts <= timestampAtStart) {
+                            add(ts);
+                            if (ts < floor) {
+                                floor = ts;
+                            }
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
             Arrays.sort(_tsArray, 0, _count);
             _ceiling = timestampAtStart;
             _floor = floor;
@@ -339,6 +432,18 @@ class TransactionIndex implements TransactionIndexMXBean {
         for (int hashIndex = 0; hashIndex < hashTableSize; hashIndex++) {
             _hashTable[hashIndex] = new TransactionIndexBucket(this, hashIndex);
         }
+        int locks = MIN_REGISTRATION_LOCKS;
+        while (locks < MAX_REGISTRATION_LOCKS && locks < Runtime.getRuntime().availableProcessors() * 2) {
+            locks *= 2;
+        }
+        _registrationLocks = new ReentrantLock[locks];
+        for (int index = 0; index < locks; index++) {
+            _registrationLocks[index] = new ReentrantLock();
+        }
+        _snapshots = new SnapshotList[locks];
+        for (int index = 0; index < locks; index++) {
+            _snapshots[index] = new SnapshotList();
+        }
         _atCache1 = new ActiveTransactionCache();
         _atCache2 = new ActiveTransactionCache();
         _atCache = _atCache1;
@@ -411,6 +516,33 @@ class TransactionIndex implements TransactionIndexMXBean {
      */
     long commitStatus(final long versionHandle, final long ts, final int step) throws InterruptedException,
             TimeoutException {
+        return commitStatus(versionHandle, ts, step, null);
+    }
+
+    /**
+     * Compute the commit status as described by
+     * {@link #commitStatus(long, long, int)}, consulting and updating the
+     * supplied cache of final transaction outcomes before searching the
+     * bucket.
+     * 
+     * @param versionHandle
+     *            the version handle of a value version
+     * @param ts
+     *            the transaction start timestamp of the current transaction
+     * @param step
+     *            Step number within the current transaction.
+     * @param cache
+     *            cache of transaction outcomes owned by the calling thread, or
+     *            <code>null</code>
+     * @return the commit status
+     * @throws InterruptedException
+     *             if the waiting thread is interrupted
+     * @throws TimeoutException
+     *             if the thread waited a very long time without resolving the
+     *             commit status; this signifies a serious software error.
+     */
+    long commitStatus(final long versionHandle, final long ts, final int step, final CommitStatusCache cache)
+            throws InterruptedException, TimeoutException {
         final long tsv = vh2ts(versionHandle);
         if (tsv == PRIMORDIAL) {
             return PRIMORDIAL;
@@ -461,6 +593,16 @@ class TransactionIndex implements TransactionIndexMXBean {
             return tsv;
         }
 
+        /*
+         * A final outcome found by an earlier call needs no search.
+         */
+        if (cache != null) {
+            final long tc = cache.get(tsv);
+            if (tc != UNCOMMITTED) {
+                return tc >= ts ? UNCOMMITTED : tc;
+            }
+        }
+
         /*
          * Otherwise search the bucket and find the TransactionStatus for tsv.
          */
@@ -489,6 +631,9 @@ class TransactionIndex implements TransactionIndexMXBean {
              */
             long tc = status.getTc();
             while (status.getTs() == tsv) {
+                if (cache != null && (tc >= 0 && tc != UNCOMMITTED || tc == ABORTED)) {
+                    cache.put(tsv, tc);
+                }
                 if (tc >= ts) {
                     return UNCOMMITTED;
                 }
@@ -508,6 +653,13 @@ class TransactionIndex implements TransactionIndexMXBean {
                 }
             }
         }
+        if (cache != null) {
+            /*
+             * The imputed commit timestamp of a freed TransactionStatus is
+             * final too.
+             */
+            cache.put(tsv, commitTimestamp);
+        }
         return commitTimestamp;
     }
 
@@ -519,6 +671,12 @@ class TransactionIndex implements TransactionIndexMXBean {
      * accessible within the TransactionIndex is atomic because otherwise a
      * concurrent transaction with a larger start timestamp could fail to see
      * this one and cause inconsistent results.
+     * <p>
+     * Atomicity is provided by the registration lock of the current thread
+     * rather than by a lock on the entire <code>TransactionIndex</code>, so
+     * that threads on different processors can begin transactions without
+     * contending. Threads that depend on atomicity call
+     * {@link #awaitRegistrations()} after allocating a timestamp.
      * 
      * @return the TransactionStatus.
      * @throws InterruptedException
@@ -547,7 +705,17 @@ class TransactionIndex implements TransactionIndexMXBean {
         Debug.suspend();
         final TransactionStatus status;
         final TransactionIndexBucket bucket;
-        synchronized (this) {
+        /*
+         * A checkpoint transaction holds every registration lock so that all
+         * transactions with smaller start timestamps are registered before it.
+         */
+        final ReentrantLock registrationLock = forCheckpoint ? null : registrationLock();
+        if (registrationLock == null) {
+            lockRegistrations();
+        } else {
+            registrationLock.lock();
+        }
+        try {
             final long ts;
             if (forCheckpoint) {
                 ts = _timestampAllocator.allocateCheckpointTimestamp();
@@ -564,6 +732,12 @@ class TransactionIndex implements TransactionIndexMXBean {
             } finally {
                 bucket.unlock();
             }
+        } finally {
+            if (registrationLock == null) {
+                unlockRegistrations();
+            } else {
+                registrationLock.unlock();
+            }
         }
 
         try {
@@ -597,6 +771,99 @@ class TransactionIndex implements TransactionIndexMXBean {
         return status;
     }
 
+    /**
+     * Allocate a start timestamp for a read-only transaction and register it
+     * so that the {@link ActiveTransactionCache} treats it as an active
+     * transaction. Unlike {@link #registerTransaction()} this method creates
+     * no {@link TransactionStatus}; a read-only transaction creates no
+     * versions, so no other transaction ever needs to look up its commit
+     * status. The timestamp is allocated and recorded under the current
+     * thread's registration lock so that {@link #awaitRegistrations()} covers
+     * it.
+     * 
+     * @return the snapshot timestamp
+     */
+    long registerSnapshot() {
+        final int index = registrationLockIndex();
+        final ReentrantLock lock = _registrationLocks[index];
+        lock.lock();
+        try {
+            final long ts = _timestampAllocator.updateTimestamp();
+            _snapshots[index].add(ts);
+            return ts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove a timestamp registered by {@link #registerSnapshot()}. The
+     * timestamp is normally found in the list of the current thread; it is
+     * looked for in the other lists only when the transaction's session has
+     * moved to a different thread.
+     * 
+     * @param ts
+     *            the snapshot timestamp
+     */
+    void unregisterSnapshot(final long ts) {
+        final int home = registrationLockIndex();
+        if (removeSnapshot(home, ts)) {
+            return;
+        }
+        for (int index = 0; index < _snapshots.length; index++) {
+            if (index != home && removeSnapshot(index, ts)) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Snapshot timestamp " + ts + " is not registered");
+    }
+
+    private boolean removeSnapshot(final int index, final long ts) {
+        final ReentrantLock lock = _registrationLocks[index];
+        lock.lock();
+        try {
+            return _snapshots[index].remove(ts);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock registrationLock() {
+        return _registrationLocks[registrationLockIndex()];
+    }
+
+    private int registrationLockIndex() {
+        return (int) Thread.currentThread().getId() & (_registrationLocks.length - 1);
+    }
+
+    private void lockRegistrations() {
+        for (final ReentrantLock lock : _registrationLocks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockRegistrations() {
+        for (int index = _registrationLocks.length; --index >= 0;) {
+            _registrationLocks[index].unlock();
+        }
+    }
+
+    /**
+     * Wait for every registration in progress to finish. A transaction whose
+     * start timestamp was allocated before this method was called is in the
+     * hash table when it returns.
+     */
+    void awaitRegistrations() {
+        for (final ReentrantLock lock : _registrationLocks) {
+            lock.lock();
+            lock.unlock();
+        }
+    }
+
+    int getRegistrationLockCount() {
+        return _registrationLocks.length;
+    }
+
     /**
      * Notify the TransactionIndex that the specified Transaction has committed
      * or aborted. This method allows the TransactionIndex to awaken any threads
@@ -954,19 +1221,14 @@ class TransactionIndex implements TransactionIndexMXBean {
      * @throws InterruptedException
      */
     void injectAbortedTransaction(final long ts) throws InterruptedException {
-        final TransactionStatus status;
-        final TransactionIndexBucket bucket;
-        synchronized (this) {
-            final int index = hashIndex(ts);
-            bucket = _hashTable[index];
-            bucket.lock();
-            try {
-                status = bucket.allocateTransactionStatus();
-                status.initializeAsAborted(ts);
-                bucket.addAborted(status);
-            } finally {
-                bucket.unlock();
-            }
+        final TransactionIndexBucket bucket = _hashTable[hashIndex(ts)];
+        bucket.lock();
+        try {
+            final TransactionStatus status = bucket.allocateTransactionStatus();
+            status.initializeAsAborted(ts);
+            bucket.addAborted(status);
+        } finally {
+            bucket.unlock();
         }
     }
 
@@ -1342,4 +1604,29 @@ class TransactionIndex implements TransactionIndexMXBean {
         return _accumulatorCheckpointRetryCounter.incrementAndGet();
     }
 
+    void addCommitStatusCacheCounts(final long hits, final long misses) {
+        _commitStatusCacheHitCounter.addAndGet(hits);
+        _commitStatusCacheMissCounter.addAndGet(misses);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.persistit.TransactionIndexMXBean#getCommitStatusCacheHitCount()
+     */
+    @Override
+    public long getCommitStatusCacheHitCount() {
+        return _commitStatusCacheHitCounter.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.persistit.TransactionIndexMXBean#getCommitStatusCacheMissCount()
+     */
+    @Override
+    public long getCommitStatusCacheMissCount() {
+        return _commitStatusCacheMissCounter.get();
+    }
+
 }
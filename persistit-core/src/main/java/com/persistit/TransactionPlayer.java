@@ -21,6 +21,10 @@ import static com.persistit.TransactionIndex.ts2vh;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.persistit.AlertMonitor.AlertLevel;
@@ -33,8 +37,11 @@ import com.persistit.JournalRecord.DR;
 import com.persistit.JournalRecord.DT;
 import com.persistit.JournalRecord.SR;
 import com.persistit.JournalRecord.TX;
+import com.persistit.JournalRecord.TZ;
 import com.persistit.exception.CorruptJournalException;
 import com.persistit.exception.PersistitException;
+import com.persistit.exception.PersistitInterruptedException;
+import com.persistit.exception.TestException;
 import com.persistit.exception.VolumeNotFoundException;
 
 /**
@@ -48,6 +55,27 @@ class TransactionPlayer {
     private final AtomicLong ignoredUpdates = new AtomicLong();
     private final AtomicLong failedUpdates = new AtomicLong();
 
+    /**
+     * <p>
+     * Receives the updates of the transactions applied by a
+     * {@link TransactionPlayer}. When the transactions are applied in the
+     * calling thread, {@link #startTransaction}, the update methods and
+     * {@link #endTransaction} are called in that order for each transaction in
+     * turn, and an update that fails ends the transaction without calling
+     * <code>endTransaction</code>.
+     * </p>
+     * <p>
+     * When the updates are applied by a {@link Replay}, the update methods are
+     * called concurrently by its worker threads: updates to the same tree
+     * in journal order, updates to different trees in any order, and possibly
+     * interleaved with those of other transactions. <code>startTransaction</code>
+     * is still called before any update of the transaction is applied, and
+     * <code>endTransaction</code> is called, possibly by a worker thread, after
+     * every update of the transaction has been applied. An update that fails
+     * does not prevent the others from being applied, so a transaction is not
+     * applied all-or-nothing.
+     * </p>
+     */
     interface TransactionPlayerListener {
 
         void startRecovery(long address, long timestamp) throws PersistitException;
@@ -75,12 +103,39 @@ class TransactionPlayer {
 
     final TransactionPlayerSupport _support;
 
+    /*
+     * Heap copy of the TX or TZ record being applied when the read buffer is
+     * direct, reused for every record
+     */
+    private ByteBuffer _scratch;
+
     TransactionPlayer(final TransactionPlayerSupport support) {
         _support = support;
     }
 
     void applyTransaction(final TransactionMapItem item, final TransactionPlayerListener listener)
             throws PersistitException {
+        applyTransaction(item, listener, null);
+    }
+
+    /**
+     * Apply a transaction. When <code>replay</code> is not <code>null</code>
+     * this method decodes the transaction and hands each update to a
+     * {@link Replay} worker; the updates may not yet have been applied, and the
+     * listener's <code>endTransaction</code> method not yet called, when it
+     * returns.
+     * 
+     * @param item
+     *            the transaction to apply
+     * @param listener
+     *            the listener that applies each update
+     * @param replay
+     *            the workers that apply the updates, or <code>null</code> to
+     *            apply them in this thread
+     * @throws PersistitException
+     */
+    void applyTransaction(final TransactionMapItem item, final TransactionPlayerListener listener,
+            final Replay replay) throws PersistitException {
 
         final List<Long> chainedAddress = new ArrayList<Long>();
         long address = item.getLastRecordAddress();
@@ -100,7 +155,7 @@ class TransactionPlayer {
             commitTimestamp = TX.getCommitTimestamp(_support.getReadBuffer());
             backchainAddress = TX.getBackchainAddress(_support.getReadBuffer());
             if (recordSize < TX.OVERHEAD || recordSize > Transaction.TRANSACTION_BUFFER_SIZE + TX.OVERHEAD
-                    || type != TX.TYPE) {
+                    || type != TX.TYPE && type != TZ.TYPE) {
                 throw new CorruptJournalException("Transaction record at " + addressToString(address)
                         + " has invalid length " + recordSize + " or type " + type);
             }
@@ -120,173 +175,284 @@ class TransactionPlayer {
         }
 
         listener.startTransaction(address, startTimestamp, commitTimestamp);
-        applyTransactionUpdates(_support.getReadBuffer(), address, recordSize, startTimestamp, commitTimestamp,
-                listener);
+        final Replay.Pending pending = replay == null ? null : replay.begin(startTimestamp, listener);
+        ByteBuffer bb = transactionRecord(address, type);
+        applyTransactionUpdates(bb, address, TX.getLength(bb), startTimestamp, commitTimestamp, listener, pending);
 
         for (final Long continuation : chainedAddress) {
             address = continuation.longValue();
             _support.read(address, TX.OVERHEAD);
             recordSize = TX.getLength(_support.getReadBuffer());
+            type = TX.getType(_support.getReadBuffer());
             if (recordSize < TX.OVERHEAD || recordSize > Transaction.TRANSACTION_BUFFER_SIZE + TX.OVERHEAD
-                    || type != TX.TYPE) {
+                    || type != TX.TYPE && type != TZ.TYPE) {
                 throw new CorruptJournalException("Transaction record at " + addressToString(address)
                         + " has invalid length " + recordSize + " or type " + type);
             }
             _support.read(address, recordSize);
-            applyTransactionUpdates(_support.getReadBuffer(), address, recordSize, startTimestamp, commitTimestamp,
-                    listener);
+            bb = transactionRecord(address, type);
+            applyTransactionUpdates(bb, address, TX.getLength(bb), startTimestamp, commitTimestamp, listener, pending);
+        }
+        if (pending == null) {
+            listener.endTransaction(address, startTimestamp);
+        } else {
+            pending.end(address);
         }
-        listener.endTransaction(address, startTimestamp);
 
     }
 
+    /**
+     * @param address
+     *            journal address of the record held in the read buffer
+     * @param type
+     *            type of the record, TX or TZ
+     * @return a heap buffer holding the TX record, or a new buffer holding the
+     *         TX record expanded from a TZ record. The heap buffer is the
+     *         read buffer itself, or the scratch buffer if the read buffer is
+     *         direct.
+     * @throws CorruptJournalException
+     *             if a TZ record cannot be expanded
+     */
+    private ByteBuffer transactionRecord(final long address, final int type) throws CorruptJournalException {
+        final ByteBuffer readBuffer = _support.getReadBuffer();
+        if (!readBuffer.hasArray() && _scratch == null) {
+            _scratch = ByteBuffer.allocate(Transaction.TRANSACTION_BUFFER_SIZE + TX.OVERHEAD);
+        }
+        if (type != TZ.TYPE) {
+            return JournalRecord.onHeap(readBuffer, _scratch);
+        }
+        final ByteBuffer bb = TZ.expand(readBuffer, _scratch);
+        if (bb == null) {
+            throw new CorruptJournalException("Compressed transaction record at " + addressToString(address)
+                    + " is malformed");
+        }
+        return bb;
+    }
+
     void applyTransactionUpdates(final ByteBuffer byteBuffer, final long address, final int recordSize,
-            final long startTimestamp, final long commitTimestamp, final TransactionPlayerListener listener)
-            throws PersistitException {
+            final long startTimestamp, final long commitTimestamp, final TransactionPlayerListener listener,
+            final Replay.Pending pending) throws PersistitException {
         ByteBuffer bb = byteBuffer;
         final int start = bb.position();
         int end = start + recordSize;
         int position = start + TX.OVERHEAD;
+        long base = address - start;
 
         while (position < end) {
             bb.position(position);
             final int innerSize = JournalRecord.getLength(bb);
             final int type = JournalRecord.getType(bb);
-            try {
-                switch (type) {
-                case SR.TYPE: {
-                    final int keySize = SR.getKeySize(bb);
-                    final int treeHandle = SR.getTreeHandle(bb);
-
-                    final Exchange exchange = getExchange(treeHandle, address, startTimestamp, listener);
-                    if (exchange != null) {
-                        exchange.ignoreTransactions();
-                        final Key key = exchange.getKey();
-                        final Value value = exchange.getValue();
-                        System.arraycopy(bb.array(), bb.position() + SR.OVERHEAD, key.getEncodedBytes(), 0, keySize);
-                        key.setEncodedSize(keySize);
-                        final int valueSize = innerSize - SR.OVERHEAD - keySize;
-                        value.ensureFit(valueSize);
-                        System.arraycopy(bb.array(), bb.position() + SR.OVERHEAD + keySize, value.getEncodedBytes(), 0,
-                                valueSize);
-                        value.setEncodedSize(valueSize);
-
-                        if (value.getEncodedSize() >= Buffer.LONGREC_SIZE
-                                && (value.getEncodedBytes()[0] & 0xFF) == Buffer.LONGREC_TYPE) {
-                            /*
-                             * convertToLongRecord will pollute the
-                             * getReadBuffer(). Therefore before calling it we
-                             * need to copy the TX record to a fresh ByteBuffer.
-                             */
-                            if (bb == _support.getReadBuffer()) {
-                                end = recordSize - (position - start);
-                                bb = ByteBuffer.allocate(end);
-                                bb.put(_support.getReadBuffer().array(), position, end);
-                                bb.flip();
-                                position = 0;
-                            }
-                            if (listener.requiresLongRecordConversion()) {
-                                _support.convertToLongRecord(value, treeHandle, address, commitTimestamp);
-                            }
-                        }
+            final long recordAddress = base + position;
+            if (type == SR.TYPE && isLongRecord(bb, innerSize)) {
+                /*
+                 * convertToLongRecord will pollute the getReadBuffer().
+                 * Therefore before calling it we need to copy the TX record to
+                 * a fresh ByteBuffer.
+                 */
+                if (bb == _support.getReadBuffer()) {
+                    end = recordSize - (position - start);
+                    bb = ByteBuffer.allocate(end);
+                    bb.put(_support.getReadBuffer().array(), position, end);
+                    bb.flip();
+                    base += position;
+                    position = 0;
+                }
+                if (pending != null && listener.requiresLongRecordConversion()) {
+                    final ByteBuffer converted = convertLongRecord(bb, innerSize, address, commitTimestamp);
+                    pending.dispatch(SR.getTreeHandle(bb), converted.array(), address, recordAddress, commitTimestamp);
+                    position += innerSize;
+                    continue;
+                }
+            }
+            if (pending != null) {
+                final byte[] record = new byte[innerSize];
+                System.arraycopy(bb.array(), bb.position(), record, 0, innerSize);
+                pending.dispatch(treeHandle(bb, type), record, address, recordAddress, commitTimestamp);
+            } else {
+                applyUpdate(bb, innerSize, type, address, recordAddress, startTimestamp, commitTimestamp, listener);
+            }
+            position += innerSize;
+        }
+    }
 
-                        listener.store(address, startTimestamp, exchange);
-                        /*
-                         * Don't keep exchanges with enlarged value - let them
-                         * be GC'd
-                         */
-                        if (exchange.getValue().getMaximumSize() < Value.DEFAULT_MAXIMUM_SIZE) {
-                            releaseExchange(exchange);
+    /**
+     * Apply one update record. The record starts at the position of the
+     * supplied buffer.
+     */
+    private void applyUpdate(final ByteBuffer bb, final int innerSize, final int type, final long address,
+            final long recordAddress, final long startTimestamp, final long commitTimestamp,
+            final TransactionPlayerListener listener) throws PersistitException {
+        try {
+            switch (type) {
+            case SR.TYPE: {
+                final int keySize = SR.getKeySize(bb);
+                final int treeHandle = SR.getTreeHandle(bb);
+
+                final Exchange exchange = getExchange(treeHandle, address, startTimestamp, listener);
+                if (exchange != null) {
+                    exchange.ignoreTransactions();
+                    final Key key = exchange.getKey();
+                    final Value value = exchange.getValue();
+                    System.arraycopy(bb.array(), bb.position() + SR.OVERHEAD, key.getEncodedBytes(), 0, keySize);
+                    key.setEncodedSize(keySize);
+                    final int valueSize = innerSize - SR.OVERHEAD - keySize;
+                    if (valueSize > value.getMaximumSize()) {
+                        exchange.setMaximumValueSize(valueSize);
+                    }
+                    value.ensureFit(valueSize);
+                    System.arraycopy(bb.array(), bb.position() + SR.OVERHEAD + keySize, value.getEncodedBytes(), 0,
+                            valueSize);
+                    value.setEncodedSize(valueSize);
+
+                    if (value.getEncodedSize() >= Buffer.LONGREC_SIZE
+                            && (value.getEncodedBytes()[0] & 0xFF) == Buffer.LONGREC_TYPE) {
+                        if (listener.requiresLongRecordConversion()) {
+                            _support.convertToLongRecord(value, treeHandle, address, commitTimestamp);
                         }
                     }
-                    appliedUpdates.incrementAndGet();
-                    break;
-                }
 
-                case DR.TYPE: {
-                    final int key1Size = DR.getKey1Size(bb);
-                    final int elisionCount = DR.getKey2Elision(bb);
-                    final Exchange exchange = getExchange(DR.getTreeHandle(bb), address, startTimestamp, listener);
-                    if (exchange != null) {
-                        exchange.ignoreTransactions();
-                        final Key key1 = exchange.getAuxiliaryKey3();
-                        final Key key2 = exchange.getAuxiliaryKey4();
-                        System.arraycopy(bb.array(), bb.position() + DR.OVERHEAD, key1.getEncodedBytes(), 0, key1Size);
-                        key1.setEncodedSize(key1Size);
-                        final int key2Size = innerSize - DR.OVERHEAD - key1Size;
-                        System.arraycopy(key1.getEncodedBytes(), 0, key2.getEncodedBytes(), 0, elisionCount);
-                        System.arraycopy(bb.array(), bb.position() + DR.OVERHEAD + key1Size, key2.getEncodedBytes(),
-                                elisionCount, key2Size);
-                        key2.setEncodedSize(key2Size + elisionCount);
-                        listener.removeKeyRange(address, startTimestamp, exchange, key1, key2);
+                    listener.store(address, startTimestamp, exchange);
+                    /*
+                     * Don't keep exchanges with enlarged value - let them be
+                     * GC'd
+                     */
+                    if (exchange.getValue().getMaximumSize() < Value.DEFAULT_MAXIMUM_SIZE) {
                         releaseExchange(exchange);
                     }
-                    appliedUpdates.incrementAndGet();
-                    break;
                 }
+                appliedUpdates.incrementAndGet();
+                break;
+            }
 
-                case DT.TYPE: {
-                    final Exchange exchange = getExchange(DT.getTreeHandle(bb), address, startTimestamp, listener);
-                    if (exchange != null) {
-                        listener.removeTree(address, startTimestamp, exchange);
-                        releaseExchange(exchange);
-                    }
-                    appliedUpdates.incrementAndGet();
-                    break;
+            case DR.TYPE: {
+                final int key1Size = DR.getKey1Size(bb);
+                final int elisionCount = DR.getKey2Elision(bb);
+                final Exchange exchange = getExchange(DR.getTreeHandle(bb), address, startTimestamp, listener);
+                if (exchange != null) {
+                    exchange.ignoreTransactions();
+                    final Key key1 = exchange.getAuxiliaryKey3();
+                    final Key key2 = exchange.getAuxiliaryKey4();
+                    System.arraycopy(bb.array(), bb.position() + DR.OVERHEAD, key1.getEncodedBytes(), 0, key1Size);
+                    key1.setEncodedSize(key1Size);
+                    final int key2Size = innerSize - DR.OVERHEAD - key1Size;
+                    System.arraycopy(key1.getEncodedBytes(), 0, key2.getEncodedBytes(), 0, elisionCount);
+                    System.arraycopy(bb.array(), bb.position() + DR.OVERHEAD + key1Size, key2.getEncodedBytes(),
+                            elisionCount, key2Size);
+                    key2.setEncodedSize(key2Size + elisionCount);
+                    listener.removeKeyRange(address, startTimestamp, exchange, key1, key2);
+                    releaseExchange(exchange);
                 }
+                appliedUpdates.incrementAndGet();
+                break;
+            }
 
-                case D0.TYPE: {
-                    final Exchange exchange = getExchange(D0.getTreeHandle(bb), address, startTimestamp, listener);
-                    if (exchange != null) {
-                        /*
-                         * Note that the commitTimestamp, not startTimestamp is
-                         * passed to the delta method. The
-                         * Accumulator#updateBaseValue method needs the
-                         * commitTimestamp.
-                         */
-                        listener.delta(address, commitTimestamp, exchange.getTree(), D0.getIndex(bb),
-                                D0.getAccumulatorTypeOrdinal(bb), 1);
-                        appliedUpdates.incrementAndGet();
-                    }
-                    break;
+            case DT.TYPE: {
+                final Exchange exchange = getExchange(DT.getTreeHandle(bb), address, startTimestamp, listener);
+                if (exchange != null) {
+                    listener.removeTree(address, startTimestamp, exchange);
+                    releaseExchange(exchange);
                 }
+                appliedUpdates.incrementAndGet();
+                break;
+            }
 
-                case D1.TYPE: {
-                    final Exchange exchange = getExchange(D1.getTreeHandle(bb), address, startTimestamp, listener);
-                    if (exchange != null) {
-                        listener.delta(address, startTimestamp, exchange.getTree(), D1.getIndex(bb),
-                                D1.getAccumulatorTypeOrdinal(bb), D1.getValue(bb));
-                    }
+            case D0.TYPE: {
+                final Exchange exchange = getExchange(D0.getTreeHandle(bb), address, startTimestamp, listener);
+                if (exchange != null) {
+                    /*
+                     * Note that the commitTimestamp, not startTimestamp is
+                     * passed to the delta method. The
+                     * Accumulator#updateBaseValue method needs the
+                     * commitTimestamp.
+                     */
+                    listener.delta(address, commitTimestamp, exchange.getTree(), D0.getIndex(bb),
+                            D0.getAccumulatorTypeOrdinal(bb), 1);
                     appliedUpdates.incrementAndGet();
-                    break;
                 }
+                break;
+            }
 
-                default: {
-                    throw new CorruptJournalException("Invalid record type " + type + " at journal address "
-                            + addressToString(address + position - start) + " index of transaction record at "
-                            + addressToString(address));
-                }
-                }
-            } catch (final VolumeNotFoundException vnfe) {
-                final Persistit db = _support.getPersistit();
-                if (db.getJournalManager().isIgnoreMissingVolumes()) {
-                    /*
-                     * If ignoreMissingVolumes is enabled, then issue a warning
-                     * Alert, but allow recovery or rollback to continue.
-                     */
-                    db.getAlertMonitor().post(
-                            new Event(AlertLevel.WARN, db.getLogBase().missingVolume, vnfe.getMessage(), address
-                                    + position - start), AlertMonitor.MISSING_VOLUME_CATEGORY);
-                    ignoredUpdates.incrementAndGet();
-                } else {
-                    failedUpdates.incrementAndGet();
-                    throw vnfe;
+            case D1.TYPE: {
+                final Exchange exchange = getExchange(D1.getTreeHandle(bb), address, startTimestamp, listener);
+                if (exchange != null) {
+                    listener.delta(address, startTimestamp, exchange.getTree(), D1.getIndex(bb),
+                            D1.getAccumulatorTypeOrdinal(bb), D1.getValue(bb));
                 }
-            } catch (final PersistitException e) {
+                appliedUpdates.incrementAndGet();
+                break;
+            }
+
+            default: {
+                throw new CorruptJournalException("Invalid record type " + type + " at journal address "
+                        + addressToString(recordAddress) + " index of transaction record at "
+                        + addressToString(address));
+            }
+            }
+        } catch (final VolumeNotFoundException vnfe) {
+            final Persistit db = _support.getPersistit();
+            if (db.getJournalManager().isIgnoreMissingVolumes()) {
+                /*
+                 * If ignoreMissingVolumes is enabled, then issue a warning
+                 * Alert, but allow recovery or rollback to continue.
+                 */
+                db.getAlertMonitor().post(
+                        new Event(AlertLevel.WARN, db.getLogBase().missingVolume, vnfe.getMessage(), recordAddress),
+                        AlertMonitor.MISSING_VOLUME_CATEGORY);
+                ignoredUpdates.incrementAndGet();
+            } else {
                 failedUpdates.incrementAndGet();
-                throw e;
+                throw vnfe;
             }
-            position += innerSize;
+        } catch (final PersistitException e) {
+            failedUpdates.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private static boolean isLongRecord(final ByteBuffer bb, final int innerSize) {
+        final int keySize = SR.getKeySize(bb);
+        final int valueSize = innerSize - SR.OVERHEAD - keySize;
+        return valueSize >= Buffer.LONGREC_SIZE
+                && (bb.array()[bb.position() + SR.OVERHEAD + keySize] & 0xFF) == Buffer.LONGREC_TYPE;
+    }
+
+    /**
+     * Assemble the long record referred to by an SR record and return a copy
+     * of the SR record holding the complete value. This reads the journal and
+     * therefore must be called by the thread that owns the read buffer.
+     */
+    private ByteBuffer convertLongRecord(final ByteBuffer bb, final int innerSize, final long address,
+            final long commitTimestamp) throws PersistitException {
+        final int keySize = SR.getKeySize(bb);
+        final int valueSize = innerSize - SR.OVERHEAD - keySize;
+        final Value value = new Value(_support.getPersistit());
+        value.ensureFit(valueSize);
+        System.arraycopy(bb.array(), bb.position() + SR.OVERHEAD + keySize, value.getEncodedBytes(), 0, valueSize);
+        value.setEncodedSize(valueSize);
+        _support.convertToLongRecord(value, SR.getTreeHandle(bb), address, commitTimestamp);
+        final int size = SR.OVERHEAD + keySize + value.getEncodedSize();
+        final ByteBuffer converted = ByteBuffer.allocate(size);
+        converted.put(bb.array(), bb.position(), SR.OVERHEAD + keySize);
+        converted.put(value.getEncodedBytes(), 0, value.getEncodedSize());
+        converted.flip();
+        JournalRecord.putLength(converted, size);
+        return converted;
+    }
+
+    private static int treeHandle(final ByteBuffer bb, final int type) {
+        switch (type) {
+        case SR.TYPE:
+            return SR.getTreeHandle(bb);
+        case DR.TYPE:
+            return DR.getTreeHandle(bb);
+        case DT.TYPE:
+            return DT.getTreeHandle(bb);
+        case D0.TYPE:
+            return D0.getTreeHandle(bb);
+        case D1.TYPE:
+            return D1.getTreeHandle(bb);
+        default:
+            return 0;
         }
     }
 
@@ -345,6 +511,240 @@ class TransactionPlayer {
         _support.getPersistit().releaseExchange(exchange);
     }
 
+    /**
+     * Create a {@link Replay} that applies updates with the specified number
+     * of worker threads.
+     */
+    Replay startReplay(final int threads) {
+        return new Replay(threads);
+    }
+
+    /**
+     * <p>
+     * Worker threads that apply the updates of decoded transactions. The thread
+     * that reads the journal decodes each transaction in commit order and
+     * hands each of its updates to the worker that owns the update's tree.
+     * Because all updates to a tree are applied by one worker, the updates of
+     * each tree are applied in journal order while updates of different trees
+     * are applied concurrently. The listener's <code>endTransaction</code>
+     * method is called once every update of the transaction has been applied;
+     * see {@link TransactionPlayerListener}.
+     * </p>
+     * <p>
+     * An update that fails is logged and counted, and the remaining updates
+     * are still applied. A {@link TestException} thrown by a listener stops
+     * the replay and is rethrown by the next call to {@link #drain()}.
+     * </p>
+     */
+    class Replay {
+
+        private final static int QUEUE_CAPACITY = 4096;
+
+        private final Worker[] _workers;
+
+        private final AtomicInteger _errorCount = new AtomicInteger();
+
+        private volatile TestException _testException;
+
+        private volatile boolean _closed;
+
+        private Replay(final int threads) {
+            _workers = new Worker[threads];
+            for (int index = 0; index < threads; index++) {
+                _workers[index] = new Worker(index);
+                _workers[index].start();
+            }
+        }
+
+        /**
+         * The updates of one transaction that have been dispatched and not yet
+         * applied. The thread that reads the journal holds one count until it
+         * has dispatched them all; whichever thread releases the last count
+         * calls the listener's <code>endTransaction</code> method.
+         */
+        class Pending {
+
+            private final AtomicInteger _count = new AtomicInteger(1);
+
+            private final long _startTimestamp;
+
+            private final TransactionPlayerListener _listener;
+
+            private volatile long _address;
+
+            private Pending(final long startTimestamp, final TransactionPlayerListener listener) {
+                _startTimestamp = startTimestamp;
+                _listener = listener;
+            }
+
+            void dispatch(final int treeHandle, final byte[] record, final long address, final long recordAddress,
+                    final long commitTimestamp) throws PersistitException {
+                _count.incrementAndGet();
+                final Update update = new Update(record, address, recordAddress, _startTimestamp, commitTimestamp,
+                        _listener, this, null);
+                put(_workers[(treeHandle & Integer.MAX_VALUE) % _workers.length], update);
+            }
+
+            /**
+             * Called by the thread that reads the journal once every update of
+             * the transaction has been dispatched.
+             * 
+             * @param address
+             *            address of the last record of the transaction
+             */
+            void end(final long address) throws PersistitException {
+                _address = address;
+                if (_count.decrementAndGet() == 0) {
+                    _listener.endTransaction(address, _startTimestamp);
+                }
+            }
+
+            /**
+             * @return <code>true</code> if the caller applied the last update
+             *         of the transaction and must end it
+             */
+            private boolean applied() {
+                return _count.decrementAndGet() == 0;
+            }
+        }
+
+        /**
+         * @return a {@link Pending} through which the updates of a transaction
+         *         are dispatched
+         */
+        Pending begin(final long startTimestamp, final TransactionPlayerListener listener) {
+            return new Pending(startTimestamp, listener);
+        }
+
+        /**
+         * Wait until every update dispatched so far has been applied.
+         * 
+         * @throws PersistitException
+         * @throws TestException
+         *             if a listener threw one
+         */
+        void drain() throws PersistitException {
+            final CountDownLatch latch = new CountDownLatch(_workers.length);
+            final Update barrier = new Update(null, 0, 0, 0, 0, null, null, latch);
+            for (final Worker worker : _workers) {
+                put(worker, barrier);
+            }
+            try {
+                latch.await();
+            } catch (final InterruptedException e) {
+                throw new PersistitInterruptedException(e);
+            }
+            final TestException te = _testException;
+            if (te != null) {
+                throw te;
+            }
+        }
+
+        /**
+         * Apply the remaining updates and stop the worker threads.
+         * 
+         * @throws PersistitException
+         * @throws TestException
+         *             if a listener threw one
+         */
+        void close() throws PersistitException {
+            _closed = true;
+            drain();
+        }
+
+        int getErrorCount() {
+            return _errorCount.get();
+        }
+
+        int getThreadCount() {
+            return _workers.length;
+        }
+
+        private void put(final Worker worker, final Update update) throws PersistitException {
+            try {
+                worker._queue.put(update);
+            } catch (final InterruptedException e) {
+                throw new PersistitInterruptedException(e);
+            }
+        }
+
+        private class Worker extends Thread {
+
+            private final BlockingQueue<Update> _queue = new ArrayBlockingQueue<Update>(QUEUE_CAPACITY);
+
+            private Worker(final int index) {
+                super("RECOVERY_REPLAY_" + index);
+                setDaemon(true);
+            }
+
+            @Override
+            public void run() {
+                for (;;) {
+                    final Update update;
+                    try {
+                        update = _queue.take();
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+                    if (update._latch != null) {
+                        update._latch.countDown();
+                        if (_closed) {
+                            return;
+                        }
+                    } else if (_testException == null) {
+                        apply(update);
+                    }
+                }
+            }
+
+            private void apply(final Update update) {
+                final ByteBuffer bb = ByteBuffer.wrap(update._record);
+                try {
+                    try {
+                        applyUpdate(bb, update._record.length, JournalRecord.getType(bb), update._address,
+                                update._recordAddress, update._startTimestamp, update._commitTimestamp,
+                                update._listener);
+                    } finally {
+                        if (update._pending.applied()) {
+                            update._listener.endTransaction(update._pending._address, update._startTimestamp);
+                        }
+                    }
+                } catch (final TestException te) {
+                    _testException = te;
+                } catch (final Exception e) {
+                    _support.getPersistit().getLogBase().recoveryException
+                            .log(e, addressToString(update._address, update._startTimestamp));
+                    _errorCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static class Update {
+
+        private final byte[] _record;
+        private final long _address;
+        private final long _recordAddress;
+        private final long _startTimestamp;
+        private final long _commitTimestamp;
+        private final TransactionPlayerListener _listener;
+        private final Replay.Pending _pending;
+        private final CountDownLatch _latch;
+
+        private Update(final byte[] record, final long address, final long recordAddress,
+                final long startTimestamp, final long commitTimestamp, final TransactionPlayerListener listener,
+                final Replay.Pending pending, final CountDownLatch latch) {
+            _record = record;
+            _address = address;
+            _recordAddress = recordAddress;
+            _startTimestamp = startTimestamp;
+            _commitTimestamp = commitTimestamp;
+            _listener = listener;
+            _pending = pending;
+            _latch = latch;
+        }
+    }
+
     long getAppliedUpdates() {
         return appliedUpdates.get();
     }
@@ -89,6 +89,7 @@ public class Tree extends SharedResource {
     private final Volume _volume;
     private final AtomicReference<Object> _appCache = new AtomicReference<Object>();
     private final AtomicInteger _handle = new AtomicInteger();
+    private volatile int _readAhead = -1;
 
     private final TimelyResource<TreeVersion> _timelyResource;
 
@@ -401,6 +402,30 @@ public class Tree extends SharedResource {
         return _appCache.get();
     }
 
+    /**
+     * @return The number of pages read ahead by a sequential traversal of this
+     *         <code>Tree</code>; the value set by {@link #setReadAhead(int)}
+     *         or, if none has been set, {@link Persistit#getDefaultReadAhead()}
+     */
+    public int getReadAhead() {
+        final int readAhead = _readAhead;
+        return readAhead >= 0 ? readAhead : _persistit.getDefaultReadAhead();
+    }
+
+    /**
+     * Set the number of data pages that are read asynchronously ahead of an
+     * {@link Exchange} traversing this <code>Tree</code> sequentially. The
+     * setting is not persistent and may be overridden by
+     * {@link Exchange#setReadAhead(int)}.
+     * 
+     * @param readAhead
+     *            Number of pages, zero to disable read-ahead, or -1 to use
+     *            {@link Persistit#getDefaultReadAhead()}
+     */
+    public void setReadAhead(final int readAhead) {
+        _readAhead = Util.rangeCheck(readAhead, -1, ReadAheadManager.MAXIMUM_READ_AHEAD);
+    }
+
     /**
      * @return The handle value used to identify this <code>Tree</code> in the
      *         journal
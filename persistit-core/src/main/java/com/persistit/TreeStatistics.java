@@ -48,6 +48,11 @@ public class TreeStatistics {
     private final AtomicLong _traverseCounter = new AtomicLong();
     private final AtomicLong _storeCounter = new AtomicLong();
     private final AtomicLong _removeCounter = new AtomicLong();
+    /*
+     * An estimate of current state rather than a counter; it is not
+     * serialized.
+     */
+    private final AtomicLong _deadVersionBytes = new AtomicLong();
 
     private final AtomicBoolean _dirty = new AtomicBoolean();
     /*
@@ -124,8 +129,16 @@ public class TreeStatistics {
 
     /**
      * @return Approximate size in bytes of the overhead space consumed in this
-     *         <code>Tree</code> by multi-version-values
+     *         <code>Tree</code> by multi-version-values, i.e., by superseded
+     *         versions in pages currently held in the buffer pools
      */
+    public long getDeadVersionBytes() {
+        return Math.max(0, _deadVersionBytes.get());
+    }
+
+    void addDeadVersionBytes(final long delta) {
+        _deadVersionBytes.addAndGet(delta);
+    }
 
     void reset() {
         _fetchCounter.set(0);
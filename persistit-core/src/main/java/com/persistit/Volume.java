@@ -471,12 +471,13 @@ public class Volume {
         if (_specification.getPageSize() <= 0) {
             throw new UnderSpecifiedVolumeException(getName());
         }
-        if (persistit.getBufferPool(_specification.getPageSize()) == null) {
+        final BufferPool pool = persistit.getBufferPool(_specification);
+        if (pool == null) {
             throw new BufferSizeUnavailableException(getName());
         }
         final boolean exists = VolumeHeader.verifyVolumeHeader(_specification, persistit.getCurrentTimestamp());
 
-        _structure = new VolumeStructure(persistit, this, _specification.getPageSize());
+        _structure = new VolumeStructure(persistit, this, pool);
         _storage = new VolumeStorageV2(persistit, this);
         _statistics = new VolumeStatistics();
 
@@ -510,10 +511,11 @@ public class Volume {
         if (_storage != null) {
             throw new IllegalStateException("This volume has already been opened");
         }
-        if (persistit.getBufferPool(pageSize) == null) {
+        final BufferPool pool = persistit.getBufferPool(pageSize);
+        if (pool == null) {
             throw new BufferSizeUnavailableException("There is no buffer pool for pages of size " + pageSize);
         }
-        _structure = new VolumeStructure(persistit, this, pageSize);
+        _structure = new VolumeStructure(persistit, this, pool);
         _statistics = new VolumeStatistics();
     }
 
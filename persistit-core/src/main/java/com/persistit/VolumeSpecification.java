@@ -41,6 +41,7 @@ public class VolumeSpecification {
     private final static String ATTR_READONLY = "readOnly";
     private final static String ATTR_CREATEONLY = "createOnly";
     private final static String ATTR_PAGE_SIZE = "pageSize";
+    private final static String ATTR_BUFFER_POOL = "bufferPool";
 
     private final static String ATTR_INITIAL_SIZE = "initialSize";
     private final static String ATTR_EXTENSION_SIZE = "extensionSize";
@@ -56,6 +57,7 @@ public class VolumeSpecification {
     private boolean create = false;
     private boolean createOnly = false;
     private boolean aliased = false;
+    private String bufferPoolName = null;
 
     private int pageSize = -1;
     private int version = -1;
@@ -149,6 +151,13 @@ public class VolumeSpecification {
      * <dd>Specifies <i>NNN</i> as the volume's buffer size when creating a new
      * volume. <i>NNN</i> must be 1024, 2048, 4096, 8192 or 16384.</dd>
      * 
+     * <dt><code>bufferPool:<i>name</i></code></dt>
+     * <dd>Caches the volume's pages in the named buffer pool defined by the
+     * <code>buffer.pool.</code><i>name</i> configuration property rather than
+     * in the default pool for its page size. The named pool must have the
+     * volume's page size; if no such pool is configured, the default pool is
+     * used.</dd>
+     * 
      * <dt><code>initialPages:<i>NNN</i></code></dt>
      * <dd><i>NNN</i> is the initial number of pages to be allocated when this
      * volume is first created.</dd>
@@ -190,6 +199,11 @@ public class VolumeSpecification {
                     if (valueString != null && !valueString.isEmpty()) {
                         setName(valueString);
                     }
+                } else if (ATTR_BUFFER_POOL.equals(attr)) {
+                    final String valueString = innerTokenizer.nextToken().trim();
+                    if (valueString != null && !valueString.isEmpty()) {
+                        bufferPoolName = valueString;
+                    }
                 } else {
                     final String valueString = innerTokenizer.nextToken().trim();
                     boolean bad = false;
@@ -326,6 +340,25 @@ public class VolumeSpecification {
         this.name = name;
     }
 
+    /**
+     * @return the name of the buffer pool in which the volume's pages are
+     *         cached, or <code>null</code> for the default pool of the
+     *         volume's page size
+     */
+    public String getBufferPoolName() {
+        return bufferPoolName;
+    }
+
+    /**
+     * @param bufferPoolName
+     *            the name of the buffer pool in which the volume's pages are
+     *            cached, or <code>null</code> for the default pool of the
+     *            volume's page size
+     */
+    public void setBufferPoolName(final String bufferPoolName) {
+        this.bufferPoolName = bufferPoolName;
+    }
+
     public boolean isReadOnly() {
         return readOnly;
     }
@@ -430,6 +463,9 @@ public class VolumeSpecification {
         if (pageSize > 0) {
             sb.append(',').append(ATTR_PAGE_SIZE).append(':').append(pageSize);
         }
+        if (bufferPoolName != null) {
+            sb.append(',').append(ATTR_BUFFER_POOL).append(':').append(bufferPoolName);
+        }
 
         appendSize(sb, ATTR_INITIAL_SIZE, ATTR_INITIAL_PAGES, initialSize, initialPages);
         appendSize(sb, ATTR_MAXIMUM_SIZE, ATTR_MAXIMUM_PAGES, maximumSize, maximumPages);
@@ -471,7 +507,8 @@ public class VolumeSpecification {
                 && createOnly == v.createOnly && aliased == v.aliased && pageSize == v.pageSize && version == v.version
                 && id == v.id && initialPages == v.initialPages && initialSize == v.initialSize
                 && extensionPages == v.extensionPages && extensionSize == v.extensionSize
-                && maximumPages == v.maximumPages && maximumSize == v.maximumSize;
+                && maximumPages == v.maximumPages && maximumSize == v.maximumSize
+                && (bufferPoolName == null ? v.bufferPoolName == null : bufferPoolName.equals(v.bufferPoolName));
     }
 
     private String ds(final long s) {
@@ -16,6 +16,7 @@
 
 package com.persistit;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.Random;
@@ -34,6 +35,13 @@ import com.persistit.exception.VolumeClosedException;
  */
 abstract class VolumeStorage extends SharedResource {
 
+    /**
+     * Maximum number of pages written by one call to
+     * {@link #writePages(Buffer[], int)} or
+     * {@link #writePages(ByteBuffer[], int, long)}
+     */
+    final static int MAXIMUM_WRITE_RUN = 32;
+
     private final static Random ID_GENERATOR = new Random();
     protected Volume _volume;
 
@@ -152,10 +160,88 @@ abstract class VolumeStorage extends SharedResource {
     abstract void readPage(Buffer buffer) throws PersistitIOException, InvalidPageAddressException,
             VolumeClosedException, InUseException, PersistitInterruptedException;
 
+    /**
+     * Read pages into a batch of buffers. The buffers are sorted by page
+     * address, are claimed as writer by the caller and have already been
+     * assigned their Volume and page address. This implementation reads each
+     * page separately; subclasses may coalesce reads of consecutive pages.
+     * 
+     * @param buffers
+     * @param count
+     *            number of buffers
+     * @param staging
+     *            a buffer that may be used to stage reads of several pages;
+     *            its capacity limits the length of a coalesced read
+     * @return the number of read operations used to read the batch
+     * @throws PersistitException
+     */
+    int readPages(final Buffer[] buffers, final int count, final ByteBuffer staging) throws PersistitException {
+        for (int index = 0; index < count; index++) {
+            readPage(buffers[index]);
+        }
+        return count;
+    }
+
     abstract void writePage(final Buffer buffer) throws PersistitException;
 
     abstract void writePage(final ByteBuffer bb, final long page) throws PersistitException;
 
+    /**
+     * Write a batch of dirty buffers belonging to this volume. The buffers
+     * have been prepared by {@link Buffer#prepareWrite(boolean)}, are sorted
+     * by page address and are claimed as writer by the caller.
+     * 
+     * @param buffers
+     * @param count
+     *            number of buffers, at most {@value #MAXIMUM_WRITE_RUN}
+     * @return the number of runs of pages having consecutive addresses in
+     *         the batch
+     * @throws PersistitException
+     */
+    abstract int writePages(final Buffer[] buffers, final int count) throws PersistitException;
+
+    /**
+     * Write a run of page images to consecutive page addresses.
+     * 
+     * @param bbs
+     *            page images; each is written from its position to its limit
+     * @param count
+     *            number of pages, at most {@value #MAXIMUM_WRITE_RUN}
+     * @param page
+     *            address of the first page
+     * @throws PersistitException
+     */
+    abstract void writePages(final ByteBuffer[] bbs, final int count, final long page) throws PersistitException;
+
+    /**
+     * Write page images to consecutive positions of a channel with a single
+     * positional write. <code>FileChannel</code> has no positional gathering
+     * write, and {@link MediatedFileChannel} does not support the
+     * position-dependent methods, so the images are first gathered into a
+     * direct buffer belonging to the calling thread. Concurrent runs, whether
+     * of the same volume or not, are written without any lock.
+     * 
+     * @param channel
+     * @param bbs
+     * @param count
+     * @param position
+     *            file position of the first page
+     * @throws IOException
+     */
+    void writeRun(final FileChannel channel, final ByteBuffer[] bbs, final int count, final long position)
+            throws IOException {
+        final ByteBuffer run = _persistit.getThreadLocalDirectBuffer(MAXIMUM_WRITE_RUN
+                * _volume.getStructure().getPageSize());
+        run.clear();
+        for (int index = 0; index < count; index++) {
+            run.put(bbs[index]);
+        }
+        run.flip();
+        while (run.hasRemaining()) {
+            channel.write(run, position + run.position());
+        }
+    }
+
     abstract long allocNewPage() throws PersistitException;
 
     abstract void extend(final long pageAddr) throws PersistitException;
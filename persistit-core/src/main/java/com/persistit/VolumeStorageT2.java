@@ -315,6 +315,58 @@ class VolumeStorageT2 extends VolumeStorage {
         writePage(bb, buffer.getPageAddress());
     }
 
+    @Override
+    int writePages(final Buffer[] buffers, final int count) throws PersistitException {
+        final int pageSize = _volume.getStructure().getPageSize();
+        final ByteBuffer[] bbs = new ByteBuffer[count];
+        int writes = 0;
+        int start = 0;
+        for (int index = 0; index < count; index++) {
+            final ByteBuffer bb = buffers[index].getByteBuffer();
+            bb.position(0).limit(pageSize);
+            bbs[index - start] = bb;
+            if (index + 1 == count || buffers[index + 1].getPageAddress() != buffers[index].getPageAddress() + 1) {
+                writePages(bbs, index + 1 - start, buffers[start].getPageAddress());
+                writes++;
+                start = index + 1;
+            }
+        }
+        return writes;
+    }
+
+    @Override
+    void writePages(final ByteBuffer[] bbs, final int count, final long page) throws PersistitIOException,
+            InvalidPageAddressException, ReadOnlyVolumeException, VolumeClosedException, InUseException,
+            PersistitInterruptedException {
+        if (count == 1) {
+            writePage(bbs[0], page);
+            return;
+        }
+        // non-exclusive claim here intended to conflict with exclusive claim in
+        // close and truncate
+        final int pageSize = _volume.getStructure().getPageSize();
+        if (!claim(false, 0)) {
+            throw new InUseException("Unable to acquire claim on " + this);
+        }
+        try {
+            if (page < 0 || page + count > _nextAvailablePage) {
+                throw new InvalidPageAddressException("Pages " + page + "-" + (page + count - 1)
+                        + " out of bounds [0-" + _nextAvailablePage + "]");
+            }
+
+            try {
+                writeRun(getChannel(), bbs, count, (page - 1) * pageSize);
+            } catch (final IOException ioe) {
+                _persistit.getAlertMonitor().post(
+                        new Event(AlertLevel.ERROR, _persistit.getLogBase().writeException, ioe, _volume, page),
+                        AlertMonitor.WRITE_PAGE_CATEGORY);
+                throw new PersistitIOException(ioe);
+            }
+        } finally {
+            release();
+        }
+    }
+
     @Override
     void writePage(final ByteBuffer bb, final long page) throws PersistitIOException, InvalidPageAddressException,
             ReadOnlyVolumeException, VolumeClosedException, InUseException, PersistitInterruptedException {
@@ -451,17 +451,7 @@ class VolumeStorageV2 extends VolumeStorage {
             }
 
             try {
-                final ByteBuffer bb = buffer.getByteBuffer();
-                bb.position(0).limit(buffer.getBufferSize());
-                int read = 0;
-                while (read < buffer.getBufferSize()) {
-                    final long position = page * _volume.getStructure().getPageSize() + bb.position();
-                    final int bytesRead = _channel.read(bb, position);
-                    if (bytesRead <= 0) {
-                        throw new PersistitIOException("Unable to read bytes at position " + position + " in " + this);
-                    }
-                    read += bytesRead;
-                }
+                readFully(buffer.getByteBuffer(), page, buffer.getBufferSize());
                 _persistit.getIOMeter().chargeReadPageFromVolume(this._volume, buffer.getPageAddress(),
                         buffer.getBufferSize(), buffer.getIndex());
                 _volume.getStatistics().bumpReadCounter();
@@ -477,6 +467,90 @@ class VolumeStorageV2 extends VolumeStorage {
         }
     }
 
+    /**
+     * Pages that are present in the journal are read from there; runs of
+     * consecutive pages that are not are read from the volume file with a
+     * single positional read into the staging buffer, and then copied into
+     * their buffers.
+     */
+    @Override
+    int readPages(final Buffer[] buffers, final int count, final ByteBuffer staging) throws PersistitException {
+        if (!claim(false)) {
+            throw new InUseException("Unable to acquire claim on " + this);
+        }
+        try {
+            final JournalManager jman = _persistit.getJournalManager();
+            final int pageSize = _volume.getStructure().getPageSize();
+            final int maximumRun = Math.max(1, staging.capacity() / pageSize);
+            int reads = 0;
+            int start = 0;
+            for (int index = 0; index < count; index++) {
+                final Buffer buffer = buffers[index];
+                final long page = buffer.getPageAddress();
+                if (page < 0 || page >= _nextAvailablePage) {
+                    throw new InvalidPageAddressException("Page " + page + " out of bounds [0-" + _nextAvailablePage
+                            + "]");
+                }
+                final boolean journaled = jman.readPageFromJournal(buffer);
+                final boolean contiguous = index > start && page == buffers[index - 1].getPageAddress() + 1
+                        && index - start < maximumRun;
+                if (journaled || !contiguous) {
+                    if (index > start) {
+                        readRun(buffers, start, index, staging);
+                        reads++;
+                    }
+                    start = journaled ? index + 1 : index;
+                    if (journaled) {
+                        reads++;
+                    }
+                }
+            }
+            if (count > start) {
+                readRun(buffers, start, count, staging);
+                reads++;
+            }
+            return reads;
+        } finally {
+            release();
+        }
+    }
+
+    private void readRun(final Buffer[] buffers, final int from, final int to, final ByteBuffer staging)
+            throws PersistitIOException {
+        final int pageSize = _volume.getStructure().getPageSize();
+        final long page = buffers[from].getPageAddress();
+        try {
+            readFully(staging, page, (to - from) * pageSize);
+        } catch (final IOException ioe) {
+            _persistit.getAlertMonitor().post(
+                    new Event(AlertLevel.ERROR, _persistit.getLogBase().readException, ioe, _volume, page,
+                            buffers[from].getIndex()), AlertMonitor.READ_PAGE_CATEGORY);
+            throw new PersistitIOException(ioe);
+        }
+        for (int index = from; index < to; index++) {
+            final Buffer buffer = buffers[index];
+            staging.limit((index - from + 1) * pageSize).position((index - from) * pageSize);
+            staging.get(buffer.getBytes(), 0, pageSize);
+            _persistit.getIOMeter().chargeReadPageFromVolume(_volume, buffer.getPageAddress(), pageSize,
+                    buffer.getIndex());
+            _volume.getStatistics().bumpReadCounter();
+        }
+    }
+
+    private void readFully(final ByteBuffer bb, final long page, final int size) throws IOException,
+            PersistitIOException {
+        bb.position(0).limit(size);
+        int read = 0;
+        while (read < size) {
+            final long position = page * _volume.getStructure().getPageSize() + bb.position();
+            final int bytesRead = _channel.read(bb, position);
+            if (bytesRead <= 0) {
+                throw new PersistitIOException("Unable to read bytes at position " + position + " in " + this);
+            }
+            read += bytesRead;
+        }
+    }
+
     @Override
     void writePage(final Buffer buffer) throws PersistitException {
         /*
@@ -494,6 +568,55 @@ class VolumeStorageV2 extends VolumeStorage {
 
     }
 
+    @Override
+    int writePages(final Buffer[] buffers, final int count) throws PersistitException {
+        /*
+         * Non-exclusive claim here intended to conflict with exclusive claim in
+         * close and truncate
+         */
+        if (!claim(false)) {
+            throw new InUseException("Unable to acquire claim on " + this);
+        }
+        try {
+            _persistit.getJournalManager().writePagesToJournal(buffers, count);
+        } finally {
+            release();
+        }
+        int runs = 0;
+        for (int index = 0; index < count; index++) {
+            if (index == 0 || buffers[index].getPageAddress() != buffers[index - 1].getPageAddress() + 1) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+
+    @Override
+    void writePages(final ByteBuffer[] bbs, final int count, final long page) throws PersistitIOException,
+            InvalidPageAddressException, ReadOnlyVolumeException, VolumeClosedException {
+        if (count == 1) {
+            writePage(bbs[0], page);
+            return;
+        }
+        if (page < 0 || page + count > _nextAvailablePage) {
+            throw new InvalidPageAddressException("Pages " + page + "-" + (page + count - 1) + " out of bounds [0-"
+                    + _nextAvailablePage + "]");
+        }
+
+        if (isReadOnly()) {
+            throw new ReadOnlyVolumeException(getPath());
+        }
+
+        try {
+            writeRun(_channel, bbs, count, page * _volume.getStructure().getPageSize());
+        } catch (final IOException ioe) {
+            _persistit.getAlertMonitor().post(
+                    new Event(AlertLevel.ERROR, _persistit.getLogBase().writeException, ioe, _volume, page),
+                    AlertMonitor.WRITE_PAGE_CATEGORY);
+            throw new PersistitIOException(ioe);
+        }
+    }
+
     @Override
     void writePage(final ByteBuffer bb, final long page) throws PersistitIOException, InvalidPageAddressException,
             ReadOnlyVolumeException, VolumeClosedException {
@@ -79,11 +79,11 @@ class VolumeStructure {
 
     }
 
-    VolumeStructure(final Persistit persistit, final Volume volume, final int pageSize) {
+    VolumeStructure(final Persistit persistit, final Volume volume, final BufferPool pool) {
         _persistit = persistit;
         _volume = volume;
-        _pageSize = pageSize;
-        _pool = persistit.getBufferPool(_pageSize);
+        _pageSize = pool.getBufferSize();
+        _pool = pool;
     }
 
     void init(final long directoryRootPage, final long garbageRootPage) throws PersistitException {
@@ -74,6 +74,12 @@ public class LogBase {
     @Message("INFO| Allocating %,d buffers of size %,d bytes")
     public final LogItem allocateBuffers = PersistitLogMessage.empty();
 
+    @Message("INFO|Resized %s from %,d to %,d buffers")
+    public final LogItem resizeBuffers = PersistitLogMessage.empty();
+
+    @Message("WARNING|Volume %s requests buffer pool %s which does not exist or does not hold %,d-byte pages; using the default pool")
+    public final LogItem bufferPoolNotFound = PersistitLogMessage.empty();
+
     @Message("INFO|Opening volume %s (%s)")
     public final LogItem openVolume = PersistitLogMessage.empty();
 
@@ -28,6 +28,13 @@ public interface BufferPoolMXBean {
 
     public final static String MXBEAN_NAME = "com.persistit:type=Persistit,class=BufferPool";
 
+    /**
+     * @return The name of this pool if it is a named pool, or an empty string
+     *         if it is the default pool for its buffer size
+     */
+    @Description("The name of this pool if it is a named pool, or an empty string for the default pool of its buffer size")
+    public String getPoolName();
+
     /**
      * @return The size of <code>Buffer</code>s managed by this pool
      */
@@ -149,4 +156,84 @@ public interface BufferPoolMXBean {
     @Description("Earliest timestamp of any dirty page in this BufferPool.")
     public long getEarliestDirtyTimestamp();
 
+    /**
+     * @return The name of the policy used to select pages for eviction: one of
+     *         "CLOCK" or "2Q".
+     */
+    @Description("The name of the policy used to select pages for eviction: one of CLOCK or 2Q.")
+    public String getReplacementPolicy();
+
+    /**
+     * Change the policy used to select pages for eviction. The new policy
+     * starts without any history of the pages currently in the pool.
+     * 
+     * @param policyName
+     *            One of "CLOCK" or "2Q"
+     */
+    @Description("The name of the policy used to select pages for eviction: one of CLOCK or 2Q.")
+    public void setReplacementPolicy(String policyName);
+
+    /**
+     * @return The number of pages read into this <code>BufferPool</code> that
+     *         the replacement policy remembered as recently evicted. A page
+     *         read this way is retained in preference to pages touched only
+     *         once, for example by a full scan.
+     */
+    @Description("The number of pages read into this BufferPool that the replacement policy remembered as recently evicted.")
+    public long getGhostHitCount();
+
+    /**
+     * @return The number of eviction candidates the replacement policy
+     *         declined to evict because they were recently used or protected.
+     */
+    @Description("The number of eviction candidates the replacement policy declined to evict.")
+    public long getProtectedCount();
+
+    /**
+     * @return The number of runs of pages having consecutive addresses in the
+     *         same volume written by the PAGE_WRITER thread.
+     */
+    @Description("The number of runs of consecutive pages written by the PAGE_WRITER thread.")
+    public long getWriteRunCount();
+
+    /**
+     * @return The average number of pages in each run written by the
+     *         PAGE_WRITER thread.
+     */
+    @Description("The average number of pages in each run written by the PAGE_WRITER thread.")
+    public double getAverageWriteRunLength();
+
+    /**
+     * @return <code>true</code> if pages recorded in the buffer inventory are
+     *         still being loaded into this pool after startup.
+     */
+    @Description("True if pages recorded in the buffer inventory are still being loaded into this pool.")
+    public boolean isWarmingUp();
+
+    /**
+     * @return The number of pages recorded in the buffer inventory from which
+     *         this pool is warmed up.
+     */
+    @Description("The number of pages recorded in the buffer inventory from which this pool is warmed up.")
+    public long getWarmupPageTotal();
+
+    /**
+     * @return The number of pages loaded by warm-up so far.
+     */
+    @Description("The number of pages loaded by warm-up so far.")
+    public long getWarmupPageCount();
+
+    /**
+     * @return The number of read operations used to load the warm-up pages.
+     *         Consecutive pages are read with a single operation.
+     */
+    @Description("The number of read operations used to load the warm-up pages.")
+    public long getWarmupReadCount();
+
+    /**
+     * @return The number of pages loaded per second by warm-up.
+     */
+    @Description("The number of pages loaded per second by warm-up.")
+    public double getWarmupRate();
+
 }
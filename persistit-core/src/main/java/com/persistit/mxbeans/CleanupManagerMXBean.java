@@ -18,15 +18,24 @@ package com.persistit.mxbeans;
 
 import javax.management.MXBean;
 
+import com.persistit.exception.PersistitException;
+
 /**
  * Management information about the CLEANUP_MANAGER, a thread that performs
- * background pruning and other cleanup tasks.
+ * background pruning and other cleanup tasks with the help of optional
+ * CLEANUP_WORKER threads.
  */
 @MXBean
 public interface CleanupManagerMXBean {
 
     public final static String MXBEAN_NAME = "com.persistit:type=Persistit,class=CleanupManager";
 
+    /**
+     * Default and maximum number of threads that perform cleanup actions.
+     */
+    final static int DEFAULT_CLEANUP_THREADS = 1;
+    final static int MAXIMUM_CLEANUP_THREADS = 64;
+
     /**
      * @return the number of <code>CleanupAction</code>s enqueued since
      *         Persistit started.
@@ -61,6 +70,76 @@ public interface CleanupManagerMXBean {
     @Description("The number ofCleanupAction items currently enqueued")
     public long getEnqueuedCount();
 
+    /**
+     * @return the number of <code>CleanupAction</code>s not enqueued because
+     *         an equal action was already enqueued since Persistit started.
+     */
+    @Description("The number of CleanupAction items merged with an equal enqueued item since Persistit started")
+    public long getDuplicateCount();
+
+    /**
+     * @return the number of enqueued <code>CleanupAction</code>s discarded from
+     *         a full queue to make room for an action with a larger estimate
+     *         of reclaimed space since Persistit started.
+     */
+    @Description("The number of CleanupAction items displaced from a full queue since Persistit started")
+    public long getEvictedCount();
+
+    /**
+     * @return the number of <code>CleanupAction</code>s abandoned because a
+     *         page could not be claimed within the claim timeout since
+     *         Persistit started.
+     */
+    @Description("The number of CleanupAction items abandoned on a claim timeout since Persistit started")
+    public long getClaimTimeoutCount();
+
+    /**
+     * @return the average time in milliseconds a <code>CleanupAction</code>
+     *         has waited in the queue
+     */
+    @Description("The average time in milliseconds a CleanupAction item waited in the queue")
+    public long getAverageLatency();
+
+    /**
+     * @return the maximum time in milliseconds a <code>CleanupAction</code> has
+     *         waited in the queue
+     */
+    @Description("The maximum time in milliseconds a CleanupAction item waited in the queue")
+    public long getMaximumLatency();
+
+    /**
+     * @return the maximum time in milliseconds a cleanup thread waits to claim
+     *         a page
+     */
+    @Description("The maximum time in milliseconds a cleanup thread waits to claim a page")
+    public long getClaimTimeout();
+
+    /**
+     * Set the maximum time in milliseconds a cleanup thread waits to claim a
+     * page. An action whose page cannot be claimed in time is abandoned.
+     * 
+     * @param timeout
+     *            the timeout, at least 1
+     */
+    @Description("The maximum time in milliseconds a cleanup thread waits to claim a page")
+    public void setClaimTimeout(long timeout);
+
+    /**
+     * @return the maximum number of threads that perform cleanup actions
+     */
+    @Description("The maximum number of threads that perform cleanup actions")
+    public int getCleanupThreads();
+
+    /**
+     * Set the maximum number of threads that perform cleanup actions.
+     * Additional threads are used only while the queue holds a backlog.
+     * 
+     * @param cleanupThreads
+     *            number of threads
+     */
+    @Description("The maximum number of threads that perform cleanup actions")
+    public void setCleanupThreads(int cleanupThreads);
+
     /**
      * If there are any enqueued <code>CleanupAction</code>s, take some of them
      * from the queue and attempt to complete them.
@@ -106,4 +185,87 @@ public interface CleanupManagerMXBean {
     @Description("The minimum interval in milliseconds between attempts to enqueue a page needing to be pruned")
     public void setMinimumPruningDelay(long delay);
 
+    /**
+     * @return the estimated number of bytes occupied by superseded versions in
+     *         the multi-version values of buffered pages
+     */
+    @Description("Estimated bytes occupied by superseded versions in buffered pages")
+    public long getDeadVersionBytes();
+
+    /**
+     * @param volumeName
+     *            name of a volume
+     * @param treeName
+     *            name of a tree in that volume
+     * @return the estimated number of bytes occupied by superseded versions in
+     *         buffered pages of the specified tree
+     * @throws PersistitException
+     *             if the volume or tree does not exist
+     */
+    @Description("Estimated bytes occupied by superseded versions in buffered pages of one tree")
+    public long getDeadVersionBytes(@PName("volumeName") String volumeName, @PName("treeName") String treeName)
+            throws PersistitException;
+
+    /**
+     * @return the number of pages from which obsolete versions were pruned
+     *         since Persistit started
+     */
+    @Description("The number of pages from which obsolete versions were pruned since Persistit started")
+    public long getPrunedPageCount();
+
+    /**
+     * @return the number of bytes reclaimed by pruning obsolete versions since
+     *         Persistit started
+     */
+    @Description("The number of bytes reclaimed by pruning obsolete versions since Persistit started")
+    public long getPrunedByteCount();
+
+    /**
+     * @return the number of times a full page was pruned rather than split
+     *         since Persistit started
+     */
+    @Description("The number of times a full page was pruned rather than split since Persistit started")
+    public long getPrunedBeforeSplitCount();
+
+    /**
+     * @return the number of pages enqueued for pruning by the background sweep
+     *         since Persistit started
+     */
+    @Description("The number of pages enqueued for pruning by the background sweep since Persistit started")
+    public long getSweptPageCount();
+
+    /**
+     * @return The interval in milliseconds between background sweeps of the
+     *         buffer pools for pages with many superseded versions
+     */
+    @Description("The interval in milliseconds between background pruning sweeps; 0 disables sweeping")
+    public long getSweepInterval();
+
+    /**
+     * Set the interval in milliseconds between background sweeps of the buffer
+     * pools for pages with many superseded versions. A value of zero disables
+     * sweeping.
+     * 
+     * @param interval
+     *            the interval
+     */
+    @Description("The interval in milliseconds between background pruning sweeps; 0 disables sweeping")
+    public void setSweepInterval(long interval);
+
+    /**
+     * @return The estimated number of bytes of superseded versions a page must
+     *         hold to be pruned by a background sweep
+     */
+    @Description("The estimated bytes of superseded versions a page must hold to be pruned by a background sweep")
+    public int getSweepMinimumDeadBytes();
+
+    /**
+     * Set the estimated number of bytes of superseded versions a page must
+     * hold to be pruned by a background sweep.
+     * 
+     * @param bytes
+     */
+    @Description("The estimated bytes of superseded versions a page must hold to be pruned by a background sweep")
+    public void setSweepMinimumDeadBytes(int bytes);
+
 }
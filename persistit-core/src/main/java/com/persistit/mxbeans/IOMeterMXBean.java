@@ -56,14 +56,22 @@ public interface IOMeterMXBean {
      * <dd>Flush journal</dd>
      * <dt>GP</dt>
      * <dd>Get Page</dd>
+     * <dt>PF</dt>
+     * <dd>Page read ahead by prefetch</dd>
+     * <dt>PH</dt>
+     * <dd>Prefetched page subsequently requested</dd>
+     * <dt>PW</dt>
+     * <dd>Prefetched page evicted without being requested</dd>
      * </dl>
      * 
      */
     public final static String[] OPERATION_NAMES = { "Unknown", "Read page from Volume", "Read page from Journal",
             "Copy page from journal", "Copy page to volume", "Write page from Journal", "Write Transaction to Journal",
-            "Other", "Evict page from pool", "Flush journal", "Get page" };
+            "Other", "Evict page from pool", "Flush journal", "Get page", "Prefetch page", "Prefetch hit",
+            "Prefetch wasted" };
 
-    public final static String[] OPERATIONS = { "??", "RV", "RJ", "CJ", "CV", "WJ", "TJ", "XX", "EV", "FJ", "GP" };
+    public final static String[] OPERATIONS = { "??", "RV", "RJ", "CJ", "CV", "WJ", "TJ", "XX", "EV", "FJ", "GP", "PF", "PH",
+            "PW" };
 
     public final static String[] SUMMARY_ITEMS = { "CJ", "CV", "RV", "RJ", "WJ", "EV", "FJ" };
 
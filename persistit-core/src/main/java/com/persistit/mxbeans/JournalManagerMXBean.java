@@ -68,6 +68,13 @@ public interface JournalManagerMXBean {
     final static int MINIMUM_BUFFER_SIZE = 65536;
     final static int MAXIMUM_BUFFER_SIZE = DEFAULT_BUFFER_SIZE * 10;
 
+    /**
+     * Default, minimum and maximum number of journal write buffers.
+     */
+    final static int DEFAULT_WRITE_BUFFER_COUNT = 2;
+    final static int MINIMUM_WRITE_BUFFER_COUNT = 2;
+    final static int MAXIMUM_WRITE_BUFFER_COUNT = 16;
+
     /**
      * Default size of journal read buffer.
      */
@@ -96,6 +103,12 @@ public interface JournalManagerMXBean {
      */
     final static int DEFAULT_COPIES_PER_CYCLE = 1000;
 
+    /**
+     * Default and maximum number of threads that copy pages to their volumes.
+     */
+    final static int DEFAULT_COPIER_THREADS = 1;
+    final static int MAXIMUM_COPIER_THREADS = 64;
+
     /**
      * Default time interval (in milliseconds) for logging repetitive I/O
      * exceptions on attempts to write to the journal. Prevents excessively
@@ -113,6 +126,27 @@ public interface JournalManagerMXBean {
     final static long MINIMUM_SLOW_ALERT_THRESHOLD_MS = 100L;
     final static long MAXIMUM_SLOW_ALERT_THRESHOLD_MS = Long.MAX_VALUE;
 
+    /**
+     * Default target time in milliseconds within which 99% of commits using
+     * the ADAPTIVE CommitPolicy should complete.
+     */
+    final static long DEFAULT_COMMIT_LATENCY_TARGET_MS = 10L;
+    final static long MINIMUM_COMMIT_LATENCY_TARGET_MS = 1L;
+    final static long MAXIMUM_COMMIT_LATENCY_TARGET_MS = 10000L;
+
+    /**
+     * Default number of page images retained as bases for PD (page delta)
+     * records. Zero disables PD records.
+     */
+    final static int DEFAULT_DELTA_PAGES = 0;
+    final static int MAXIMUM_DELTA_PAGES = 1000000;
+
+    /**
+     * Default codec used to compress PZ (compressed page) and TZ (compressed
+     * transaction) records. NONE disables compression.
+     */
+    final static String DEFAULT_COMPRESSION = "NONE";
+
     /**
      * File name appended when journal path specifies only a directory
      */
@@ -172,6 +206,12 @@ public interface JournalManagerMXBean {
     @Description("Interval between page copying cycles")
     void setCopierInterval(long copierInterval);
 
+    @Description("Number of threads that copy pages from the journal to their volumes")
+    int getCopierThreads();
+
+    @Description("Number of threads that copy pages from the journal to their volumes")
+    void setCopierThreads(int copierThreads);
+
     @Description("True if the journal has been closed")
     boolean isClosed();
 
@@ -190,6 +230,26 @@ public interface JournalManagerMXBean {
     @Description("Total number of page images copied from the journal to their destination volumes")
     long getCopiedPageCount();
 
+    @Description("Total number of write operations used to copy page images to their destination volumes;"
+            + " runs of pages having consecutive addresses are copied with a single write")
+    long getCopyRunCount();
+
+    @Description("Total number of read operations used to read page images from the journal for copying;"
+            + " nearby page images are read with a single read")
+    long getCopyReadCount();
+
+    @Description("Size in bytes of each journal write buffer")
+    int getWriteBufferSize();
+
+    @Description("Number of journal write buffers; records are appended to one while others are being written")
+    int getWriteBufferCount();
+
+    @Description("Total number of times a thread appending to the journal waited for a write buffer to be written")
+    long getFlushStallCount();
+
+    @Description("Total aggregate time spent waiting for a write buffer to be written in milliseconds")
+    long getFlushStallTime();
+
     @Description("Total number of page images pages dropped from the journal due the existence of newer versions")
     long getDroppedPageCount();
 
@@ -249,4 +309,37 @@ public interface JournalManagerMXBean {
 
     @Description("Journal file count threshold for throttling transactions")
     void setUrgentFileCountThreshold(int threshold);
+
+    @Description("Target 99th percentile latency in milliseconds of commits using the ADAPTIVE CommitPolicy")
+    long getCommitLatencyTarget();
+
+    @Description("Target 99th percentile latency in milliseconds of commits using the ADAPTIVE CommitPolicy")
+    void setCommitLatencyTarget(long commitLatencyTarget);
+
+    @Description("Maximum number of page images retained as bases for PD records, or zero to write only full page images")
+    int getDeltaPages();
+
+    @Description("Maximum number of page images retained as bases for PD records, or zero to write only full page images")
+    void setDeltaPages(int deltaPages);
+
+    @Description("Total number of page images written to the journal as PD records holding only the bytes changed since the previous image")
+    long getPageDeltaCount();
+
+    @Description("Codec used to compress page images and transaction updates written to the journal: NONE, LZ4 or DEFLATE")
+    String getCompression();
+
+    @Description("Codec used to compress page images and transaction updates written to the journal: NONE, LZ4 or DEFLATE")
+    void setCompression(String compression);
+
+    @Description("Total number of PZ and TZ records written to the journal in compressed form")
+    long getCompressedRecordCount();
+
+    @Description("Total number of bytes by which compression has reduced the size of journal records")
+    long getCompressionSavings();
+
+    @Description("Time in microseconds a commit using the ADAPTIVE CommitPolicy currently waits for other commits to join its flush cycle")
+    long getCommitWindow();
+
+    @Description("Average number of ADAPTIVE commits made durable by each flush cycle, as last measured by the ADAPTIVE CommitPolicy")
+    double getCommitBatchSize();
 }
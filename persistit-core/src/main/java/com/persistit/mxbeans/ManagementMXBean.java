@@ -187,6 +187,21 @@ public interface ManagementMXBean {
      */
     void flushAndForce() throws RemoteException;
 
+    /**
+     * Change the number of buffers in a buffer pool without restarting
+     * Persistit. New buffers are available immediately. When the pool shrinks,
+     * pages held in the buffers being removed are evicted, and written first
+     * if dirty, before the buffers are released.
+     * 
+     * @param pool
+     *            The name of a named buffer pool, or the buffer size of a
+     *            default pool, for example "16384"
+     * @param bufferCount
+     *            The new number of buffers
+     * @throws RemoteException
+     */
+    void resizeBufferPool(final String pool, final int bufferCount) throws RemoteException;
+
     /**
      * Use a simple command-line processor to invoke a task. Allows task
      * invocation to be scripted through a command-line JMX client. This method
@@ -38,6 +38,10 @@ public interface RecoveryManagerMXBean {
      */
     final static int APPLY_TRANSACTION_LOG_COUNT = 1000;
 
+    final static int DEFAULT_RECOVERY_THREADS = 1;
+
+    final static int MAXIMUM_RECOVERY_THREADS = 64;
+
     public String getJournalFilePath();
 
     public int getCommittedCount();
@@ -48,6 +52,8 @@ public interface RecoveryManagerMXBean {
 
     public int getErrorCount();
 
+    public int getRecoveryThreads();
+
     public long getLastValidCheckpointTimestamp();
 
     public long getLastValidCheckpointAddress();
@@ -109,4 +109,19 @@ public interface TransactionIndexMXBean {
      */
     public abstract int getDroppedCount();
 
+    /**
+     * @return The approximate count of commit status lookups answered by an
+     *         <code>Exchange</code>'s cache of transaction outcomes. Each one
+     *         avoided searching a <code>TransactionIndexBucket</code> under
+     *         its lock.
+     */
+    public abstract long getCommitStatusCacheHitCount();
+
+    /**
+     * @return The approximate count of commit status lookups that were not
+     *         found in an <code>Exchange</code>'s cache of transaction
+     *         outcomes and searched a <code>TransactionIndexBucket</code>.
+     */
+    public abstract long getCommitStatusCacheMissCount();
+
 }
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import com.persistit.exception.PersistitInterruptedException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures page hit throughput with many threads repeatedly claiming a small
+ * set of resident pages - the access pattern of tree root and upper index
+ * pages. Compares the lock-free {@link BufferLookupTable} with the striped
+ * lock and chained hash table it replaced, which is reproduced here as
+ * {@link ChainedLookup}, and also reports the throughput of
+ * {@link BufferPool#get} itself.
+ */
+public class BufferPoolLookupBenchmark extends PersistitUnitTestCase {
+
+    private final static long DURATION = 2000;
+
+    private final static int HOT_PAGES = 8;
+
+    private final static int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    @Override
+    protected Properties doGetProperties(final boolean cleanup) {
+        final Properties properties = getProperties(cleanup);
+        properties.setProperty("buffer.count.16384", "1000");
+        return properties;
+    }
+
+    /**
+     * Replica of the former lookup: a hash table of buffer chains guarded by
+     * 4096 striped locks, all taken on every lookup.
+     */
+    static class ChainedLookup {
+        final static int HASH_LOCKS = 4096;
+        final Buffer[] _hashTable;
+        final Buffer[] _next;
+        final ReentrantLock[] _hashLocks = new ReentrantLock[HASH_LOCKS];
+
+        ChainedLookup(final BufferPool pool) {
+            _hashTable = new Buffer[pool.getBufferCount() * 3];
+            _next = new Buffer[pool.getBufferCount()];
+            for (int index = 0; index < HASH_LOCKS; index++) {
+                _hashLocks[index] = new ReentrantLock();
+            }
+            for (int index = 0; index < pool.getBufferCount(); index++) {
+                final Buffer buffer = pool.getBuffer(index);
+                if (buffer.isValid()) {
+                    final int hash = hashIndex(buffer.getVolume(), buffer.getPageAddress());
+                    _next[index] = _hashTable[hash];
+                    _hashTable[hash] = buffer;
+                }
+            }
+        }
+
+        int hashIndex(final Volume vol, final long page) {
+            return (int) (((page ^ vol.hashCode()) & Integer.MAX_VALUE) % _hashTable.length);
+        }
+
+        Buffer get(final Volume vol, final long page) throws PersistitInterruptedException {
+            final int hash = hashIndex(vol, page);
+            _hashLocks[hash % HASH_LOCKS].lock();
+            try {
+                for (Buffer buffer = _hashTable[hash]; buffer != null; buffer = _next[buffer.getIndex()]) {
+                    if (buffer.getPageAddress() == page && buffer.getVolume() == vol) {
+                        if (buffer.claim(false, 0)) {
+                            return buffer;
+                        }
+                        return null;
+                    }
+                }
+                return null;
+            } finally {
+                _hashLocks[hash % HASH_LOCKS].unlock();
+            }
+        }
+    }
+
+    private abstract class Lookup {
+        final String _name;
+
+        Lookup(final String name) {
+            _name = name;
+        }
+
+        abstract Buffer get(Volume vol, long page) throws Exception;
+    }
+
+    @Test
+    public void benchmarkHitThroughput() throws Exception {
+        final Volume volume = _persistit.getVolume(VOLUME_NAME);
+        final BufferPool pool = volume.getPool();
+        final Exchange ex = _persistit.getExchange(volume, "BufferPoolLookupBenchmark", true);
+        ex.getValue().put(createString(200));
+        for (int i = 0; i < 10000; i++) {
+            ex.to(i).store();
+        }
+        final long[] pages = new long[HOT_PAGES];
+        for (int i = 0; i < HOT_PAGES; i++) {
+            pages[i] = i + 1;
+            pool.get(volume, pages[i], false, true).release();
+        }
+        final ChainedLookup chained = new ChainedLookup(pool);
+        final BufferLookupTable table = pool.getLookupTable();
+
+        final Lookup[] lookups = { new Lookup("striped locks + chains") {
+            @Override
+            Buffer get(final Volume vol, final long page) throws Exception {
+                return chained.get(vol, page);
+            }
+        }, new Lookup("lock-free table") {
+            @Override
+            Buffer get(final Volume vol, final long page) throws Exception {
+                final Buffer buffer = table.find(vol, page);
+                if (buffer != null && buffer.claim(false, 0)) {
+                    return buffer;
+                }
+                return null;
+            }
+        }, new Lookup("BufferPool.get") {
+            @Override
+            Buffer get(final Volume vol, final long page) throws Exception {
+                return pool.get(vol, page, false, true);
+            }
+        } };
+
+        for (final Lookup lookup : lookups) {
+            final long count = run(lookup, volume, pages);
+            System.out.printf("%-24s %3d threads %,15d hits/sec\n", lookup._name, THREADS, count * 1000 / DURATION);
+            assertTrue(count > 0);
+        }
+    }
+
+    private long run(final Lookup lookup, final Volume volume, final long[] pages) throws Exception {
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicLong total = new AtomicLong();
+        final CountDownLatch started = new CountDownLatch(THREADS);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < THREADS; t++) {
+            final int offset = t;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long count = 0;
+                    started.countDown();
+                    try {
+                        for (int i = offset; !stop.get(); i++) {
+                            final Buffer buffer = lookup.get(volume, pages[i % pages.length]);
+                            if (buffer != null) {
+                                buffer.release();
+                                count++;
+                            }
+                        }
+                    } catch (final Exception e) {
+                        e.printStackTrace();
+                    }
+                    total.addAndGet(count);
+                }
+            }, "LOOKUP_" + t);
+            threads.add(thread);
+            thread.start();
+        }
+        started.await();
+        Thread.sleep(DURATION);
+        stop.set(true);
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        return total.get();
+    }
+
+    @Override
+    public void runAllTests() throws Exception {
+        benchmarkHitThroughput();
+    }
+}
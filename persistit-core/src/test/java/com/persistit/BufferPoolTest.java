@@ -19,13 +19,17 @@ package com.persistit;
 import com.persistit.BufferPool.BufferHolder;
 import org.junit.Test;
 
+import java.rmi.RemoteException;
 import java.util.Arrays;
 import java.util.Random;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class BufferPoolTest extends PersistitUnitTestCase {
 
@@ -184,4 +188,323 @@ public class BufferPoolTest extends PersistitUnitTestCase {
         }
     }
 
+    @Test
+    public void testTwoQueueReplacementPolicy() throws Exception {
+        final Volume vol = _persistit.getVolume(VOLUME_NAME);
+        final BufferPool pool = vol.getPool();
+        final ReplacementPolicy.TwoQueue policy = new ReplacementPolicy.TwoQueue(8);
+        final Buffer[] buffers = new Buffer[8];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new Buffer(pool.getBufferSize(), i, pool, _persistit);
+        }
+        /*
+         * A newly admitted page is cold and is evicted even if touched
+         */
+        buffers[0].setPageAddressAndVolume(1, vol);
+        policy.admitted(buffers[0]);
+        buffers[0].setTouched();
+        assertTrue(policy.isEvictable(buffers[0], false));
+        policy.evicted(buffers[0]);
+        assertEquals(1, policy.getGhostCount());
+        /*
+         * Re-reading the evicted page is a ghost hit and the page is now hot
+         */
+        buffers[1].setPageAddressAndVolume(1, vol);
+        policy.admitted(buffers[1]);
+        assertEquals(1, policy.getGhostHitCount());
+        assertEquals(1, policy.getHotCount());
+        assertEquals(0, policy.getGhostCount());
+        buffers[1].setTouched();
+        assertEquals(false, policy.isEvictable(buffers[1], false));
+        assertEquals(false, policy.isEvictable(buffers[1], false));
+        assertTrue(policy.isEvictable(buffers[1], true));
+        /*
+         * Hot pages are evicted without leaving a ghost
+         */
+        policy.evicted(buffers[1]);
+        assertEquals(0, policy.getHotCount());
+        assertEquals(0, policy.getGhostCount());
+        assertEquals(2, policy.getProtectedCount());
+    }
+
+    @Test
+    public void testGhostTableIsBounded() throws Exception {
+        final Volume vol = _persistit.getVolume(VOLUME_NAME);
+        final ReplacementPolicy.GhostTable ghosts = new ReplacementPolicy.GhostTable(64);
+        for (long page = 1; page <= 1000; page++) {
+            ghosts.add(vol, page);
+            ghosts.add(vol, page);
+        }
+        assertTrue(ghosts.size() <= 64);
+        assertTrue(ghosts.remove(vol, 1000));
+        assertEquals(false, ghosts.remove(vol, 1000));
+        int found = 0;
+        for (long page = 1; page < 1000; page++) {
+            if (ghosts.remove(vol, page)) {
+                found++;
+            }
+        }
+        assertEquals(0, ghosts.size());
+        assertTrue(found < 64);
+    }
+
+    @Test
+    public void testReplacementPolicySelection() throws Exception {
+        final BufferPool pool = _persistit.getBufferPool(16384);
+        assertEquals("CLOCK", pool.getReplacementPolicy());
+        pool.setReplacementPolicy("2q");
+        assertEquals("2Q", pool.getReplacementPolicy());
+        final Exchange ex = _persistit.getExchange(_persistit.createTemporaryVolume(), "BufferPoolTest", true);
+        ex.getValue().put(createString(1000));
+        for (int i = 0; i < 2000; i++) {
+            ex.to(i).store();
+        }
+        for (int i = 0; i < 2000; i++) {
+            ex.to(i).fetch();
+        }
+        final ManagementImpl.BufferPoolInfo info = new ManagementImpl.BufferPoolInfo();
+        pool.populateBufferPoolInfo(info);
+        assertEquals("2Q", info.getReplacementPolicy());
+        assertTrue("Expect some ghost hits", info.getGhostHitCount() > 0);
+        try {
+            pool.setReplacementPolicy("LRU");
+            fail("Exception not thrown");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWriteRuns() throws Exception {
+        final Volume volume = _persistit.getVolume(VOLUME_NAME);
+        final BufferPool pool = volume.getPool();
+        final Exchange ex = _persistit.getExchange(volume, "BufferPoolTest", true);
+        ex.getValue().put(createString(1000));
+        for (int i = 0; i < 2000; i++) {
+            ex.to(i).store();
+        }
+        final int[] priorities = new int[VolumeStorage.MAXIMUM_WRITE_RUN * 4];
+        final BufferHolder[] holders = new BufferHolder[priorities.length];
+        for (int i = 0; i < holders.length; i++) {
+            holders[i] = new BufferHolder();
+        }
+        pool.writeDirtyBuffers(priorities, holders);
+
+        final ManagementImpl.BufferPoolInfo info = new ManagementImpl.BufferPoolInfo();
+        pool.populateBufferPoolInfo(info);
+        assertTrue("Expect some write runs", info.getWriteRunCount() > 0);
+        assertTrue("Expect batched writes", info.getAverageWriteRunLength() > 1.0);
+        assertEquals(pool.getWriteRunPageCounter(), info.getWriteRunPageCount());
+    }
+
+    @Test
+    public void testTemporaryVolumeWriteRuns() throws Exception {
+        final Volume volume = _persistit.createTemporaryVolume();
+        final BufferPool pool = volume.getPool();
+        final Exchange ex = _persistit.getExchange(volume, "BufferPoolTest", true);
+        for (int i = 0; i < 400; i++) {
+            ex.getValue().put(createString(500) + i);
+            ex.to(i).store();
+        }
+        final SortedSet<Long> pages = new TreeSet<Long>();
+        for (int i = 0; i < pool.getBufferCount(); i++) {
+            final Buffer buffer = pool.getBuffer(i);
+            if (buffer.getVolume() == volume && buffer.isDirty() && buffer.getPageAddress() > 0) {
+                pages.add(buffer.getPageAddress());
+            }
+        }
+        assertTrue(pages.size() > 1);
+
+        final Buffer[] batch = new Buffer[VolumeStorage.MAXIMUM_WRITE_RUN];
+        int count = 0;
+        int writes = 0;
+        int batches = 0;
+        for (final Long page : pages) {
+            final Buffer buffer = pool.get(volume, page, true, true);
+            buffer.prepareWrite(false);
+            batch[count++] = buffer;
+            if (count == batch.length || page.longValue() == pages.last().longValue()) {
+                try {
+                    writes += volume.getStorage().writePages(batch, count);
+                    batches++;
+                    for (int i = 0; i < count; i++) {
+                        batch[i].writeCompleted();
+                    }
+                } finally {
+                    for (int i = 0; i < count; i++) {
+                        batch[i].release();
+                    }
+                }
+                count = 0;
+            }
+        }
+        assertTrue("Expect runs of consecutive pages", writes < pages.size());
+        assertTrue(writes >= batches);
+
+        pool.invalidate(volume);
+        for (int i = 0; i < 400; i++) {
+            ex.to(i).fetch();
+            assertEquals(createString(500) + i, ex.getValue().getString());
+        }
+    }
+
+    @Test
+    public void testResize() throws Exception {
+        final Volume volume = _persistit.getVolume(VOLUME_NAME);
+        final BufferPool pool = volume.getPool();
+        final int initialCount = pool.getBufferCount();
+        final Exchange ex = _persistit.getExchange(volume, "BufferPoolTest", true);
+        ex.getValue().put(createString(1000));
+        for (int i = 0; i < 500; i++) {
+            ex.to(i).store();
+        }
+
+        pool.resize(initialCount * 10);
+        assertEquals(initialCount * 10, pool.getBufferCount());
+        for (int i = 0; i < 500; i++) {
+            ex.to(i).fetch();
+            assertTrue(ex.getValue().isDefined());
+        }
+        int valid = 0;
+        for (int i = 0; i < pool.getBufferCount(); i++) {
+            if (pool.getBuffer(i).isValid()) {
+                valid++;
+            }
+        }
+        assertTrue("Expect new buffers to be used", valid > initialCount);
+
+        final ManagementImpl.BufferPoolInfo before = new ManagementImpl.BufferPoolInfo();
+        pool.populateBufferPoolInfo(before);
+        pool.resize(initialCount);
+        assertEquals(initialCount, pool.getBufferCount());
+        final ManagementImpl.BufferPoolInfo after = new ManagementImpl.BufferPoolInfo();
+        pool.populateBufferPoolInfo(after);
+        assertTrue("Expect pages to be evicted", after.getEvictCount() > before.getEvictCount());
+        assertTrue(pool.getLookupTable().size() <= initialCount);
+        for (int i = 0; i < 500; i++) {
+            ex.to(i).fetch();
+            assertEquals(1000, ex.getValue().getString().length());
+        }
+
+        try {
+            pool.resize(BufferPool.MINIMUM_POOL_COUNT - 1);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testResizeWithConcurrentReaders() throws Exception {
+        final Volume volume = _persistit.getVolume(VOLUME_NAME);
+        final BufferPool pool = volume.getPool();
+        final int initialCount = pool.getBufferCount();
+        final Exchange ex = _persistit.getExchange(volume, "BufferPoolTest", true);
+        ex.getValue().put(createString(1000));
+        for (int i = 0; i < 1000; i++) {
+            ex.to(i).store();
+        }
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final Random random = new Random(seed);
+                    try {
+                        final Exchange reader = _persistit.getExchange(VOLUME_NAME, "BufferPoolTest", false);
+                        while (!stop.get()) {
+                            reader.to(random.nextInt(1000)).fetch();
+                            if (!reader.getValue().isDefined()) {
+                                throw new IllegalStateException("Missing record " + reader.getKey());
+                            }
+                        }
+                    } catch (final Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }, "BufferPoolTest_" + t);
+            threads[t].start();
+        }
+        try {
+            for (int cycle = 0; cycle < 20 && failure.get() == null; cycle++) {
+                pool.resize(initialCount * (cycle % 2 == 0 ? 5 : 2));
+            }
+            pool.resize(initialCount);
+        } finally {
+            stop.set(true);
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals(initialCount, pool.getBufferCount());
+    }
+
+    @Test
+    public void testResizeCommand() throws Exception {
+        final BufferPool pool = _persistit.getBufferPool(16384);
+        final int initialCount = pool.getBufferCount();
+        _persistit.getManagement().resizeBufferPool("16384", initialCount + 30);
+        assertEquals(initialCount + 30, pool.getBufferCount());
+        final String status = _persistit.getManagement().execute("resize pool=16384 count=" + initialCount);
+        assertTrue(status, !status.startsWith("Failed"));
+        assertEquals(initialCount, pool.getBufferCount());
+        try {
+            _persistit.getManagement().resizeBufferPool("nosuchpool", initialCount);
+            fail("Expected an exception");
+        } catch (final RemoteException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBufferLookupTable() throws Exception {
+        final Volume vol = _persistit.getVolume(VOLUME_NAME);
+        final BufferPool pool = vol.getPool();
+        final Buffer[] buffers = new Buffer[16];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new Buffer(pool.getBufferSize(), i, pool, _persistit);
+        }
+        final BufferLookupTable table = new BufferLookupTable(buffers, 48);
+        assertEquals(64, table.getCapacity());
+        final Random random = new Random(1);
+        final long[] pages = new long[buffers.length];
+        table.lock();
+        try {
+            for (int cycle = 0; cycle < 10000; cycle++) {
+                final int index = random.nextInt(buffers.length);
+                final Buffer buffer = buffers[index];
+                if (pages[index] != 0) {
+                    assertTrue(table.find(vol, pages[index]) == buffer);
+                    assertTrue(table.remove(buffer));
+                    assertTrue(table.find(vol, pages[index]) == null);
+                }
+                pages[index] = random.nextInt(200) + 1;
+                buffer.setPageAddressAndVolume(pages[index], vol);
+                if (table.find(vol, pages[index]) != null) {
+                    assertEquals(false, table.insert(buffer));
+                    pages[index] = 0;
+                } else {
+                    assertTrue(table.insert(buffer));
+                }
+                int size = 0;
+                for (int i = 0; i < buffers.length; i++) {
+                    if (pages[i] != 0) {
+                        size++;
+                        assertTrue(table.find(vol, pages[i]) == buffers[i]);
+                    }
+                }
+                assertEquals(size, table.size());
+                assertTrue(table.size() + table.getRemovedCount() <= table.getCapacity() * 3 / 4);
+            }
+        } finally {
+            table.unlock();
+        }
+    }
+
 }
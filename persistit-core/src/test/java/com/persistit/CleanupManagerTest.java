@@ -18,13 +18,19 @@ package com.persistit;
 
 import com.persistit.CleanupManager.CleanupAction;
 import com.persistit.exception.PersistitException;
+import com.persistit.util.Util;
 import org.junit.Test;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class CleanupManagerTest extends PersistitUnitTestCase {
 
@@ -66,6 +72,37 @@ public class CleanupManagerTest extends PersistitUnitTestCase {
 
     }
 
+    private static class RecordingAction implements CleanupAction {
+        final int _id;
+        final List<Integer> _performed;
+
+        RecordingAction(final int id, final List<Integer> performed) {
+            _id = id;
+            _performed = performed;
+        }
+
+        @Override
+        public int compareTo(final CleanupAction action) {
+            return _id - ((RecordingAction) action)._id;
+        }
+
+        @Override
+        public void performAction(final Persistit persistit, final List<CleanupAction> consequentActions)
+                throws PersistitException {
+            _performed.add(_id);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof RecordingAction && ((RecordingAction) other)._id == _id;
+        }
+
+        @Override
+        public int hashCode() {
+            return _id;
+        }
+    }
+
     private static class ExpectedException extends PersistitException {
 
         private static final long serialVersionUID = 1L;
@@ -100,6 +137,99 @@ public class CleanupManagerTest extends PersistitUnitTestCase {
         assertEquals(0, cm().getEnqueuedCount());
     }
 
+    @Test
+    public void testPriorityAndDeduplication() throws Exception {
+        cm().setPollInterval(-1);
+        final List<Integer> performed = Collections.synchronizedList(new ArrayList<Integer>());
+        cm().offer(new RecordingAction(1, performed), 10);
+        cm().offer(new RecordingAction(2, performed), 30);
+        cm().offer(new RecordingAction(3, performed), 20);
+        cm().offer(new RecordingAction(4, performed), 20);
+        assertTrue(cm().offer(new RecordingAction(1, performed), 40));
+        assertTrue(cm().offer(new RecordingAction(3, performed), 5));
+        assertEquals(4, cm().getEnqueuedCount());
+        assertEquals(2, cm().getDuplicateCount());
+        cm().poll();
+        assertEquals("[1, 2, 3, 4]", performed.toString());
+        assertEquals(0, cm().getEnqueuedCount());
+        assertTrue(cm().getMaximumLatency() >= cm().getAverageLatency());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        cm().setPollInterval(-1);
+        final List<Integer> performed = new ArrayList<Integer>();
+        for (int i = 0; i < CleanupManager.DEFAULT_QUEUE_SIZE; i++) {
+            assertTrue(cm().offer(new RecordingAction(i, performed), 1));
+        }
+        assertTrue(!cm().offer(new RecordingAction(-1, performed), 1));
+        assertEquals(1, cm().getRefusedCount());
+        assertTrue(cm().offer(new RecordingAction(-2, performed), 2));
+        assertEquals(1, cm().getEvictedCount());
+        assertEquals(CleanupManager.DEFAULT_QUEUE_SIZE, cm().getEnqueuedCount());
+        assertTrue(cm().toString().indexOf("RecordingAction") > 0);
+        cm().clear();
+        assertEquals(0, cm().getEnqueuedCount());
+    }
+
+    @Test
+    public void testMultipleWorkers() throws Exception {
+        final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+        final int count = 4000;
+        cm().setPollInterval(-1);
+        cm().setCleanupThreads(4);
+        for (int i = 0; i < count; i++) {
+            cm().offer(new CleanupAction() {
+                @Override
+                public int compareTo(final CleanupAction action) {
+                    return 0;
+                }
+
+                @Override
+                public void performAction(final Persistit persistit, final List<CleanupAction> consequentActions)
+                        throws PersistitException {
+                    threads.add(Thread.currentThread().getName());
+                    Util.spinSleep();
+                }
+            });
+        }
+        cm().setPollInterval(100);
+        for (int i = 0; i < 30 && cm().getPerformedCount() < count; i++) {
+            Thread.sleep(1000);
+        }
+        assertEquals(count, cm().getPerformedCount());
+        assertTrue("workers used: " + threads, threads.size() > 1);
+    }
+
+    @Test
+    public void testClaimTimeout() throws Exception {
+        final Exchange ex = _persistit.getExchange("persistit", "CleanupManagerTest", true);
+        ex.getValue().put(RED_FOX);
+        for (int i = 0; i < 10; i++) {
+            ex.clear().append(i).store();
+        }
+        final long page = ex.fetchBufferCopy(0).getPageAddress();
+        final Buffer buffer = ex.getBufferPool().get(ex.getVolume(), page, true, true);
+        try {
+            cm().setClaimTimeout(10);
+            cm().offer(new CleanupManager.CleanupPruneAction(ex.getTree().getHandle(), page));
+            cm().setPollInterval(100);
+            for (int i = 0; i < 10 && cm().getClaimTimeoutCount() == 0; i++) {
+                Thread.sleep(1000);
+            }
+            assertEquals(1, cm().getClaimTimeoutCount());
+            assertEquals(0, cm().getErrorCount());
+        } finally {
+            buffer.release();
+        }
+        try {
+            cm().setClaimTimeout(0);
+            fail("A zero claim timeout would never attempt a claim");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testMemoryReleasedOnCrash() throws Exception {
         final WeakReference<Persistit> ref = new WeakReference<Persistit>(_persistit);
@@ -0,0 +1,230 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import com.persistit.Transaction.CommitPolicy;
+import com.persistit.exception.PersistitInterruptedException;
+import com.persistit.util.Util;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the latency and CPU cost of HARD commits from 1 to 256 concurrent
+ * threads, with committers parked in the JOURNAL_FLUSHER's queue of waiters
+ * and with the polling loop it replaced, which is reproduced here as
+ * {@link #pollForDurability}. Each thread stores one record per transaction.
+ * Latency is the elapsed time of the commit including its wait for
+ * durability; CPU is the CPU time consumed by the committing threads, divided
+ * by the number of commits. Each configuration is warmed up before it is
+ * measured.
+ */
+public class CommitWaitBenchmark extends PersistitUnitTestCase {
+
+    private final static long WARMUP = 500;
+
+    private final static long DURATION = 2000;
+
+    private final static int[] THREAD_COUNTS = { 1, 4, 16, 64, 256 };
+
+    private final static int MAX_SAMPLES = 10000;
+
+    private final static long POLLING_LEAD_TIME = 5000;
+
+    @Override
+    protected Properties doGetProperties(final boolean cleanup) {
+        final Properties properties = getProperties(cleanup);
+        properties.setProperty("buffer.count.16384", "2000");
+        return properties;
+    }
+
+    /**
+     * Replica of the former wait for durability, as taken by a HARD commit:
+     * the committing thread polls the JOURNAL_FLUSHER's cycle timestamps,
+     * kicks it unless an I/O cycle that began before the commit is still in
+     * progress, and sleeps for a millisecond between polls.
+     */
+    static void pollForDurability(final JournalManager jman, final long flushedTimestamp)
+            throws PersistitInterruptedException {
+        while (true) {
+            long startTimestamp;
+            long endTimestamp;
+            /*
+             * Spin until values are stable
+             */
+            while (true) {
+                startTimestamp = jman.getFlushStartTimestamp();
+                endTimestamp = jman.getFlushEndTimestamp();
+                if (startTimestamp == jman.getFlushStartTimestamp() && endTimestamp == jman.getFlushEndTimestamp()) {
+                    break;
+                }
+                Util.spinSleep();
+            }
+            if (endTimestamp > flushedTimestamp && startTimestamp > flushedTimestamp) {
+                return;
+            }
+            if (flushedTimestamp <= startTimestamp || startTimestamp <= endTimestamp) {
+                jman.kickFlusher();
+            }
+            Util.spinSleep();
+        }
+    }
+
+    private static class Result {
+        long _commits;
+        long _cpuNanos;
+        final List<long[]> _samples = new ArrayList<long[]>();
+        final List<Integer> _sampleCounts = new ArrayList<Integer>();
+
+        synchronized void add(final long commits, final long cpuNanos, final long[] samples, final int count) {
+            _commits += commits;
+            _cpuNanos += cpuNanos;
+            _samples.add(samples);
+            _sampleCounts.add(count);
+        }
+
+        long[] latencies() {
+            int total = 0;
+            for (final int count : _sampleCounts) {
+                total += count;
+            }
+            final long[] latencies = new long[total];
+            int offset = 0;
+            for (int index = 0; index < _samples.size(); index++) {
+                final int count = _sampleCounts.get(index);
+                System.arraycopy(_samples.get(index), 0, latencies, offset, count);
+                offset += count;
+            }
+            Arrays.sort(latencies);
+            return latencies;
+        }
+    }
+
+    @Test
+    public void benchmarkCommitWait() throws Exception {
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean.isThreadCpuTimeSupported()) {
+            threadBean.setThreadCpuTimeEnabled(true);
+        }
+        System.out.printf("%-8s %7s %12s %10s %10s %12s\n", "waiters", "threads", "commits/sec", "p50 us",
+                "p99 us", "cpu us/cmt");
+        for (final int threads : THREAD_COUNTS) {
+            for (final boolean poll : new boolean[] { true, false }) {
+                run(threads, WARMUP, poll);
+                final Result result = run(threads, DURATION, poll);
+                final long[] latencies = result.latencies();
+                assertTrue(latencies.length > 0);
+                System.out.printf("%-8s %7d %,12d %,10d %,10d %,12d\n", poll ? "polling" : "parked", threads,
+                        result._commits * 1000 / DURATION, latencies[latencies.length / 2] / 1000,
+                        latencies[latencies.length * 99 / 100] / 1000, result._cpuNanos / result._commits / 1000);
+            }
+        }
+    }
+
+    /**
+     * Run committing threads for the specified duration. A polling committer
+     * commits SOFT with the longest permitted lead time, so that the commit itself does
+     * not wait, and then waits in {@link #pollForDurability} for a timestamp
+     * taken after the commit returned.
+     */
+    private Result run(final int threadCount, final long duration, final boolean poll) throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        final long leadTime = _persistit.getTransactionCommitLeadTime();
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        final Result result = new Result();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicLong errors = new AtomicLong();
+        final CountDownLatch started = new CountDownLatch(threadCount);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            final int id = t;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final long[] samples = new long[MAX_SAMPLES];
+                    int count = 0;
+                    long commits = 0;
+                    started.countDown();
+                    final long cpuStart = threadBean.getCurrentThreadCpuTime();
+                    try {
+                        final Exchange ex = _persistit.getExchange(VOLUME_NAME, "CommitWaitBenchmark", true);
+                        final Transaction txn = _persistit.getTransaction();
+                        ex.getValue().put(RED_FOX);
+                        for (int i = 0; !stop.get(); i++) {
+                            txn.begin();
+                            try {
+                                ex.clear().append(id).append(i).store();
+                                final long start = System.nanoTime();
+                                if (poll) {
+                                    txn.commit(CommitPolicy.SOFT);
+                                    pollForDurability(jman, _persistit.getTimestampAllocator().getCurrentTimestamp());
+                                } else {
+                                    txn.commit(CommitPolicy.HARD);
+                                }
+                                final long elapsed = System.nanoTime() - start;
+                                if (count < MAX_SAMPLES) {
+                                    samples[count++] = elapsed;
+                                }
+                                commits++;
+                            } finally {
+                                txn.end();
+                            }
+                        }
+                    } catch (final Exception e) {
+                        e.printStackTrace();
+                        errors.incrementAndGet();
+                    }
+                    result.add(commits, threadBean.getCurrentThreadCpuTime() - cpuStart, samples, count);
+                }
+            }, "COMMITTER_" + t);
+            threads.add(thread);
+        }
+        if (poll) {
+            _persistit.setTransactionCommitleadTime(POLLING_LEAD_TIME);
+        }
+        try {
+            for (final Thread thread : threads) {
+                thread.start();
+            }
+            started.await();
+            Thread.sleep(duration);
+            stop.set(true);
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+        } finally {
+            _persistit.setTransactionCommitleadTime(leadTime);
+        }
+        assertTrue(errors.get() == 0);
+        return result;
+    }
+
+    @Override
+    public void runAllTests() throws Exception {
+        benchmarkCommitWait();
+    }
+}
@@ -38,6 +38,8 @@ public class ConfigurationTest extends PersistitUnitTestCase {
 
     private final static String RESOURCE_NAME = "com.persistit.ConfigurationTest";
 
+    private final static String PARSE_POLICY_EXAMPLE = "1024,count=1000,policy=2Q;16384,count=500";
+
     private final static String PARSE_MEMORY_EXAMPLE = "1024,count=1000;16384,minMem=0,maxMem=1G,reserved=128M,fraction=0.5";
 
     @Test
@@ -194,6 +196,11 @@ public class ConfigurationTest extends PersistitUnitTestCase {
         assertEquals(GIGA, bpc.getMaximumMemory());
         assertEquals(128 * MEGA, bpc.getReservedMemory());
         assertEquals(0, Float.compare(0.6f, bpc.getFraction()));
+        assertEquals(MEGA, bpc.getMinimumMemory());
+        assertEquals("CLOCK", bpc.getReplacementPolicy());
+        properties.put("buffer.policy.16384", "2q");
+        bpc = testLoadPropertiesBufferSpecificationsHelper(properties).getBufferPoolMap().get(16384);
+        assertEquals("2Q", bpc.getReplacementPolicy());
         properties.put("buffer.memory.1024", "1M");
         try {
             testLoadPropertiesBufferSpecificationsHelper(properties).getBufferPoolMap().get(1024).getMaximumCount();
@@ -203,6 +210,47 @@ public class ConfigurationTest extends PersistitUnitTestCase {
         }
     }
 
+    @Test
+    public void testNamedBufferPools() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("buffer.pool.hot", "16384,count=100,policy=2Q");
+        properties.put("buffer.pool.archive", "4096,minMem=0,maxMem=64M,reserved=0,fraction=0.1");
+        final Configuration configuration = new Configuration();
+        configuration.merge(properties);
+        configuration.loadPropertiesNamedBufferPoolSpecifications();
+        assertEquals(2, configuration.getNamedBufferPoolMap().size());
+        final BufferPoolConfiguration hot = configuration.getNamedBufferPoolMap().get("hot");
+        assertEquals("hot", hot.getName());
+        assertEquals(16384, hot.getBufferSize());
+        assertEquals(100, hot.getMaximumCount());
+        assertEquals("2Q", hot.getReplacementPolicy());
+        final BufferPoolConfiguration archive = configuration.getNamedBufferPoolMap().get("archive");
+        assertEquals(4096, archive.getBufferSize());
+        assertEquals(64 * MEGA, archive.getMaximumMemory());
+        assertEquals(null, configuration.getBufferPoolMap().get(16384).getName());
+
+        for (final String name : new String[] { null, "", "1024", "a,b", "a=b" }) {
+            try {
+                configuration.addNamedBufferPool(name, 16384);
+                fail("Exception not thrown for " + name);
+            } catch (final IllegalArgumentException e) {
+                // expected
+            }
+        }
+        try {
+            configuration.addNamedBufferPool("hot", 16384);
+            fail("Exception not thrown");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            configuration.addNamedBufferPool("odd", 3000);
+            fail("Exception not thrown");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testBrokenServerConfiguration() throws Exception {
         final BufferPoolConfiguration bpc = new Configuration().getBufferPoolMap().get(16384);
@@ -238,6 +286,16 @@ public class ConfigurationTest extends PersistitUnitTestCase {
 
     }
 
+    @Test
+    public void setReplacementPolicyBufferConfiguration() throws Exception {
+        final Configuration configuration = new Configuration();
+        configuration.setBufferPoolConfiguration(PARSE_POLICY_EXAMPLE);
+        assertEquals("2Q", configuration.getBufferPoolMap().get(1024).getReplacementPolicy());
+        assertEquals("CLOCK", configuration.getBufferPoolMap().get(16384).getReplacementPolicy());
+        assertEquals("toString() of parsed version should be equal", PARSE_POLICY_EXAMPLE,
+                configuration.getBufferPoolConfiguration());
+    }
+
     private Configuration testLoadPropertiesBufferSpecificationsHelper(final Properties properties) throws Exception {
         final Configuration configuration = new Configuration();
         configuration.merge(properties);
@@ -19,6 +19,7 @@ package com.persistit;
 import com.persistit.Accumulator.SumAccumulator;
 import com.persistit.CheckpointManager.Checkpoint;
 import com.persistit.JournalManager.PageNode;
+import com.persistit.Transaction.CommitPolicy;
 import com.persistit.TransactionPlayer.TransactionPlayerListener;
 import com.persistit.exception.PersistitException;
 import com.persistit.unit.ConcurrentUtil.ThrowingRunnable;
@@ -26,15 +27,22 @@ import com.persistit.util.Util;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.persistit.unit.ConcurrentUtil.createThread;
 import static com.persistit.unit.ConcurrentUtil.startAndJoinAssertSuccess;
@@ -46,6 +54,7 @@ import static com.persistit.util.ThreadSequencer.disableSequencer;
 import static com.persistit.util.ThreadSequencer.enableSequencer;
 import static com.persistit.util.ThreadSequencer.sequence;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -163,8 +172,8 @@ public class JournalManagerTest extends PersistitUnitTestCase {
         rman.buildRecoveryPlan();
         assertTrue(rman.getKeystoneAddress() != -1);
         assertEquals(checkpoint2.getTimestamp(), rman.getLastValidCheckpoint().getTimestamp());
-        final Map<PageNode, PageNode> pageMap = new HashMap<PageNode, PageNode>();
-        final Map<PageNode, PageNode> branchMap = new HashMap<PageNode, PageNode>();
+        final PageMap pageMap = new PageMap();
+        final PageMap branchMap = new PageMap();
 
         rman.collectRecoveredPages(pageMap, branchMap);
         assertEquals(pages, pageMap.size());
@@ -562,6 +571,393 @@ public class JournalManagerTest extends PersistitUnitTestCase {
         assertTrue("Invalidated no page nodes", source.size() > cleaned.size());
     }
 
+    @Test
+    public void partitionForCopy() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        final Volume volume = _persistit.getVolume(_volumeName);
+        final int handle = jman.handleForVolume(volume);
+        final int unknownHandle = handle + 1000;
+        final List<PageNode> list = new ArrayList<PageNode>();
+        for (int page = 1; page <= 200; page++) {
+            list.add(new PageNode(handle, page, page * 100, page));
+        }
+        for (int page = 1; page <= 10; page++) {
+            list.add(new PageNode(unknownHandle, page, 100000 + page * 100, page));
+        }
+
+        assertEquals(1, jman.partitionForCopy(list, 1).size());
+
+        final List<List<PageNode>> partitions = jman.partitionForCopy(list, 4);
+        assertEquals(4, partitions.size());
+        int total = 0;
+        int unknownPartitions = 0;
+        for (final List<PageNode> partition : partitions) {
+            assertTrue(partition.size() >= JournalManager.MINIMUM_COPY_REGION || partition.size() == 10);
+            total += partition.size();
+            /*
+             * Each partition holds one Volume, or one range of its pages, in
+             * page address order
+             */
+            for (int index = 1; index < partition.size(); index++) {
+                assertEquals(partition.get(0).getVolumeHandle(), partition.get(index).getVolumeHandle());
+                assertTrue(partition.get(index).getPageAddress() > partition.get(index - 1).getPageAddress());
+            }
+            if (partition.get(0).getVolumeHandle() == unknownHandle) {
+                unknownPartitions++;
+            }
+        }
+        assertEquals(list.size(), total);
+        assertEquals("Pages of a Volume that is not open are not divided", 1, unknownPartitions);
+    }
+
+    @Test
+    public void parallelCopyBack() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        jman.setCopierThreads(4);
+        final Exchange ex = _persistit.getExchange(_volumeName, "JournalManagerTest", true);
+        ex.getValue().put(createString(500));
+        for (int i = 0; i < 20000; i++) {
+            ex.to(i).store();
+        }
+        final long copied = jman.getCopiedPageCount();
+        final long reads = jman.getCopyReadCount();
+        _persistit.copyBackPages();
+        assertEquals(0, jman.getPageMapSize());
+        assertTrue(jman.getCopiedPageCount() - copied > 100);
+        assertTrue("Journal records should be read in large runs",
+                jman.getCopyReadCount() - reads < jman.getCopiedPageCount() - copied);
+
+        _persistit.close();
+        _persistit = new Persistit(_config);
+        final Exchange ex2 = _persistit.getExchange(_volumeName, "JournalManagerTest", false);
+        for (int i = 0; i < 20000; i++) {
+            ex2.to(i).fetch();
+            assertEquals(500, ex2.getValue().getString().length());
+        }
+    }
+
+    @Test
+    public void parallelCopyBackWritesRegionsConcurrently() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        jman.setCopierThreads(2);
+        final Exchange ex = _persistit.getExchange(_volumeName, "JournalManagerTest", true);
+        ex.getValue().put(createString(500));
+        for (int i = 0; i < 20000; i++) {
+            ex.to(i).store();
+        }
+        final Volume volume = _persistit.getVolume(_volumeName);
+        final OverlapDetectingFileChannel channel = new OverlapDetectingFileChannel(volume.getPageSize());
+        ((MediatedFileChannel) volume.getStorage().getChannel()).injectChannelForTests(channel);
+        _persistit.copyBackPages();
+        assertEquals(0, jman.getPageMapSize());
+        assertTrue("Two regions of one volume should be written concurrently", channel.isOverlapped());
+    }
+
+    /**
+     * Holds the first write of a run of pages open until another run is
+     * written concurrently, or until a timeout expires.
+     */
+    private static class OverlapDetectingFileChannel extends TrackingFileChannel {
+
+        private final int _pageSize;
+
+        private final AtomicInteger _runWriters = new AtomicInteger();
+
+        private final AtomicBoolean _held = new AtomicBoolean();
+
+        private final CountDownLatch _overlap = new CountDownLatch(1);
+
+        OverlapDetectingFileChannel(final int pageSize) {
+            _pageSize = pageSize;
+        }
+
+        @Override
+        public int write(final ByteBuffer byteBuffer, final long position) throws IOException {
+            if (byteBuffer.remaining() <= _pageSize) {
+                return _channel.write(byteBuffer, position);
+            }
+            if (_runWriters.incrementAndGet() > 1) {
+                _overlap.countDown();
+            }
+            try {
+                if (_held.compareAndSet(false, true)) {
+                    try {
+                        _overlap.await(10, TimeUnit.SECONDS);
+                    } catch (final InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                }
+                return _channel.write(byteBuffer, position);
+            } finally {
+                _runWriters.decrementAndGet();
+            }
+        }
+
+        boolean isOverlapped() {
+            return _overlap.getCount() == 0;
+        }
+    }
+
+    @Test
+    public void concurrentAppendsAreRecovered() throws Exception {
+        final int THREADS = 16;
+        final int COUNT = 200;
+        final Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int id = t;
+            threads[t] = createThread("APPEND_THREAD_" + t, new ThrowingRunnable() {
+                @Override
+                public void run() throws Exception {
+                    final Exchange ex = _persistit.getExchange(_volumeName, "JournalManagerTest", true);
+                    final Transaction txn = _persistit.getTransaction();
+                    for (int i = 0; i < COUNT; i++) {
+                        txn.begin();
+                        try {
+                            ex.clear().append(id).append(i);
+                            ex.getValue().put(createString(100 + i));
+                            ex.store();
+                            txn.commit();
+                        } finally {
+                            txn.end();
+                        }
+                    }
+                }
+            });
+        }
+        startAndJoinAssertSuccess(60000, threads);
+        _persistit.getJournalManager().flush();
+        _persistit.crash();
+        _persistit = new Persistit(_config);
+        final Exchange ex = _persistit.getExchange(_volumeName, "JournalManagerTest", false);
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < COUNT; i++) {
+                ex.clear().append(t).append(i).fetch();
+                assertEquals(100 + i, ex.getValue().getString().length());
+            }
+        }
+    }
+
+    @Test
+    public void writeBufferRing() throws Exception {
+        final JournalManager jman = new JournalManager(_persistit);
+        final String path = DATA_PATH + "/JournalManagerTest_journal_";
+        jman.setWriteBufferSize(JournalManager.MINIMUM_BUFFER_SIZE);
+        jman.setWriteBufferCount(2);
+        jman.init(null, path, 100 * 1000 * 1000);
+        final ByteBuffer payload = ByteBuffer.allocate(10000);
+        /*
+         * No JOURNAL_FLUSHER is running, so once both buffers are full the
+         * appending thread writes the earlier one itself
+         */
+        for (int i = 1; i <= 40; i++) {
+            payload.position(payload.capacity());
+            jman.writeTransactionToJournal(payload, i * 10, i * 10 + 1, 0);
+        }
+        assertEquals(2, jman.getWriteBufferCount());
+        assertTrue(jman.getFlushStallCount() > 0);
+        assertTrue(jman.getWriteBufferAddress() < jman.getCurrentAddress());
+        jman.flush();
+        assertEquals(jman.getCurrentAddress(), jman.getWriteBufferAddress());
+        assertEquals(jman.getCurrentAddress(), jman.getFileChannel(0).size());
+        jman.close();
+    }
+
+    @Test
+    public void adaptiveCommitWindow() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        final Exchange ex = _persistit.getExchange(_volumeName, "JournalManagerTest", true);
+        final Transaction txn = _persistit.getTransaction();
+        /*
+         * A single thread gains nothing by waiting for others to join its
+         * flush cycle
+         */
+        for (int i = 0; i < 500; i++) {
+            txn.begin();
+            try {
+                ex.clear().append(i).getValue().put(RED_FOX);
+                ex.store();
+                txn.commit(CommitPolicy.ADAPTIVE);
+            } finally {
+                txn.end();
+            }
+        }
+        assertEquals(0, jman.getCommitWindow());
+        assertTrue(jman.getCommitBatchSize() > 0);
+
+        final int THREADS = 16;
+        final Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int id = t;
+            threads[t] = createThread("COMMIT_THREAD_" + t, new ThrowingRunnable() {
+                @Override
+                public void run() throws Exception {
+                    final Exchange ex = _persistit.getExchange(_volumeName, "JournalManagerTest", true);
+                    final Transaction txn = _persistit.getTransaction();
+                    for (int i = 0; i < 200; i++) {
+                        txn.begin();
+                        try {
+                            ex.clear().append(id).append(i).getValue().put(RED_FOX);
+                            ex.store();
+                            txn.commit(CommitPolicy.ADAPTIVE);
+                        } finally {
+                            txn.end();
+                        }
+                    }
+                }
+            });
+        }
+        startAndJoinAssertSuccess(60000, threads);
+        assertTrue(jman.getCommitWindow() <= jman.getCommitLatencyTarget() * 1000);
+        assertTrue(jman.getCommitBatchSize() > 0);
+    }
+
+    @Test
+    public void pageDeltasAreRecovered() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        jman.setDeltaPages(1000);
+        final Exchange ex = _persistit.getExchange(_volumeName, "JournalManagerTest", true);
+        for (int i = 0; i < 100; i++) {
+            ex.clear().append(i).getValue().put(RED_FOX + i);
+            ex.store();
+        }
+        _persistit.checkpoint();
+        /*
+         * Each checkpoint writes the one page changed since the previous one,
+         * which differs from its last image by a single record
+         */
+        for (int round = 0; round < 10; round++) {
+            ex.clear().append(round * 10).getValue().put(RED_FOX.toUpperCase() + round);
+            ex.store();
+            _persistit.checkpoint();
+        }
+        assertTrue(jman.getPageDeltaCount() > 0);
+        _persistit.crash();
+
+        _persistit = new Persistit(_config);
+        final Exchange ex2 = _persistit.getExchange(_volumeName, "JournalManagerTest", false);
+        for (int i = 0; i < 100; i++) {
+            final String expected = i % 10 == 0 ? RED_FOX.toUpperCase() + i / 10 : RED_FOX + i;
+            assertEquals(expected, ex2.clear().append(i).fetch().getValue().getString());
+        }
+        _persistit.copyBackPages();
+        _persistit.close();
+
+        _persistit = new Persistit(_config);
+        final Exchange ex3 = _persistit.getExchange(_volumeName, "JournalManagerTest", false);
+        for (int i = 0; i < 100; i++) {
+            final String expected = i % 10 == 0 ? RED_FOX.toUpperCase() + i / 10 : RED_FOX + i;
+            assertEquals(expected, ex3.clear().append(i).fetch().getValue().getString());
+        }
+    }
+
+    @Test
+    public void compressedRecordsAreRecovered() throws Exception {
+        for (final String codec : new String[] { "LZ4", "DEFLATE" }) {
+            final JournalManager jman = _persistit.getJournalManager();
+            jman.setCompression(codec);
+            assertEquals(codec, jman.getCompression());
+            final Exchange ex = _persistit.getExchange(_volumeName, codec, true);
+            final Transaction txn = _persistit.getTransaction();
+            for (int i = 0; i < 200; i++) {
+                txn.begin();
+                try {
+                    for (int j = 0; j < 10; j++) {
+                        ex.clear().append(i * 10 + j).getValue().put(RED_FOX + RED_FOX + (i * 10 + j));
+                        ex.store();
+                    }
+                    txn.commit(CommitPolicy.HARD);
+                } finally {
+                    txn.end();
+                }
+                /*
+                 * Pages written at the checkpoint are PZ records; updates
+                 * after it are recovered from TZ records
+                 */
+                if (i == 100) {
+                    _persistit.checkpoint();
+                }
+            }
+            assertTrue(jman.getCompressedRecordCount() > 0);
+            assertTrue(jman.getCompressionSavings() > 0);
+            _persistit.crash();
+
+            _persistit = new Persistit(_config);
+            final Exchange ex2 = _persistit.getExchange(_volumeName, codec, false);
+            for (int i = 0; i < 2000; i++) {
+                assertEquals(RED_FOX + RED_FOX + i, ex2.clear().append(i).fetch().getValue().getString());
+            }
+            _persistit.copyBackPages();
+            _persistit.close();
+
+            _persistit = new Persistit(_config);
+            final Exchange ex3 = _persistit.getExchange(_volumeName, codec, false);
+            for (int i = 0; i < 2000; i++) {
+                assertEquals(RED_FOX + RED_FOX + i, ex3.clear().append(i).fetch().getValue().getString());
+            }
+        }
+    }
+
+    @Test
+    public void journalReaderReadsRecordsInPlace() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        final Exchange exchange = _persistit.getExchange(_volumeName, "JournalManagerTest1", true);
+        final Transaction txn = _persistit.getTransaction();
+        for (int i = 0; i < 100; i++) {
+            txn.begin();
+            try {
+                for (int j = 0; j < 10; j++) {
+                    exchange.getValue().put(RED_FOX + i);
+                    exchange.clear().append(i).append(j).store();
+                }
+                txn.commit(CommitPolicy.HARD);
+            } finally {
+                txn.end();
+            }
+        }
+        _persistit.checkpoint();
+        jman.force();
+
+        final long end = jman.getCurrentAddress();
+        final File file = jman.addressToFile(end);
+        /*
+         * A small window makes the reader map several windows of the file
+         */
+        final JournalReader reader = new JournalReader(64 * 1024);
+        long offset = 0;
+        int transactions = 0;
+        int pages = 0;
+        while (offset < end % jman.getBlockSize()) {
+            ByteBuffer bb = reader.read(file, offset, JournalRecord.OVERHEAD);
+            final int length = JournalRecord.getLength(bb);
+            final int type = JournalRecord.getType(bb);
+            assertTrue(JournalRecord.isValidType(type));
+            bb = reader.read(file, offset, length);
+            assertEquals(type, JournalRecord.getType(bb));
+            if (type == JournalRecord.TX.TYPE) {
+                transactions++;
+            } else if (type == JournalRecord.PA.TYPE) {
+                pages++;
+            }
+            offset += length;
+        }
+        assertEquals(end % jman.getBlockSize(), offset);
+        assertTrue(transactions >= 100);
+        assertTrue(pages > 0);
+        /*
+         * A record that would extend past the end of the file is not returned
+         */
+        assertNull(reader.read(file, file.length() - 4, JournalRecord.OVERHEAD));
+        reader.close();
+
+        final StringWriter dump = new StringWriter();
+        final JournalTool tool = new JournalTool(_persistit);
+        tool.init(jman.getJournalFilePath(), jman.getBaseAddress(), end, "TX,SR", "*", "*", 42, 42, false);
+        tool.setWriter(new PrintWriter(dump));
+        tool.scan();
+        assertTrue(dump.toString().contains("TX"));
+        assertTrue(dump.toString().contains("{99,9}"));
+    }
+
     @Test
     public void copyBackPagesLeavesOneJournal() throws Exception {
         final int BATCH_SIZE = 1000;
@@ -17,6 +17,7 @@
 package com.persistit;
 
 import com.persistit.exception.PersistitException;
+import com.persistit.exception.ReadOnlyTransactionException;
 import org.junit.Test;
 
 import java.util.Collections;
@@ -26,6 +27,7 @@ import java.util.List;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class MVCCBasicTest extends MVCCTestBase {
     private static final String KEY1 = "k1";
@@ -1055,6 +1057,105 @@ public class MVCCBasicTest extends MVCCTestBase {
         }
     }
 
+    @Test
+    public void testReadOnlyTrxSeesSnapshot() throws Exception {
+        trx1.begin();
+        try {
+            store(ex1, KEY1, VALUE1);
+            trx1.commit();
+        } finally {
+            trx1.end();
+        }
+
+        trx2.beginReadOnly();
+        try {
+            assertTrue("read-only", trx2.isReadOnly());
+            trx1.begin();
+            try {
+                store(ex1, KEY1, VALUE2);
+                store(ex1, KEY2, VALUE2);
+                assertEquals("uncommitted value from read-only trx", VALUE1, fetch(ex2, KEY1));
+                trx1.commit();
+            } finally {
+                trx1.end();
+            }
+            assertEquals("committed value from read-only trx", VALUE1, fetch(ex2, KEY1));
+            fetch(ex2, KEY2, false);
+            assertFalse("read-only trx sees committed insert", ex2.getValue().isDefined());
+            assertEquals("traverse from read-only trx", kvList(KEY1, VALUE1), traverseAllFoward(ex2, true));
+            trx2.commit();
+        } finally {
+            trx2.end();
+        }
+        assertFalse("read-only after end", trx2.isReadOnly());
+
+        trx2.beginReadOnly();
+        try {
+            assertEquals("new read-only trx", VALUE2, fetch(ex2, KEY1));
+            assertEquals("new read-only trx", VALUE2, fetch(ex2, KEY2));
+        } finally {
+            trx2.end();
+        }
+    }
+
+    @Test
+    public void testReadOnlyTrxRejectsUpdates() throws Exception {
+        store(ex1, KEY1, VALUE1);
+        final long rollbacks = trx1.getRolledBackTransactionCount();
+        trx1.beginReadOnly();
+        try {
+            try {
+                store(ex1, KEY1, VALUE2);
+                fail("store in read-only trx");
+            } catch (final ReadOnlyTransactionException e) {
+                // expected
+            }
+            try {
+                remove(ex1, KEY1);
+                fail("remove in read-only trx");
+            } catch (final ReadOnlyTransactionException e) {
+                // expected
+            }
+            try {
+                ex1.clear().append(KEY1).getValue().put(VALUE2);
+                ex1.fetchAndStore();
+                fail("fetchAndStore in read-only trx");
+            } catch (final ReadOnlyTransactionException e) {
+                // expected
+            }
+            try {
+                ex1.getTree().getSumAccumulator(0).add(1);
+                fail("accumulator update in read-only trx");
+            } catch (final IllegalStateException e) {
+                // expected
+            }
+
+            trx1.begin();
+            try {
+                assertTrue("nested scope is read-only", trx1.isReadOnly());
+                trx1.commit();
+            } finally {
+                trx1.end();
+            }
+
+            assertEquals("value after failed updates", VALUE1, fetch(ex1, KEY1));
+            trx1.commit();
+        } finally {
+            trx1.end();
+        }
+        assertEquals("rollbacks", rollbacks, trx1.getRolledBackTransactionCount());
+
+        trx1.begin();
+        try {
+            assertFalse("read-write trx", trx1.isReadOnly());
+            store(ex1, KEY1, VALUE2);
+            trx1.commit();
+        } finally {
+            trx1.end();
+        }
+        assertEquals("value after read-write trx", VALUE2, fetch(ex1, KEY1));
+    }
+
     //
     // Test Helpers
     //
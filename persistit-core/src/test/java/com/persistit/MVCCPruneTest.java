@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class MVCCPruneTest extends MVCCTestBase {
     final static String KEY = "a";
@@ -144,6 +145,39 @@ public class MVCCPruneTest extends MVCCTestBase {
         assertEquals("version count post second prune, no trx active", 1, storedVersionCount(ex2, KEY));
     }
 
+    @Test
+    public void testPruneWithReadOnlyTrx() throws PersistitException {
+        storePrimordial(ex1, KEY, VALUE);
+
+        trx2.beginReadOnly();
+        try {
+            for (int i = 1; i <= 3; ++i) {
+                trx1.begin();
+                try {
+                    store(ex1, KEY, VALUE + i);
+                    trx1.commit();
+                } finally {
+                    trx1.end();
+                }
+            }
+            prune(ex1, KEY);
+            assertTrue("floor held by read-only trx",
+                    _persistit.getTransactionIndex().getActiveTransactionFloor() <= trx2.getStartTimestamp());
+
+            assertEquals("value from read-only trx after prune", VALUE, fetch(ex2, KEY));
+            assertEquals("version count after prune, read-only trx active", 2, storedVersionCount(ex1, KEY));
+            trx2.commit();
+        } finally {
+            trx2.end();
+        }
+
+        prune(ex1, KEY);
+        assertTrue("floor after read-only trx ended",
+                _persistit.getTransactionIndex().getActiveTransactionFloor() > trx2.getStartTimestamp());
+        assertEquals("value from no trx post prune", VALUE + 3, fetch(ex1, KEY));
+        assertEquals("version count post prune, no trx active", 1, storedVersionCount(ex1, KEY));
+    }
+
     @Test
     public void testPruneAborted() throws PersistitException {
         storePrimordial(ex1, KEY, VALUE);
@@ -247,6 +281,66 @@ public class MVCCPruneTest extends MVCCTestBase {
         ex1.ignoreMVCCFetch(false);
     }
 
+    @Test
+    public void testPruneBeforeSplitCounted() throws PersistitException {
+        final CleanupManager cm = _persistit.getCleanupManager();
+        final long prunedBefore = cm.getPrunedBeforeSplitCount();
+        boolean hadSplit = false;
+        for (int i = 0; i < 2500 && !hadSplit; ++i) {
+            _persistit.getTransactionIndex().cleanup();
+            trx1.begin();
+            try {
+                store(ex1, String.format("k%4d", i), i);
+                hadSplit = ex1.getStoreCausedSplit();
+                trx1.commit();
+            } finally {
+                trx1.end();
+            }
+        }
+        assertEquals("had split before inserting max number of keys", true, hadSplit);
+        assertTrue("page pruned before split", cm.getPrunedBeforeSplitCount() > prunedBefore);
+    }
+
+    @Test
+    public void testDeadVersionBytesSwept() throws Exception {
+        final CleanupManager cm = _persistit.getCleanupManager();
+        cm.setPollInterval(-1);
+        cm.setSweepInterval(0);
+        cm.setSweepMinimumDeadBytes(1);
+        final int count = 100;
+        for (int i = 0; i < count; ++i) {
+            store(ex1, i, VALUE + i);
+        }
+        trx1.begin();
+        try {
+            for (int i = 0; i < count; ++i) {
+                store(ex1, i, VALUE_TRX1 + i);
+            }
+            trx1.commit();
+        } finally {
+            trx1.end();
+        }
+
+        final TreeStatistics stats = ex1.getTree().getStatistics();
+        final long treeDeadBytes = stats.getDeadVersionBytes();
+        assertTrue("tree dead bytes", treeDeadBytes > 0);
+        assertTrue("total dead bytes", cm.getDeadVersionBytes() >= treeDeadBytes);
+        assertEquals("dead bytes by name", treeDeadBytes,
+                cm.getDeadVersionBytes(TEST_VOLUME_NAME, ex1.getTree().getName()));
+
+        final long swept = cm.getSweptPageCount();
+        final long pruned = cm.getPrunedPageCount();
+        _persistit.getTransactionIndex().cleanup();
+        cm.sweep();
+        assertTrue("pages swept", cm.getSweptPageCount() > swept);
+        cm.poll();
+        assertTrue("pages pruned", cm.getPrunedPageCount() > pruned);
+        assertTrue("bytes reclaimed", cm.getPrunedByteCount() > 0);
+        assertEquals("tree dead bytes after sweep", 0, stats.getDeadVersionBytes());
+        assertEquals("version count after sweep", 1, storedVersionCount(ex1, 0));
+        assertEquals("value after sweep", VALUE_TRX1 + 0, fetch(ex1, 0));
+    }
+
     @Test
     public void testPruneAlternatingAbortedAndCommittedVersions() throws PersistitException {
         final char VERSIONS[] = { 'A', 'C', 'A', 'C', 'A' };
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import com.persistit.Management.BufferPoolInfo;
+import com.persistit.mxbeans.BufferPoolMXBean;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class NamedBufferPoolTest extends PersistitUnitTestCase {
+
+    private final static String POOL_NAME = "hot";
+
+    private final static String HOT_VOLUME_NAME = "hotvol";
+
+    @Override
+    protected Properties doGetProperties(final boolean cleanup) {
+        final Properties properties = getProperties(cleanup);
+        properties.setProperty("buffer.pool." + POOL_NAME, "16384,count=50,policy=2Q");
+        properties.setProperty("volume.2", "${datapath}/" + HOT_VOLUME_NAME + ",create,bufferPool:" + POOL_NAME
+                + ",pageSize:16384,initialPages:100,extensionPages:100,maximumPages:25000");
+        properties.setProperty("sysvolume", VOLUME_NAME);
+        return properties;
+    }
+
+    @Test
+    public void testVolumeAssignment() throws Exception {
+        final BufferPool defaultPool = _persistit.getBufferPool(16384);
+        final BufferPool hotPool = _persistit.getBufferPool(POOL_NAME);
+        assertNotNull(hotPool);
+        assertTrue(hotPool != defaultPool);
+        assertEquals(POOL_NAME, hotPool.getName());
+        assertEquals(50, hotPool.getBufferCount());
+        assertEquals("2Q", hotPool.getReplacementPolicy());
+
+        final Volume hot = _persistit.getVolume(HOT_VOLUME_NAME);
+        final Volume other = _persistit.getVolume(VOLUME_NAME);
+        assertTrue(hot.getPool() == hotPool);
+        assertTrue(other.getPool() == defaultPool);
+        assertTrue(_persistit.getBufferPools().contains(hotPool));
+    }
+
+    @Test
+    public void testIsolation() throws Exception {
+        final BufferPool hotPool = _persistit.getBufferPool(POOL_NAME);
+        final Volume hot = _persistit.getVolume(HOT_VOLUME_NAME);
+        final Volume other = _persistit.getVolume(VOLUME_NAME);
+
+        final Exchange hotEx = _persistit.getExchange(hot, "NamedBufferPoolTest", true);
+        hotEx.getValue().put(createString(1000));
+        for (int i = 0; i < 100; i++) {
+            hotEx.to(i).store();
+        }
+        final long hotMisses = hotPool.getMissCounter();
+
+        /*
+         * A scan of a large tree in the other volume must not displace any
+         * pages of the hot volume
+         */
+        final Exchange scanEx = _persistit.getExchange(other, "NamedBufferPoolTest", true);
+        scanEx.getValue().put(createString(1000));
+        for (int i = 0; i < 5000; i++) {
+            scanEx.to(i).store();
+        }
+        scanEx.clear().append(Key.BEFORE);
+        while (scanEx.next()) {
+        }
+
+        for (int i = 0; i < hotPool.getBufferCount(); i++) {
+            final Buffer buffer = hotPool.getBuffer(i);
+            assertTrue(!buffer.isValid() || buffer.getVolume() == hot || buffer.getVolume() == null);
+        }
+        for (int i = 0; i < 100; i++) {
+            hotEx.to(i).fetch();
+            assertTrue(hotEx.getValue().isDefined());
+        }
+        assertEquals(hotMisses, hotPool.getMissCounter());
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        final BufferPoolInfo[] array = _persistit.getManagement().getBufferPoolInfoArray();
+        BufferPoolInfo named = null;
+        for (final BufferPoolInfo info : array) {
+            if (POOL_NAME.equals(info.getPoolName())) {
+                named = info;
+            }
+        }
+        assertNotNull(named);
+        assertEquals(50, named.getBufferCount());
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName on = new ObjectName(BufferPoolMXBean.MXBEAN_NAME + "." + POOL_NAME);
+        assertTrue(server.isRegistered(on));
+        assertEquals(POOL_NAME, server.getAttribute(on, "PoolName"));
+        assertEquals(50, server.getAttribute(on, "BufferCount"));
+        assertEquals("2Q", server.getAttribute(on, "ReplacementPolicy"));
+    }
+
+    @Override
+    public void runAllTests() throws Exception {
+        testVolumeAssignment();
+        testIsolation();
+        testStatistics();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import com.persistit.JournalManager.PageNode;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PageMapTest {
+
+    @Test
+    public void putGetRemove() {
+        final PageMap map = new PageMap();
+        final PageNode a = new PageNode(1, 42, 100, 10);
+        final PageNode b = new PageNode(2, 42, 200, 20);
+        assertNull(map.put(a));
+        assertNull(map.put(b));
+        assertEquals(2, map.size());
+        assertTrue(map.get(1, 42) == a);
+        assertTrue(map.get(new PageNode(2, 42, -1, -1)) == b);
+        assertNull(map.get(1, 43));
+
+        final PageNode c = new PageNode(1, 42, 300, 30);
+        c.setPrevious(a);
+        assertTrue(map.put(c) == a);
+        assertEquals(2, map.size());
+        assertTrue(map.get(1, 42).getPrevious() == a);
+
+        assertTrue(map.remove(1, 42) == c);
+        assertNull(map.remove(1, 42));
+        assertEquals(1, map.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(2, 42));
+    }
+
+    @Test
+    public void matchesHashMap() {
+        final PageMap map = new PageMap();
+        final Map<PageNode, PageNode> expected = new HashMap<PageNode, PageNode>();
+        // fixed seed so that results are repeatable.
+        final Random random = new Random(1);
+        for (int i = 0; i < 200000; i++) {
+            final int handle = random.nextInt(4);
+            final long page = random.nextInt(20000);
+            final PageNode pn = new PageNode(handle, page, i, i);
+            if (random.nextInt(3) == 0) {
+                assertTrue(expected.remove(pn) == map.remove(handle, page));
+            } else {
+                assertTrue(expected.put(pn, pn) == map.put(pn));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        int count = 0;
+        for (final PageNode pn : map.values()) {
+            assertTrue(expected.get(pn) == pn);
+            count++;
+        }
+        assertEquals(expected.size(), count);
+        for (final PageNode pn : expected.values()) {
+            assertTrue(map.get(pn.getVolumeHandle(), pn.getPageAddress()) == pn);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReadAheadTest extends PersistitUnitTestCase {
+
+    private final static int RECORDS = 5000;
+
+    private Exchange populate() throws Exception {
+        final Exchange ex = _persistit.getExchange(VOLUME_NAME, "ReadAheadTest", true);
+        ex.getValue().put(createString(500));
+        for (int i = 0; i < RECORDS; i++) {
+            ex.to(i).store();
+        }
+        assertTrue(ex.getTree().getDepth() >= 2);
+        ex.getVolume().getPool().evict(ex.getVolume());
+        return ex;
+    }
+
+    @Test
+    public void testSequentialTraversalReadsAhead() throws Exception {
+        final Exchange ex = populate();
+        final IOMeter meter = _persistit.getIOMeter();
+        final long prefetched = meter.totalOperations("PF");
+
+        ex.setReadAhead(16);
+        ex.clear().append(Key.BEFORE);
+        int count = 0;
+        while (ex.next()) {
+            count++;
+        }
+        assertEquals(RECORDS, count);
+        assertTrue(_persistit.getReadAheadManager().getRequestCount() > 0);
+
+        final long expires = System.currentTimeMillis() + 10000;
+        while (meter.totalOperations("PF") == prefetched && System.currentTimeMillis() < expires) {
+            Thread.sleep(10);
+        }
+        assertTrue(meter.totalOperations("PF") > prefetched);
+    }
+
+    @Test
+    public void testPrefetchAccounting() throws Exception {
+        final Exchange ex = populate();
+        final Volume volume = ex.getVolume();
+        final BufferPool pool = volume.getPool();
+        final IOMeter meter = _persistit.getIOMeter();
+
+        ex.to(0).fetch();
+        final long page1 = ex.fetchBufferCopy(0).getPageAddress();
+        ex.to(RECORDS - 1).fetch();
+        final long page2 = ex.fetchBufferCopy(0).getPageAddress();
+        assertTrue(page1 != page2);
+        pool.evict(volume);
+
+        final long prefetched = meter.totalOperations("PF");
+        final long hits = meter.totalOperations("PH");
+        final long wasted = meter.totalOperations("PW");
+
+        assertTrue(pool.prefetch(volume, page1));
+        assertTrue(pool.prefetch(volume, page2));
+        assertFalse(pool.prefetch(volume, page1));
+        assertEquals(prefetched + 2, meter.totalOperations("PF"));
+
+        pool.get(volume, page1, false, true).release();
+        pool.get(volume, page1, false, true).release();
+        assertEquals(hits + 1, meter.totalOperations("PH"));
+
+        pool.evict(volume);
+        assertEquals(wasted + 1, meter.totalOperations("PW"));
+    }
+
+    @Test
+    public void testReadAheadSettings() throws Exception {
+        final Exchange ex = _persistit.getExchange(VOLUME_NAME, "ReadAheadTest", true);
+        final Tree tree = ex.getTree();
+        assertEquals(0, _persistit.getDefaultReadAhead());
+        assertEquals(0, ex.getReadAhead());
+
+        _persistit.setDefaultReadAhead(8);
+        assertEquals(8, tree.getReadAhead());
+        assertEquals(8, ex.getReadAhead());
+
+        tree.setReadAhead(4);
+        assertEquals(4, ex.getReadAhead());
+
+        ex.setReadAhead(0);
+        assertEquals(0, ex.getReadAhead());
+        assertEquals(4, tree.getReadAhead());
+
+        ex.setReadAhead(-1);
+        tree.setReadAhead(-1);
+        assertEquals(8, ex.getReadAhead());
+    }
+
+    @Override
+    public void runAllTests() throws Exception {
+        testSequentialTraversalReadsAhead();
+        testPrefetchAccounting();
+        testReadAheadSettings();
+    }
+}
@@ -23,10 +23,11 @@ import com.persistit.TransactionPlayer.TransactionPlayerListener;
 import com.persistit.exception.PersistitException;
 import com.persistit.exception.RollbackException;
 import com.persistit.exception.TransactionFailedException;
+import com.persistit.util.Util;
 import org.junit.Test;
 
 import java.io.File;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -35,6 +36,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -166,8 +168,105 @@ public class RecoveryTest extends PersistitUnitTestCase {
     assertEquals(15, recoveryTimestamps.size());
   }
 
+  @Test
+  public void testParallelReplayEndsTransactionsAfterTheirUpdates() throws Exception {
+    _config.setRecoveryThreads(4);
+    _persistit.getJournalManager().setAppendOnly(true);
+    store2();
+    _persistit.getJournalManager().flush();
+    _persistit.crash();
+    _persistit = new Persistit();
+    _persistit.getJournalManager().setAppendOnly(true);
+    final RecoveryManager plan = _persistit.getRecoveryManager();
+    plan.setRecoveryDisabledForTestMode(true);
+    _persistit.setConfiguration(_config);
+    _persistit.initialize();
+    plan.setRecoveryDisabledForTestMode(false);
+    final Set<Long> started = Collections.synchronizedSet(new HashSet<Long>());
+    final Set<Long> ended = Collections.synchronizedSet(new HashSet<Long>());
+    final AtomicInteger misordered = new AtomicInteger();
+    final TransactionPlayerListener actor = new TransactionPlayerListener() {
+
+      private void update(final long timestamp) throws PersistitException {
+        if (!started.contains(timestamp) || ended.contains(timestamp)) {
+          misordered.incrementAndGet();
+        }
+        Util.sleep(1);
+      }
+
+      @Override
+      public void store(final long address, final long timestamp, final Exchange exchange)
+        throws PersistitException {
+        update(timestamp);
+      }
+
+      @Override
+      public void removeKeyRange(final long address, final long timestamp, final Exchange exchange,
+        final Key from, final Key to) throws PersistitException {
+        update(timestamp);
+      }
+
+      @Override
+      public void removeTree(final long address, final long timestamp, final Exchange exchange)
+        throws PersistitException {
+        update(timestamp);
+      }
+
+      @Override
+      public void startRecovery(final long address, final long timestamp) throws PersistitException {
+      }
+
+      @Override
+      public void startTransaction(final long address, final long startTimestamp, final long commitTimestamp)
+        throws PersistitException {
+        started.add(startTimestamp);
+      }
+
+      @Override
+      public void endTransaction(final long address, final long timestamp) throws PersistitException {
+        ended.add(timestamp);
+      }
+
+      @Override
+      public void endRecovery(final long address, final long timestamp) throws PersistitException {
+      }
+
+      @Override
+      public void delta(final long address, final long timestamp, final Tree tree, final int index,
+        final int accumulatorTypeOrdinal, final long value) throws PersistitException {
+      }
+
+      @Override
+      public boolean requiresLongRecordConversion() {
+        return true;
+      }
+
+      @Override
+      public boolean createTree(final long timestamp) throws PersistitException {
+        return true;
+      }
+
+    };
+    plan.applyAllRecoveredTransactions(actor, plan.getDefaultRollbackListener());
+    assertEquals(0, misordered.get());
+    assertTrue(ended.size() >= 15);
+    assertEquals(started, ended);
+  }
+
   @Test
   public void testLongRecordTransactionRecovery() throws Exception {
+    longRecordTransactionRecovery();
+  }
+
+  @Test
+  public void testParallelLongRecordTransactionRecovery() throws Exception {
+    _config.setRecoveryThreads(4);
+    longRecordTransactionRecovery();
+    assertEquals(4, _persistit.getRecoveryManager().getRecoveryThreads());
+    assertEquals(0, _persistit.getRecoveryManager().getErrorCount());
+  }
+
+  private void longRecordTransactionRecovery() throws Exception {
     // create 10 transactions on the journal having long records.
     _persistit.getJournalManager().setAppendOnly(true);
     store3();
@@ -253,6 +352,18 @@ public class RecoveryTest extends PersistitUnitTestCase {
   // in the correct state after recovery. Tests fix for bug 719319.
   @Test
   public void testRecoveredTransactionsAreCorrect() throws Exception {
+    recoveredTransactionsAreCorrect();
+  }
+
+  @Test
+  public void testParallelRecoveredTransactionsAreCorrect() throws Exception {
+    _config.setRecoveryThreads(3);
+    recoveredTransactionsAreCorrect();
+    assertEquals(3, _persistit.getRecoveryManager().getRecoveryThreads());
+    assertEquals(0, _persistit.getRecoveryManager().getErrorCount());
+  }
+
+  private void recoveredTransactionsAreCorrect() throws Exception {
     final SortedSet<String> keys = new TreeSet<String>();
     Exchange[] exchanges = new Exchange[5];
     for (int index = 0; index < 5; index++) {
@@ -319,7 +430,7 @@ public class RecoveryTest extends PersistitUnitTestCase {
     final Map<Integer, Volume> volumeMap = new TreeMap<Integer, Volume>();
     volumeMap.put(1, vd);
     // sorted to make reading hex dumps easier
-    final Map<PageNode, PageNode> pageMap = new HashMap<PageNode, PageNode>();
+    final PageMap pageMap = new PageMap();
     for (long pageAddr = 0; pageAddr < 100000; pageAddr++) {
       PageNode lastPageNode = new PageNode(1, pageAddr, pageAddr * 100, 0);
       for (long ts = 1; ts < 10; ts++) {
@@ -327,7 +438,7 @@ public class RecoveryTest extends PersistitUnitTestCase {
         pn.setPrevious(lastPageNode);
         lastPageNode = pn;
       }
-      pageMap.put(lastPageNode, lastPageNode);
+      pageMap.put(lastPageNode);
     }
     final JournalManager jman = new JournalManager(_persistit);
     final String path = DATA_PATH + "/RecoveryManagerTest_journal_";
@@ -342,12 +453,11 @@ public class RecoveryTest extends PersistitUnitTestCase {
     rman.init(path);
     rman.buildRecoveryPlan();
     assertTrue(rman.getKeystoneAddress() != -1);
-    final Map<PageNode, PageNode> pageMapCopy = new HashMap<PageNode, PageNode>();
-    final Map<PageNode, PageNode> branchMapCopy = new HashMap<PageNode, PageNode>();
+    final PageMap pageMapCopy = new PageMap();
+    final PageMap branchMapCopy = new PageMap();
     rman.collectRecoveredPages(pageMapCopy, branchMapCopy);
     assertEquals(pageMap.size(), pageMapCopy.size());
-    final PageNode key = new PageNode(1, 42, -1, -1);
-    PageNode pn = pageMapCopy.get(key);
+    PageNode pn = pageMapCopy.get(1, 42);
     int count = 0;
     while (pn != null) {
       assertTrue(pn.getTimestamp() <= 500);
@@ -97,7 +97,7 @@ public class TestShim {
 
     public static void flushBuffers(final Persistit persistit, final long timestamp)
             throws PersistitInterruptedException {
-        for (final BufferPool pool : persistit.getBufferPoolHashMap().values()) {
+        for (final BufferPool pool : persistit.getBufferPools()) {
             pool.flush(timestamp);
         }
     }
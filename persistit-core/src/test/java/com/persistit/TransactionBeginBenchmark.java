@@ -0,0 +1,167 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Measures the throughput of empty, reading and snapshot transactions from 1
+ * to 128 concurrent threads. An empty transaction only begins and commits; a
+ * reading transaction also fetches one record; a snapshot transaction fetches
+ * one record within {@link Transaction#beginReadOnly()}. Latency is the
+ * elapsed time of beginning the transaction, which registers it in the
+ * {@link TransactionIndex}. Each configuration is warmed up before it is
+ * measured.
+ */
+public class TransactionBeginBenchmark extends PersistitUnitTestCase {
+
+    private final static long WARMUP = 200;
+
+    private final static long DURATION = 1000;
+
+    private final static int[] THREAD_COUNTS = { 1, 2, 4, 8, 16, 32, 64, 128 };
+
+    private final static int MAX_SAMPLES = 10000;
+
+    private final static int RECORDS = 1000;
+
+    private enum Mode {
+        EMPTY, READ, SNAPSHOT
+    }
+
+    private static class Result {
+        long _transactions;
+        final List<long[]> _samples = new ArrayList<long[]>();
+        final List<Integer> _sampleCounts = new ArrayList<Integer>();
+
+        synchronized void add(final long transactions, final long[] samples, final int count) {
+            _transactions += transactions;
+            _samples.add(samples);
+            _sampleCounts.add(count);
+        }
+
+        long[] latencies() {
+            int total = 0;
+            for (final int count : _sampleCounts) {
+                total += count;
+            }
+            final long[] latencies = new long[total];
+            int offset = 0;
+            for (int index = 0; index < _samples.size(); index++) {
+                final int count = _sampleCounts.get(index);
+                System.arraycopy(_samples.get(index), 0, latencies, offset, count);
+                offset += count;
+            }
+            Arrays.sort(latencies);
+            return latencies;
+        }
+    }
+
+    @Test
+    public void benchmarkTransactionBegin() throws Exception {
+        final Exchange ex = _persistit.getExchange(VOLUME_NAME, "TransactionBeginBenchmark", true);
+        ex.getValue().put(RED_FOX);
+        for (int i = 0; i < RECORDS; i++) {
+            ex.clear().append(i).store();
+        }
+        System.out.printf("registration locks=%d\n", _persistit.getTransactionIndex().getRegistrationLockCount());
+        System.out.printf("%-10s %7s %12s %10s %10s\n", "mode", "threads", "txns/sec", "p50 ns", "p99 ns");
+        for (final Mode mode : Mode.values()) {
+            for (final int threads : THREAD_COUNTS) {
+                run(threads, mode, WARMUP);
+                final Result result = run(threads, mode, DURATION);
+                final long[] latencies = result.latencies();
+                assertTrue(latencies.length > 0);
+                System.out.printf("%-10s %7d %,12d %,10d %,10d\n", mode.name().toLowerCase(), threads,
+                        result._transactions * 1000 / DURATION, latencies[latencies.length / 2],
+                        latencies[latencies.length * 99 / 100]);
+            }
+        }
+    }
+
+    private Result run(final int threadCount, final Mode mode, final long duration) throws Exception {
+        final Result result = new Result();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicLong errors = new AtomicLong();
+        final CountDownLatch started = new CountDownLatch(threadCount);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final long[] samples = new long[MAX_SAMPLES];
+                    int count = 0;
+                    long transactions = 0;
+                    started.countDown();
+                    try {
+                        final Exchange ex = _persistit.getExchange(VOLUME_NAME, "TransactionBeginBenchmark", false);
+                        final Transaction txn = _persistit.getTransaction();
+                        for (int i = 0; !stop.get(); i++) {
+                            final long start = System.nanoTime();
+                            if (mode == Mode.SNAPSHOT) {
+                                txn.beginReadOnly();
+                            } else {
+                                txn.begin();
+                            }
+                            final long elapsed = System.nanoTime() - start;
+                            try {
+                                if (mode != Mode.EMPTY) {
+                                    ex.clear().append(i % RECORDS).fetch();
+                                }
+                                txn.commit();
+                            } finally {
+                                txn.end();
+                            }
+                            if (count < MAX_SAMPLES) {
+                                samples[count++] = elapsed;
+                            }
+                            transactions++;
+                        }
+                    } catch (final Exception e) {
+                        e.printStackTrace();
+                        errors.incrementAndGet();
+                    }
+                    result.add(transactions, samples, count);
+                }
+            }, "BEGINNER_" + t);
+            threads.add(thread);
+            thread.start();
+        }
+        started.await();
+        Thread.sleep(duration);
+        stop.set(true);
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.get() == 0);
+        return result;
+    }
+
+    @Override
+    public void runAllTests() throws Exception {
+        benchmarkTransactionBegin();
+    }
+}
@@ -19,6 +19,7 @@ package com.persistit;
 import junit.framework.TestCase;
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.persistit.TransactionStatus.ABORTED;
@@ -327,6 +328,44 @@ public class TransactionIndexTest extends TestCase {
         ti.notifyCompleted(ts1, commitTimestamp);
     }
 
+    @Test
+    public void testCommitStatusCache() throws Exception {
+        final TransactionIndex ti = new TransactionIndex(_tsa, 1);
+        final CommitStatusCache cache = new CommitStatusCache(ti);
+        final TransactionStatus ts1 = ti.registerTransaction();
+        final TransactionStatus ts2 = ti.registerTransaction();
+        final TransactionStatus ts3 = ti.registerTransaction();
+        final long vh1 = TransactionIndex.ts2vh(ts1.getTs());
+        final long vh3 = TransactionIndex.ts2vh(ts3.getTs());
+        /*
+         * Uncommitted outcomes are not cached
+         */
+        assertEquals(UNCOMMITTED, ti.commitStatus(vh1, _tsa.updateTimestamp(), 0, cache));
+        assertEquals(UNCOMMITTED, ti.commitStatus(vh1, _tsa.updateTimestamp(), 0, cache));
+
+        final long tc1 = _tsa.updateTimestamp();
+        ts1.commit(tc1);
+        ti.notifyCompleted(ts1, tc1);
+        final long ts = _tsa.updateTimestamp();
+        assertEquals(tc1, ti.commitStatus(vh1, ts, 0, cache));
+        assertEquals(tc1, ti.commitStatus(vh1, ts, 0, cache));
+        /*
+         * A cached commit timestamp is still compared with the reader's start
+         * timestamp
+         */
+        assertEquals(UNCOMMITTED, ti.commitStatus(vh1, ts2.getTs(), 0, cache));
+        assertEquals(UNCOMMITTED, ti.commitStatus(vh1, ts2.getTs(), 0));
+
+        ts3.incrementMvvCount();
+        ts3.abort();
+        assertEquals(ABORTED, ti.commitStatus(vh3, ts, 0, cache));
+        assertEquals(ABORTED, ti.commitStatus(vh3, ts, 0, cache));
+
+        cache.flush();
+        assertEquals(3, ti.getCommitStatusCacheHitCount());
+        assertEquals(4, ti.getCommitStatusCacheMissCount());
+    }
+
     /**
      * Bug 914474 is an isolation failure in Stress8txn when run with 10
      * threads. Hypothesis is that a TransactionStatus for a committed
@@ -358,4 +397,62 @@ public class TransactionIndexTest extends TestCase {
         ti.cleanup();
         assertTrue(ti.wwDependency(TransactionIndex.ts2vh(ts2.getTs()), ts1, 0) != 0);
     }
+
+    /**
+     * Transactions register concurrently with recomputation of the
+     * ActiveTransactionCache. A registered, uncommitted transaction must never
+     * be missing from a cache whose ceiling is at or above its start
+     * timestamp.
+     */
+    @Test
+    public void testConcurrentRegistration() throws Exception {
+        final TransactionIndex ti = new TransactionIndex(_tsa, 16);
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicBoolean done = new AtomicBoolean();
+        final Thread poller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    ti.updateActiveTransactionCache();
+                }
+            }
+        });
+        final Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 5000; i++) {
+                            final TransactionStatus status = ti.registerTransaction();
+                            if (!ti.hasConcurrentTransaction(status.getTs() - 1, status.getTs())) {
+                                misses.incrementAndGet();
+                            }
+                            final long tc = _tsa.updateTimestamp();
+                            status.commit(tc);
+                            ti.notifyCompleted(status, tc);
+                        }
+                    } catch (final Exception e) {
+                        e.printStackTrace();
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+        }
+        poller.start();
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        done.set(true);
+        poller.join();
+        assertEquals(0, errors.get());
+        assertEquals(0, misses.get());
+        ti.updateActiveTransactionCache();
+        ti.cleanup();
+        assertEquals(0, ti.getCurrentCount());
+    }
 }
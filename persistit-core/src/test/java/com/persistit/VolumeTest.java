@@ -190,6 +190,12 @@ public class VolumeTest extends PersistitUnitTestCase {
     vs2 = validVolumeSpecification(vs.toString());
     assertEquals("Parse of toString should be equal", vs, vs2);
 
+    vs = validVolumeSpecification("/a/b/c,pageSize:16384,bufferPool:hot,initialSize:10m,maximumSize:100m,extensionSize:10m,create");
+    assertEquals("hot", vs.getBufferPoolName());
+    vs2 = validVolumeSpecification(vs.toString());
+    assertEquals("Parse of toString should be equal", vs, vs2);
+    vs2.setBufferPoolName(null);
+    assertFalse(vs.equals(vs2));
   }
 
   @Test
@@ -18,9 +18,11 @@ package com.persistit;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Properties;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class WarmupTest extends PersistitUnitTestCase {
@@ -51,6 +53,7 @@ public class WarmupTest extends PersistitUnitTestCase {
     _persistit.close();
 
     _persistit = new Persistit(_config);
+    assertTrue(_persistit.getBufferWarmup().waitForCompletion(10000));
     ex = _persistit.getExchange("persistit", "WarmupTest", false);
     pool = ex.getBufferPool();
 
@@ -62,6 +65,68 @@ public class WarmupTest extends PersistitUnitTestCase {
     }
   }
 
+  @Test
+  public void backgroundWarmupReportsProgress() throws Exception {
+    Exchange ex = _persistit.getExchange("persistit", "WarmupTest", true);
+    for (int i = 1; i <= 1000; i++) {
+      ex.getValue().put(RED_FOX);
+      ex.clear().append(i).store();
+    }
+    ex = null;
+    _persistit.copyBackPages();
+    _persistit.close();
+
+    _config.setBufferPreloadThreads(2);
+    _persistit = new Persistit(_config);
+    assertTrue(_persistit.getBufferWarmup().waitForCompletion(10000));
+    final BufferPool pool = _persistit.getVolume("persistit").getPool();
+    final ManagementImpl.BufferPoolInfo info = new ManagementImpl.BufferPoolInfo();
+    pool.populateBufferPoolInfo(info);
+
+    assertFalse(info.isWarmingUp());
+    assertTrue(info.getWarmupPageTotal() > 0);
+    assertTrue(info.getWarmupPageCount() > 0);
+    assertTrue(info.getWarmupPageCount() <= info.getWarmupPageTotal());
+    assertTrue(info.getWarmupReadCount() > 0);
+    assertTrue(info.getWarmupReadCount() <= info.getWarmupPageCount());
+    assertTrue(info.getWarmupRate() > 0);
+  }
+
+  @Test
+  public void consecutivePagesAreReadTogether() throws Exception {
+    final Exchange ex = _persistit.getExchange("persistit", "WarmupTest", true);
+    for (int i = 1; i <= 1000; i++) {
+      ex.getValue().put(RED_FOX);
+      ex.clear().append(i).store();
+    }
+    _persistit.copyBackPages();
+    final Volume volume = ex.getVolume();
+    final BufferPool pool = volume.getPool();
+    pool.evict(volume);
+
+    final BufferWarmup.Page[] pages = new BufferWarmup.Page[8];
+    for (int i = 0; i < pages.length; i++) {
+      pages[i] = new BufferWarmup.Page(volume, i + 1, -1);
+    }
+    final ManagementImpl.BufferPoolInfo info = new ManagementImpl.BufferPoolInfo();
+    pool.populateBufferPoolInfo(info);
+    final long reads = info.getWarmupReadCount();
+    assertTrue(pool.warmup(volume, pages, 0, pages.length,
+        ByteBuffer.allocate(BufferWarmup.MAXIMUM_RUN * pool.getBufferSize())));
+    pool.populateBufferPoolInfo(info);
+    /*
+     * Consecutive pages not held in the journal are read from the volume with
+     * a single read
+     */
+    assertTrue(info.getWarmupReadCount() > reads);
+    assertTrue(info.getWarmupReadCount() - reads < pages.length);
+    for (int i = 0; i < pages.length; i++) {
+      final Buffer buffer = pool.get(volume, i + 1, false, true);
+      assertTrue(buffer.isValid());
+      buffer.release();
+    }
+  }
+
   @Test
   public void readOrderIsSequential() throws Exception {
 
@@ -115,8 +180,9 @@ public class WarmupTest extends PersistitUnitTestCase {
     final MediatedFileChannel mfc = (MediatedFileChannel) volume.getStorage().getChannel();
     final TrackingFileChannel tfc = new TrackingFileChannel();
     mfc.injectChannelForTests(tfc);
-    pool = volume.getStructure().getPool();
-    pool.preloadBufferInventory();
+    _config.setBufferPreloadEnabled(true);
+    _persistit.preloadBufferPools();
+    assertTrue(_persistit.getBufferWarmup().waitForCompletion(10000));
     assertTrue("Preload should have loaded pages from journal file", tfc.getReadPositionList().size() > 0);
     tfc.assertOrdered(true, true);
   }
@@ -0,0 +1,205 @@
+/**
+ * Copyright 2014 SonarSource
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.persistit.ConcurrentPersistitMap;
+import com.persistit.PersistitUnitTestCase;
+import com.persistit.exception.PersistitException;
+
+public class ConcurrentPersistitMapTest extends PersistitUnitTestCase {
+
+    private ConcurrentPersistitMap<Integer, String> map(final String treeName) throws PersistitException {
+        return new ConcurrentPersistitMap<Integer, String>(_persistit.getExchange("persistit", treeName, true).append(
+                "map"));
+    }
+
+    @Test
+    public void navigationMatchesTreeMap() throws PersistitException {
+        final ConcurrentPersistitMap<Integer, String> pmap = map("navigation");
+        final TreeMap<Integer, String> tmap = new TreeMap<Integer, String>();
+        for (int i = 0; i < 100; i += 3) {
+            pmap.put(i, "v" + i);
+            tmap.put(i, "v" + i);
+        }
+        assertEquals(tmap.size(), pmap.size());
+        assertEquals(tmap, pmap);
+        assertEquals(tmap.firstKey(), pmap.firstKey());
+        assertEquals(tmap.lastKey(), pmap.lastKey());
+        for (int i = -1; i < 101; i++) {
+            assertEquals(tmap.lowerKey(i), pmap.lowerKey(i));
+            assertEquals(tmap.floorKey(i), pmap.floorKey(i));
+            assertEquals(tmap.ceilingKey(i), pmap.ceilingKey(i));
+            assertEquals(tmap.higherKey(i), pmap.higherKey(i));
+        }
+
+        compare(tmap.subMap(10, true, 40, false), pmap.subMap(10, true, 40, false));
+        compare(tmap.subMap(9, false, 39, true), pmap.subMap(9, false, 39, true));
+        compare(tmap.headMap(50, true), pmap.headMap(50, true));
+        compare(tmap.tailMap(50, false), pmap.tailMap(50, false));
+        compare(tmap.descendingMap(), pmap.descendingMap());
+        compare(tmap.descendingMap().subMap(60, true, 30, true), pmap.descendingMap().subMap(60, true, 30, true));
+        compare(tmap.subMap(20, true, 80, false).descendingMap().headMap(50, false), pmap.subMap(20, 80)
+                .descendingMap().headMap(50));
+        assertEquals(new ArrayList<Integer>(tmap.descendingKeySet()),
+                new ArrayList<Integer>(pmap.descendingKeySet()));
+
+        boolean thrown = false;
+        try {
+            pmap.subMap(10, 20).put(30, "out of range");
+        } catch (final IllegalArgumentException e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+    }
+
+    private void compare(final NavigableMap<Integer, String> expected,
+            final ConcurrentNavigableMap<Integer, String> actual) {
+        assertEquals(new ArrayList<Map.Entry<Integer, String>>(expected.entrySet()),
+                new ArrayList<Map.Entry<Integer, String>>(actual.entrySet()));
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        assertEquals(expected.firstEntry(), actual.firstEntry());
+        assertEquals(expected.lastEntry(), actual.lastEntry());
+        for (int i = -1; i < 101; i++) {
+            assertEquals(expected.lowerKey(i), actual.lowerKey(i));
+            assertEquals(expected.ceilingKey(i), actual.ceilingKey(i));
+            assertEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void conditionalOperations() throws PersistitException {
+        final ConcurrentPersistitMap<Integer, String> pmap = map("conditional");
+        assertNull(pmap.putIfAbsent(1, "a"));
+        assertEquals("a", pmap.putIfAbsent(1, "b"));
+        assertEquals("a", pmap.get(1));
+        assertFalse(pmap.replace(1, "b", "c"));
+        assertTrue(pmap.replace(1, "a", "c"));
+        assertEquals("c", pmap.replace(1, "d"));
+        assertNull(pmap.replace(2, "d"));
+        assertFalse(pmap.containsKey(2));
+        assertFalse(pmap.remove(1, "c"));
+        assertTrue(pmap.remove(1, "d"));
+        assertTrue(pmap.isEmpty());
+
+        for (int i = 0; i < 10; i++) {
+            pmap.put(i, "v" + i);
+        }
+        assertEquals(Integer.valueOf(0), pmap.pollFirstEntry().getKey());
+        assertEquals(Integer.valueOf(9), pmap.pollLastEntry().getKey());
+        final Iterator<Integer> iterator = pmap.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertEquals(4, pmap.size());
+        pmap.tailMap(5).clear();
+        assertEquals(2, pmap.size());
+        pmap.clear();
+        assertTrue(pmap.isEmpty());
+    }
+
+    @Test
+    public void concurrentUpdates() throws Exception {
+        final ConcurrentPersistitMap<Integer, String> pmap = map("concurrent");
+        final int threadCount = 8;
+        final int count = 1000;
+        final AtomicInteger winners = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            final int base = t * count;
+            threads.add(ConcurrentUtil.createThread("Updater" + t, new ConcurrentUtil.ThrowingRunnable() {
+                @Override
+                public void run() throws Throwable {
+                    for (int i = 0; i < count; i++) {
+                        pmap.put(base + i, "v" + i);
+                        assertEquals("v" + i, pmap.get(base + i));
+                        if (pmap.putIfAbsent(-1 - i % 10, "first") == null) {
+                            winners.incrementAndGet();
+                        }
+                    }
+                    for (int i = 0; i < count; i += 2) {
+                        assertEquals("v" + i, pmap.remove(base + i));
+                    }
+                }
+            }));
+        }
+        ConcurrentUtil.startAndJoinAssertSuccess(60000, threads.toArray(new Thread[threadCount]));
+        assertEquals(10, winners.get());
+        assertEquals(threadCount * count / 2, pmap.tailMap(0).size());
+        assertEquals(10, pmap.headMap(0).size());
+    }
+
+    @Test
+    public void putRacesPutIfAbsent() throws Exception {
+        final ConcurrentPersistitMap<Integer, String> pmap = map("race");
+        final int rounds = 500;
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final String[] putResults = new String[rounds];
+        final String[] putIfAbsentResults = new String[rounds];
+        final Thread putter = ConcurrentUtil.createThread("Putter", new ConcurrentUtil.ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                for (int i = 0; i < rounds; i++) {
+                    barrier.await();
+                    putResults[i] = pmap.put(i, "put");
+                }
+            }
+        });
+        final Thread conditional = ConcurrentUtil.createThread("PutIfAbsent", new ConcurrentUtil.ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                for (int i = 0; i < rounds; i++) {
+                    barrier.await();
+                    putIfAbsentResults[i] = pmap.putIfAbsent(i, "putIfAbsent");
+                }
+            }
+        });
+        ConcurrentUtil.startAndJoinAssertSuccess(60000, putter, conditional);
+        for (int i = 0; i < rounds; i++) {
+            /*
+             * Either put came first and putIfAbsent saw its value, or
+             * putIfAbsent came first and put replaced its value.
+             */
+            if (putResults[i] == null) {
+                assertEquals("put", putIfAbsentResults[i]);
+            } else {
+                assertEquals("putIfAbsent", putResults[i]);
+                assertNull(putIfAbsentResults[i]);
+            }
+            assertEquals("put", pmap.get(i));
+        }
+    }
+}
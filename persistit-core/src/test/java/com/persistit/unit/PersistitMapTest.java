@@ -20,6 +20,7 @@ import com.persistit.Exchange;
 import com.persistit.KeyFilter;
 import com.persistit.PersistitMap;
 import com.persistit.PersistitUnitTestCase;
+import com.persistit.Transaction;
 import com.persistit.exception.PersistitException;
 import com.persistit.util.Util;
 import org.junit.Test;
@@ -447,6 +448,136 @@ public class PersistitMapTest extends PersistitUnitTestCase {
         System.out.println("- done");
     }
 
+    @Test
+    public void test8() throws PersistitException {
+        System.out.print("test8 ");
+
+        final Exchange ex = _persistit.getExchange("persistit", "PersistitMapTest8", true);
+        final PersistitMap pmap = new PersistitMap(ex, 0);
+        assertTrue(pmap.isCounted());
+        assertTrue(!new PersistitMap(ex).isCounted());
+
+        assertEquals(0, pmap.size());
+        assertTrue(pmap.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            pmap.put(Integer.valueOf(i), "v" + i);
+        }
+        pmap.put(Integer.valueOf(5), "again");
+        for (int i = 100; i < 200; i++) {
+            pmap.putFast(Integer.valueOf(i), "v" + i);
+        }
+        pmap.putFast(Integer.valueOf(150), "again");
+        assertEquals(200, pmap.size());
+        assertTrue(!pmap.isEmpty());
+        assertEquals(200, new PersistitMap(ex, 0).size());
+
+        assertEquals("v7", pmap.remove(Integer.valueOf(7)));
+        assertEquals(null, pmap.remove(Integer.valueOf(7)));
+        pmap.removeFast(Integer.valueOf(8));
+        pmap.removeFast(Integer.valueOf(8));
+        assertEquals(198, pmap.size());
+
+        final Iterator iterator = pmap.keySet().iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals(197, pmap.size());
+
+        final SortedMap submap = pmap.subMap(Integer.valueOf(50), Integer.valueOf(60));
+        assertEquals(10, submap.size());
+        submap.clear();
+        assertEquals(0, submap.size());
+        assertEquals(187, pmap.size());
+
+        final Transaction txn = _persistit.getTransaction();
+        txn.begin();
+        try {
+            pmap.put(Integer.valueOf(1000), "uncommitted");
+            pmap.removeFast(Integer.valueOf(100));
+            pmap.removeFast(Integer.valueOf(101));
+            assertEquals(186, pmap.size());
+            txn.rollback();
+        } finally {
+            txn.end();
+        }
+        assertEquals(187, pmap.size());
+
+        pmap.clear();
+        assertEquals(0, pmap.size());
+        assertTrue(pmap.isEmpty());
+
+        System.out.println("- done");
+    }
+
+    @Test
+    public void test9() throws Exception {
+        System.out.print("test9 ");
+
+        final Exchange ex = _persistit.getExchange("persistit", "PersistitMapTest9", true);
+        assertEquals(0, new PersistitMap(ex, 0).size());
+        //
+        // Counted updates of the same keys outside a transaction conflict
+        // and are retried rather than thrown
+        //
+        final Throwable[] failure = new Throwable[1];
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final PersistitMap pmap = new PersistitMap(_persistit.getExchange("persistit",
+                                "PersistitMapTest9", false), 0);
+                        for (int i = 0; i < 500; i++) {
+                            pmap.put(Integer.valueOf(i % 20), "v" + i);
+                            pmap.remove(Integer.valueOf((i + 10) % 20));
+                        }
+                    } catch (final Throwable e) {
+                        synchronized (failure) {
+                            failure[0] = e;
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        synchronized (failure) {
+            assertEquals(null, failure[0]);
+        }
+        final PersistitMap pmap = new PersistitMap(ex, 0);
+        ex.clear();
+        int count = 0;
+        while (ex.next()) {
+            count++;
+        }
+        assertEquals(count, pmap.size());
+        //
+        // A remove through the iterator within a transaction does not change
+        // the tree's change count and is not a concurrent modification
+        //
+        final PersistitMap plain = new PersistitMap(_persistit.getExchange("persistit", "PersistitMapTest9a", true));
+        for (int i = 0; i < 10; i++) {
+            plain.put(Integer.valueOf(i), "v" + i);
+        }
+        final Transaction txn = _persistit.getTransaction();
+        txn.begin();
+        try {
+            final Iterator iterator = plain.keySet().iterator();
+            while (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+            txn.commit();
+        } finally {
+            txn.end();
+        }
+        assertTrue(plain.isEmpty());
+
+        System.out.println("- done");
+    }
+
     public static void main(final String[] args) throws Exception {
         new PersistitMapTest().initAndRunTest();
     }
@@ -460,6 +591,8 @@ public class PersistitMapTest extends PersistitUnitTestCase {
         test5();
         test6();
         test7();
+        test8();
+        test9();
     }
 
     private String floatBits(final float v) {